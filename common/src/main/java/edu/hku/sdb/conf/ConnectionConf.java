@@ -23,11 +23,36 @@ public class ConnectionConf extends Configuration {
   private String sdbAddress;
   private Integer sdbPort;
   private Integer maxConnection;
+  private boolean metricsJmx = true;
+  // 0 to disable the http endpoint of metrics.
+  private int metricsHttpPort = 0;
+  // Negative to disable the slow query log.
+  private long slowQueryThreshold = 1000;
+  private int slowQueryBufferSize = 1024;
+  // Memory of a single operator of the client, e.g. the hash table of a join.
+  private long execMemoryLimit = 256;
+  // Memory of the rows buffered by a query, e.g. its results.
+  private long execBufferLimit = 512;
+  // Null for the temporary directory of the system.
+  private String execSpillDir;
+  // off, on or auto to let the cost model decide.
+  private String keyNormalization = "auto";
+  // The number of server nodes running the UDFs of a query in parallel.
+  private int serverParallelism = 8;
 
   // Proxy related
   public static String SDB_PROXY_CONNECTION_MAX = "sdb.proxy.connection.max";
   public static String SDB_PROXY_CONNECTION_PORT = "sdb.proxy.connection.port";
   public static String SDB_PROXY_CONNECTION_ADDRESS = "sdb.proxy.connection.address";
+  public static String SDB_PROXY_METRICS_JMX = "sdb.proxy.metrics.jmx";
+  public static String SDB_PROXY_METRICS_HTTP_PORT = "sdb.proxy.metrics.http.port";
+  public static String SDB_PROXY_SLOWQUERY_THRESHOLD = "sdb.proxy.slowquery.threshold.ms";
+  public static String SDB_PROXY_SLOWQUERY_BUFFER_SIZE = "sdb.proxy.slowquery.buffer.size";
+  public static String SDB_PROXY_EXEC_MEMORY_LIMIT = "sdb.proxy.exec.memory.limit.mb";
+  public static String SDB_PROXY_EXEC_BUFFER_LIMIT = "sdb.proxy.exec.buffer.limit.mb";
+  public static String SDB_PROXY_EXEC_SPILL_DIR = "sdb.proxy.exec.spill.dir";
+  public static String SDB_PROXY_OPTIMIZE_KEY_NORMALIZATION = "sdb.proxy.optimize.key.normalization";
+  public static String SDB_PROXY_SERVER_PARALLELISM = "sdb.proxy.server.parallelism";
 
   public static String CONF_FILE = "sdb-connection.xml";
 
@@ -35,6 +60,31 @@ public class ConnectionConf extends Configuration {
     sdbAddress = prop.get(SDB_PROXY_CONNECTION_ADDRESS);
     sdbPort = Integer.valueOf(prop.get(SDB_PROXY_CONNECTION_PORT));
     maxConnection = Integer.valueOf(prop.get(SDB_PROXY_CONNECTION_MAX));
+    if (prop.get(SDB_PROXY_METRICS_JMX) != null)
+      metricsJmx = Boolean.valueOf(prop.get(SDB_PROXY_METRICS_JMX).trim());
+    if (prop.get(SDB_PROXY_METRICS_HTTP_PORT) != null)
+      metricsHttpPort = Integer.valueOf(prop.get(SDB_PROXY_METRICS_HTTP_PORT)
+              .trim());
+    if (prop.get(SDB_PROXY_SLOWQUERY_THRESHOLD) != null)
+      slowQueryThreshold = Long.valueOf(prop.get
+              (SDB_PROXY_SLOWQUERY_THRESHOLD).trim());
+    if (prop.get(SDB_PROXY_SLOWQUERY_BUFFER_SIZE) != null)
+      slowQueryBufferSize = Integer.valueOf(prop.get
+              (SDB_PROXY_SLOWQUERY_BUFFER_SIZE).trim());
+    if (prop.get(SDB_PROXY_EXEC_MEMORY_LIMIT) != null)
+      execMemoryLimit = Long.valueOf(prop.get(SDB_PROXY_EXEC_MEMORY_LIMIT)
+              .trim());
+    if (prop.get(SDB_PROXY_EXEC_BUFFER_LIMIT) != null)
+      execBufferLimit = Long.valueOf(prop.get(SDB_PROXY_EXEC_BUFFER_LIMIT)
+              .trim());
+    if (prop.get(SDB_PROXY_EXEC_SPILL_DIR) != null && !prop.get
+            (SDB_PROXY_EXEC_SPILL_DIR).trim().isEmpty())
+      execSpillDir = prop.get(SDB_PROXY_EXEC_SPILL_DIR).trim();
+    if (prop.get(SDB_PROXY_OPTIMIZE_KEY_NORMALIZATION) != null)
+      keyNormalization = prop.get(SDB_PROXY_OPTIMIZE_KEY_NORMALIZATION).trim();
+    if (prop.get(SDB_PROXY_SERVER_PARALLELISM) != null)
+      serverParallelism = Integer.valueOf(prop.get
+              (SDB_PROXY_SERVER_PARALLELISM).trim());
   }
 
   public String getSdbAddress() {
@@ -63,6 +113,81 @@ public class ConnectionConf extends Configuration {
     this.maxConnection = maxConnection;
   }
 
+  public boolean isMetricsJmx() {
+    return metricsJmx;
+  }
+
+  public void setMetricsJmx(boolean metricsJmx) {
+    this.metricsJmx = metricsJmx;
+  }
+
+  public int getMetricsHttpPort() {
+    return metricsHttpPort;
+  }
+
+  public void setMetricsHttpPort(int metricsHttpPort) {
+    this.metricsHttpPort = metricsHttpPort;
+  }
+
+  public long getSlowQueryThreshold() {
+    return slowQueryThreshold;
+  }
+
+  public void setSlowQueryThreshold(long slowQueryThreshold) {
+    this.slowQueryThreshold = slowQueryThreshold;
+  }
+
+  public int getSlowQueryBufferSize() {
+    return slowQueryBufferSize;
+  }
+
+  public void setSlowQueryBufferSize(int slowQueryBufferSize) {
+    this.slowQueryBufferSize = slowQueryBufferSize;
+  }
+
+  /**
+   * @return the memory limit of an operator in MB
+   */
+  public long getExecMemoryLimit() {
+    return execMemoryLimit;
+  }
+
+  public void setExecMemoryLimit(long execMemoryLimit) {
+    this.execMemoryLimit = execMemoryLimit;
+  }
+
+  public long getExecBufferLimit() {
+    return execBufferLimit;
+  }
+
+  public void setExecBufferLimit(long execBufferLimit) {
+    this.execBufferLimit = execBufferLimit;
+  }
+
+  public String getExecSpillDir() {
+    return execSpillDir;
+  }
+
+  public void setExecSpillDir(String execSpillDir) {
+    this.execSpillDir = execSpillDir;
+  }
+
+  public String getKeyNormalization() {
+    return keyNormalization;
+  }
+
+  public void setKeyNormalization(String keyNormalization) {
+    this.keyNormalization = keyNormalization;
+  }
+
+  public int getServerParallelism() {
+    return serverParallelism;
+  }
+
+  public void setServerParallelism(int serverParallelism) {
+    this.serverParallelism = serverParallelism;
+  }
+
   public void printConfig() {
     String config = "Sdb address: " + sdbAddress + "\n" + "Sdb port: "
             + sdbPort + "\n" + "Maximum number of connection: "
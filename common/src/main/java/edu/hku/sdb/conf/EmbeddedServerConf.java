@@ -0,0 +1,69 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.conf;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Configuration of an H2 database running inside the proxy, which stands in
+ * for hive when profiling or testing the whole query path on one machine.
+ *
+ * Without a jdbc url the database lives in memory as long as the proxy runs,
+ * otherwise it is stored under jdbcUrl/databaseName, e.g. jdbc:h2:/tmp/sdb.
+ */
+public class EmbeddedServerConf extends JDBCServerConf {
+
+  public static String DEFAULT_DRIVER_NAME = "org.h2.Driver";
+
+  public EmbeddedServerConf() {
+    super();
+    type = ServerType.EMBEDDED;
+    jdbcDriverName = DEFAULT_DRIVER_NAME;
+  }
+
+  /**
+   * @return the url of the database, which every connection shares
+   */
+  public String getConnectionUrl() {
+    if (jdbcUrl == null || jdbcUrl.isEmpty())
+      // Keep the in memory database after its last connection is closed.
+      return "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1";
+    return jdbcUrl + "/" + databaseName;
+  }
+
+  @Override
+  public Connection getConnection() {
+    Connection connection = null;
+    try {
+      Class.forName(jdbcDriverName);
+      if (username != null && password != null) {
+        connection = DriverManager.getConnection(getConnectionUrl(),
+                username, password);
+      } else {
+        connection = DriverManager.getConnection(getConnectionUrl());
+      }
+    } catch (ClassNotFoundException e) {
+      e.printStackTrace();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return connection;
+  }
+}
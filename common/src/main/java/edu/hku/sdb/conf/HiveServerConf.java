@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 public class HiveServerConf extends JDBCServerConf {
   private String hadoopUName;
+  private boolean fuseUdfs = false;
 
   private static final Logger LOG = LoggerFactory
           .getLogger(HiveServerConf.class);
@@ -38,4 +39,12 @@ public class HiveServerConf extends JDBCServerConf {
     return hadoopUName;
   }
 
+  public void setFuseUdfs(boolean fuseUdfs) {
+    this.fuseUdfs = fuseUdfs;
+  }
+
+  public boolean isFuseUdfs() {
+    return fuseUdfs;
+  }
+
 }
@@ -10,6 +10,8 @@ public class ODPSServerConf extends ServerConf {
   private String odpsURL;
   private String tunnelURL;
   private String project;
+  // Number of tunnel blocks written in parallel by the uploader.
+  private int uploadThreads = 4;
 
   @Override
   void printConfig() {
@@ -55,4 +57,12 @@ public class ODPSServerConf extends ServerConf {
   public void setTunnelURL(String tunnelURL) {
     this.tunnelURL = tunnelURL;
   }
+
+  public int getUploadThreads() {
+    return uploadThreads;
+  }
+
+  public void setUploadThreads(int uploadThreads) {
+    this.uploadThreads = uploadThreads;
+  }
 }
@@ -35,12 +35,14 @@ public class ServerConfFactory {
   public static String SDB_SERVER_JDBC_DRIVERNAME = "sdb.server.jdbc.drivername";
   public static String SDB_SERVER_JDBC_URL = "sdb.server.jdbc.url";
   public static String SDB_SERVER_HADOOP_USERNAME = "sdb.server.hadoop.username";
+  public static String SDB_SERVER_HIVE_FUSE_UDFS = "sdb.server.hive.fuse_udfs";
 
   public static String SDB_SERVER_ODPS_ACCESSID = "sdb.server.odps.accessID";
   public static String SDB_SERVER_ODPS_ACCESSKEY = "sdb.server.odps.accessKey";
   public static String SDB_SERVER_ODPS_END_POINT = "sdb.server.odps.end_point";
   public static String SDB_SERVER_ODPS_TUNNEL_POINT = "sdb.server.odps.tunnel_point";
   public static String SDB_SERVER_ODPS_PROJECT = "sdb.server.odps.project";
+  public static String SDB_SERVER_ODPS_UPLOAD_THREADS = "sdb.server.odps.upload_threads";
 
   static public ServerConf getServerConf(Map<String, String> prop) {
     LOG.info("Creating server config for " + prop.get(SDB_SERVER_TYPE));
@@ -56,6 +58,9 @@ public class ServerConfFactory {
       hiveServerConf.setUsername(prop.get(SDB_SERVER_JDBC_USERNAME));
       hiveServerConf.setType(ServerType.HIVE);
       hiveServerConf.setHadoopUName(prop.get(SDB_SERVER_HADOOP_USERNAME));
+      if (prop.get(SDB_SERVER_HIVE_FUSE_UDFS) != null)
+        hiveServerConf.setFuseUdfs(Boolean.valueOf(prop.get
+                (SDB_SERVER_HIVE_FUSE_UDFS).trim()));
       return hiveServerConf;
     }
 
@@ -68,10 +73,26 @@ public class ServerConfFactory {
       odpsServerConf.setOdpsURL(prop.get(SDB_SERVER_ODPS_END_POINT));
       odpsServerConf.setProject(prop.get(SDB_SERVER_ODPS_PROJECT));
       odpsServerConf.setTunnelURL(prop.get(SDB_SERVER_ODPS_TUNNEL_POINT));
+      if (prop.get(SDB_SERVER_ODPS_UPLOAD_THREADS) != null)
+        odpsServerConf.setUploadThreads(Integer.valueOf(prop.get
+                (SDB_SERVER_ODPS_UPLOAD_THREADS).trim()));
 
       return odpsServerConf;
     }
 
+    else if(prop.get(SDB_SERVER_TYPE).equals(ServerType.EMBEDDED.toString())) {
+      EmbeddedServerConf embeddedServerConf = new EmbeddedServerConf();
+
+      embeddedServerConf.setDatabaseName(prop.get(SDB_SERVER_JDBC_DATABASE));
+      if (prop.get(SDB_SERVER_JDBC_DRIVERNAME) != null)
+        embeddedServerConf.setJdbcDriverName(prop.get
+                (SDB_SERVER_JDBC_DRIVERNAME));
+      embeddedServerConf.setJdbcUrl(prop.get(SDB_SERVER_JDBC_URL));
+      embeddedServerConf.setPassword(prop.get(SDB_SERVER_JDBC_PASSWORD));
+      embeddedServerConf.setUsername(prop.get(SDB_SERVER_JDBC_USERNAME));
+      return embeddedServerConf;
+    }
+
     else {
 
       LOG.error("Unsupported server type: " + prop.get(SDB_SERVER_TYPE));
@@ -6,7 +6,9 @@ package edu.hku.sdb.conf;
 public enum ServerType {
   MYSQL("mysql"),
   HIVE("hive"),
-  ODPS("odps");
+  ODPS("odps"),
+  // An in-process database, for running the whole query path locally.
+  EMBEDDED("embedded");
 
   private final String description;
 
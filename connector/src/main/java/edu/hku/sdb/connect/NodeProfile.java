@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.connect;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runtime statistics of a plan node and its children, sent to the client
+ * with the {@link Profiler}. All times are in nanoseconds and include the
+ * time spent in the children.
+ */
+public class NodeProfile implements Serializable {
+
+  private static final long serialVersionUID = 527L;
+
+  private final String name;
+  // e.g. the SQL sent to the server
+  private String detail;
+  private long totalTime;
+  private long rowsIn;
+  private long rowsOut;
+  private long bytesReceived;
+  // Time blocked on the server, waiting for results.
+  private long serverTime;
+  // CPU time spent on decryption.
+  private long decryptTime;
+  // Ciphertexts decrypted, row ids included.
+  private long decryptedCells;
+  // Peak number of bytes held in memory, e.g. by a hash table.
+  private long peakMemory;
+  // Rows written to disk because the memory limit was reached.
+  private long spilledRows;
+  private long modPowCount;
+  private long modInverseCount;
+  private long aesCount;
+  private List<NodeProfile> children = new ArrayList<NodeProfile>();
+
+  public NodeProfile(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDetail() {
+    return detail;
+  }
+
+  public void setDetail(String detail) {
+    this.detail = detail;
+  }
+
+  public long getTotalTime() {
+    return totalTime;
+  }
+
+  public void addTotalTime(long time) {
+    totalTime += time;
+  }
+
+  public long getRowsIn() {
+    return rowsIn;
+  }
+
+  public void addRowsIn(long rows) {
+    rowsIn += rows;
+  }
+
+  public long getRowsOut() {
+    return rowsOut;
+  }
+
+  public void addRowsOut(long rows) {
+    rowsOut += rows;
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived;
+  }
+
+  public void addBytesReceived(long bytes) {
+    bytesReceived += bytes;
+  }
+
+  public long getServerTime() {
+    return serverTime;
+  }
+
+  public void addServerTime(long time) {
+    serverTime += time;
+  }
+
+  public long getDecryptTime() {
+    return decryptTime;
+  }
+
+  public void addDecryptTime(long time) {
+    decryptTime += time;
+  }
+
+  public long getDecryptedCells() {
+    return decryptedCells;
+  }
+
+  public void addDecryptedCells(long cells) {
+    decryptedCells += cells;
+  }
+
+  /**
+   * @return the decrypted cells of the node and all its descendants
+   */
+  public long getTotalDecryptedCells() {
+    long cells = decryptedCells;
+    for (NodeProfile child : children)
+      cells += child.getTotalDecryptedCells();
+    return cells;
+  }
+
+  public long getPeakMemory() {
+    return peakMemory;
+  }
+
+  public void updatePeakMemory(long bytes) {
+    peakMemory = Math.max(peakMemory, bytes);
+  }
+
+  public long getSpilledRows() {
+    return spilledRows;
+  }
+
+  public void addSpilledRows(long rows) {
+    spilledRows += rows;
+  }
+
+  public long getModPowCount() {
+    return modPowCount;
+  }
+
+  public long getModInverseCount() {
+    return modInverseCount;
+  }
+
+  public long getAesCount() {
+    return aesCount;
+  }
+
+  public void addCryptoCounts(long modPow, long modInverse, long aes) {
+    modPowCount += modPow;
+    modInverseCount += modInverse;
+    aesCount += aes;
+  }
+
+  public List<NodeProfile> getChildren() {
+    return children;
+  }
+
+  public void setChildren(List<NodeProfile> children) {
+    this.children = children;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    appendTo(sb, "");
+    return sb.toString();
+  }
+
+  private void appendTo(StringBuilder sb, String indent) {
+    sb.append(indent).append(name);
+    if (detail != null)
+      sb.append(" [").append(detail).append("]");
+    sb.append(": time=").append(totalTime).append("ns")
+            .append(", rowsIn=").append(rowsIn)
+            .append(", rowsOut=").append(rowsOut);
+    if (bytesReceived > 0)
+      sb.append(", bytesReceived=").append(bytesReceived);
+    if (serverTime > 0)
+      sb.append(", serverTime=").append(serverTime).append("ns");
+    if (decryptTime > 0)
+      sb.append(", decryptTime=").append(decryptTime).append("ns");
+    if (decryptedCells > 0)
+      sb.append(", decryptedCells=").append(decryptedCells);
+    if (peakMemory > 0)
+      sb.append(", peakMemory=").append(peakMemory);
+    if (spilledRows > 0)
+      sb.append(", spilledRows=").append(spilledRows);
+    if (modPowCount + modInverseCount + aesCount > 0)
+      sb.append(", modPow=").append(modPowCount)
+              .append(", modInverse=").append(modInverseCount)
+              .append(", aes=").append(aesCount);
+    sb.append("\n");
+    for (NodeProfile child : children)
+      child.appendTo(sb, indent + "  ");
+  }
+}
@@ -39,5 +39,11 @@ public interface Profiler extends Remote {
 
   public long getServerTotalTime() throws RemoteException;
 
+  /**
+   * @return the statistics of every node of the executed plan, null if the
+   * statement has no plan.
+   */
+  public NodeProfile getPlanProfile() throws RemoteException;
+
 
 }
@@ -61,6 +61,19 @@ public class ColumnMeta {
   @Column(length = 2048)
   private String x;
 
+  // Statistics collected on upload, see ColumnStats. They are computed from
+  // the plaintext, so they are never sent to the server.
+  @Persistent
+  private long numNulls;
+  @Persistent
+  private String minValue;
+  @Persistent
+  private String maxValue;
+  @Persistent
+  private byte[] distinctSketch;
+  @Column(length = 2048)
+  private String histogram;
+
   @Persistent
   private TableMeta tableMeta;
 
@@ -211,6 +224,46 @@ public class ColumnMeta {
     this.x = x;
   }
 
+  public long getNumNulls() {
+    return numNulls;
+  }
+
+  public void setNumNulls(long numNulls) {
+    this.numNulls = numNulls;
+  }
+
+  public String getMinValue() {
+    return minValue;
+  }
+
+  public void setMinValue(String minValue) {
+    this.minValue = minValue;
+  }
+
+  public String getMaxValue() {
+    return maxValue;
+  }
+
+  public void setMaxValue(String maxValue) {
+    this.maxValue = maxValue;
+  }
+
+  public byte[] getDistinctSketch() {
+    return distinctSketch;
+  }
+
+  public void setDistinctSketch(byte[] distinctSketch) {
+    this.distinctSketch = distinctSketch;
+  }
+
+  public String getHistogram() {
+    return histogram;
+  }
+
+  public void setHistogram(String histogram) {
+    this.histogram = histogram;
+  }
+
 
   /**
    * @return the isSensitive
@@ -0,0 +1,244 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.catalog;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Statistics of a column: number of nulls, distinct values, and the min, max
+ * and histogram of a numeric column. They are collected from the plaintext
+ * values while a table is uploaded, so they must stay in the proxy even for
+ * sensitive columns.
+ */
+public class ColumnStats {
+
+  // Values sampled for the histogram while collecting.
+  static final int SAMPLE_SIZE = 4096;
+  // Written for a null value by Hive.
+  private static final String NULL_VALUE = "\\N";
+
+  private final boolean numeric;
+  private long numRows;
+  private long numNulls;
+  // Null unless the column is numeric and has a value.
+  private Double min;
+  private Double max;
+  private HyperLogLog distinct = new HyperLogLog();
+  private EquiDepthHistogram histogram;
+
+  // Reservoir sample of the numeric values, null once finished.
+  private double[] sample;
+  private long numSampled;
+  private Random random;
+
+  public ColumnStats(Type type) {
+    this.numeric = isNumeric(type);
+  }
+
+  public static boolean isNumeric(Type type) {
+    if (!(type instanceof ScalarType))
+      return false;
+    switch (((ScalarType) type).getType()) {
+      case TINYINT:
+      case SMALLINT:
+      case INT:
+      case BIGINT:
+      case FLOAT:
+      case DOUBLE:
+      case DECIMAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Add a plaintext value of the column.
+   *
+   * @param value the value, null or empty if it is missing
+   */
+  public void add(String value) {
+    numRows++;
+    if (value == null || value.isEmpty() || value.equals(NULL_VALUE)) {
+      numNulls++;
+      return;
+    }
+    distinct.add(value);
+    if (!numeric)
+      return;
+
+    double number;
+    try {
+      number = Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return;
+    }
+    if (min == null || number < min)
+      min = number;
+    if (max == null || number > max)
+      max = number;
+
+    if (sample == null) {
+      sample = new double[SAMPLE_SIZE];
+      // A fixed seed keeps the statistics of the same data stable.
+      random = new Random(0);
+    }
+    if (numSampled < SAMPLE_SIZE) {
+      sample[(int) numSampled] = number;
+    } else {
+      long slot = (long) (random.nextDouble() * (numSampled + 1));
+      if (slot < SAMPLE_SIZE)
+        sample[(int) slot] = number;
+    }
+    numSampled++;
+  }
+
+  /**
+   * Build the histogram from the values sampled so far.
+   */
+  public void finish() {
+    if (sample == null)
+      return;
+    int length = (int) Math.min(numSampled, SAMPLE_SIZE);
+    double[] sorted = Arrays.copyOf(sample, length);
+    Arrays.sort(sorted);
+    histogram = EquiDepthHistogram.fromSorted(sorted, length, Math.min
+            (EquiDepthHistogram.DEFAULT_BUCKETS, length));
+    // The sample may have missed the extremes.
+    double[] bounds = histogram.getBounds();
+    bounds[0] = min;
+    bounds[bounds.length - 1] = max;
+    sample = null;
+    random = null;
+  }
+
+  /**
+   * Merge the statistics of another load of the column into this one.
+   *
+   * @param other finished statistics
+   * @return this
+   */
+  public ColumnStats merge(ColumnStats other) {
+    histogram = EquiDepthHistogram.merge(histogram, getNumValues(), other
+            .histogram, other.getNumValues());
+    numRows += other.numRows;
+    numNulls += other.numNulls;
+    if (other.min != null && (min == null || other.min < min))
+      min = other.min;
+    if (other.max != null && (max == null || other.max > max))
+      max = other.max;
+    distinct.merge(other.distinct);
+    return this;
+  }
+
+  /**
+   * @param colMeta
+   * @param numRows the number of rows of the table
+   * @return the statistics persisted in the column meta
+   */
+  public static ColumnStats load(ColumnMeta colMeta, long numRows) {
+    ColumnStats stats = new ColumnStats(colMeta.getType());
+    stats.numRows = numRows;
+    stats.numNulls = colMeta.getNumNulls();
+    stats.min = parseDouble(colMeta.getMinValue());
+    stats.max = parseDouble(colMeta.getMaxValue());
+    stats.distinct = HyperLogLog.fromBytes(colMeta.getDistinctSketch());
+    stats.histogram = EquiDepthHistogram.parse(colMeta.getHistogram());
+    return stats;
+  }
+
+  /**
+   * Persist the statistics in the column meta.
+   *
+   * @param colMeta
+   */
+  public void save(ColumnMeta colMeta) {
+    colMeta.setNumNulls(numNulls);
+    colMeta.setMinValue(min == null ? null : min.toString());
+    colMeta.setMaxValue(max == null ? null : max.toString());
+    colMeta.setDistinctSketch(distinct.toBytes());
+    colMeta.setHistogram(histogram == null ? null : histogram.toString());
+  }
+
+  private static Double parseDouble(String value) {
+    return value == null ? null : Double.valueOf(value);
+  }
+
+  public long getNumRows() {
+    return numRows;
+  }
+
+  public long getNumNulls() {
+    return numNulls;
+  }
+
+  /**
+   * @return the number of values that are not null
+   */
+  public long getNumValues() {
+    return numRows - numNulls;
+  }
+
+  /**
+   * @return the estimated number of distinct values, at least 1
+   */
+  public long getNumDistinct() {
+    return Math.max(1, Math.min(distinct.estimate(), getNumValues()));
+  }
+
+  public Double getMin() {
+    return min;
+  }
+
+  public Double getMax() {
+    return max;
+  }
+
+  public EquiDepthHistogram getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * @return the estimated fraction of the rows with a value not greater than
+   * value, -1 if it cannot be estimated
+   */
+  public double fractionBelow(double value) {
+    if (numRows == 0 || min == null)
+      return -1;
+    double cumulative;
+    if (histogram != null)
+      cumulative = histogram.cumulative(value);
+    else if (value >= max)
+      cumulative = 1;
+    else if (value < min)
+      cumulative = 0;
+    else
+      cumulative = max > min ? (value - min) / (max - min) : 1;
+    return cumulative * getNumValues() / numRows;
+  }
+
+  /**
+   * @return the estimated fraction of the rows equal to a value
+   */
+  public double fractionEqual() {
+    if (numRows == 0)
+      return 0;
+    return (double) getNumValues() / numRows / getNumDistinct();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.catalog;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * The distribution of the values of a numeric column. Every bucket holds the
+ * same number of values, between two consecutive bounds, so that skewed
+ * values get narrow buckets.
+ */
+public class EquiDepthHistogram {
+
+  public static final int DEFAULT_BUCKETS = 32;
+
+  // Ascending, from the min to the max value.
+  private final double[] bounds;
+
+  public EquiDepthHistogram(double[] bounds) {
+    if (bounds.length < 2)
+      throw new IllegalArgumentException("A histogram needs at least 2 " +
+              "bounds");
+    this.bounds = bounds;
+  }
+
+  /**
+   * @param values  sorted values, e.g. a sample of the column
+   * @param length  number of values used in the array
+   * @param buckets
+   * @return the histogram of the values, null if there is no value
+   */
+  public static EquiDepthHistogram fromSorted(double[] values, int length,
+                                              int buckets) {
+    if (length == 0)
+      return null;
+    double[] bounds = new double[buckets + 1];
+    for (int i = 0; i <= buckets; i++)
+      bounds[i] = values[(int) Math.round((double) i * (length - 1) /
+              buckets)];
+    return new EquiDepthHistogram(bounds);
+  }
+
+  /**
+   * @return the estimated fraction of the values not greater than value
+   */
+  public double cumulative(double value) {
+    int buckets = bounds.length - 1;
+    double covered = 0;
+    for (int i = 0; i < buckets; i++) {
+      double low = bounds[i];
+      double high = bounds[i + 1];
+      if (value >= high)
+        covered++;
+      else if (value >= low && high > low)
+        covered += (value - low) / (high - low);
+    }
+    return covered / buckets;
+  }
+
+  /**
+   * Merge the histograms of two sets of values. The merged bounds are the
+   * quantiles of the weighted sum of both distributions.
+   *
+   * @return the histogram of both, or the one that is not null
+   */
+  public static EquiDepthHistogram merge(EquiDepthHistogram left, long
+          leftValues, EquiDepthHistogram right, long rightValues) {
+    if (left == null || leftValues <= 0)
+      return right;
+    if (right == null || rightValues <= 0)
+      return left;
+
+    TreeSet<Double> pointSet = new TreeSet<>();
+    for (double bound : left.bounds)
+      pointSet.add(bound);
+    for (double bound : right.bounds)
+      pointSet.add(bound);
+    double[] points = new double[pointSet.size()];
+    double[] fractions = new double[points.length];
+    int index = 0;
+    for (double point : pointSet) {
+      points[index] = point;
+      fractions[index] = (leftValues * left.cumulative(point) + rightValues *
+              right.cumulative(point)) / (leftValues + rightValues);
+      index++;
+    }
+
+    int buckets = Math.max(left.bounds.length, right.bounds.length) - 1;
+    double[] bounds = new double[buckets + 1];
+    bounds[0] = points[0];
+    bounds[buckets] = points[points.length - 1];
+    int next = 0;
+    for (int i = 1; i < buckets; i++) {
+      double quantile = (double) i / buckets;
+      while (fractions[next] < quantile)
+        next++;
+      if (next == 0) {
+        bounds[i] = points[0];
+      } else {
+        double low = fractions[next - 1];
+        double high = fractions[next];
+        bounds[i] = points[next - 1] + (points[next] - points[next - 1]) *
+                (quantile - low) / (high - low);
+      }
+    }
+    return new EquiDepthHistogram(bounds);
+  }
+
+  public double[] getBounds() {
+    return bounds;
+  }
+
+  /**
+   * @param histogram the string returned by {@link #toString()}, or null
+   * @return the histogram, null if there is none
+   */
+  public static EquiDepthHistogram parse(String histogram) {
+    if (histogram == null || histogram.isEmpty())
+      return null;
+    String[] parts = histogram.split(",");
+    double[] bounds = new double[parts.length];
+    for (int i = 0; i < parts.length; i++)
+      bounds[i] = Double.parseDouble(parts[i]);
+    return new EquiDepthHistogram(bounds);
+  }
+
+  /**
+   * @return the bounds separated by ","
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < bounds.length; i++) {
+      if (i > 0)
+        sb.append(",");
+      sb.append(bounds[i]);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof EquiDepthHistogram && Arrays.equals(bounds,
+            ((EquiDepthHistogram) obj).bounds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bounds);
+  }
+}
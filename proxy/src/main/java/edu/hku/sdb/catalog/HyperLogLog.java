@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.catalog;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values of a column
+ * in a fixed amount of memory. Sketches of different loads of a table are
+ * merged into the sketch of the whole table.
+ */
+public class HyperLogLog {
+
+  // 2^11 registers, about 2.3% standard error.
+  private static final int PRECISION = 11;
+  static final int NUM_REGISTERS = 1 << PRECISION;
+
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    registers = new byte[NUM_REGISTERS];
+  }
+
+  private HyperLogLog(byte[] registers) {
+    this.registers = registers;
+  }
+
+  public void add(String value) {
+    long hash = hash(value);
+    int index = (int) (hash >>> (64 - PRECISION));
+    // Position of the first 1 bit in the remaining bits.
+    int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L <<
+            (PRECISION - 1))) + 1;
+    if (rank > registers[index])
+      registers[index] = (byte) rank;
+  }
+
+  /**
+   * Merge the values of another sketch into this one.
+   *
+   * @param other
+   */
+  public void merge(HyperLogLog other) {
+    for (int i = 0; i < NUM_REGISTERS; i++) {
+      if (other.registers[i] > registers[i])
+        registers[i] = other.registers[i];
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added
+   */
+  public long estimate() {
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0)
+        zeros++;
+    }
+    double m = NUM_REGISTERS;
+    double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+    // Linear counting is more accurate for small cardinalities.
+    if (estimate <= 2.5 * m && zeros > 0)
+      estimate = m * Math.log(m / zeros);
+    return Math.round(estimate);
+  }
+
+  public byte[] toBytes() {
+    return registers.clone();
+  }
+
+  /**
+   * @param bytes the registers returned by {@link #toBytes()}, or null
+   * @return the sketch, empty if the bytes are not a valid sketch
+   */
+  public static HyperLogLog fromBytes(byte[] bytes) {
+    if (bytes == null || bytes.length != NUM_REGISTERS)
+      return new HyperLogLog();
+    return new HyperLogLog(bytes.clone());
+  }
+
+  /**
+   * 64 bit FNV-1a followed by the finalizer of MurmurHash3, so that every bit
+   * of the hash depends on every char.
+   */
+  static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
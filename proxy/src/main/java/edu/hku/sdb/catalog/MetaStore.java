@@ -27,6 +27,7 @@ import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 import javax.jdo.Transaction;
 
+import edu.hku.sdb.metrics.SdbMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -146,6 +147,41 @@ public class MetaStore {
     }
   }
 
+  /**
+   * Merge the statistics of newly uploaded rows into the ones of the table,
+   * or replace them if the rows replaced the ones of the table.
+   *
+   * @param dbName
+   * @param tblName
+   * @param stats finished statistics of the uploaded rows
+   * @param overwrite whether the uploaded rows replaced the table
+   */
+  public void updateStats(String dbName, String tblName, TableStats stats,
+                          boolean overwrite) {
+    TableMeta tblMeta = getTbl(dbName, tblName);
+    if (tblMeta == null)
+      return;
+
+    Transaction tx = pm.currentTransaction();
+    try {
+      tx.begin();
+      long numRows = overwrite ? 0 : tblMeta.getNumRows();
+      for (ColumnMeta colMeta : tblMeta.getCols()) {
+        ColumnStats colStats = stats.getColumn(colMeta.getColName());
+        if (colStats == null)
+          continue;
+        if (numRows > 0)
+          colStats = ColumnStats.load(colMeta, numRows).merge(colStats);
+        colStats.save(colMeta);
+      }
+      tblMeta.setNumRows(numRows + stats.getNumRows());
+      tx.commit();
+    } finally {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+    }
+  }
 
   /**
    * Get db meta.
@@ -211,9 +247,11 @@ public class MetaStore {
     try {
       result = (T) pm.getObjectById(clazz, keyString);
     } catch (JDOObjectNotFoundException nfe) {
+      SdbMetrics.CATALOG_LOOKUPS.labels(clazz.getSimpleName(), "missing").inc();
       LOG.warn("No " + clazz.getCanonicalName() + " found with key: " + keyString);
       return null;
     }
+    SdbMetrics.CATALOG_LOOKUPS.labels(clazz.getSimpleName(), "found").inc();
     return result;
   }
 
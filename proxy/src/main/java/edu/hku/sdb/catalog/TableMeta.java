@@ -42,6 +42,22 @@ public class TableMeta {
   @Persistent
   private DBMeta dbMeta;
 
+  // File format on server, null for delimited text.
+  @Persistent
+  private String fileFormat;
+
+  // Default compression codec and split size of uploaded data, null if not
+  // specified by sdb.upload.codec and sdb.upload.split.size.
+  @Persistent
+  private String uploadCodec;
+
+  @Persistent
+  private String uploadSplitSize;
+
+  // Rows uploaded so far, 0 if there is no statistics of the table.
+  @Persistent
+  private long numRows;
+
   public static class TablePK extends Key {
 
     private static final long serialVersionUID = 1L;
@@ -127,6 +143,38 @@ public class TableMeta {
   }
 
 
+  public String getFileFormat() {
+    return fileFormat;
+  }
+
+  public void setFileFormat(String fileFormat) {
+    this.fileFormat = fileFormat;
+  }
+
+  public String getUploadCodec() {
+    return uploadCodec;
+  }
+
+  public void setUploadCodec(String uploadCodec) {
+    this.uploadCodec = uploadCodec;
+  }
+
+  public String getUploadSplitSize() {
+    return uploadSplitSize;
+  }
+
+  public void setUploadSplitSize(String uploadSplitSize) {
+    this.uploadSplitSize = uploadSplitSize;
+  }
+
+  public long getNumRows() {
+    return numRows;
+  }
+
+  public void setNumRows(long numRows) {
+    this.numRows = numRows;
+  }
+
   /**
    * Remove a column by name
    *
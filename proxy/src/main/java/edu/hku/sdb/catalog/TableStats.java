@@ -0,0 +1,76 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.catalog;
+
+import java.util.List;
+
+/**
+ * Collects the statistics of the rows of a table being uploaded.
+ */
+public class TableStats {
+
+  private final List<ColumnMeta> colMetas;
+  private final ColumnStats[] columns;
+  private long numRows;
+
+  /**
+   * @param colMetas the columns in the order of the values of a row
+   */
+  public TableStats(List<ColumnMeta> colMetas) {
+    this.colMetas = colMetas;
+    columns = new ColumnStats[colMetas.size()];
+    for (int i = 0; i < columns.length; i++)
+      columns[i] = new ColumnStats(colMetas.get(i).getType());
+  }
+
+  /**
+   * Add the plaintext values of a row. Missing trailing values are nulls.
+   * Rows may be added by several threads.
+   *
+   * @param values
+   */
+  public synchronized void addRow(String[] values) {
+    numRows++;
+    for (int i = 0; i < columns.length; i++)
+      columns[i].add(i < values.length ? values[i] : null);
+  }
+
+  /**
+   * Build the histograms once all the rows are added.
+   */
+  public synchronized void finish() {
+    for (ColumnStats column : columns)
+      column.finish();
+  }
+
+  public long getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * @param colName
+   * @return the statistics of the column, null if it is not collected
+   */
+  public ColumnStats getColumn(String colName) {
+    for (int i = 0; i < columns.length; i++) {
+      if (colMetas.get(i).getColName().equals(colName))
+        return columns[i];
+    }
+    return null;
+  }
+}
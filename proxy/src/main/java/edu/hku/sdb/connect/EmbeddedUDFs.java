@@ -0,0 +1,275 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.connect;
+
+import edu.hku.sdb.udf.util.SdbProgram;
+import edu.hku.sdb.udf.util.SumAccumulator;
+import edu.hku.sdb.udf.util.UDFHandler;
+import org.h2.api.AggregateFunction;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The sdb UDFs for the embedded server. They share their logic with the hive
+ * and odps UDFs, and are registered to H2 as java functions and aggregates by
+ * {@link #register(ServerConnection)}. All ciphertexts are radix-36 strings,
+ * and a null argument gives a null result.
+ */
+public class EmbeddedUDFs {
+
+  private static final String[][] FUNCTIONS = {
+          {"sdb_intadd", "intAdd"},
+          {"sdb_add", "add"},
+          {"sdb_mul", "multi"},
+          {"sdb_keyUp", "keyUpdate"},
+          {"sdb_keyUpPlain", "keyUpdatePlain"},
+          {"sdb_cartesian", "cartesianProduct"},
+          {"sdb_lt", "lessThan"},
+          {"sdb_gt", "greatThan"},
+          {"sdb_le", "lessEqual"},
+          {"sdb_ge", "greatEqual"},
+          {"sdb_eq", "equal"},
+          {"sdb_ne", "notEqual"},
+          {"sdb_eval", "eval"}};
+
+  private static final String[][] AGGREGATES = {
+          {"sdb_sum", SdbSum.class.getName()},
+          {"sdb_first", SdbFirst.class.getName()}};
+
+  public static void register(ServerConnection serverConnection) {
+    // Hive queries may cast to STRING, which H2 does not know.
+    serverConnection.execute("CREATE DOMAIN IF NOT EXISTS STRING AS VARCHAR");
+    for (String[] function : FUNCTIONS) {
+      serverConnection.execute("CREATE ALIAS IF NOT EXISTS " + function[0] +
+              " FOR \"" + EmbeddedUDFs.class.getName() + "." + function[1] +
+              "\"");
+    }
+    for (String[] aggregate : AGGREGATES) {
+      serverConnection.execute("CREATE AGGREGATE IF NOT EXISTS " +
+              aggregate[0] + " FOR \"" + aggregate[1] + "\"");
+    }
+  }
+
+  // Number of compiled sdb_eval programs kept by each thread.
+  static final int PROGRAM_CACHE_SIZE = 64;
+
+  // The compiled programs by their text. A program is not thread safe, so
+  // each thread keeps its own, and the least recently used one is dropped.
+  private static final ThreadLocal<Map<String, SdbProgram>> PROGRAMS = new
+          ThreadLocal<Map<String, SdbProgram>>() {
+            @Override
+            protected Map<String, SdbProgram> initialValue() {
+              return new LinkedHashMap<String, SdbProgram>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String,
+                        SdbProgram> eldest) {
+                  return size() > PROGRAM_CACHE_SIZE;
+                }
+              };
+            }
+          };
+
+  private static BigInteger parse(String value) {
+    return new BigInteger(value, Character.MAX_RADIX);
+  }
+
+  private static String format(BigInteger value) {
+    return value.toString(Character.MAX_RADIX);
+  }
+
+  public static String intAdd(String a, String b, String n) {
+    if (a == null || b == null || n == null)
+      return null;
+    return format(UDFHandler.integerAdd(parse(a), parse(b), parse(n)));
+  }
+
+  public static String add(String a, String b, String n) {
+    if (a == null || b == null || n == null)
+      return null;
+    return format(UDFHandler.add(parse(a), parse(b), parse(n)));
+  }
+
+  public static String multi(String a, String b, String n) {
+    if (a == null || b == null || n == null)
+      return null;
+    return format(UDFHandler.multi(parse(a), parse(b), parse(n)));
+  }
+
+  public static String keyUpdate(String a, String s, String p, String q,
+                                 String n) {
+    if (a == null || s == null || p == null || q == null || n == null)
+      return null;
+    return format(UDFHandler.keyUpdate(parse(a), parse(s), parse(p), parse(q),
+            parse(n)));
+  }
+
+  /**
+   * Same as {@link #keyUpdate}, but a is a plaintext integer.
+   */
+  public static String keyUpdatePlain(Long a, String s, String p, String q,
+                                      String n) {
+    if (a == null || s == null || p == null || q == null || n == null)
+      return null;
+    return format(UDFHandler.keyUpdate(BigInteger.valueOf(a), parse(s), parse
+            (p), parse(q), parse(n)));
+  }
+
+  public static String cartesianProduct(String a, String s, String p, String
+          n) {
+    if (a == null || s == null || p == null || n == null)
+      return null;
+    return format(UDFHandler.cartesianProduct(parse(a), parse(s), parse(p),
+            parse(n)));
+  }
+
+  public static boolean lessThan(String value, String halfN) {
+    return value != null && halfN != null && UDFHandler.lessThan(parse(value),
+            parse(halfN));
+  }
+
+  public static boolean greatThan(String value, String halfN) {
+    return value != null && halfN != null && UDFHandler.greatThan(parse
+            (value), parse(halfN));
+  }
+
+  public static boolean lessEqual(String value, String halfN) {
+    return value != null && halfN != null && (UDFHandler.lessThan(parse
+            (value), parse(halfN)) || UDFHandler.equal(parse(value)));
+  }
+
+  public static boolean greatEqual(String value, String halfN) {
+    return value != null && halfN != null && (UDFHandler.greatThan(parse
+            (value), parse(halfN)) || UDFHandler.equal(parse(value)));
+  }
+
+  public static boolean equal(String value) {
+    return value != null && UDFHandler.equal(parse(value));
+  }
+
+  public static boolean notEqual(String value) {
+    return value != null && !UDFHandler.equal(parse(value));
+  }
+
+  /**
+   * Evaluates a fused {@link SdbProgram}. Plain arguments are given in
+   * radix 10.
+   */
+  public static String eval(String program, String... arguments) {
+    if (program == null)
+      return null;
+    SdbProgram sdbProgram = getProgram(program);
+    if (sdbProgram.getNumArguments() != arguments.length) {
+      throw new IllegalArgumentException("sdb_eval program " + program +
+              " takes " + sdbProgram.getNumArguments() + " arguments, but got " +
+              arguments.length);
+    }
+    BigInteger[] values = new BigInteger[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      if (arguments[i] == null)
+        return null;
+      values[i] = sdbProgram.isPlainArgument(i) ? new BigInteger
+              (arguments[i]) : parse(arguments[i]);
+    }
+    return format(sdbProgram.evaluate(values));
+  }
+
+  /**
+   * @return the compiled program, which is only compiled the first time the
+   * current thread evaluates it.
+   */
+  static SdbProgram getProgram(String program) {
+    Map<String, SdbProgram> programs = PROGRAMS.get();
+    SdbProgram sdbProgram = programs.get(program);
+    if (sdbProgram == null) {
+      sdbProgram = SdbProgram.compile(program);
+      programs.put(program, sdbProgram);
+    }
+    return sdbProgram;
+  }
+
+  /**
+   * sdb_sum(value, n), the sum of ciphertexts mod n.
+   */
+  public static class SdbSum implements AggregateFunction {
+
+    private final SumAccumulator sum = new SumAccumulator();
+
+    @Override
+    public void init(Connection conn) throws SQLException {
+    }
+
+    @Override
+    public int getType(int[] inputTypes) throws SQLException {
+      if (inputTypes.length != 2)
+        throw new SQLException("sdb_sum requires 2 arguments, but got " +
+                inputTypes.length);
+      return Types.VARCHAR;
+    }
+
+    @Override
+    public void add(Object value) throws SQLException {
+      Object[] args = (Object[]) value;
+      if (args[0] == null || args[1] == null)
+        return;
+      if (!sum.hasModulus())
+        sum.setModulus(parse(args[1].toString()));
+      sum.add(parse(args[0].toString()));
+    }
+
+    @Override
+    public Object getResult() throws SQLException {
+      return sum.hasModulus() ? format(sum.get()) : null;
+    }
+  }
+
+  /**
+   * sdb_first(value), the first non-null value of a group.
+   */
+  public static class SdbFirst implements AggregateFunction {
+
+    private Object first;
+
+    @Override
+    public void init(Connection conn) throws SQLException {
+    }
+
+    @Override
+    public int getType(int[] inputTypes) throws SQLException {
+      if (inputTypes.length != 1)
+        throw new SQLException("sdb_first requires 1 argument, but got " +
+                inputTypes.length);
+      return inputTypes[0];
+    }
+
+    @Override
+    public void add(Object value) throws SQLException {
+      if (first == null)
+        first = value;
+    }
+
+    @Override
+    public Object getResult() throws SQLException {
+      return first;
+    }
+  }
+}
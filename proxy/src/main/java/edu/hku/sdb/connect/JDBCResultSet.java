@@ -2,22 +2,35 @@ package edu.hku.sdb.connect;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Created by andy on 9/30/15.
  */
 public class JDBCResultSet implements ServerResultSet {
 
+  // The statement of this query only, null if it is shared.
+  private Statement statement;
   private ResultSet resultSet;
+  private boolean exhausted = false;
 
   public JDBCResultSet(ResultSet resultSet) {
     this.resultSet = resultSet;
   }
 
+  public JDBCResultSet(Statement statement, ResultSet resultSet) {
+    this.statement = statement;
+    this.resultSet = resultSet;
+  }
+
   @Override
   public boolean next() {
     try {
-     return resultSet.next();
+      if (exhausted || !resultSet.next()) {
+        exhausted = true;
+        return false;
+      }
+      return true;
     } catch (SQLException e) {
       e.printStackTrace();
       return false;
@@ -33,4 +46,19 @@ public class JDBCResultSet implements ServerResultSet {
       return null;
     }
   }
+
+  @Override
+  public void close() {
+    try {
+      // Stop the server from producing the rows nobody reads.
+      if (statement != null && !exhausted)
+        statement.cancel();
+      resultSet.close();
+      if (statement != null)
+        statement.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    exhausted = true;
+  }
 }
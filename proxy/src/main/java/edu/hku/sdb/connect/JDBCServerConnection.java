@@ -38,6 +38,13 @@ public class JDBCServerConnection extends  ServerConnection{
     }
   }
 
+  /**
+   * Use a connection that is already opened, e.g. to an embedded database.
+   */
+  public JDBCServerConnection(java.sql.Connection connection) {
+    this.connection = connection;
+  }
+
   public void initStatment() {
     try {
       statement = connection.createStatement();
@@ -60,11 +67,12 @@ public class JDBCServerConnection extends  ServerConnection{
 
   @Override
   public ServerResultSet executeQuery(String query) {
-    if(statement == null)
-      initStatment();
-
     try {
-      JDBCResultSet resultSet = new JDBCResultSet(statement.executeQuery(query));
+      // A statement per query, so that several results can be read at once
+      // and a query can be cancelled alone.
+      java.sql.Statement queryStatement = connection.createStatement();
+      JDBCResultSet resultSet = new JDBCResultSet(queryStatement,
+              queryStatement.executeQuery(query));
 
       return resultSet;
     } catch (SQLException e) {
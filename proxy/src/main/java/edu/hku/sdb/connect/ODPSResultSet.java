@@ -56,4 +56,13 @@ public class ODPSResultSet implements ServerResultSet {
       return ret;
     }
   }
+
+  /**
+   * The results of an ODPS instance are collected once it succeeds, so there
+   * is nothing left to cancel on the server.
+   */
+  @Override
+  public void close() {
+    result = new String[0];
+  }
 }
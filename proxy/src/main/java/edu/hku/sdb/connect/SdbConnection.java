@@ -63,6 +63,10 @@ public class SdbConnection extends UnicastRemoteObject implements Connection,
     else if (sdbConf.getServerConf().getType() == ServerType.ODPS) {
       serverDBName = ((ODPSServerConf) sdbConf.getServerConf()).getProject();
     }
+    else if (sdbConf.getServerConf().getType() == ServerType.EMBEDDED) {
+      serverDBName = ((EmbeddedServerConf) sdbConf.getServerConf())
+              .getDatabaseName();
+    }
     else {
       LOG.error("Unsupported server type: " + sdbConf.getServerConf().getType());
       System.exit(0);
@@ -109,6 +113,7 @@ public class SdbConnection extends UnicastRemoteObject implements Connection,
         //create sdbStatement
         LOG.info("Creating sdb statement");
         SdbStatement sdbStatement = new SdbStatement(metaStore, serverConnection, serverDB, sdbConf.getServerConf());
+        sdbStatement.setConnectionConf(connectionConf);
         serviceUrl = connectionConf.getSdbAddress() + ":"
                 + connectionConf.getSdbPort() + "/" + SERVICE_NAME;
         Naming.rebind(serviceUrl, sdbStatement);
@@ -17,15 +17,16 @@
 
 package edu.hku.sdb.connect;
 
+import edu.hku.sdb.exec.BasicTupleSlot;
 import edu.hku.sdb.exec.ExecutionState;
 import edu.hku.sdb.exec.Executor;
 import edu.hku.sdb.exec.PlanNode;
+import edu.hku.sdb.exec.TupleSlot;
 
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.ArrayList;
 import java.util.List;
 
 public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
@@ -33,8 +34,10 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
 
   private static final long serialVersionUID = 127L;
 
-  private List<Object[]> tuple;
-  private int index;
+  private BasicTupleSlot tuples;
+  private long rowCount;
+  // The row at the cursor, null before the first row and after the last.
+  private List<Object> tuple;
 
   private ExecutionState eState;
   private Executor executor;
@@ -42,6 +45,7 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
   private SDBResultSetMetaData sdbResultSetMetaData;
 
   private SDBProfiler sdbProfiler;
+  private NodeProfile planProfile;
   private String remoteSQLQuery;
 
   public void setSdbProfiler(SDBProfiler sdbProfiler) {
@@ -50,8 +54,7 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
 
   public SdbResultSet() throws RemoteException {
     super();
-    tuple = new ArrayList<>();
-    index = -1;
+    tuples = new TupleSlot();
     sdbProfiler = new SDBProfiler();
   }
 
@@ -72,8 +75,8 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
     this.sdbResultSetMetaData = sdbResultSetMetaData;
   }
 
-  public List<Object[]> getTuple() {
-    return tuple;
+  public long getRowCount() {
+    return rowCount;
   }
 
   public PlanNode getPlanNode() {
@@ -100,32 +103,33 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
     this.eState = eState;
   }
 
-  public void setTuple(List<Object[]> tuple) {
-    this.tuple = tuple;
+  /**
+   * @param tuples   the rows of the result, read once by the cursor
+   * @param rowCount the number of rows
+   */
+  public void setTuples(BasicTupleSlot tuples, long rowCount) {
+    this.tuples = tuples;
+    this.rowCount = rowCount;
   }
 
   @Override
   public boolean next() throws RemoteException {
-    if (tuple.size() == 0) {
+    if (tuples == null)
       return false;
-    }
-    //TODO fetch 50 localDecrypt results per page
-    if (index == tuple.size() - 1) {
-      return false;
-    } else {
-      index++;
-    }
-    return true;
+    tuple = tuples.nextTuple();
+    return tuple != null;
   }
 
   /**
-   * nullify tuple and other related resources
+   * Release the rows and other related resources
    *
    * @throws RemoteException
    */
   public void close() throws RemoteException {
+    if (tuples != null)
+      tuples.close();
+    tuples = null;
     tuple = null;
-    index = -1;
     return;
   }
 
@@ -137,7 +141,7 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
    * @throws RemoteException
    */
   public String getString(int columnIndex) throws RemoteException {
-    Object columnData = tuple.get(index)[columnIndex];
+    Object columnData = tuple.get(columnIndex);
     if (columnData instanceof Integer) {
       return String.valueOf(columnData);
     }
@@ -152,7 +156,7 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
    * @throws RemoteException
    */
   public Integer getInteger(int columnIndex) throws RemoteException {
-    Object columnData = tuple.get(index)[columnIndex];
+    Object columnData = tuple.get(columnIndex);
     if (columnData instanceof BigInteger) {
       Integer result = null;
       try {
@@ -179,7 +183,7 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
    * @throws RemoteException
    */
   public Long getLong(int columnIndex) throws RemoteException {
-    Object columnData = tuple.get(index)[columnIndex];
+    Object columnData = tuple.get(columnIndex);
     if (columnData instanceof BigInteger) {
       Long result = null;
       try {
@@ -252,4 +256,13 @@ public class SdbResultSet extends UnicastRemoteObject implements ResultSet,
   public void setServerTotalTime(long serverTotalTime) {
     sdbProfiler.setServerTotalTime(serverTotalTime);
   }
+
+  @Override
+  public NodeProfile getPlanProfile() throws RemoteException {
+    return planProfile;
+  }
+
+  public void setPlanProfile(NodeProfile planProfile) {
+    this.planProfile = planProfile;
+  }
 }
@@ -18,23 +18,41 @@
 package edu.hku.sdb.connect;
 
 import edu.hku.sdb.catalog.*;
+import edu.hku.sdb.conf.ConnectionConf;
+import edu.hku.sdb.conf.HiveServerConf;
 import edu.hku.sdb.conf.ServerConf;
 import edu.hku.sdb.conf.ServerType;
 import edu.hku.sdb.exec.*;
+import edu.hku.sdb.metrics.SdbMetrics;
+import edu.hku.sdb.metrics.SlowQueryLog;
+import edu.hku.sdb.metrics.SlowQueryRecord;
+import edu.hku.sdb.optimize.CostModel;
+import edu.hku.sdb.optimize.KeyNormalizer;
+import edu.hku.sdb.optimize.LocalAggregationPlanner;
+import edu.hku.sdb.optimize.LocalJoinPlanner;
+import edu.hku.sdb.optimize.LocalSortPlanner;
 import edu.hku.sdb.optimize.Optimizer;
 import edu.hku.sdb.optimize.RuleBaseOptimizer;
 import edu.hku.sdb.parse.*;
+import edu.hku.sdb.plan.LocalGroupbyFilterDesc;
 import edu.hku.sdb.rewrite.*;
+import edu.hku.sdb.upload.UploadCodec;
 import edu.hku.sdb.upload.Uploader;
 import edu.hku.sdb.upload.UploaderFactory;
+import edu.hku.sdb.utility.ParserConstant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.Serializable;
 import java.rmi.RemoteException;
+import java.rmi.server.RemoteServer;
+import java.rmi.server.ServerNotActiveException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SdbStatement extends UnicastRemoteObject implements Statement,
         Serializable {
@@ -43,6 +61,8 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
 
   private static final long serialVersionUID = 427L;
 
+  private static final AtomicLong nextStatementId = new AtomicLong();
+
   private SemanticAnalyzer semanticAnalyzer;
   private ParseDriver parser;
   private AbstractRewriter rewriter;
@@ -50,11 +70,20 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
   private Executor executor;
   private SdbResultSet sdbResultSet;
   private SDBProfiler sdbProfiler;
+  // Statement type of the current query, used to label its metrics.
+  private String stmtType;
+  // Length of the rewritten SQL of the current query.
+  private int rewrittenSqlSize;
+  // Rewritten queries sent to the server for a query planned on the client,
+  // null if the query itself is rewritten.
+  private List<SelectStmt> remoteStmts;
+  private final long statementId = nextStatementId.incrementAndGet();
 
   private MetaStore metaDB;
   private ServerConnection serverConnection;
   private DBMeta dbMeta;
   private ServerConf serverConf;
+  private ConnectionConf connectionConf;
   private String serverDBName;
 
   public SdbStatement(MetaStore metaDB, ServerConnection serverConnection, String
@@ -70,20 +99,48 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
 
   @Override
   public ResultSet executeQuery(String query) throws RemoteException {
+    long startTimeStamp = System.currentTimeMillis();
+    stmtType = SdbMetrics.statementType(null);
+    boolean succeeded = false;
+    SdbMetrics.queryStarted();
+    try {
+      ResultSet resultSet = execute(query);
+      succeeded = true;
+      return resultSet;
+    } finally {
+      SdbMetrics.queryFinished();
+      long latency = System.currentTimeMillis() - startTimeStamp;
+      recordMetrics(latency, succeeded);
+      logSlowQuery(query, latency, succeeded);
+    }
+  }
+
+  private ResultSet execute(String query) throws RemoteException {
 
     LOG.info("Executing query: " + query);
 
     sdbProfiler = new SDBProfiler();
+    rewrittenSqlSize = 0;
     // get execution start time
     long startTimeStamp = System.currentTimeMillis();
 
     // Parse & analyse
     ParseNode analyzedNode = getParseNode(query);
+    stmtType = SdbMetrics.statementType(analyzedNode);
 
 
     if (analyzedNode instanceof LoadStmt) {
       // another programme encrypts & uploads the data
-      sdbResultSet = getSdbResultSet(getLoadPlanNode((LoadStmt) analyzedNode));
+      LoadStmt loadStmt = (LoadStmt) analyzedNode;
+      Uploader uploader = upload(loadStmt);
+      RemoteUpdate loadNode = getLoadPlanNode(loadStmt, uploader);
+      sdbResultSet = getSdbResultSet(loadNode);
+      // The statistics describe the table once the server has loaded the rows.
+      if (loadNode.isSucceeded())
+        uploader.saveStats();
+      else
+        LOG.error("The server failed to load " + loadStmt.getTableName() +
+                ", its statistics are not updated");
 
     } else if (analyzedNode instanceof ShowTBLsStmt) {
       sdbResultSet = getSdbResultSet(getShowTblsPlanNode((ShowTBLsStmt)
@@ -93,18 +150,25 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
               analyzedNode));
     } else if (analyzedNode instanceof DropTblStmt) {
       sdbResultSet = getSdbResultSet(getDropTblPlanNode((DropTblStmt) analyzedNode));
+    } else if (analyzedNode instanceof ExplainStmt) {
+      sdbResultSet = getSdbResultSet(getExplainPlanNode((ExplainStmt)
+              analyzedNode));
     } else {
 
       long rewriteStartTimestamp = System.currentTimeMillis();
+      // A join or an aggregation may be cheaper or only possible locally,
+      // the queries of its input are rewritten separately then.
+      PlanNode planNode = getLocalPlanNode(analyzedNode);
       // Rewrite
-      rewriteNode(analyzedNode);
+      if (planNode == null)
+        rewriteNode(analyzedNode);
       long rewriteEndTimestamp = System.currentTimeMillis();
       sdbProfiler.setClientRewriteTime(rewriteEndTimestamp - rewriteStartTimestamp);
 
-      PlanNode planNode;
-
-      // No need to optimize a create stmt
-      if (analyzedNode instanceof CreateStmt) {
+      if (planNode != null) {
+        LOG.info("Finish planning the local execution");
+      } else if (analyzedNode instanceof CreateStmt) {
+        // No need to optimize a create stmt
         planNode = getCreateTblPlanNode((CreateStmt) analyzedNode,
                 serverConnection, metaDB);
       } else {
@@ -119,12 +183,82 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
       // get execution end time
       setExecutionTime(startTimeStamp);
 
-      LOG.info(sdbProfiler.toString());
+      // Slow queries are summarized by the slow query log.
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(sdbProfiler.toString());
+        if (sdbResultSet.getPlanProfile() != null)
+          LOG.debug("Plan profile:\n" + sdbResultSet.getPlanProfile());
+      }
 
     }
     return sdbResultSet;
   }
 
+  /**
+   * Record the latency of every phase known by the profiler of the query.
+   */
+  private void recordMetrics(long totalTime, boolean succeeded) {
+    SdbMetrics.observeLatency(stmtType, "total", totalTime);
+    if (!succeeded) {
+      SdbMetrics.QUERY_ERRORS.labels(stmtType).inc();
+      return;
+    }
+    SdbMetrics.observeLatency(stmtType, "parse", sdbProfiler
+            .getClientParseTime());
+    SdbMetrics.observeLatency(stmtType, "analyse", sdbProfiler
+            .getClientAnalyseTime());
+    SdbMetrics.observeLatency(stmtType, "execute", sdbProfiler
+            .getExecuteTime());
+    // Only queries going through the rewriter have the following phases.
+    if (sdbProfiler.getTotalTime() > 0) {
+      SdbMetrics.observeLatency(stmtType, "rewrite", sdbProfiler
+              .getClientRewriteTime());
+      SdbMetrics.observeLatency(stmtType, "server", sdbProfiler
+              .getServerTotalTime());
+      SdbMetrics.observeLatency(stmtType, "client", sdbProfiler
+              .getClientTotalTime());
+    }
+  }
+
+  /**
+   * Hand the query to the slow query log, which drops it if it is fast.
+   */
+  private void logSlowQuery(String query, long latency, boolean succeeded) {
+    SlowQueryLog slowQueryLog = SlowQueryLog.getInstance();
+    if (slowQueryLog == null || !slowQueryLog.isSlow(latency))
+      return;
+
+    SlowQueryRecord record = new SlowQueryRecord(getSession(), stmtType,
+            query, latency, succeeded);
+    record.setProfiler(sdbProfiler);
+    record.setRewrittenSqlSize(rewrittenSqlSize);
+    if (succeeded && sdbResultSet != null) {
+      record.setRows(sdbResultSet.getRowCount());
+      try {
+        if (sdbResultSet.getPlanProfile() != null)
+          record.setDecryptedCells(sdbResultSet.getPlanProfile()
+                  .getTotalDecryptedCells());
+      } catch (RemoteException e) {
+        e.printStackTrace();
+      }
+    }
+    slowQueryLog.log(record);
+  }
+
+  /**
+   * @return the id of the statement and the host of the calling client
+   */
+  private String getSession() {
+    String clientHost;
+    try {
+      clientHost = RemoteServer.getClientHost();
+    } catch (ServerNotActiveException e) {
+      // Not called through RMI
+      clientHost = "local";
+    }
+    return statementId + "@" + clientHost;
+  }
+
   private void setExecutionTime(long startTimeStamp) {
     long endTimeStamp = System.currentTimeMillis();
     long totalTime = endTimeStamp - startTimeStamp;
@@ -143,7 +277,7 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
 
   private PlanNode getPlanNode(ParseNode analyzedNode) throws RemoteException {
     LOG.info("Optimizing query");
-    optimizer = new RuleBaseOptimizer();
+    optimizer = new RuleBaseOptimizer(createKeyNormalizer());
     PlanNode planNode = null;
     try {
       planNode = optimizer.optimize(analyzedNode, serverConnection, dbMeta);
@@ -160,7 +294,11 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
     long executeStartTimestamp = System.currentTimeMillis();
     executor = new Executor();
     SdbResultSet resultSet = new SdbResultSet();
-    ExecutionState eState = new ExecutionState();
+    ExecutionState eState = connectionConf == null ? new ExecutionState() :
+            new ExecutionState(new MemoryBudget(connectionConf
+                    .getExecBufferLimit() << 20), connectionConf
+                    .getExecSpillDir() == null ? null : new File(connectionConf
+                    .getExecSpillDir()));
     executor.execute(planNode, eState, resultSet);
     long executeEndTimestamp = System.currentTimeMillis();
     sdbProfiler.setExecuteTime(executeEndTimestamp - executeStartTimestamp);
@@ -168,20 +306,135 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
     return resultSet;
   }
 
-  private void rewriteNode(ParseNode analyzedNode) throws RemoteException {
+  /**
+   * @return the key normalization configured for the proxy, null if it is
+   * off
+   */
+  private KeyNormalizer createKeyNormalizer() {
+    if (connectionConf == null)
+      return null;
+    KeyNormalizer.Mode mode;
+    try {
+      mode = KeyNormalizer.Mode.of(connectionConf.getKeyNormalization());
+    } catch (IllegalArgumentException e) {
+      LOG.error("Unknown key normalization " + connectionConf
+              .getKeyNormalization(), e);
+      return null;
+    }
+    return mode == KeyNormalizer.Mode.OFF ? null : new KeyNormalizer(mode,
+            new CostModel(dbMeta, connectionConf.getServerParallelism()));
+  }
 
-    LOG.info("Rewriting query: " + analyzedNode.toSql());
-    if (serverConf.getType() == ServerType.HIVE)
-      rewriter = new SdbSchemeRewriter(dbMeta, new HiveRewriter(dbMeta));
+  private AbstractRewriter createRewriter() {
+    AbstractRewriter rewriter = null;
+    if (serverConf.getType() == ServerType.HIVE) {
+      HiveRewriter hiveRewriter = new HiveRewriter(dbMeta);
+      hiveRewriter.setFuseUdfs(((HiveServerConf) serverConf).isFuseUdfs());
+      rewriter = new SdbSchemeRewriter(dbMeta, hiveRewriter);
+    }
     else if (serverConf.getType() == ServerType.ODPS)
       rewriter = new SdbSchemeRewriter(dbMeta, new ODPSRewriter(dbMeta));
+    else if (serverConf.getType() == ServerType.EMBEDDED)
+      rewriter = new SdbSchemeRewriter(dbMeta, new EmbeddedRewriter(dbMeta));
     else {
       LOG.error("Unsupported server type: " + serverConf.getType());
       System.exit(-1);
     }
+    return rewriter;
+  }
+
+  /**
+   * @return the plan of a join, an aggregation or a sort done by the client,
+   * null if the query is better executed by the server
+   */
+  private PlanNode getLocalPlanNode(ParseNode analyzedNode) throws
+          RemoteException {
+    remoteStmts = null;
+    if (!(analyzedNode instanceof SelectStmt))
+      return null;
+
+    long memoryLimit = connectionConf == null ? LocalGroupbyFilterDesc
+            .DEFAULT_MEMORY_LIMIT : connectionConf.getExecMemoryLimit() << 20;
+    File spillDir = connectionConf == null || connectionConf.getExecSpillDir()
+            == null ? null : new File(connectionConf.getExecSpillDir());
+
+    LocalJoinPlanner joinPlanner = new LocalJoinPlanner(dbMeta,
+            serverConnection, this::createRewriter);
+    joinPlanner.setMemoryLimit(memoryLimit);
+    joinPlanner.setSpillDir(spillDir);
+    LocalAggregationPlanner aggPlanner = new LocalAggregationPlanner(dbMeta,
+            serverConnection, this::createRewriter, joinPlanner);
+    aggPlanner.setMemoryLimit(memoryLimit);
+    aggPlanner.setSpillDir(spillDir);
+    joinPlanner.setKeyNormalizer(createKeyNormalizer());
+    aggPlanner.setKeyNormalizer(createKeyNormalizer());
+    CostModel costModel = new CostModel(dbMeta, connectionConf == null ? 1 :
+            connectionConf.getServerParallelism());
+    joinPlanner.setCostModel(costModel);
+    aggPlanner.setCostModel(costModel);
+
+    SelectStmt selStmt = (SelectStmt) analyzedNode;
+    // The order by and limit clauses are executed by a sort on top of the
+    // local plan, or of the server query if the sort is on encrypted values.
+    // A limit alone stops the local plan, and cancels its server queries,
+    // after the first rows.
+    LocalSortPlanner sortPlanner = LocalSortPlanner.create(selStmt);
+    if (sortPlanner != null) {
+      sortPlanner.setMemoryLimit(memoryLimit);
+      sortPlanner.setSpillDir(spillDir);
+      sortPlanner.detach(selStmt);
+    }
+
+    // The planners rewrite copies of the parts of the statement.
+    String sql = selStmt.toSql();
+    PlanNode planNode = null;
+    try {
+      planNode = aggPlanner.plan(selStmt);
+      if (planNode != null) {
+        rewrittenSqlSize = aggPlanner.getRewrittenSqlSize();
+        remoteStmts = aggPlanner.getRewrittenStmts();
+      } else {
+        planNode = joinPlanner.plan(selStmt);
+        rewrittenSqlSize = joinPlanner.getRewrittenSqlSize();
+        if (planNode != null)
+          remoteStmts = joinPlanner.getRewrittenStmts();
+      }
+    } catch (UnSupportedException e) {
+      e.printStackTrace();
+      throw new RemoteException(e.getMessage());
+    } catch (RewriteException e) {
+      if (!sql.equals(selStmt.toSql()))
+        throw new RemoteException("Failed to plan the query on the client",
+                e);
+      LOG.warn("Failed to plan the query on the client, running it on the " +
+              "server", e);
+      planNode = null;
+      remoteStmts = null;
+    }
+
+    if (sortPlanner == null)
+      return planNode;
+    if (planNode == null && sortPlanner.isRequired()) {
+      rewriteNode(selStmt);
+      planNode = getPlanNode(selStmt);
+      remoteStmts = Collections.singletonList(selStmt);
+    }
+    if (planNode == null) {
+      sortPlanner.restore(selStmt);
+      return null;
+    }
+    return sortPlanner.plan(planNode);
+  }
+
+  private void rewriteNode(ParseNode analyzedNode) throws RemoteException {
+
+    LOG.info("Rewriting query: " + analyzedNode.toSql());
+    rewriter = createRewriter();
     try {
       rewriter.rewrite(analyzedNode);
-      LOG.info("The finial rewritten query: " + analyzedNode.toSql());
+      String rewrittenSql = analyzedNode.toSql();
+      rewrittenSqlSize = rewrittenSql.length();
+      LOG.info("The finial rewritten query: " + rewrittenSql);
     } catch (UnSupportedException e) {
       e.printStackTrace();
       throw new RemoteException(e.getMessage());
@@ -225,6 +478,10 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
     return sdbResultSet;
   }
 
+  public void setConnectionConf(ConnectionConf connectionConf) {
+    this.connectionConf = connectionConf;
+  }
+
   public MetaStore getMetaDB() {
     return metaDB;
   }
@@ -285,26 +542,56 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
     localCreateRowDesc.setSignature(columnDescList);
 
     RemoteUpdate remoteUpdate = new RemoteUpdate(query, connection);
+    if (createStmt.getStagingStmt() != null) {
+      remoteUpdate.addChild(new RemoteUpdate(createStmt.getStagingStmt().toSql
+              (), connection));
+    }
     LocalCreate localCreate = new LocalCreate(metaStore, serverDBName, createStmt
             .getTableName(),
             localCreateRowDesc);
+    localCreate.getNodeDesc().setFileFormat(createStmt.getFileFormat());
+    localCreate.getNodeDesc().setUploadCodec(createStmt.getProperty
+            (ParserConstant.UPLOAD_CODEC_PROPERTY));
+    localCreate.getNodeDesc().setUploadSplitSize(createStmt.getProperty
+            (ParserConstant.UPLOAD_SPLIT_SIZE_PROPERTY));
     localCreate.addChild(remoteUpdate);
     return localCreate;
   }
 
-  private PlanNode getLoadPlanNode(LoadStmt loadStmt) throws RemoteException {
+  private Uploader upload(LoadStmt loadStmt) throws RemoteException {
     // another programme encrypts & uploads the data
-    String tableName = loadStmt.getTableName();
-    Uploader uploader = UploaderFactory.getUploader(metaDB, tableName, serverConf);
+    Uploader uploader = UploaderFactory.getUploader(metaDB, loadStmt
+            .getTableName(), serverConf);
     String sourceFilePath = loadStmt.getFilePath();
     uploader.setSourceFilePath(sourceFilePath);
+    uploader.setPartition(loadStmt.getPartition());
+    uploader.setOverwrite(loadStmt.isOverWrite());
+    setUploadOptions(uploader, loadStmt);
+    long uploadStartTimestamp = System.currentTimeMillis();
     uploader.upload();
+    SdbMetrics.observeLatency(stmtType, "upload", System.currentTimeMillis()
+            - uploadStartTimestamp);
+    return uploader;
+  }
+
+  /**
+   * @return the update loading the file of the uploader into the table on
+   * the server, which does nothing if the uploader wrote into the table
+   */
+  private RemoteUpdate getLoadPlanNode(LoadStmt loadStmt, Uploader uploader) {
+    String tableName = loadStmt.getTableName();
 
     // Point it to the file created by uploader.
     String loadQuery = null;
     String serverFilePath = uploader.getServerFilePath();
     if(serverFilePath != null) {
       loadStmt.setFilePath(uploader.getServerFilePath());
+
+      TableMeta tblMeta = metaDB.getTbl(dbMeta.getName(), tableName);
+      if (tblMeta != null && CreateStmt.isColumnar(tblMeta.getFileFormat())) {
+        return getColumnarLoadPlanNode(loadStmt, serverConnection);
+      }
+
       loadQuery = loadStmt.toSql();
       LOG.info(loadQuery);
     } else {
@@ -316,6 +603,93 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
     return remoteUpdate;
   }
 
+  /**
+   * Options given by the LOAD statement take precedence over the ones given
+   * when the table was created.
+   */
+  private void setUploadOptions(Uploader uploader, LoadStmt loadStmt) throws
+          RemoteException {
+    TableMeta tblMeta = metaDB.getTbl(dbMeta.getName(), loadStmt.getTableName());
+
+    String codec = loadStmt.getProperty(ParserConstant.UPLOAD_CODEC_PROPERTY);
+    if (codec == null && tblMeta != null)
+      codec = tblMeta.getUploadCodec();
+    String splitSize = loadStmt.getProperty(ParserConstant
+            .UPLOAD_SPLIT_SIZE_PROPERTY);
+    if (splitSize == null && tblMeta != null)
+      splitSize = tblMeta.getUploadSplitSize();
+
+    try {
+      uploader.setCodec(UploadCodec.fromName(codec));
+      if (splitSize != null)
+        uploader.setSplitSize(Long.valueOf(splitSize.trim()));
+    } catch (IllegalArgumentException e) {
+      e.printStackTrace();
+      throw new RemoteException("Invalid upload option: " + e.getMessage());
+    }
+  }
+
+  /**
+   * The uploaded file is delimited text, so it is loaded into the staging
+   * table first and then converted into the columnar table by the server.
+   * The staging table only ever holds the file of the current load, it is
+   * emptied once the rows are inserted.
+   */
+  static RemoteUpdate getColumnarLoadPlanNode(LoadStmt loadStmt,
+                                              ServerConnection connection) {
+    String stagingTblName = loadStmt.getTableName() + ParserConstant
+            .STAGING_TABLE_SUFFIX;
+    LoadStmt stagingLoadStmt = new LoadStmt(loadStmt.getFilePath(),
+            stagingTblName);
+    stagingLoadStmt.setOverWrite(true);
+    String partition = loadStmt.getPartition();
+    String insertQuery = "INSERT " + (loadStmt.isOverWrite() ? "OVERWRITE" :
+            "INTO") + " TABLE " + loadStmt.getTableName() + (partition ==
+            null ? "" : " PARTITION (" + partition + ")") + " SELECT * FROM "
+            + stagingTblName;
+    String truncateQuery = "TRUNCATE TABLE " + stagingTblName;
+    LOG.info(stagingLoadStmt.toSql());
+    LOG.info(insertQuery);
+    LOG.info(truncateQuery);
+
+    RemoteUpdate insertUpdate = new RemoteUpdate(insertQuery, connection);
+    insertUpdate.addChild(new RemoteUpdate(stagingLoadStmt.toSql(),
+            connection));
+    RemoteUpdate remoteUpdate = new RemoteUpdate(truncateQuery, connection);
+    remoteUpdate.addChild(insertUpdate);
+
+    return remoteUpdate;
+  }
+
+  /**
+   * The explained query is rewritten and optimized as usual, it is executed
+   * by the explain node only for EXPLAIN ANALYZE. The UDF calls are counted
+   * in the queries sent to the server, which are rewritten from copies if the
+   * query is planned on the client.
+   */
+  private PlanNode getExplainPlanNode(ExplainStmt explainStmt) throws
+          RemoteException {
+    QueryStmt queryStmt = explainStmt.getStmt();
+    long rewriteStartTimestamp = System.currentTimeMillis();
+    PlanNode planNode = getLocalPlanNode(queryStmt);
+    if (planNode == null)
+      rewriteNode(queryStmt);
+    sdbProfiler.setClientRewriteTime(System.currentTimeMillis() -
+            rewriteStartTimestamp);
+    if (planNode == null)
+      planNode = getPlanNode(queryStmt);
+
+    RowDesc rowDesc = new RowDesc();
+    List<ColumnDesc> columnDescs = new ArrayList<>();
+    columnDescs.add(new ColumnDesc("Explain", "", null, false, null));
+    rowDesc.setSignature(columnDescs);
+
+    SdbUdfSummary udfSummary = remoteStmts == null ? new SdbUdfSummary
+            (queryStmt) : new SdbUdfSummary(remoteStmts);
+    return new LocalExplain(planNode, explainStmt.isAnalyze(), udfSummary,
+            rowDesc);
+  }
+
   private PlanNode getShowTblsPlanNode(ShowTBLsStmt showTBLsStmt) throws
           RemoteException {
     RowDesc rowDesc = new RowDesc();
@@ -362,6 +736,12 @@ public class SdbStatement extends UnicastRemoteObject implements Statement,
     RemoteUpdate remoteUpdate = new RemoteUpdate(dropTblStmt.toSql(),
             serverConnection);
 
+    TableMeta tblMeta = metaDB.getTbl(dbMeta.getName(), tblName);
+    if (tblMeta != null && CreateStmt.isColumnar(tblMeta.getFileFormat())) {
+      remoteUpdate.addChild(new RemoteUpdate("DROP TABLE IF EXISTS " + tblName
+              + ParserConstant.STAGING_TABLE_SUFFIX, serverConnection));
+    }
+
     localDropTBL.addChild(remoteUpdate);
 
     return localDropTBL;
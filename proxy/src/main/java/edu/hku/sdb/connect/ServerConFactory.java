@@ -1,5 +1,6 @@
 package edu.hku.sdb.connect;
 
+import edu.hku.sdb.conf.EmbeddedServerConf;
 import edu.hku.sdb.conf.HiveServerConf;
 import edu.hku.sdb.conf.ODPSServerConf;
 import edu.hku.sdb.conf.ServerConf;
@@ -32,21 +33,22 @@ public class ServerConFactory {
       }
 
       serverConnection.execute("add jar " + serverUDFPATH);
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_intadd AS 'edu.hku.sdb.udf.hive.SdbIntAddUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_add AS 'edu.hku.sdb.udf.hive.SdbAddUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_mul AS 'edu.hku.sdb.udf.hive.SdbMultiUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_sum AS 'edu.hku.sdb.udf.hive.SdbSumUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_intadd AS 'edu.hku.sdb.udf.hive.SdbIntAddGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_add AS 'edu.hku.sdb.udf.hive.SdbAddGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_mul AS 'edu.hku.sdb.udf.hive.SdbMultiGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_sum AS 'edu.hku.sdb.udf.hive.SdbSumUDF2'");
       serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_first AS 'edu.hku.sdb.udf.hive.SdbFirstUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_keyUp AS 'edu.hku.sdb.udf.hive.SdbKeyUpdateUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_keyUpPlain AS 'edu.hku.sdb.udf.hive.SdbKeyUpdatePlainUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_cartesian AS 'edu.hku.sdb.udf.hive.SdbCartProdUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_lt AS 'edu.hku.sdb.udf.hive.SdbLtUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_gt AS 'edu.hku.sdb.udf.hive.SdbGtUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_le AS 'edu.hku.sdb.udf.hive.SdbLeUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_ge AS 'edu.hku.sdb.udf.hive.SdbGeUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_eq AS 'edu.hku.sdb.udf.hive.SdbEqUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_ne AS 'edu.hku.sdb.udf.hive.SdbNeUDF'");
-      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_search AS 'edu.hku.sdb.udf.hive.SdbSearchUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_keyUp AS 'edu.hku.sdb.udf.hive.SdbKeyUpdateGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_keyUpPlain AS 'edu.hku.sdb.udf.hive.SdbKeyUpdatePlainGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_cartesian AS 'edu.hku.sdb.udf.hive.SdbCartProdGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_lt AS 'edu.hku.sdb.udf.hive.SdbLtGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_gt AS 'edu.hku.sdb.udf.hive.SdbGtGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_le AS 'edu.hku.sdb.udf.hive.SdbLeGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_ge AS 'edu.hku.sdb.udf.hive.SdbGeGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_eq AS 'edu.hku.sdb.udf.hive.SdbEqGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_ne AS 'edu.hku.sdb.udf.hive.SdbNeGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_search AS 'edu.hku.sdb.udf.hive.SdbSearchGenericUDF'");
+      serverConnection.execute("CREATE TEMPORARY FUNCTION sdb_eval AS 'edu.hku.sdb.udf.hive.SdbEvalGenericUDF'");
       serverConnection.execute("set hive.auto.convert.join=false");
 
       return serverConnection;
@@ -63,6 +65,21 @@ public class ServerConFactory {
       return serverConnection;
     }
 
+    // Get a connection to the embedded server in this JVM
+    else if(serverConf.getType() == ServerType.EMBEDDED) {
+      EmbeddedServerConf embeddedServerConf = (EmbeddedServerConf) serverConf;
+
+      LOG.info("Connecting to embedded server: " + embeddedServerConf
+              .getConnectionUrl());
+      JDBCServerConnection serverConnection = new JDBCServerConnection
+              (embeddedServerConf.getConnection());
+
+      // register UDFs
+      EmbeddedUDFs.register(serverConnection);
+
+      return serverConnection;
+    }
+
     else {
       LOG.error("Cannot support the server type: " + serverConf.getType());
       System.exit(1);
@@ -22,4 +22,10 @@ public interface ServerResultSet {
    * @param i
    */
   Object getObject(int i);
+
+  /**
+   * Release the tuples not read yet. If the server is still producing them,
+   * the query is cancelled.
+   */
+  void close();
 }
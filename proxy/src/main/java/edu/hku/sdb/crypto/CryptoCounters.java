@@ -0,0 +1,47 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.crypto;
+
+/**
+ * Counts the expensive crypto operations done by the current thread, so that
+ * a plan node can tell how many of them it has caused.
+ */
+public class CryptoCounters {
+
+  public static final int MOD_POW = 0;
+  public static final int MOD_INVERSE = 1;
+  public static final int AES = 2;
+
+  private static final ThreadLocal<long[]> counts = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[3];
+    }
+  };
+
+  public static void count(int op) {
+    counts.get()[op]++;
+  }
+
+  /**
+   * @return the number of operations op done by the current thread so far
+   */
+  public static long get(int op) {
+    return counts.get()[op];
+  }
+}
@@ -17,9 +17,11 @@
 
 package edu.hku.sdb.crypto;
 
+import edu.hku.sdb.metrics.SdbMetrics;
+
 import java.math.BigInteger;
 import java.security.SecureRandom;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import thep.paillier.EncryptedInteger;
 import thep.paillier.PrivateKey;
@@ -38,8 +40,9 @@ public class SDBEncrypt {
   public static int defaultRandLengthShort = EIGHTY;
   public static int defaultRandLength = ONE_THOUSAND_TWENTY_FOUR;
 
-  public static HashMap<String, BigInteger> modPowMap = new HashMap<String,
-          BigInteger>();
+  // Shared by the parallel upload workers, hence concurrent.
+  public static ConcurrentHashMap<String, BigInteger> modPowMap = new
+          ConcurrentHashMap<String, BigInteger>();
 
   /**
    * @return a random prime number with bit length = 512, certainty = 10
@@ -114,7 +117,9 @@ public class SDBEncrypt {
     while (true) {
       r = generatePositiveRand(numBits);
       try {
+        CryptoCounters.count(CryptoCounters.MOD_INVERSE);
         BigInteger rReverseN = r.modInverse(n);
+        CryptoCounters.count(CryptoCounters.MOD_INVERSE);
         BigInteger rReverseTotient = r.modInverse(totient);
       } catch (ArithmeticException e) {
         //r is not co-prime with n or totient(n)
@@ -145,6 +150,7 @@ public class SDBEncrypt {
     BigInteger n = p.multiply(q);
     BigInteger totient = SDBEncrypt.evaluateTotient(p, q);
     BigInteger power = r.multiply(x).mod(totient);
+    CryptoCounters.count(CryptoCounters.MOD_POW);
     BigInteger grx = g.modPow(power, n);
 
     return (m.multiply(grx)).mod(n);
@@ -159,9 +165,12 @@ public class SDBEncrypt {
     String key = g.toString() + "::" + x.toString() + "::" + n.toString();
     BigInteger gx;
     if (!modPowMap.containsKey(key)) {
+      SdbMetrics.MODPOW_CACHE_MISSES.inc();
+      CryptoCounters.count(CryptoCounters.MOD_POW);
       gx = g.modPow(x.mod(totient), n);
       modPowMap.put(key, gx);
     } else {
+      SdbMetrics.MODPOW_CACHE_HITS.inc();
       gx = modPowMap.get(key);
     }
     BigInteger power = rowID.mod(totient);
@@ -173,8 +182,11 @@ public class SDBEncrypt {
 
   public static BigInteger modPow(BigInteger base, BigInteger power,
                                   BigInteger p, BigInteger q) {
+    CryptoCounters.count(CryptoCounters.MOD_POW);
     BigInteger basePowerModQ = base.modPow(power, q);
+    CryptoCounters.count(CryptoCounters.MOD_POW);
     BigInteger basePowerModP = base.modPow(power, p);
+    CryptoCounters.count(CryptoCounters.MOD_INVERSE);
     BigInteger pInverseQ = p.modInverse(q);
 
     BigInteger result = (basePowerModQ.subtract(basePowerModP).multiply
@@ -192,6 +204,7 @@ public class SDBEncrypt {
    */
   public static BigInteger encrypt(BigInteger plainText, BigInteger itemKey,
                                    BigInteger n) {
+    CryptoCounters.count(CryptoCounters.MOD_INVERSE);
     BigInteger keyInverse = itemKey.modInverse(n);
     return (plainText.multiply(keyInverse)).mod(n);
   }
@@ -232,7 +245,9 @@ public class SDBEncrypt {
   private static BigInteger paillierEncrypt(BigInteger plaintext, BigInteger
           n, BigInteger nPlusOne, BigInteger nSquared) {
     BigInteger r = generatePositiveRand(defaultRandLengthShort);
+    CryptoCounters.count(CryptoCounters.MOD_POW);
     BigInteger cipherText = nPlusOne.modPow(plaintext, nSquared);
+    CryptoCounters.count(CryptoCounters.MOD_POW);
     BigInteger x = r.modPow(n, nSquared);
     cipherText = cipherText.multiply(x).mod(nSquared);
 
@@ -267,6 +282,7 @@ public class SDBEncrypt {
 
   public static BigInteger SIESDecrypt(BigInteger cipherText, BigInteger m,
                                        BigInteger x, BigInteger n) {
+    CryptoCounters.count(CryptoCounters.MOD_INVERSE);
     BigInteger KInverse = m.modInverse(n);
     BigInteger result = (cipherText.subtract(x).mod(n)).multiply(KInverse)
             .mod(n);
@@ -283,6 +299,7 @@ public class SDBEncrypt {
    */
   public static BigInteger cartesianAuxiliaryP(BigInteger xa, BigInteger xs, BigInteger totient) {
 
+    CryptoCounters.count(CryptoCounters.MOD_INVERSE);
     return xs.modInverse(totient).multiply(xa).mod(totient);
   }
 
@@ -292,6 +309,7 @@ public class SDBEncrypt {
    * @return
    */
   public static BigInteger[] cartesianUpdateColyKey(BigInteger ma, BigInteger xa, BigInteger ms, BigInteger p, BigInteger n) {
+    CryptoCounters.count(CryptoCounters.MOD_POW);
     BigInteger targetM = ma.multiply(ms.modPow(p, n)).mod(n);
 
     BigInteger [] colKey = {targetM, xa};
@@ -321,12 +339,14 @@ public class SDBEncrypt {
     BigInteger n = prime1.multiply(prime2);
 
     //prepare numbers for p
+    CryptoCounters.count(CryptoCounters.MOD_INVERSE);
     BigInteger xsInverse = xs.modInverse(totient);
     BigInteger xcMinusXa = xc.subtract(xa).mod(totient);
     BigInteger p = (xsInverse.multiply(xcMinusXa)).mod(totient);
 
     //prepare numbers for q
     BigInteger msp = SDBEncrypt.modPow(ms, p, prime1, prime2);
+    CryptoCounters.count(CryptoCounters.MOD_INVERSE);
     BigInteger mcInverse = mc.modInverse(n);
     BigInteger q = ((ma.mod(n)).multiply(msp).multiply(mcInverse)).mod(n);
 
@@ -109,6 +109,7 @@ public class SearchEncrypt {
       sCipher.init(Cipher.ENCRYPT_MODE, key.skey);
 
 
+      CryptoCounters.count(CryptoCounters.AES);
       byte[] streambytes = sCipher.doFinal(iv2);
       // streambytes is the long Si in the searchable encryption
 
@@ -119,6 +120,7 @@ public class SearchEncrypt {
 
       // si is chopped with the desired length
 
+      CryptoCounters.count(CryptoCounters.AES);
       byte[] fksi = prCipher.doFinal(si);
       // fksi is F_k(S_i) in the searchable encryption
       // we use the same AES cipher for simplicity
@@ -180,6 +182,7 @@ public class SearchEncrypt {
 
       // si is chopped with the desired length
 
+      CryptoCounters.count(CryptoCounters.AES);
       byte[] fksi = prCipher.doFinal(diff1);
       // fksi is F_k(S_i) in the searchable encryption
       // we use the same AES cipher for simplicity
@@ -24,6 +24,7 @@ import edu.hku.sdb.conf.SdbConf;
 import edu.hku.sdb.connect.Connection;
 import edu.hku.sdb.connect.ConnectionService;
 import edu.hku.sdb.connect.SdbConnection;
+import edu.hku.sdb.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +71,24 @@ public class ConnectionPool extends UnicastRemoteObject implements
 
     LOG.info("Connecting to metastore DB");
     metaStore = new MetaStore(getPersistManager(sdbConf.getMetadbConf()));
+    registerMetrics();
+  }
+
+  private void registerMetrics() {
+    final int maxConnection = sdbConf.getConnectionConf().getMaxConnection();
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    registry.gauge("sdb_pool_connections_max", "Max number of connections " +
+            "given out by the pool", () -> maxConnection);
+    registry.gauge("sdb_sessions_active", "Connections given out by the pool",
+            this::getActiveConnectionNumber);
+    registry.gauge("sdb_pool_utilization", "Ratio of the connections given " +
+            "out by the pool", () -> maxConnection == 0 ? 0 : (double)
+            getActiveConnectionNumber() / maxConnection);
+  }
+
+  private synchronized int getActiveConnectionNumber() {
+    return sdbConf.getConnectionConf().getMaxConnection() -
+            availableConnectionNumber;
   }
 
   private void createConnection() {
@@ -18,6 +18,11 @@
 package edu.hku.sdb.driver;
 
 import edu.hku.sdb.conf.*;
+import edu.hku.sdb.metrics.JmxExporter;
+import edu.hku.sdb.metrics.JvmMetrics;
+import edu.hku.sdb.metrics.MetricsHttpServer;
+import edu.hku.sdb.metrics.MetricsRegistry;
+import edu.hku.sdb.metrics.SlowQueryLog;
 import edu.hku.sdb.util.XMLPropParser;
 import org.apache.commons.cli.*;
 import org.apache.log4j.PropertyConfigurator;
@@ -25,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
@@ -162,6 +168,32 @@ public class SdbDriver {
     }
   }
 
+  private static void startMetrics(ConnectionConf connectionConf) {
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    JvmMetrics.register(registry);
+
+    if (connectionConf.isMetricsJmx())
+      JmxExporter.register(registry);
+
+    if (connectionConf.getMetricsHttpPort() > 0) {
+      try {
+        new MetricsHttpServer(registry, connectionConf.getMetricsHttpPort())
+                .start();
+      } catch (IOException e) {
+        LOG.error("Failed to start the metrics endpoint on port " +
+                connectionConf.getMetricsHttpPort());
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private static void startSlowQueryLog(ConnectionConf connectionConf) {
+    if (connectionConf.getSlowQueryThreshold() < 0)
+      return;
+    new SlowQueryLog(connectionConf.getSlowQueryThreshold(), connectionConf
+            .getSlowQueryBufferSize()).start();
+  }
+
   /**
    * @param args
    */
@@ -201,6 +233,8 @@ public class SdbDriver {
     SdbConf sdbConf = new SdbConf(connectionConf, serverConf, metadbConf);
 
     // Start the SDB proxy
+    startMetrics(connectionConf);
+    startSlowQueryLog(connectionConf);
     startConnectionPool(sdbConf);
   }
 
@@ -0,0 +1,484 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.plan.AggregateDesc;
+import edu.hku.sdb.plan.ColumnComparison;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The groups of an aggregation with their accumulators. Groups are found by
+ * open addressing on the key of their group by values. The accumulators
+ * are primitive arrays indexed by group: a count, and a long or a double
+ * for the sums and extremes, with an object only when a sum overflows a
+ * long or an extreme is not a number.
+ *
+ * The partial state of a group is a row made of its group by values
+ * followed by a count and a value per aggregate. Partial states of the same
+ * group can be merged, which is how spilled runs are combined.
+ */
+public class AggregationTable {
+
+  private static final int EMPTY = -1;
+  private static final float LOAD_FACTOR = 0.5f;
+  private static final int INITIAL_CAPACITY = 16;
+  // Key of a null group by value, SQL puts all of them into one group.
+  private static final Object NULL_KEY = new Object();
+
+  // Kind of the value of an accumulator.
+  private static final byte NONE = 0;
+  private static final byte LONG = 1;
+  private static final byte DOUBLE = 2;
+  private static final byte OBJECT = 3;
+
+  private final int[] groupIndexes;
+  private final AggregateDesc[] aggregates;
+
+  // Open addressing table of the groups.
+  private Object[] slotKeys;
+  private int[] slotGroups;
+
+  // Indexed by group.
+  private Object[] keys;
+  private List<Object[]> groupValues;
+  private long[][] counts;
+  private byte[][] kinds;
+  private long[][] longs;
+  private double[][] doubles;
+  private Object[][] objects;
+  private int size;
+  private long memoryUsage;
+
+  public AggregationTable(int[] groupIndexes, List<AggregateDesc> aggregates) {
+    this.groupIndexes = groupIndexes;
+    this.aggregates = aggregates.toArray(new AggregateDesc[aggregates.size()]);
+    clear();
+  }
+
+  /**
+   * Remove all the groups and release their memory.
+   */
+  public void clear() {
+    slotKeys = new Object[INITIAL_CAPACITY * 2];
+    slotGroups = new int[INITIAL_CAPACITY * 2];
+    Arrays.fill(slotGroups, EMPTY);
+    keys = new Object[INITIAL_CAPACITY];
+    groupValues = new ArrayList<>();
+    int count = aggregates.length;
+    counts = new long[count][INITIAL_CAPACITY];
+    kinds = new byte[count][INITIAL_CAPACITY];
+    longs = new long[count][INITIAL_CAPACITY];
+    doubles = new double[count][INITIAL_CAPACITY];
+    objects = new Object[count][];
+    size = 0;
+    memoryUsage = (long) slotKeys.length * 12 + (long) INITIAL_CAPACITY *
+            groupBytes();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int[] getGroupIndexes() {
+    return groupIndexes;
+  }
+
+  /**
+   * @return the approximate number of bytes taken by the groups
+   */
+  public long getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  /**
+   * Find the group of a row, add it if it is new.
+   *
+   * @param row an input row, or a partial state if the group indexes are the
+   *            leading columns
+   * @return the index of the group
+   */
+  public int findOrAdd(List<Object> row) {
+    Object key = getKey(row, groupIndexes);
+    int mask = slotKeys.length - 1;
+    int slot = key.hashCode() * 0x9E3779B9 >>> 1 & mask;
+    while (slotGroups[slot] != EMPTY) {
+      if (slotKeys[slot].equals(key))
+        return slotGroups[slot];
+      slot = (slot + 1) & mask;
+    }
+
+    int group = size++;
+    if (group == keys.length)
+      grow();
+    slotKeys[slot] = key;
+    slotGroups[slot] = group;
+    keys[group] = key;
+    Object[] values = new Object[groupIndexes.length];
+    for (int i = 0; i < values.length; i++)
+      values[i] = row.get(groupIndexes[i]);
+    groupValues.add(values);
+    memoryUsage += HashTableSlot.estimateSize(Arrays.asList(values));
+    if (size > slotKeys.length * LOAD_FACTOR)
+      rehash();
+    return group;
+  }
+
+  /**
+   * Add an input row to the accumulators of its group.
+   */
+  public void accumulate(int group, List<Object> row) {
+    for (int i = 0; i < aggregates.length; i++) {
+      AggregateDesc aggregate = aggregates[i];
+      if (aggregate.getInput() == AggregateDesc.STAR) {
+        counts[i][group]++;
+        continue;
+      }
+      Object value = row.get(aggregate.getInput());
+      if (value == null)
+        continue;
+      switch (aggregate.getFunction()) {
+        case COUNT:
+          counts[i][group]++;
+          break;
+        case SUM:
+        case AVG:
+          Object number = toNumber(value);
+          if (number != null) {
+            counts[i][group]++;
+            add(i, group, number);
+          }
+          break;
+        case MIN:
+        case MAX:
+          counts[i][group]++;
+          extreme(i, group, value, aggregate.getFunction() ==
+                  AggregateDesc.Function.MIN);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Merge a partial state into the accumulators of its group.
+   */
+  public void merge(int group, List<Object> partial) {
+    int offset = groupIndexes.length;
+    for (int i = 0; i < aggregates.length; i++) {
+      long count = (Long) partial.get(offset + 2 * i);
+      Object value = partial.get(offset + 2 * i + 1);
+      counts[i][group] += count;
+      if (value == null)
+        continue;
+      switch (aggregates[i].getFunction()) {
+        case SUM:
+        case AVG:
+          add(i, group, value);
+          break;
+        case MIN:
+        case MAX:
+          extreme(i, group, value, aggregates[i].getFunction() ==
+                  AggregateDesc.Function.MIN);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * @return the partial state of a group
+   */
+  public List<Object> getPartial(int group) {
+    List<Object> partial = new ArrayList<>(groupIndexes.length + 2 *
+            aggregates.length);
+    partial.addAll(Arrays.asList(groupValues.get(group)));
+    for (int i = 0; i < aggregates.length; i++) {
+      partial.add(counts[i][group]);
+      partial.add(getValue(i, group));
+    }
+    return partial;
+  }
+
+  /**
+   * @return the output row of a group, its group by values followed by the
+   * value of every aggregate
+   */
+  public List<Object> getResult(int group) {
+    List<Object> result = new ArrayList<>(groupIndexes.length + aggregates
+            .length);
+    result.addAll(Arrays.asList(groupValues.get(group)));
+    for (int i = 0; i < aggregates.length; i++) {
+      long count = counts[i][group];
+      Object value = getValue(i, group);
+      switch (aggregates[i].getFunction()) {
+        case COUNT:
+          result.add(count);
+          break;
+        case AVG:
+          result.add(count == 0 || value == null ? null : average(value,
+                  count));
+          break;
+        default:
+          // Integers are returned as BigInteger like decrypted values.
+          result.add(value instanceof Long ? BigInteger.valueOf((Long) value)
+                  : value);
+          break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the groups ordered by their key
+   */
+  public Integer[] getSortedGroups() {
+    Integer[] groups = new Integer[size];
+    for (int i = 0; i < size; i++)
+      groups[i] = i;
+    Arrays.sort(groups, (a, b) -> compareKeys(keys[a], keys[b]));
+    return groups;
+  }
+
+  /**
+   * @return the key of a row, so that the rows of a group have equal keys
+   */
+  static Object getKey(List<Object> row, int[] groupIndexes) {
+    if (groupIndexes.length == 1)
+      return normalize(row.get(groupIndexes[0]));
+    Object[] key = new Object[groupIndexes.length];
+    for (int i = 0; i < key.length; i++)
+      key[i] = normalize(row.get(groupIndexes[i]));
+    return Arrays.asList(key);
+  }
+
+  private static Object normalize(Object value) {
+    Object key = HashTableSlot.normalize(value);
+    if (key == null)
+      return NULL_KEY;
+    // Fractions are compared by value whatever their class.
+    if (key instanceof Double || key instanceof Float)
+      return BigDecimal.valueOf(((Number) key).doubleValue())
+              .stripTrailingZeros();
+    return key;
+  }
+
+  /**
+   * A total order of the keys consistent with their equality: null first,
+   * then numbers by value, then strings, then anything else.
+   */
+  static int compareKeys(Object a, Object b) {
+    if (a instanceof List && b instanceof List) {
+      List<?> x = (List<?>) a;
+      List<?> y = (List<?>) b;
+      for (int i = 0; i < x.size(); i++) {
+        int result = compareKeys(x.get(i), y.get(i));
+        if (result != 0)
+          return result;
+      }
+      return 0;
+    }
+    int rankA = rank(a);
+    int rankB = rank(b);
+    if (rankA != rankB)
+      return Integer.compare(rankA, rankB);
+    switch (rankA) {
+      case 0:
+        return 0;
+      case 1:
+        return ColumnComparison.compare(a, b);
+      case 2:
+        return ((String) a).compareTo((String) b);
+      default:
+        return a.toString().compareTo(b.toString());
+    }
+  }
+
+  private static int rank(Object key) {
+    if (key == NULL_KEY)
+      return 0;
+    if (key instanceof Number)
+      return 1;
+    if (key instanceof String)
+      return 2;
+    return 3;
+  }
+
+  /**
+   * @return the value as a Long, a BigInteger beyond a long, or a Double,
+   * null if it is not a number
+   */
+  private static Object toNumber(Object value) {
+    Object number = HashTableSlot.normalize(value);
+    if (number instanceof Long || number instanceof BigInteger || number
+            instanceof Double)
+      return number;
+    if (number instanceof Number)
+      return ((Number) number).doubleValue();
+    if (number instanceof String) {
+      String s = ((String) number).trim();
+      try {
+        return Long.parseLong(s);
+      } catch (NumberFormatException e) {
+        // Not an integer.
+      }
+      try {
+        return Double.parseDouble(s);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private void add(int i, int group, Object number) {
+    switch (kinds[i][group]) {
+      case NONE:
+        setValue(i, group, number);
+        break;
+      case LONG:
+        if (number instanceof Long) {
+          long sum = longs[i][group] + (Long) number;
+          // Overflow if both operands have a sign different from the sum.
+          if (((longs[i][group] ^ sum) & ((Long) number ^ sum)) < 0)
+            setValue(i, group, BigInteger.valueOf(longs[i][group]).add
+                    (BigInteger.valueOf((Long) number)));
+          else
+            longs[i][group] = sum;
+        } else if (number instanceof BigInteger) {
+          setValue(i, group, BigInteger.valueOf(longs[i][group]).add(
+                  (BigInteger) number));
+        } else {
+          setValue(i, group, longs[i][group] + ((Number) number)
+                  .doubleValue());
+        }
+        break;
+      case DOUBLE:
+        doubles[i][group] += ((Number) number).doubleValue();
+        break;
+      default:
+        BigInteger big = (BigInteger) objects[i][group];
+        if (number instanceof Long || number instanceof BigInteger)
+          setValue(i, group, big.add(number instanceof Long ? BigInteger
+                  .valueOf((Long) number) : (BigInteger) number));
+        else
+          setValue(i, group, big.doubleValue() + ((Number) number)
+                  .doubleValue());
+        break;
+    }
+  }
+
+  private void extreme(int i, int group, Object value, boolean min) {
+    Object number = toNumber(value);
+    if (number instanceof Long && (kinds[i][group] == LONG || kinds[i][group]
+            == NONE)) {
+      long x = (Long) number;
+      if (kinds[i][group] == NONE || (min ? x < longs[i][group] : x >
+              longs[i][group]))
+        setValue(i, group, x);
+      return;
+    }
+
+    Object candidate = number != null ? number : value;
+    if (kinds[i][group] == NONE) {
+      setValue(i, group, candidate);
+      return;
+    }
+    int result = ColumnComparison.compare(candidate, getValue(i, group));
+    if (min ? result < 0 : result > 0)
+      setValue(i, group, candidate);
+  }
+
+  private Object getValue(int i, int group) {
+    switch (kinds[i][group]) {
+      case LONG:
+        return longs[i][group];
+      case DOUBLE:
+        return doubles[i][group];
+      case OBJECT:
+        return objects[i][group];
+      default:
+        return null;
+    }
+  }
+
+  private void setValue(int i, int group, Object value) {
+    if (kinds[i][group] == OBJECT)
+      memoryUsage -= HashTableSlot.estimateSize(objects[i][group]);
+    if (value instanceof Long) {
+      kinds[i][group] = LONG;
+      longs[i][group] = (Long) value;
+    } else if (value instanceof Double) {
+      kinds[i][group] = DOUBLE;
+      doubles[i][group] = (Double) value;
+    } else {
+      if (objects[i] == null)
+        objects[i] = new Object[keys.length];
+      kinds[i][group] = OBJECT;
+      objects[i][group] = value;
+      memoryUsage += HashTableSlot.estimateSize(value);
+    }
+  }
+
+  private static Double average(Object sum, long count) {
+    if (sum instanceof BigInteger)
+      return new BigDecimal((BigInteger) sum).divide(BigDecimal.valueOf
+              (count), MathContext.DECIMAL64).doubleValue();
+    return ((Number) sum).doubleValue() / count;
+  }
+
+  private long groupBytes() {
+    // The key and the accumulators of a group.
+    return 8 + 25L * aggregates.length;
+  }
+
+  private void grow() {
+    int capacity = keys.length * 2;
+    memoryUsage += (long) (capacity - keys.length) * groupBytes();
+    keys = Arrays.copyOf(keys, capacity);
+    for (int i = 0; i < aggregates.length; i++) {
+      counts[i] = Arrays.copyOf(counts[i], capacity);
+      kinds[i] = Arrays.copyOf(kinds[i], capacity);
+      longs[i] = Arrays.copyOf(longs[i], capacity);
+      doubles[i] = Arrays.copyOf(doubles[i], capacity);
+      if (objects[i] != null)
+        objects[i] = Arrays.copyOf(objects[i], capacity);
+    }
+  }
+
+  private void rehash() {
+    int capacity = slotKeys.length * 2;
+    memoryUsage += (long) (capacity - slotKeys.length) * 12;
+    slotKeys = new Object[capacity];
+    slotGroups = new int[capacity];
+    Arrays.fill(slotGroups, EMPTY);
+    int mask = capacity - 1;
+    for (int group = 0; group < size; group++) {
+      int slot = keys[group].hashCode() * 0x9E3779B9 >>> 1 & mask;
+      while (slotGroups[slot] != EMPTY)
+        slot = (slot + 1) & mask;
+      slotKeys[slot] = keys[group];
+      slotGroups[slot] = group;
+    }
+  }
+}
@@ -17,6 +17,7 @@
 
 package edu.hku.sdb.exec;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public abstract class BasicTupleSlot {
@@ -32,4 +33,24 @@ public abstract class BasicTupleSlot {
    * @return
    */
   public abstract List<Object> nextTuple();
+
+  /**
+   * Get the next tuples for the current cursor.
+   *
+   * @param maxRows the maximum number of tuples returned
+   * @return an empty list at the end
+   */
+  public List<List<Object>> nextBatch(int maxRows) {
+    List<List<Object>> batch = new ArrayList<>();
+    List<Object> tuple;
+    while (batch.size() < maxRows && (tuple = nextTuple()) != null)
+      batch.add(tuple);
+    return batch;
+  }
+
+  /**
+   * Release the resources held by the slot.
+   */
+  public void close() {
+  }
 }
@@ -17,6 +17,42 @@
 
 package edu.hku.sdb.exec;
 
+import java.io.File;
+
+/**
+ * The state shared by the plan nodes of a query.
+ */
 public class ExecutionState {
 
+  private final MemoryBudget memoryBudget;
+  private final File spillDir;
+
+  public ExecutionState() {
+    this(new MemoryBudget(Long.MAX_VALUE), null);
+  }
+
+  /**
+   * @param memoryBudget the memory of the rows buffered by the query
+   * @param spillDir     the directory of the spill files, null for the
+   *                     temporary directory of the system
+   */
+  public ExecutionState(MemoryBudget memoryBudget, File spillDir) {
+    this.memoryBudget = memoryBudget;
+    this.spillDir = spillDir;
+  }
+
+  public MemoryBudget getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  public File getSpillDir() {
+    return spillDir;
+  }
+
+  /**
+   * @return a buffer of rows spilled beyond the memory budget of the query
+   */
+  public BasicTupleSlot createTupleSlot() {
+    return new SpillableTupleSlot(memoryBudget, spillDir);
+  }
 }
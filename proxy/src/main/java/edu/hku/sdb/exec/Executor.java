@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Executor {
@@ -34,16 +35,26 @@ public class Executor {
     // These plannode return no answer
     if (plan instanceof LocalCreate || plan instanceof LocalDropTBL || plan
             instanceof RemoteUpdate) {
-      plan.nextTuple();
+      plan.next();
+      resultSet.setPlanProfile(plan.getProfile());
       return;
     }
 
-    List<Object[]> resultList = resultSet.getTuple();
-    List<Object> tuple = plan.nextTuple();
+    // The results are bounded by the memory budget of the query, beyond it
+    // they are spilled.
+    BasicTupleSlot results = eState.createTupleSlot();
+    long rowCount = 0;
+    try {
+      List<Object> tuple = plan.next();
 
-    while (tuple != null) {
-      resultList.add(tuple.toArray());
-      tuple = plan.nextTuple();
+      while (tuple != null) {
+        results.addRow(tuple);
+        rowCount++;
+        tuple = plan.next();
+      }
+    } finally {
+      // Release the server queries and the spilled files of the plan.
+      plan.close();
     }
 
     try {
@@ -67,21 +78,39 @@ public class Executor {
         resultSet.setServerTotalTime(((LocalDecrypt) plan).getServerExecutionTime());
         resultSet.setRemoteSQLQuery(((LocalDecrypt) plan).getRemoteSQLQuery());
       } else {
-        resultSet.setServerTotalTime(0);
-        resultSet.setRemoteSQLQuery("");
+        // A plan may run several remote queries, e.g. a local join.
+        List<LocalDecrypt> decrypts = new ArrayList<>();
+        collectDecrypts(plan, decrypts);
+        long serverTime = 0;
+        List<String> queries = new ArrayList<>();
+        for (LocalDecrypt decrypt : decrypts) {
+          serverTime += decrypt.getServerExecutionTime();
+          queries.add(decrypt.getRemoteSQLQuery());
+        }
+        resultSet.setServerTotalTime(serverTime);
+        resultSet.setRemoteSQLQuery(String.join(";\n", queries));
       }
 
     } catch (RemoteException e) {
       e.printStackTrace();
     }
 
-    //TODO find a better way to handle batch fetch
-    resultSet.setTuple(resultList);
+    resultSet.setTuples(results, rowCount);
     resultSet.seteState(eState);
     resultSet.setPlanNode(plan);
+    resultSet.setPlanProfile(plan.getProfile());
     resultSet.setExecutor(this);
 
-    LOG.debug(resultList.size() + " records computed, saved in resultSet");
+    LOG.debug(rowCount + " records computed, saved in resultSet");
+  }
+
+  private void collectDecrypts(PlanNode<?> plan, List<LocalDecrypt> decrypts) {
+    if (plan instanceof LocalDecrypt) {
+      decrypts.add((LocalDecrypt) plan);
+      return;
+    }
+    for (PlanNode<?> child : plan.getChildren())
+      collectDecrypts(child, decrypts);
   }
 
 }
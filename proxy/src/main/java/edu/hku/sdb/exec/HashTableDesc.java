@@ -19,6 +19,59 @@ package edu.hku.sdb.exec;
 
 import edu.hku.sdb.plan.PlanNodeDesc;
 
+import java.io.File;
+
 public class HashTableDesc extends PlanNodeDesc {
 
+  public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+  public static final int DEFAULT_SPILL_PARTITIONS = 16;
+
+  // Columns of the input rows the table is keyed by.
+  private int[] keyIndexes;
+  // Key columns whose strings are parsed as numbers, null if none.
+  private boolean[] numericStrings;
+  // Bytes the table may hold before its rows are spilled to disk.
+  private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+  private int spillPartitions = DEFAULT_SPILL_PARTITIONS;
+  private File spillDir = new File(System.getProperty("java.io.tmpdir"));
+
+  public int[] getKeyIndexes() {
+    return keyIndexes;
+  }
+
+  public void setKeyIndexes(int[] keyIndexes) {
+    this.keyIndexes = keyIndexes;
+  }
+
+  public boolean[] getNumericStrings() {
+    return numericStrings;
+  }
+
+  public void setNumericStrings(boolean[] numericStrings) {
+    this.numericStrings = numericStrings;
+  }
+
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  public void setMemoryLimit(long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  public int getSpillPartitions() {
+    return spillPartitions;
+  }
+
+  public void setSpillPartitions(int spillPartitions) {
+    this.spillPartitions = spillPartitions;
+  }
+
+  public File getSpillDir() {
+    return spillDir;
+  }
+
+  public void setSpillDir(File spillDir) {
+    this.spillDir = spillDir;
+  }
 }
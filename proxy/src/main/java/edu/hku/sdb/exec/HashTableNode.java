@@ -17,41 +17,210 @@
 
 package edu.hku.sdb.exec;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * The build side of a hash join. It pulls all the rows of its child into a
+ * {@link HashTableSlot}. If the table grows beyond the memory limit, all its
+ * rows are partitioned by key into spill files instead, and the join is done
+ * partition by partition.
+ */
 public class HashTableNode extends PlanNode<HashTableDesc> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(HashTableNode
+          .class);
+
+  private PlanNode child;
+  private HashTableSlot tupleSlot;
+  // Null unless the table has been spilled.
+  private List<SpillFile> partitions;
+  private boolean initialized = false;
+  private boolean built = false;
+
+  public HashTableNode(PlanNode child, int[] keyIndexes) {
+    nodeDesc = new HashTableDesc();
+    nodeDesc.setKeyIndexes(keyIndexes);
+    nodeDesc.setRowDesc(child.getNodeDesc().getRowDesc());
+    this.child = child;
+  }
+
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see edu.hku.sdb.exec.PlanNode#init()
    */
   @Override
   public void init() {
-    // TODO Auto-generated method stub
-
+    tupleSlot = new HashTableSlot(nodeDesc.getKeyIndexes(), nodeDesc
+            .getNumericStrings());
+    initialized = true;
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see edu.hku.sdb.exec.PlanNode#nextTuple()
+  /**
+   * Pull a row from the child into the table.
+   *
+   * @return the row added, null if the child is exhausted
    */
   @Override
   public List<Object> nextTuple() {
-    // TODO Auto-generated method stub
-    return null;
+    if (!initialized) {
+      init();
+    }
+
+    List<Object> row = child.next();
+    if (row == null)
+      return null;
+    profile.addRowsIn(1);
+
+    if (partitions != null) {
+      spill(row);
+    } else {
+      tupleSlot.addRow(row);
+      profile.updatePeakMemory(tupleSlot.getMemoryUsage());
+      if (tupleSlot.getMemoryUsage() > nodeDesc.getMemoryLimit())
+        spillTable();
+    }
+    return row;
+  }
+
+  /**
+   * Build the table from all the rows of the child.
+   */
+  public void build() {
+    if (built)
+      return;
+    while (next() != null)
+      ;
+    if (partitions != null) {
+      try {
+        for (SpillFile partition : partitions)
+          partition.finish();
+      } catch (IOException e) {
+        throw spillFailed(e);
+      }
+    }
+    built = true;
+  }
+
+  public boolean isSpilled() {
+    return partitions != null;
+  }
+
+  public int getPartitionCount() {
+    return partitions == null ? 0 : partitions.size();
+  }
+
+  /**
+   * @return the table of all the rows if it is not spilled
+   */
+  public HashTableSlot getTupleSlot() {
+    return tupleSlot;
+  }
+
+  /**
+   * Load a spilled partition into the table, replacing the previous one.
+   *
+   * @param partition
+   * @return the table of the rows of the partition
+   */
+  public HashTableSlot loadPartition(int partition) {
+    tupleSlot.clear();
+    try (SpillFile.Reader reader = partitions.get(partition).openReader()) {
+      List<Object> row;
+      while ((row = reader.next()) != null)
+        tupleSlot.addRow(row);
+    } catch (IOException e) {
+      throw spillFailed(e);
+    }
+    profile.updatePeakMemory(tupleSlot.getMemoryUsage());
+    if (tupleSlot.getMemoryUsage() > nodeDesc.getMemoryLimit())
+      LOG.warn("Partition " + partition + " of the hash table takes " +
+              tupleSlot.getMemoryUsage() + " bytes, more than the limit of " +
+              nodeDesc.getMemoryLimit() + " bytes");
+    return tupleSlot;
+  }
+
+  /**
+   * Move the rows of the table into the spill partitions.
+   */
+  private void spillTable() {
+    int count = nodeDesc.getSpillPartitions();
+    File spillDir = nodeDesc.getSpillDir();
+    LOG.info("Hash table exceeds " + nodeDesc.getMemoryLimit() + " bytes, " +
+            "spilling it into " + count + " partitions in " + spillDir);
+    partitions = new ArrayList<>(count);
+    try {
+      for (int i = 0; i < count; i++)
+        partitions.add(new SpillFile(spillDir));
+    } catch (IOException e) {
+      throw spillFailed(e);
+    }
+
+    List<Object> row;
+    while ((row = tupleSlot.nextTuple()) != null)
+      spill(row);
+    tupleSlot.clear();
+  }
+
+  private void spill(List<Object> row) {
+    int partition = HashTableSlot.getPartition(row, nodeDesc.getKeyIndexes(),
+            nodeDesc.getNumericStrings(), partitions.size());
+    // A row with a null key matches nothing.
+    if (partition < 0)
+      return;
+    try {
+      partitions.get(partition).write(row);
+    } catch (IOException e) {
+      throw spillFailed(e);
+    }
+    profile.addSpilledRows(1);
+  }
+
+  static UncheckedIOException spillFailed(IOException e) {
+    LOG.error("Failed to spill rows to disk", e);
+    return new UncheckedIOException(e);
   }
 
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see edu.hku.sdb.exec.PlanNode#close()
    */
   @Override
   public void close() {
-    // TODO Auto-generated method stub
+    child.close();
+    if (partitions != null) {
+      for (SpillFile partition : partitions)
+        partition.delete();
+      partitions = null;
+    }
+    if (tupleSlot != null)
+      tupleSlot.clear();
+  }
 
+  public PlanNode getChild() {
+    return child;
   }
 
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+
+  @Override
+  public String getDetail() {
+    List<String> keys = new ArrayList<>();
+    List<ColumnDesc> columns = nodeDesc.getRowDesc().getSignature();
+    for (int index : nodeDesc.getKeyIndexes())
+      keys.add(columns.get(index).getAlias());
+    return "key: " + String.join(", ", keys);
+  }
 }
@@ -17,29 +17,391 @@
 
 package edu.hku.sdb.exec;
 
+import edu.hku.sdb.catalog.ScalarType;
+import edu.hku.sdb.catalog.Type;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * The rows of the build side of a hash join, indexed by their key columns.
+ *
+ * Integer keys, which decrypted SDB columns always are, are kept in an open
+ * addressing table of primitive longs. Other keys go into a HashMap. The rows
+ * sharing a key are chained through an int array, so a row costs no entry
+ * object.
+ *
+ * Strings are kept exact, unless the key column is compared with a numeric
+ * column on the other side of the join, then they are parsed as numbers.
+ */
 public class HashTableSlot extends BasicTupleSlot {
 
+  private static final int EMPTY = -1;
+  private static final float LOAD_FACTOR = 0.5f;
+  // Bytes taken by a row besides its values: the row list, its slot in the
+  // row array and its chain entry.
+  private static final int ROW_OVERHEAD = 16 + 16 + 8 + 4;
+
+  private final int[] keyIndexes;
+  // Key columns whose strings are parsed as numbers, null if none.
+  private final boolean[] numericStrings;
+
+  private List<List<Object>> rows = new ArrayList<>();
+  // next[i] is the previous row with the key of row i, EMPTY if none.
+  private int[] next = new int[16];
+
+  // Open addressing table of the long keys.
+  private long[] longKeys;
+  private int[] longHeads;
+  private int longKeyCount;
+
+  // Head rows of the other keys.
+  private final Map<Object, Integer> objectHeads = new HashMap<>();
+
+  private long memoryUsage;
+  private int rowIndex = -1;
+
+  public HashTableSlot(int[] keyIndexes) {
+    this(keyIndexes, null);
+  }
+
+  /**
+   * @param keyIndexes
+   * @param numericStrings key columns whose strings are parsed as numbers,
+   *                       null if none
+   */
+  public HashTableSlot(int[] keyIndexes, boolean[] numericStrings) {
+    this.keyIndexes = keyIndexes;
+    this.numericStrings = numericStrings;
+    allocateLongTable(64);
+  }
+
+  /**
+   * Add a row, a row with a null key is ignored since it matches nothing.
+   */
   @Override
   public void addRow(List<Object> row) {
+    Object key = getKey(row, keyIndexes, numericStrings);
+    if (key == null)
+      return;
+
+    int index = rows.size();
+    rows.add(row);
+    if (index == next.length) {
+      next = Arrays.copyOf(next, next.length * 2);
+      memoryUsage += (long) index * 4;
+    }
 
+    if (key instanceof Long) {
+      next[index] = putLong((Long) key, index);
+    } else {
+      Integer head = objectHeads.put(key, index);
+      next[index] = head == null ? EMPTY : head;
+      if (head == null)
+        memoryUsage += 48 + estimateSize(key);
+    }
+    memoryUsage += estimateSize(row);
   }
 
   @Override
   public void setRows(List<List<Object>> rows) {
-
+    clear();
+    for (List<Object> row : rows)
+      addRow(row);
   }
 
-  /*
-     * (non-Javadoc)
-     *
-     * @see edu.hku.sdb.exec.BasicTupleSlot#nextTuple()
-     */
+  /**
+   * Iterate over all the rows in the order they were added.
+   */
   @Override
   public List<Object> nextTuple() {
-    // TODO Auto-generated method stub
+    rowIndex++;
+    if (rowIndex < rows.size())
+      return rows.get(rowIndex);
+    rowIndex = -1;
     return null;
   }
 
+  /**
+   * @param probeRow
+   * @param probeKeyIndexes key columns of the probe row, in the order of the
+   *                        key columns of this table
+   * @return the index of the first row matching the key of the probe row,
+   * -1 if none
+   */
+  public int findFirst(List<Object> probeRow, int[] probeKeyIndexes) {
+    Object key = getKey(probeRow, probeKeyIndexes, numericStrings);
+    if (key == null)
+      return EMPTY;
+    if (key instanceof Long)
+      return getLong((Long) key);
+    Integer head = objectHeads.get(key);
+    return head == null ? EMPTY : head;
+  }
+
+  /**
+   * @return the index of the next row with the key of the given row, -1 if
+   * none
+   */
+  public int findNext(int index) {
+    return next[index];
+  }
+
+  public List<Object> getRow(int index) {
+    return rows.get(index);
+  }
+
+  public int size() {
+    return rows.size();
+  }
+
+  /**
+   * @return the estimated number of bytes held by the table
+   */
+  public long getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  /**
+   * Remove all the rows and release the memory.
+   */
+  public void clear() {
+    rows = new ArrayList<>();
+    next = new int[16];
+    objectHeads.clear();
+    memoryUsage = 0;
+    rowIndex = -1;
+    allocateLongTable(64);
+  }
+
+  private void allocateLongTable(int capacity) {
+    longKeys = new long[capacity];
+    longHeads = new int[capacity];
+    Arrays.fill(longHeads, EMPTY);
+    longKeyCount = 0;
+    memoryUsage += (long) capacity * 12;
+  }
+
+  /**
+   * @return the previous head row of the key, -1 if it is a new key
+   */
+  private int putLong(long key, int index) {
+    if (longKeyCount + 1 > longKeys.length * LOAD_FACTOR)
+      resizeLongTable();
+    int mask = longKeys.length - 1;
+    int slot = mix(key) & mask;
+    while (longHeads[slot] != EMPTY) {
+      if (longKeys[slot] == key) {
+        int head = longHeads[slot];
+        longHeads[slot] = index;
+        return head;
+      }
+      slot = (slot + 1) & mask;
+    }
+    longKeys[slot] = key;
+    longHeads[slot] = index;
+    longKeyCount++;
+    return EMPTY;
+  }
+
+  private int getLong(long key) {
+    int mask = longKeys.length - 1;
+    int slot = mix(key) & mask;
+    while (longHeads[slot] != EMPTY) {
+      if (longKeys[slot] == key)
+        return longHeads[slot];
+      slot = (slot + 1) & mask;
+    }
+    return EMPTY;
+  }
+
+  private void resizeLongTable() {
+    long[] oldKeys = longKeys;
+    int[] oldHeads = longHeads;
+    memoryUsage -= (long) oldKeys.length * 12;
+    int count = longKeyCount;
+    allocateLongTable(oldKeys.length * 2);
+    int mask = longKeys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldHeads[i] == EMPTY)
+        continue;
+      int slot = mix(oldKeys[i]) & mask;
+      while (longHeads[slot] != EMPTY)
+        slot = (slot + 1) & mask;
+      longKeys[slot] = oldKeys[i];
+      longHeads[slot] = oldHeads[i];
+    }
+    longKeyCount = count;
+  }
+
+  private static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * @param numericStrings key columns whose strings are parsed as numbers,
+   *                       null if none
+   * @return the partition of a row among the given number of partitions, -1
+   * if its key is null. It does not depend on the bits used by the table, so
+   * the rows of a partition are still spread over the table.
+   */
+  public static int getPartition(List<Object> row, int[] keyIndexes,
+                                 boolean[] numericStrings, int partitions) {
+    Object key = getKey(row, keyIndexes, numericStrings);
+    if (key == null)
+      return EMPTY;
+    long hash = key instanceof Long ? (Long) key : key.hashCode();
+    hash *= 0xC2B2AE3D27D4EB4FL;
+    return (int) ((hash >>> 33) % partitions);
+  }
+
+  /**
+   * The key of a row, so that keys equal in SQL are equal in Java: integers
+   * are Long whatever their type, e.g. BigInteger for decrypted values and
+   * Integer for plain ones.
+   *
+   * @return the key, a list for a composite key, null if a key column is null
+   */
+  static Object getKey(List<Object> row, int[] keyIndexes, boolean[]
+          numericStrings) {
+    if (keyIndexes.length == 1)
+      return normalize(row.get(keyIndexes[0]), numericStrings != null &&
+              numericStrings[0]);
+    Object[] key = new Object[keyIndexes.length];
+    for (int i = 0; i < keyIndexes.length; i++) {
+      key[i] = normalize(row.get(keyIndexes[i]), numericStrings != null &&
+              numericStrings[i]);
+      if (key[i] == null)
+        return null;
+    }
+    return Arrays.asList(key);
+  }
+
+  private static Object normalize(Object value, boolean numericString) {
+    if (numericString && value instanceof String) {
+      Object number = parseNumber((String) value);
+      return number == null ? value : number;
+    }
+    return normalize(value);
+  }
+
+  /**
+   * @return the value with integers as Long whatever their class, strings are
+   * kept as they are
+   */
+  static Object normalize(Object value) {
+    if (value == null)
+      return null;
+    if (value instanceof Long)
+      return value;
+    if (value instanceof Integer || value instanceof Short || value
+            instanceof Byte)
+      return ((Number) value).longValue();
+    if (value instanceof BigInteger) {
+      BigInteger bigInt = (BigInteger) value;
+      return bigInt.bitLength() < 64 ? (Object) bigInt.longValue() : bigInt;
+    }
+    if (value instanceof Double || value instanceof Float) {
+      double d = ((Number) value).doubleValue();
+      if (d == Math.rint(d) && Math.abs(d) < 9.2e18)
+        return (long) d;
+      return d;
+    }
+    if (value instanceof BigDecimal) {
+      BigDecimal decimal = ((BigDecimal) value).stripTrailingZeros();
+      if (decimal.scale() <= 0 && decimal.precision() - decimal.scale() < 19)
+        return decimal.longValue();
+      return decimal;
+    }
+    return value;
+  }
+
+  /**
+   * @return the number of a string, normalized, null if it is not a number
+   */
+  static Object parseNumber(String value) {
+    String s = value.trim();
+    try {
+      return Long.parseLong(s);
+    } catch (NumberFormatException e) {
+      // Not an integer.
+    }
+    try {
+      return normalize(Double.parseDouble(s));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return whether the strings of a column are parsed as numbers when it is
+   * compared with the other column, i.e. one is a string and the other a
+   * number
+   */
+  public static boolean isNumericString(Type type, Type otherType) {
+    return isString(type) && isNumeric(otherType) || isNumeric(type) &&
+            isString(otherType);
+  }
+
+  private static boolean isString(Type type) {
+    if (!(type instanceof ScalarType))
+      return false;
+    switch (((ScalarType) type).getType()) {
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isNumeric(Type type) {
+    if (!(type instanceof ScalarType))
+      return false;
+    switch (((ScalarType) type).getType()) {
+      case TINYINT:
+      case SMALLINT:
+      case INT:
+      case BIGINT:
+      case FLOAT:
+      case DOUBLE:
+      case DECIMAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return the approximate number of bytes taken by a row on the heap
+   */
+  public static long estimateSize(List<Object> row) {
+    long size = ROW_OVERHEAD + 8L * row.size();
+    for (Object value : row)
+      size += estimateSize(value);
+    return size;
+  }
+
+  static long estimateSize(Object value) {
+    if (value == null)
+      return 0;
+    if (value instanceof BigInteger)
+      return 40 + ((BigInteger) value).bitLength() / 8;
+    if (value instanceof String)
+      return 40 + 2L * ((String) value).length();
+    if (value instanceof List) {
+      long size = 24;
+      for (Object element : (List<?>) value)
+        size += 8 + estimateSize(element);
+      return size;
+    }
+    return 16;
+  }
 }
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class LocalCreate extends LocalPlanNode<LocalCreateDesc> {
@@ -47,6 +48,9 @@ public class LocalCreate extends LocalPlanNode<LocalCreateDesc> {
 
     TableMeta tableMeta = new TableMeta(dbMeta.getName(), nodeDesc.getTableName());
     tableMeta.setDbMeta(dbMeta);
+    tableMeta.setFileFormat(nodeDesc.getFileFormat());
+    tableMeta.setUploadCodec(nodeDesc.getUploadCodec());
+    tableMeta.setUploadSplitSize(nodeDesc.getUploadSplitSize());
 
     List<ColumnMeta> columnMetaList = new ArrayList<>();
 
@@ -107,7 +111,7 @@ public class LocalCreate extends LocalPlanNode<LocalCreateDesc> {
   public List<Object> nextTuple() {
     init();
 
-    child.nextTuple();
+    child.next();
 
     return null;
   }
@@ -121,4 +125,9 @@ public class LocalCreate extends LocalPlanNode<LocalCreateDesc> {
   public void addChild(PlanNode child) {
     this.child = child;
   }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
 }
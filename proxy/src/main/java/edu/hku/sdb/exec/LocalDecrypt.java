@@ -17,9 +17,12 @@
 
 package edu.hku.sdb.exec;
 
+import com.google.common.base.Joiner;
 import edu.hku.sdb.catalog.*;
 import edu.hku.sdb.connect.SDBResultSetMetaData;
+import edu.hku.sdb.crypto.CryptoCounters;
 import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.metrics.SdbMetrics;
 import edu.hku.sdb.parse.ColumnDefinition;
 import edu.hku.sdb.plan.LocalDecryptDesc;
 import edu.hku.sdb.plan.RemoteSQLDesc;
@@ -28,6 +31,8 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
@@ -39,7 +44,6 @@ public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
   private boolean initialized = false;
   private BasicTupleSlot tupleSlot;
   private List<ColumnDesc> childColDescList;
-  private int bufferSize = 100;
 
   private BigInteger prime1;
   private BigInteger prime2;
@@ -87,12 +91,17 @@ public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
     if(tuple != null) {
       return tuple;
     } else {
-      List<Object> childTuple = child.nextTuple();
-      int rowCount = 0;
+      List<Object> childTuple = child.next();
 
-      // Buffer a set of tuple up to the buffer size.
-      while (childTuple != null && rowCount <= bufferSize) {
+      // Decrypt a tuple at a time, so that a parent stopping early, e.g. at a
+      // limit, does not pay for the tuples it never reads.
+      if (childTuple != null) {
+        long decryptStart = System.nanoTime();
+        long modPowStart = CryptoCounters.get(CryptoCounters.MOD_POW);
+        long modInverseStart = CryptoCounters.get(CryptoCounters.MOD_INVERSE);
+        long aesStart = CryptoCounters.get(CryptoCounters.AES);
         BigInteger rowId = null;
+        int decryptedCells = 0;
 
         // RowID is at the last
         for (int index = childColDescList.size() - 1; index >= 0; index--) {
@@ -102,13 +111,17 @@ public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
 
             BigInteger rowIdEncrypted = SDBEncrypt.getSecureBigInt((String)
                     childTuple.get(index));
-            if(rowIdEncrypted != null)
+            if(rowIdEncrypted != null) {
               rowId = SDBEncrypt.SIESDecrypt(rowIdEncrypted, sdbColumnKey.getM(),
                     sdbColumnKey.getX(), n);
+              decryptedCells++;
+            }
           }
 
-          // Decrypt with columnKey if sensitive and rowID is not null
-          else if (columnDesc.isSensitive() && rowId != null) {
+          // Decrypt with columnKey if sensitive and rowID is not null, a
+          // column normalized to a key <m, 0> does not need the rowID.
+          else if (columnDesc.isSensitive() && (rowId != null ||
+                  isNormalized(columnDesc.getSdbColKey()))) {
             Type type = columnDesc.getType();
 
             if(type instanceof ScalarType) {
@@ -120,11 +133,15 @@ public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
                 case BIGINT:
                 case DECIMAL:
                   SdbColumnKey sdbColumnKey = columnDesc.getSdbColKey();
-                  BigInteger itemKey = SDBEncrypt.generateItemKeyOp2(sdbColumnKey.getM(),
-                          sdbColumnKey.getX(), rowId, g, n, totient, prime1, prime2);
+                  // The item key of <m, 0> is m for every row.
+                  BigInteger itemKey = isNormalized(sdbColumnKey) ? sdbColumnKey
+                          .getM().mod(n) : SDBEncrypt.generateItemKeyOp2
+                          (sdbColumnKey.getM(), sdbColumnKey.getX(), rowId, g, n,
+                                  totient, prime1, prime2);
                   BigInteger cipherText = SDBEncrypt.getSecureBigInt((String) childTuple.get(index));
 
                   BigInteger plainText = SDBEncrypt.decrypt(cipherText, itemKey, n);
+                  decryptedCells++;
                   // Check if it is negative or positive
                   if (plainText.compareTo(n.subtract(BigInteger.ONE).divide(new
                           BigInteger("2"))) >= 0) {
@@ -155,15 +172,27 @@ public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
             }
           }
         }
+        long decryptTime = System.nanoTime() - decryptStart;
+        profile.addDecryptTime(decryptTime);
+        profile.addDecryptedCells(decryptedCells);
+        SdbMetrics.DECRYPT_SECONDS.add(decryptTime);
+        SdbMetrics.DECRYPT_ROWS.inc();
+        profile.addCryptoCounts(CryptoCounters.get(CryptoCounters.MOD_POW) -
+                modPowStart, CryptoCounters.get(CryptoCounters.MOD_INVERSE) -
+                modInverseStart, CryptoCounters.get(CryptoCounters.AES) -
+                aesStart);
+        profile.addRowsIn(1);
         tupleSlot.addRow(childTuple);
-        childTuple = child.nextTuple();
-        rowCount++;
       }
     }
 
     return tupleSlot.nextTuple();
   }
 
+  private static boolean isNormalized(SdbColumnKey colKey) {
+    return colKey != null && colKey.getX().signum() == 0;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -218,4 +247,23 @@ public class LocalDecrypt extends LocalPlanNode<LocalDecryptDesc> {
       return ((RemoteSQLDesc) child.nodeDesc).getQuery();
     } else return "";
   }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+
+  /**
+   * @return the sensitive columns to decrypt
+   */
+  @Override
+  public String getDetail() {
+    List<String> columns = new ArrayList<>();
+    for (ColumnDesc columnDesc : nodeDesc.getRowDesc().getSignature()) {
+      if (columnDesc.isSensitive())
+        columns.add(columnDesc.getAlias());
+    }
+    return "decrypt: " + (columns.isEmpty() ? "none" : Joiner.on(", ").join
+            (columns));
+  }
 }
\ No newline at end of file
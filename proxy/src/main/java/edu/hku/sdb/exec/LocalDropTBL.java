@@ -20,6 +20,7 @@ package edu.hku.sdb.exec;
 import edu.hku.sdb.catalog.MetaStore;
 import edu.hku.sdb.plan.LocalDropTBLDesc;
 
+import java.util.Collections;
 import java.util.List;
 
 public class LocalDropTBL extends LocalPlanNode<LocalDropTBLDesc> {
@@ -51,7 +52,7 @@ public class LocalDropTBL extends LocalPlanNode<LocalDropTBLDesc> {
     if(!initialized)
       init();
 
-    child.nextTuple();
+    child.next();
 
     return null;
   }
@@ -65,4 +66,9 @@ public class LocalDropTBL extends LocalPlanNode<LocalDropTBLDesc> {
   public void close() {
 
   }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
 }
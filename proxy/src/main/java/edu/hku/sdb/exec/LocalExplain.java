@@ -0,0 +1,122 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.plan.LocalExplainDesc;
+import edu.hku.sdb.rewrite.SdbUdfSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Returns the plan of a query a line per row. With EXPLAIN ANALYZE, the plan
+ * is executed first, its results are thrown away and the actual time and
+ * rows of every node are shown instead.
+ */
+public class LocalExplain extends LocalPlanNode<LocalExplainDesc> {
+
+  private final PlanNode child;
+  private final boolean analyze;
+  private final SdbUdfSummary udfSummary;
+  private BasicTupleSlot tupleSlot;
+  private boolean initialized = false;
+
+  public LocalExplain(PlanNode child, boolean analyze, SdbUdfSummary
+          udfSummary, RowDesc rowDesc) {
+    this.child = child;
+    this.analyze = analyze;
+    this.udfSummary = udfSummary;
+
+    nodeDesc = new LocalExplainDesc();
+    nodeDesc.setRowDesc(rowDesc);
+  }
+
+  @Override
+  public void init() {
+    tupleSlot = new TupleSlot();
+
+    if (analyze) {
+      long start = System.nanoTime();
+      long numRows = 0;
+      while (child.next() != null)
+        numRows++;
+      long time = System.nanoTime() - start;
+
+      addLine("Plan (actual):");
+      addLines(child.getProfile().toString(), "  ");
+      addLine("Execution: " + numRows + " rows in " + time / 1000000 + "ms");
+    } else {
+      addLine("Plan:");
+      addLines(child.explain(), "  ");
+    }
+
+    addLine("Remote SQL:");
+    for (String query : getRemoteQueries(child, new ArrayList<String>()))
+      addLine("  " + query);
+
+    addLine("SDB UDF calls:");
+    for (SdbUdfSummary.Entry entry : udfSummary.getEntries())
+      addLine("  " + entry);
+    addLine("  total: " + udfSummary.getNumUdfCalls() + " calls, " +
+            udfSummary.getKeyUpdates() + " key updates, " + udfSummary
+            .getCartesians() + " cartesian products");
+
+    initialized = true;
+  }
+
+  private List<String> getRemoteQueries(PlanNode<?> node, List<String>
+          queries) {
+    if (node instanceof RemoteSQL)
+      queries.add(node.getDetail());
+    for (PlanNode subNode : node.getChildren()) {
+      if (subNode != null)
+        getRemoteQueries(subNode, queries);
+    }
+    return queries;
+  }
+
+  private void addLines(String text, String indent) {
+    for (String line : text.split("\n"))
+      addLine(indent + line);
+  }
+
+  private void addLine(String line) {
+    List<Object> row = new ArrayList<>();
+    row.add(line);
+    tupleSlot.addRow(row);
+  }
+
+  @Override
+  public List<Object> nextTuple() {
+    if (!initialized)
+      init();
+
+    return tupleSlot.nextTuple();
+  }
+
+  @Override
+  public void close() {
+    child.close();
+  }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.plan.ColumnComparison;
+import edu.hku.sdb.plan.LocalFilterDesc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the decrypted rows of its child satisfying predicates the planner
+ * chose not to evaluate under encryption on the server.
+ */
+public class LocalFilter extends LocalPlanNode<LocalFilterDesc> {
+
+  private PlanNode child;
+
+  public LocalFilter(PlanNode child, List<ColumnComparison> filters, RowDesc
+          rowDesc) {
+    nodeDesc = new LocalFilterDesc();
+    nodeDesc.setFilters(filters);
+    nodeDesc.setRowDesc(rowDesc);
+    this.child = child;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#init()
+   */
+  @Override
+  public void init() {
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#nextTuple()
+   */
+  @Override
+  public List<Object> nextTuple() {
+    List<Object> tuple;
+    while ((tuple = child.next()) != null) {
+      profile.addRowsIn(1);
+      if (accept(tuple))
+        return tuple;
+    }
+    return null;
+  }
+
+  private boolean accept(List<Object> tuple) {
+    for (ColumnComparison filter : nodeDesc.getFilters()) {
+      if (!filter.evaluate(tuple))
+        return false;
+    }
+    return true;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#close()
+   */
+  @Override
+  public void close() {
+    child.close();
+  }
+
+  public PlanNode getChild() {
+    return child;
+  }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+
+  @Override
+  public String getDetail() {
+    return "filters: " + nodeDesc.getFilters().size();
+  }
+}
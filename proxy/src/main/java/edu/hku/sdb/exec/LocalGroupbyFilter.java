@@ -17,12 +17,68 @@
 
 package edu.hku.sdb.exec;
 
+import edu.hku.sdb.plan.AggregateDesc;
+import edu.hku.sdb.plan.ColumnComparison;
 import edu.hku.sdb.plan.LocalGroupbyFilterDesc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
 
+/**
+ * Groups the decrypted rows of its child and aggregates them, then filters
+ * the groups by the having clause. An output row is made of the group by
+ * columns followed by the aggregates.
+ *
+ * The rows are aggregated in an {@link AggregationTable} as they stream in.
+ * If the table grows beyond the memory limit, its partial states are
+ * written as a run sorted by group and the table starts over. The runs are
+ * merged at the end, combining the partial states of each group.
+ */
 public class LocalGroupbyFilter extends LocalPlanNode<LocalGroupbyFilterDesc> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(LocalGroupbyFilter
+          .class);
+
+  private PlanNode child;
+  private boolean initialized = false;
+
+  private AggregationTable table;
+  // Next group of the table to output if nothing is spilled.
+  private int group;
+
+  private List<SpillFile> runs;
+  private PriorityQueue<RunHead> heads;
+  // Combines the partial states of the group being merged.
+  private AggregationTable mergeTable;
+  private Object mergeKey;
+
+  /**
+   * The next partial state of a sorted run.
+   */
+  private static class RunHead {
+    private final SpillFile.Reader reader;
+    private List<Object> partial;
+    private Object key;
+
+    private RunHead(SpillFile.Reader reader) {
+      this.reader = reader;
+    }
+  }
+
+  public LocalGroupbyFilter(PlanNode child, int[] groupIndexes,
+                            List<AggregateDesc> aggregates, RowDesc rowDesc) {
+    nodeDesc = new LocalGroupbyFilterDesc();
+    nodeDesc.setGroupIndexes(groupIndexes);
+    nodeDesc.setAggregates(aggregates);
+    nodeDesc.setRowDesc(rowDesc);
+    this.child = child;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -30,8 +86,28 @@ public class LocalGroupbyFilter extends LocalPlanNode<LocalGroupbyFilterDesc> {
    */
   @Override
   public void init() {
-    // TODO Auto-generated method stub
+    table = new AggregationTable(nodeDesc.getGroupIndexes(), nodeDesc
+            .getAggregates());
+
+    List<Object> row;
+    while ((row = child.next()) != null) {
+      profile.addRowsIn(1);
+      table.accumulate(table.findOrAdd(row), row);
+      if (table.getMemoryUsage() > nodeDesc.getMemoryLimit())
+        spillRun();
+    }
+    profile.updatePeakMemory(table.getMemoryUsage());
 
+    // An aggregation without group by returns a row even without input.
+    if (nodeDesc.getGroupIndexes().length == 0 && table.size() == 0 && runs
+            == null)
+      table.findOrAdd(Collections.emptyList());
+
+    if (runs != null) {
+      spillRun();
+      openRuns();
+    }
+    initialized = true;
   }
 
   /*
@@ -41,10 +117,111 @@ public class LocalGroupbyFilter extends LocalPlanNode<LocalGroupbyFilterDesc> {
    */
   @Override
   public List<Object> nextTuple() {
-    // TODO Auto-generated method stub
+    if (!initialized) {
+      init();
+    }
+
+    List<Object> row;
+    while ((row = nextGroup()) != null) {
+      if (accept(row))
+        return row;
+    }
     return null;
   }
 
+  private boolean accept(List<Object> row) {
+    for (ColumnComparison filter : nodeDesc.getHavingFilters()) {
+      if (!filter.evaluate(row))
+        return false;
+    }
+    return true;
+  }
+
+  private List<Object> nextGroup() {
+    if (heads == null)
+      return group < table.size() ? table.getResult(group++) : null;
+
+    try {
+      while (!heads.isEmpty()) {
+        RunHead head = heads.poll();
+        List<Object> result = null;
+        if (mergeKey != null && AggregationTable.compareKeys(mergeKey, head
+                .key) != 0) {
+          result = mergeTable.getResult(0);
+          mergeTable.clear();
+        }
+        mergeKey = head.key;
+        mergeTable.merge(mergeTable.findOrAdd(head.partial), head.partial);
+        advance(head);
+        if (result != null)
+          return result;
+      }
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+
+    if (mergeKey != null) {
+      mergeKey = null;
+      return mergeTable.getResult(0);
+    }
+    return null;
+  }
+
+  /**
+   * Write the partial states of the table as a run sorted by group.
+   */
+  private void spillRun() {
+    if (runs == null) {
+      LOG.info("Aggregation exceeds " + nodeDesc.getMemoryLimit() + " bytes, " +
+              "spilling sorted runs into " + nodeDesc.getSpillDir());
+      runs = new ArrayList<>();
+    }
+    if (table.size() == 0)
+      return;
+
+    profile.updatePeakMemory(table.getMemoryUsage());
+    try {
+      SpillFile run = new SpillFile(nodeDesc.getSpillDir());
+      runs.add(run);
+      for (int sortedGroup : table.getSortedGroups())
+        run.write(table.getPartial(sortedGroup));
+      run.finish();
+      profile.addSpilledRows(table.size());
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+    table.clear();
+  }
+
+  private void openRuns() {
+    int groupCount = nodeDesc.getGroupIndexes().length;
+    int[] partialIndexes = new int[groupCount];
+    for (int i = 0; i < groupCount; i++)
+      partialIndexes[i] = i;
+    mergeTable = new AggregationTable(partialIndexes, nodeDesc.getAggregates());
+
+    LOG.debug("Merging " + runs.size() + " sorted runs");
+    heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) ->
+            AggregationTable.compareKeys(a.key, b.key));
+    try {
+      for (SpillFile run : runs)
+        advance(new RunHead(run.openReader()));
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+  }
+
+  private void advance(RunHead head) throws IOException {
+    head.partial = head.reader.next();
+    if (head.partial == null) {
+      head.reader.close();
+      return;
+    }
+    head.key = AggregationTable.getKey(head.partial, mergeTable
+            .getGroupIndexes());
+    heads.add(head);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -52,8 +229,51 @@ public class LocalGroupbyFilter extends LocalPlanNode<LocalGroupbyFilterDesc> {
    */
   @Override
   public void close() {
-    // TODO Auto-generated method stub
+    child.close();
+    if (heads != null) {
+      for (RunHead head : heads) {
+        try {
+          head.reader.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      heads = null;
+    }
+    if (runs != null) {
+      for (SpillFile run : runs)
+        run.delete();
+      runs = null;
+    }
+    if (table != null)
+      table.clear();
+  }
 
+  public PlanNode getChild() {
+    return child;
   }
 
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+
+  @Override
+  public String getDetail() {
+    List<ColumnDesc> columns = child.getNodeDesc().getRowDesc().getSignature();
+    List<String> groups = new ArrayList<>();
+    for (int index : nodeDesc.getGroupIndexes())
+      groups.add(columns.get(index).getAlias());
+    List<String> aggregates = new ArrayList<>();
+    for (AggregateDesc aggregate : nodeDesc.getAggregates()) {
+      aggregates.add(aggregate.getFunction() + "(" + (aggregate.getInput() ==
+              AggregateDesc.STAR ? "*" : columns.get(aggregate.getInput())
+              .getAlias()) + ")");
+    }
+    String detail = "group by: " + String.join(", ", groups) + ", aggregates: "
+            + String.join(", ", aggregates);
+    if (!nodeDesc.getHavingFilters().isEmpty())
+      detail += ", having: " + nodeDesc.getHavingFilters().size();
+    return detail;
+  }
 }
@@ -17,43 +17,245 @@
 
 package edu.hku.sdb.exec;
 
+import edu.hku.sdb.plan.ColumnComparison;
 import edu.hku.sdb.plan.LocalJoinDesc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Inner equi-join of the decrypted rows of two subplans. The rows of the
+ * build side are put into the hash table of a {@link HashTableNode}, the
+ * rows of the probe side are streamed and looked up in it. A joined row is
+ * the columns of the probe row followed by the ones of the build row.
+ *
+ * If the hash table is spilled, the probe rows are partitioned the same way
+ * and every pair of partitions is joined in turn.
+ */
 public class LocalJoin extends LocalPlanNode<LocalJoinDesc> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(LocalJoin.class);
+
+  private PlanNode probe;
+  private HashTableNode build;
+  private boolean initialized = false;
+  private int probeWidth;
+  private int buildWidth;
+
+  private HashTableSlot table;
+  private List<Object> probeRow;
+  // Next build row matching the probe row, -1 if none.
+  private int match = -1;
+
+  // Partitions of the probe rows if the hash table is spilled.
+  private List<SpillFile> probePartitions;
+  private int partition = -1;
+  private SpillFile.Reader probeReader;
+
+  public LocalJoin(PlanNode probe, HashTableNode build, int[]
+          probeKeyIndexes, RowDesc rowDesc) {
+    nodeDesc = new LocalJoinDesc();
+    nodeDesc.setProbeKeyIndexes(probeKeyIndexes);
+    nodeDesc.setRowDesc(rowDesc);
+    this.probe = probe;
+    this.build = build;
+    build.getNodeDesc().setNumericStrings(getNumericStrings(probe, build,
+            probeKeyIndexes));
+  }
+
+  /**
+   * @return the key columns whose strings are parsed as numbers, since they
+   * are compared with a numeric column, null if none
+   */
+  private static boolean[] getNumericStrings(PlanNode probe, HashTableNode
+          build, int[] probeKeyIndexes) {
+    List<ColumnDesc> probeColumns = probe.getNodeDesc().getRowDesc()
+            .getSignature();
+    List<ColumnDesc> buildColumns = build.getNodeDesc().getRowDesc()
+            .getSignature();
+    int[] buildKeyIndexes = build.getNodeDesc().getKeyIndexes();
+    boolean[] numericStrings = new boolean[probeKeyIndexes.length];
+    boolean any = false;
+    for (int i = 0; i < numericStrings.length; i++) {
+      numericStrings[i] = HashTableSlot.isNumericString(probeColumns.get
+              (probeKeyIndexes[i]).getType(), buildColumns.get
+              (buildKeyIndexes[i]).getType());
+      any |= numericStrings[i];
+    }
+    return any ? numericStrings : null;
+  }
+
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see edu.hku.sdb.exec.PlanNode#init()
    */
   @Override
   public void init() {
-    // TODO Auto-generated method stub
+    // Decrypted rows may have trailing columns, e.g. the row id, which are
+    // not part of the row signature.
+    probeWidth = probe.getNodeDesc().getRowDesc().getSignature().size();
+    buildWidth = build.getNodeDesc().getRowDesc().getSignature().size();
 
+    build.build();
+    if (build.isSpilled()) {
+      partitionProbe();
+    } else {
+      table = build.getTupleSlot();
+    }
+    initialized = true;
   }
 
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see edu.hku.sdb.exec.PlanNode#nextTuple()
    */
   @Override
   public List<Object> nextTuple() {
-    // TODO Auto-generated method stub
-    return null;
+    if (!initialized) {
+      init();
+    }
+
+    while (true) {
+      while (match >= 0) {
+        List<Object> buildRow = table.getRow(match);
+        match = table.findNext(match);
+        List<Object> row = join(probeRow, buildRow);
+        if (accept(row))
+          return row;
+      }
+
+      probeRow = nextProbeRow();
+      if (probeRow == null)
+        return null;
+      profile.addRowsIn(1);
+      match = table.findFirst(probeRow, nodeDesc.getProbeKeyIndexes());
+    }
+  }
+
+  private List<Object> join(List<Object> probeRow, List<Object> buildRow) {
+    List<Object> row = new ArrayList<>(probeWidth + buildWidth);
+    row.addAll(probeRow.subList(0, probeWidth));
+    row.addAll(buildRow.subList(0, buildWidth));
+    return row;
+  }
+
+  private boolean accept(List<Object> row) {
+    for (ColumnComparison filter : nodeDesc.getFilters()) {
+      if (!filter.evaluate(row))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return the next probe row, of the current partition if the hash table
+   * is spilled, null if there is none left
+   */
+  private List<Object> nextProbeRow() {
+    if (probePartitions == null)
+      return probe.next();
+
+    try {
+      while (true) {
+        if (probeReader != null) {
+          List<Object> row = probeReader.next();
+          if (row != null)
+            return row;
+          probeReader.close();
+          probeReader = null;
+        }
+        partition++;
+        if (partition >= probePartitions.size())
+          return null;
+        LOG.debug("Joining partition " + partition);
+        table = build.loadPartition(partition);
+        probeReader = probePartitions.get(partition).openReader();
+      }
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+  }
+
+  /**
+   * Write all the probe rows into partitions matching the ones of the hash
+   * table.
+   */
+  private void partitionProbe() {
+    HashTableDesc tableDesc = build.getNodeDesc();
+    int count = build.getPartitionCount();
+    probePartitions = new ArrayList<>(count);
+    try {
+      for (int i = 0; i < count; i++)
+        probePartitions.add(new SpillFile(tableDesc.getSpillDir()));
+
+      List<Object> row;
+      while ((row = probe.next()) != null) {
+        int index = HashTableSlot.getPartition(row, nodeDesc
+                .getProbeKeyIndexes(), tableDesc.getNumericStrings(), count);
+        if (index < 0)
+          continue;
+        probePartitions.get(index).write(row);
+        profile.addSpilledRows(1);
+      }
+      for (SpillFile file : probePartitions)
+        file.finish();
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
   }
 
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see edu.hku.sdb.exec.PlanNode#close()
    */
   @Override
   public void close() {
-    // TODO Auto-generated method stub
+    probe.close();
+    build.close();
+    if (probeReader != null) {
+      try {
+        probeReader.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      probeReader = null;
+    }
+    if (probePartitions != null) {
+      for (SpillFile file : probePartitions)
+        file.delete();
+      probePartitions = null;
+    }
+  }
+
+  public PlanNode getProbe() {
+    return probe;
+  }
+
+  public HashTableNode getBuild() {
+    return build;
+  }
 
+  @Override
+  public List<PlanNode> getChildren() {
+    return Arrays.asList(probe, build);
   }
 
+  @Override
+  public String getDetail() {
+    List<ColumnDesc> columns = probe.getNodeDesc().getRowDesc().getSignature();
+    List<String> keys = new ArrayList<>();
+    for (int index : nodeDesc.getProbeKeyIndexes())
+      keys.add(columns.get(index).getAlias());
+    String detail = "probe key: " + String.join(", ", keys);
+    if (!nodeDesc.getFilters().isEmpty())
+      detail += ", filters: " + nodeDesc.getFilters().size();
+    return detail;
+  }
 }
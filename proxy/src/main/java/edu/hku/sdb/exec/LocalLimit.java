@@ -0,0 +1,102 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.plan.LocalLimitDesc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Returns the first rows of its child. Once the limit is reached the child
+ * is closed at once, so that the server queries under it are cancelled
+ * instead of running to the end.
+ */
+public class LocalLimit extends LocalPlanNode<LocalLimitDesc> {
+
+  private PlanNode child;
+  private long count = 0;
+  private boolean closed = false;
+
+  public LocalLimit(PlanNode child, long limit, RowDesc rowDesc) {
+    nodeDesc = new LocalLimitDesc();
+    nodeDesc.setLimit(limit);
+    nodeDesc.setRowDesc(rowDesc);
+    this.child = child;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#init()
+   */
+  @Override
+  public void init() {
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#nextTuple()
+   */
+  @Override
+  public List<Object> nextTuple() {
+    if (closed)
+      return null;
+    if (count >= nodeDesc.getLimit()) {
+      close();
+      return null;
+    }
+
+    List<Object> tuple = child.next();
+    if (tuple == null) {
+      close();
+      return null;
+    }
+    profile.addRowsIn(1);
+    count++;
+    return tuple;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#close()
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      child.close();
+    }
+  }
+
+  public PlanNode getChild() {
+    return child;
+  }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+
+  @Override
+  public String getDetail() {
+    return "limit: " + nodeDesc.getLimit();
+  }
+}
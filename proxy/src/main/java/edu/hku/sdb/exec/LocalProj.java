@@ -19,10 +19,25 @@ package edu.hku.sdb.exec;
 
 import edu.hku.sdb.plan.LocalProjDesc;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Picks columns of the rows of its child, e.g. the selection items out of a
+ * joined row.
+ */
 public class LocalProj extends LocalPlanNode<LocalProjDesc> {
 
+  private PlanNode child;
+
+  public LocalProj(PlanNode child, int[] columnIndexes, RowDesc rowDesc) {
+    nodeDesc = new LocalProjDesc();
+    nodeDesc.setColumnIndexes(columnIndexes);
+    nodeDesc.setRowDesc(rowDesc);
+    this.child = child;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -30,8 +45,6 @@ public class LocalProj extends LocalPlanNode<LocalProjDesc> {
    */
   @Override
   public void init() {
-    // TODO Auto-generated method stub
-
   }
 
   /*
@@ -41,8 +54,16 @@ public class LocalProj extends LocalPlanNode<LocalProjDesc> {
    */
   @Override
   public List<Object> nextTuple() {
-    // TODO Auto-generated method stub
-    return null;
+    List<Object> childTuple = child.next();
+    if (childTuple == null)
+      return null;
+    profile.addRowsIn(1);
+
+    int[] columnIndexes = nodeDesc.getColumnIndexes();
+    List<Object> tuple = new ArrayList<>(columnIndexes.length);
+    for (int index : columnIndexes)
+      tuple.add(childTuple.get(index));
+    return tuple;
   }
 
   /*
@@ -52,8 +73,15 @@ public class LocalProj extends LocalPlanNode<LocalProjDesc> {
    */
   @Override
   public void close() {
-    // TODO Auto-generated method stub
+    child.close();
+  }
 
+  public PlanNode getChild() {
+    return child;
   }
 
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
 }
@@ -0,0 +1,300 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.plan.LocalSortDesc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the decrypted rows of its child, which the server cannot do on
+ * encrypted values.
+ *
+ * With a limit of k rows, only the k first rows are kept in a bounded heap.
+ * Otherwise the rows are buffered and sorted; if they grow beyond the memory
+ * limit, they are written as sorted runs which are merged at the end.
+ */
+public class LocalSort extends LocalPlanNode<LocalSortDesc> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalSort.class);
+
+  private PlanNode child;
+  private boolean initialized = false;
+  private Comparator<SortKey> comparator;
+
+  // The sorted rows if nothing is spilled.
+  private Iterator<SortKey> sorted;
+
+  private List<SpillFile> runs;
+  private PriorityQueue<RunHead> heads;
+  // Rows returned so far.
+  private long returned;
+
+  /**
+   * The next row of a sorted run.
+   */
+  private static class RunHead {
+    private final SpillFile.Reader reader;
+    private SortKey key;
+
+    private RunHead(SpillFile.Reader reader) {
+      this.reader = reader;
+    }
+  }
+
+  public LocalSort(PlanNode child, int[] sortIndexes, boolean[] ascending,
+                   long limit, RowDesc rowDesc) {
+    nodeDesc = new LocalSortDesc();
+    nodeDesc.setSortIndexes(sortIndexes);
+    nodeDesc.setAscending(ascending);
+    nodeDesc.setLimit(limit);
+    nodeDesc.setRowDesc(rowDesc);
+    this.child = child;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.hku.sdb.exec.PlanNode#init()
+   */
+  @Override
+  public void init() {
+    comparator = SortKey.comparator(nodeDesc.getAscending());
+    if (nodeDesc.getLimit() == LocalSortDesc.NO_LIMIT)
+      sortAll();
+    else
+      sortTop(nodeDesc.getLimit());
+    initialized = true;
+  }
+
+  /**
+   * Keep the first rows in a heap whose head is the last of them. If they
+   * do not fit in memory, all the rows are sorted by spilling instead.
+   */
+  private void sortTop(long limit) {
+    if (limit == 0) {
+      sorted = Collections.emptyIterator();
+      return;
+    }
+
+    PriorityQueue<SortKey> heap = new PriorityQueue<>((int) Math.min(limit,
+            1024) + 1, comparator.reversed());
+    long memory = 0;
+    long sequence = 0;
+    List<Object> row;
+    while ((row = child.next()) != null) {
+      profile.addRowsIn(1);
+      SortKey key = new SortKey(row, nodeDesc.getSortIndexes(), sequence++);
+      if (heap.size() < limit) {
+        heap.add(key);
+        memory += key.estimateSize();
+      } else if (comparator.compare(key, heap.peek()) < 0) {
+        memory -= heap.poll().estimateSize();
+        heap.add(key);
+        memory += key.estimateSize();
+      }
+      profile.updatePeakMemory(memory);
+      if (memory > nodeDesc.getMemoryLimit()) {
+        sortAll(new ArrayList<>(heap), memory, sequence);
+        return;
+      }
+    }
+
+    List<SortKey> keys = new ArrayList<>(heap);
+    keys.sort(comparator);
+    sorted = keys.iterator();
+  }
+
+  private void sortAll() {
+    sortAll(new ArrayList<>(), 0, 0);
+  }
+
+  /**
+   * Sort the given rows and the remaining ones of the child, spilling sorted
+   * runs whenever they exceed the memory limit.
+   *
+   * @param memory   the estimated size of the given rows
+   * @param sequence the sequence of the next row of the child
+   */
+  private void sortAll(List<SortKey> keys, long memory, long sequence) {
+    if (memory > nodeDesc.getMemoryLimit()) {
+      spillRun(keys);
+      memory = 0;
+    }
+    List<Object> row;
+    while ((row = child.next()) != null) {
+      profile.addRowsIn(1);
+      SortKey key = new SortKey(row, nodeDesc.getSortIndexes(), sequence++);
+      keys.add(key);
+      memory += key.estimateSize();
+      if (memory > nodeDesc.getMemoryLimit()) {
+        profile.updatePeakMemory(memory);
+        spillRun(keys);
+        memory = 0;
+      }
+    }
+    profile.updatePeakMemory(memory);
+
+    if (runs == null) {
+      keys.sort(comparator);
+      sorted = keys.iterator();
+    } else {
+      spillRun(keys);
+      openRuns();
+    }
+  }
+
+  /**
+   * Write the buffered rows as a sorted run.
+   */
+  private void spillRun(List<SortKey> keys) {
+    if (runs == null) {
+      LOG.info("Sort exceeds " + nodeDesc.getMemoryLimit() + " bytes, " +
+              "spilling sorted runs into " + nodeDesc.getSpillDir());
+      runs = new ArrayList<>();
+    }
+    if (keys.isEmpty())
+      return;
+
+    keys.sort(comparator);
+    try {
+      SpillFile run = new SpillFile(nodeDesc.getSpillDir());
+      runs.add(run);
+      for (SortKey key : keys)
+        run.write(key.getRow());
+      run.finish();
+      profile.addSpilledRows(keys.size());
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+    keys.clear();
+  }
+
+  private void openRuns() {
+    LOG.debug("Merging " + runs.size() + " sorted runs");
+    // The rows of a run are sorted already, equal rows are taken from the
+    // earlier run first to keep the sort stable.
+    heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> comparator
+            .compare(a.key, b.key));
+    try {
+      for (int i = 0; i < runs.size(); i++)
+        advance(new RunHead(runs.get(i).openReader()), i);
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+  }
+
+  private void advance(RunHead head, long runIndex) throws IOException {
+    List<Object> row = head.reader.next();
+    if (row == null) {
+      head.reader.close();
+      return;
+    }
+    head.key = new SortKey(row, nodeDesc.getSortIndexes(), runIndex);
+    heads.add(head);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.hku.sdb.exec.PlanNode#nextTuple()
+   */
+  @Override
+  public List<Object> nextTuple() {
+    if (!initialized) {
+      init();
+    }
+
+    // The merged runs of a top n sort hold all the rows.
+    if (nodeDesc.getLimit() != LocalSortDesc.NO_LIMIT && returned >= nodeDesc
+            .getLimit())
+      return null;
+    returned++;
+
+    if (sorted != null)
+      return sorted.hasNext() ? sorted.next().getRow() : null;
+
+    if (heads == null || heads.isEmpty())
+      return null;
+    RunHead head = heads.poll();
+    SortKey key = head.key;
+    try {
+      advance(head, key.getSequence());
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+    return key.getRow();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.hku.sdb.exec.PlanNode#close()
+   */
+  @Override
+  public void close() {
+    child.close();
+    sorted = null;
+    if (heads != null) {
+      for (RunHead head : heads) {
+        try {
+          head.reader.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      heads = null;
+    }
+    if (runs != null) {
+      for (SpillFile run : runs)
+        run.delete();
+      runs = null;
+    }
+  }
+
+  public PlanNode getChild() {
+    return child;
+  }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
+
+  @Override
+  public String getDetail() {
+    List<ColumnDesc> columns = child.getNodeDesc().getRowDesc().getSignature();
+    List<String> keys = new ArrayList<>();
+    int[] sortIndexes = nodeDesc.getSortIndexes();
+    for (int i = 0; i < sortIndexes.length; i++)
+      keys.add(columns.get(sortIndexes[i]).getAlias() + (nodeDesc.getAscending
+              ()[i] ? " asc" : " desc"));
+    String detail = "order by: " + String.join(", ", keys);
+    if (nodeDesc.getLimit() != LocalSortDesc.NO_LIMIT)
+      detail += ", limit: " + nodeDesc.getLimit();
+    return detail;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+/**
+ * The memory the buffers of a query may hold together. A buffer reserves
+ * the memory of a page before keeping it, and spills the page if the budget
+ * is exhausted.
+ */
+public class MemoryBudget {
+
+  private final long limit;
+  private long used;
+  private long peak;
+
+  /**
+   * @param limit the number of bytes, Long.MAX_VALUE for no limit
+   */
+  public MemoryBudget(long limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * @return true if the bytes are reserved, false if they exceed the budget
+   */
+  public synchronized boolean tryReserve(long bytes) {
+    if (bytes > limit - used)
+      return false;
+    used += bytes;
+    peak = Math.max(peak, used);
+    return true;
+  }
+
+  public synchronized void release(long bytes) {
+    used = Math.max(0, used - bytes);
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  public synchronized long getUsed() {
+    return used;
+  }
+
+  public synchronized long getPeak() {
+    return peak;
+  }
+}
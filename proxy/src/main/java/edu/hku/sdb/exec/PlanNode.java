@@ -17,14 +17,21 @@
 
 package edu.hku.sdb.exec;
 
+import edu.hku.sdb.connect.NodeProfile;
 import edu.hku.sdb.plan.PlanNodeDesc;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class PlanNode<T extends PlanNodeDesc> {
 
   protected T nodeDesc;
 
+  // Runtime statistics of this node.
+  protected final NodeProfile profile = new NodeProfile(getClass()
+          .getSimpleName());
+
   /**
    * Initialize resource needed.
    */
@@ -37,6 +44,22 @@ public abstract class PlanNode<T extends PlanNodeDesc> {
    */
   public abstract List<Object> nextTuple();
 
+  /**
+   * Get next tuple, recording the time spent and the tuple returned in the
+   * profile of this node. Parents should pull tuples from their children
+   * through this method.
+   *
+   * @return
+   */
+  public List<Object> next() {
+    long start = System.nanoTime();
+    List<Object> tuple = nextTuple();
+    profile.addTotalTime(System.nanoTime() - start);
+    if (tuple != null)
+      profile.addRowsOut(1);
+    return tuple;
+  }
+
   /**
    * Close all resource.
    */
@@ -50,4 +73,50 @@ public abstract class PlanNode<T extends PlanNodeDesc> {
 
   public void addChild(PlanNode child) {}
 
+  public List<PlanNode> getChildren() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * @return what this node does in a line, e.g. the query sent to the server,
+   * null if the name of the node says it all
+   */
+  public String getDetail() {
+    return null;
+  }
+
+  /**
+   * @return the plan tree rooted at this node, a node per line
+   */
+  public String explain() {
+    StringBuilder sb = new StringBuilder();
+    explain(sb, "");
+    return sb.toString();
+  }
+
+  private void explain(StringBuilder sb, String indent) {
+    sb.append(indent).append(getClass().getSimpleName());
+    String detail = getDetail();
+    if (detail != null)
+      sb.append(" [").append(detail).append("]");
+    sb.append("\n");
+    for (PlanNode child : getChildren()) {
+      if (child != null)
+        child.explain(sb, indent + "  ");
+    }
+  }
+
+  /**
+   * @return the profile of the plan tree rooted at this node
+   */
+  public NodeProfile getProfile() {
+    List<NodeProfile> childProfiles = new ArrayList<>();
+    for (PlanNode child : getChildren()) {
+      if (child != null)
+        childProfiles.add(child.getProfile());
+    }
+    profile.setChildren(childProfiles);
+    return profile;
+  }
+
 }
@@ -29,7 +29,9 @@ public class RemoteQuery extends RemoteSQL {
 
   private static final Logger LOG = LoggerFactory
           .getLogger(RemoteQuery.class);
-  private BasicTupleSlot tupleSlot;
+  // Null once all the rows are read or the query is closed.
+  private ServerResultSet resultSet;
+  private int columnCount;
   boolean initialized = false;
 
   public RemoteQuery(String query, ServerConnection connection, RowDesc rowDesc) {
@@ -48,12 +50,32 @@ public class RemoteQuery extends RemoteSQL {
     if (!initialized) {
       init();
     }
+    if (resultSet == null)
+      return null;
+
+    // Results are fetched from the server in batches while iterating.
+    long start = System.nanoTime();
+    boolean hasNext = resultSet.next();
+    profile.addServerTime(System.nanoTime() - start);
+    if (!hasNext) {
+      close();
+      return null;
+    }
 
-    return tupleSlot.nextTuple();
+    List<Object> row = new ArrayList<Object>(columnCount);
+    for (int i = 1; i <= columnCount; i++) {
+      Object value = resultSet.getObject(i);
+      profile.addBytesReceived(estimateSize(value));
+      row.add(value);
+    }
+    profile.addRowsIn(1);
+    return row;
   }
 
   /**
-   * Buffer all the remote query result at the first place.
+   * Send the query to the server. The rows are streamed to the parent as it
+   * pulls them, so that a parent stopping early, e.g. at a limit, can cancel
+   * the rest of the query by closing it.
    */
   @Override
   public void init() {
@@ -61,31 +83,50 @@ public class RemoteQuery extends RemoteSQL {
       return;
 
     long startTimeStamp = System.currentTimeMillis();
-    tupleSlot = new TupleSlot();
+    long start = System.nanoTime();
 
     String query = nodeDesc.getQuery();
     LOG.debug("Initialize RemoteSQLDesc with sql " + query);
-    ServerResultSet resultSet = nodeDesc.getConnection().executeQuery(query);
-    List<ColumnDesc> columnDescList = nodeDesc.getRowDesc().getSignature();
+    profile.setDetail(query);
+    resultSet = nodeDesc.getConnection().executeQuery(query);
+    columnCount = nodeDesc.getRowDesc().getSignature().size();
+    // A query without column, e.g. when nothing is selected, has no row.
+    if (resultSet != null && columnCount == 0)
+      close();
 
     // profile server query execution time
     long endTimeStamp = System.currentTimeMillis();
     setServerExecutionTime(endTimeStamp - startTimeStamp);
+    profile.addServerTime(System.nanoTime() - start);
 
-    //buffer all results in resultList
-    while (resultSet.next()) {
-      List<Object> row = new ArrayList<Object>();
-
-      for (int i = 1; i <= columnDescList.size(); i++) {
-        row.add(resultSet.getObject(i));
-      }
-      if (row.size() > 0) {
-        tupleSlot.addRow(row);
-      }
-    }
+    initialized = true;
+  }
 
+  /**
+   * @return the approximate number of bytes a value takes on the wire.
+   * Ciphertexts are radix-36 strings, so a character takes a byte.
+   */
+  private static long estimateSize(Object value) {
+    if (value == null)
+      return 0;
+    else if (value instanceof String)
+      return ((String) value).length();
+    else if (value instanceof Number || value instanceof Boolean)
+      return 8;
+    return value.toString().length();
+  }
 
-    initialized = true;
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.exec.PlanNode#close()
+   */
+  @Override
+  public void close() {
+    if (resultSet != null) {
+      resultSet.close();
+      resultSet = null;
+    }
   }
 
   @Override
@@ -48,6 +48,11 @@ public abstract class RemoteSQL extends PlanNode<RemoteSQLDesc> {
     this.serverExecutionTime = serverExecutionTime;
   }
 
+  @Override
+  public String getDetail() {
+    return nodeDesc.getQuery();
+  }
+
   /*
    * (non-Javadoc)
    * 
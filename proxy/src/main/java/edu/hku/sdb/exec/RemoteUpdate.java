@@ -21,11 +21,15 @@ import edu.hku.sdb.connect.ServerConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.List;
 
 public class RemoteUpdate extends RemoteSQL {
 
   boolean initialized = false;
+  private boolean succeeded = false;
+  // Update to be executed before this one, e.g. loading a staging table.
+  private PlanNode child;
 
   private static final Logger LOG = LoggerFactory
           .getLogger(RemoteUpdate.class);
@@ -40,21 +44,46 @@ public class RemoteUpdate extends RemoteSQL {
       return;
 
     long startTimeStamp = System.currentTimeMillis();
+    long start = System.nanoTime();
     String query = nodeDesc.getQuery();
+    profile.setDetail(query);
 
-    if(query != null)
-      nodeDesc.getConnection().executeUpdate(query);
+    // A failed update is reported by a negative count.
+    succeeded = query == null || nodeDesc.getConnection().executeUpdate(query)
+            >= 0;
+    if (child instanceof RemoteUpdate)
+      succeeded &= ((RemoteUpdate) child).isSucceeded();
 
     // profile server query execution time
     long endTimeStamp = System.currentTimeMillis();
     setServerExecutionTime(endTimeStamp - startTimeStamp);
+    profile.addServerTime(System.nanoTime() - start);
 
     initialized = true;
   }
 
   @Override
   public List<Object> nextTuple() {
+    if (child != null)
+      child.next();
     init();
     return null;
   }
+
+  /**
+   * @return whether this update and the one before it ran without error
+   */
+  public boolean isSucceeded() {
+    return succeeded;
+  }
+
+  @Override
+  public void addChild(PlanNode child) {
+    this.child = child;
+  }
+
+  @Override
+  public List<PlanNode> getChildren() {
+    return Collections.singletonList(child);
+  }
 }
@@ -0,0 +1,203 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes rows in a compact binary format: the number of values, then each
+ * value as a type tag followed by its bytes. Ciphertexts and decrypted
+ * values, i.e. strings and BigInteger, take little more than their bytes.
+ * Values of other classes fall back to java serialization.
+ */
+final class RowCodec {
+
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte BIG_INTEGER = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte STRING = 5;
+  private static final byte BOOLEAN = 6;
+  private static final byte BIG_DECIMAL = 7;
+  private static final byte FLOAT = 8;
+  private static final byte OBJECT = 9;
+
+  private final Bytes bytes = new Bytes();
+  private final DataOutputStream out = new DataOutputStream(bytes);
+
+  /**
+   * Exposes its buffer, so that a row is copied only once into its page.
+   */
+  private static class Bytes extends ByteArrayOutputStream {
+    private Bytes() {
+      super(256);
+    }
+
+    private void copyTo(ByteBuffer buffer) {
+      buffer.put(buf, 0, count);
+    }
+  }
+
+  /**
+   * Encode a row, it is kept until the next call.
+   *
+   * @return the number of bytes of the encoded row
+   */
+  int encode(List<Object> row) throws IOException {
+    bytes.reset();
+    out.writeInt(row.size());
+    for (Object value : row)
+      write(value);
+    out.flush();
+    return bytes.size();
+  }
+
+  /**
+   * Copy the last encoded row at the position of the buffer.
+   */
+  void copyTo(ByteBuffer buffer) {
+    bytes.copyTo(buffer);
+  }
+
+  /**
+   * Write the last encoded row to a stream.
+   */
+  void writeTo(OutputStream stream) throws IOException {
+    bytes.writeTo(stream);
+  }
+
+  private void write(Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Integer) {
+      out.writeByte(INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeBytes(((BigInteger) value).toByteArray());
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      out.writeInt(((BigDecimal) value).scale());
+      writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else {
+      out.writeByte(OBJECT);
+      ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(serialized);
+      oos.writeObject(value);
+      oos.close();
+      writeBytes(serialized.toByteArray());
+    }
+  }
+
+  private void writeBytes(byte[] value) throws IOException {
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  /**
+   * Decode the row at the position of the buffer and move past it.
+   */
+  static List<Object> decode(ByteBuffer buffer) throws IOException {
+    int size = buffer.getInt();
+    List<Object> row = new ArrayList<>(size);
+    for (int i = 0; i < size; i++)
+      row.add(read(buffer));
+    return row;
+  }
+
+  private static Object read(ByteBuffer buffer) throws IOException {
+    byte tag = buffer.get();
+    switch (tag) {
+      case NULL:
+        return null;
+      case INT:
+        return buffer.getInt();
+      case LONG:
+        return buffer.getLong();
+      case BIG_INTEGER:
+        return new BigInteger(readBytes(buffer));
+      case DOUBLE:
+        return buffer.getDouble();
+      case STRING:
+        return readString(buffer);
+      case BOOLEAN:
+        return buffer.get() != 0;
+      case BIG_DECIMAL:
+        int scale = buffer.getInt();
+        return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+      case FLOAT:
+        return buffer.getFloat();
+      case OBJECT:
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream
+                (readBytes(buffer)));
+        try {
+          return ois.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        } finally {
+          ois.close();
+        }
+      default:
+        throw new IOException("Corrupted row page, unknown type " + tag);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    String value;
+    if (buffer.hasArray()) {
+      // Decode in place from the page of a heap buffer.
+      value = new String(buffer.array(), buffer.arrayOffset() + buffer
+              .position(), length, StandardCharsets.UTF_8);
+    } else {
+      byte[] bytes = new byte[length];
+      buffer.duplicate().get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+    }
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) {
+    byte[] value = new byte[buffer.getInt()];
+    buffer.get(value);
+    return value;
+  }
+}
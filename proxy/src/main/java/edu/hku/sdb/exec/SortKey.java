@@ -0,0 +1,136 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The sort columns of a row, extracted once so that comparing rows is cheap.
+ * Integers, e.g. decrypted BigInteger values, are kept as primitive longs
+ * when they fit, other numbers as BigDecimal.
+ *
+ * Nulls come first in ascending order, then numbers by value, then strings,
+ * then anything else by its string. Equal keys are ordered by sequence, so
+ * that the sort is stable.
+ */
+public final class SortKey {
+
+  // Value of a column kept in the long array.
+  private static final Object LONG = new Object();
+
+  private final List<Object> row;
+  private final long sequence;
+  private final long[] longs;
+  private final Object[] values;
+
+  public SortKey(List<Object> row, int[] sortIndexes, long sequence) {
+    this.row = row;
+    this.sequence = sequence;
+    longs = new long[sortIndexes.length];
+    values = new Object[sortIndexes.length];
+    for (int i = 0; i < sortIndexes.length; i++) {
+      Object value = row.get(sortIndexes[i]);
+      if (value instanceof Long || value instanceof Integer || value
+              instanceof Short || value instanceof Byte) {
+        longs[i] = ((Number) value).longValue();
+        values[i] = LONG;
+      } else if (value instanceof BigInteger && ((BigInteger) value)
+              .bitLength() < 64) {
+        longs[i] = ((BigInteger) value).longValue();
+        values[i] = LONG;
+      } else if (value instanceof BigInteger) {
+        values[i] = new BigDecimal((BigInteger) value);
+      } else if ((value instanceof Double || value instanceof Float) &&
+              !Double.isNaN(((Number) value).doubleValue()) && !Double
+              .isInfinite(((Number) value).doubleValue())) {
+        values[i] = BigDecimal.valueOf(((Number) value).doubleValue());
+      } else {
+        values[i] = value;
+      }
+    }
+  }
+
+  public List<Object> getRow() {
+    return row;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return the order of the keys, descending columns reversed
+   */
+  public static Comparator<SortKey> comparator(final boolean[] ascending) {
+    return (a, b) -> {
+      for (int i = 0; i < ascending.length; i++) {
+        int result = compare(a, b, i);
+        if (result != 0)
+          return ascending[i] ? result : -result;
+      }
+      return Long.compare(a.sequence, b.sequence);
+    };
+  }
+
+  private static int compare(SortKey a, SortKey b, int i) {
+    Object x = a.values[i];
+    Object y = b.values[i];
+    if (x == LONG && y == LONG)
+      return Long.compare(a.longs[i], b.longs[i]);
+
+    int rankX = rank(x);
+    int rankY = rank(y);
+    if (rankX != rankY)
+      return Integer.compare(rankX, rankY);
+    switch (rankX) {
+      case 0:
+        return 0;
+      case 1:
+        return toDecimal(a, i).compareTo(toDecimal(b, i));
+      case 2:
+        return ((String) x).compareTo((String) y);
+      default:
+        return x.toString().compareTo(y.toString());
+    }
+  }
+
+  private static int rank(Object value) {
+    if (value == null)
+      return 0;
+    if (value == LONG || value instanceof BigDecimal)
+      return 1;
+    if (value instanceof String)
+      return 2;
+    return 3;
+  }
+
+  private static BigDecimal toDecimal(SortKey key, int i) {
+    return key.values[i] == LONG ? BigDecimal.valueOf(key.longs[i]) :
+            (BigDecimal) key.values[i];
+  }
+
+  /**
+   * @return the approximate number of bytes taken by the key and its row
+   */
+  public long estimateSize() {
+    return 48 + 16L * values.length + HashTableSlot.estimateSize(row);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A temporary file of rows written by an operator running out of memory.
+ * Rows are written once and can then be read back any number of times.
+ * Every row is encoded by {@link RowCodec}, as in the pages of
+ * {@link SpillableTupleSlot}, after its length.
+ */
+public class SpillFile {
+
+  private final File file;
+  private final RowCodec codec = new RowCodec();
+  private DataOutputStream out;
+  private long rows;
+
+  public SpillFile(File dir) throws IOException {
+    file = File.createTempFile("sdb-spill-", ".tmp", dir);
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream
+            (file)));
+  }
+
+  public void write(List<Object> row) throws IOException {
+    out.writeInt(codec.encode(row));
+    codec.writeTo(out);
+    rows++;
+  }
+
+  /**
+   * Close the file for writing, it must be called before reading.
+   */
+  public void finish() throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+    }
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public long getBytes() {
+    return file.length();
+  }
+
+  public Reader openReader() throws IOException {
+    finish();
+    return new Reader();
+  }
+
+  public void delete() {
+    try {
+      finish();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    // Every file registered for deletion on exit is remembered until then, so
+    // only the ones that cannot be deleted now are.
+    if (!file.delete() && file.exists())
+      file.deleteOnExit();
+  }
+
+  /**
+   * Reads the rows back in the order they were written.
+   */
+  public class Reader implements Closeable {
+
+    private final DataInputStream in;
+    private long remaining = rows;
+    // Holds the bytes of a row while it is decoded.
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    private Reader() throws IOException {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream
+              (file)));
+    }
+
+    /**
+     * @return the next row, null at the end of the file
+     */
+    public List<Object> next() throws IOException {
+      if (remaining == 0)
+        return null;
+      remaining--;
+      int length = in.readInt();
+      if (buffer.capacity() < length)
+        buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+      in.readFully(buffer.array(), 0, length);
+      buffer.clear();
+      buffer.limit(length);
+      return RowCodec.decode(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tuple slot bounded by the memory budget of its query. Rows are encoded
+ * into pages by {@link RowCodec}. A full page is kept in memory if the
+ * budget allows it, otherwise it is appended to a temporary file.
+ *
+ * Spilled pages are read back by mapping their region of the file, so that
+ * rows are decoded straight from the page cache without copying the page
+ * to the heap. As in {@link TupleSlot}, the rows are read once: every page
+ * is released as soon as it is read, and the slot is empty again at the end.
+ */
+public class SpillableTupleSlot extends BasicTupleSlot {
+
+  private static final Logger LOG = LoggerFactory.getLogger
+          (SpillableTupleSlot.class);
+
+  // Rows larger than a page get a page of their own.
+  static final int PAGE_SIZE = 64 << 10;
+
+  private final MemoryBudget budget;
+  private final File spillDir;
+  private final RowCodec codec = new RowCodec();
+
+  private final List<Page> pages = new ArrayList<>();
+  private ByteBuffer writePage;
+  private long rowCount;
+  // Bytes of the pages kept in memory, reserved from the budget.
+  private long reserved;
+
+  private File file;
+  private FileChannel channel;
+  private long fileSize;
+  private long spilledPages;
+
+  private boolean reading = false;
+  private int readPage;
+  private ByteBuffer readBuffer;
+
+  /**
+   * A sealed page, either in memory or a region of the spill file.
+   */
+  private static class Page {
+    private ByteBuffer buffer;
+    private final long offset;
+    private final int length;
+
+    private Page(ByteBuffer buffer) {
+      this.buffer = buffer;
+      offset = -1;
+      length = buffer.limit();
+    }
+
+    private Page(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * @param budget   the memory budget shared by the buffers of the query
+   * @param spillDir the directory of the spill file, null for the temporary
+   *                 directory of the system
+   */
+  public SpillableTupleSlot(MemoryBudget budget, File spillDir) {
+    this.budget = budget;
+    this.spillDir = spillDir;
+  }
+
+  @Override
+  public void addRow(List<Object> row) {
+    if (reading)
+      throw new IllegalStateException("Rows cannot be added while reading");
+
+    try {
+      int length = codec.encode(row);
+      if (writePage == null || writePage.remaining() < length) {
+        sealPage();
+        if (writePage == null || writePage.capacity() < length)
+          writePage = ByteBuffer.allocate(Math.max(PAGE_SIZE, length));
+      }
+      codec.copyTo(writePage);
+      rowCount++;
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+  }
+
+  @Override
+  public void setRows(List<List<Object>> rows) {
+    for (List<Object> row : rows)
+      addRow(row);
+  }
+
+  /**
+   * Keep the page being written in memory or spill it. A spilled page is
+   * reused for the next rows.
+   */
+  private void sealPage() throws IOException {
+    if (writePage == null || writePage.position() == 0)
+      return;
+
+    writePage.flip();
+    if (budget.tryReserve(writePage.capacity())) {
+      reserved += writePage.capacity();
+      pages.add(new Page(writePage));
+      writePage = null;
+      return;
+    }
+
+    if (channel == null) {
+      file = File.createTempFile("sdb-rows-", ".tmp", spillDir);
+      channel = new RandomAccessFile(file, "rw").getChannel();
+      LOG.info("Query buffers exceed " + budget.getLimit() + " bytes, " +
+              "spilling row pages into " + file);
+    }
+    pages.add(new Page(fileSize, writePage.limit()));
+    while (writePage.hasRemaining())
+      channel.write(writePage, fileSize + writePage.position());
+    fileSize += writePage.limit();
+    spilledPages++;
+    writePage.clear();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.hku.sdb.exec.BasicTupleSlot#nextTuple()
+   */
+  @Override
+  public List<Object> nextTuple() {
+    try {
+      if (!reading) {
+        sealPage();
+        writePage = null;
+        reading = true;
+        readPage = -1;
+        readBuffer = null;
+      }
+
+      while (readBuffer == null || !readBuffer.hasRemaining()) {
+        releaseReadPage();
+        if (++readPage >= pages.size()) {
+          close();
+          return null;
+        }
+        Page page = pages.get(readPage);
+        readBuffer = page.buffer != null ? page.buffer : channel.map
+                (FileChannel.MapMode.READ_ONLY, page.offset, page.length);
+      }
+      return RowCodec.decode(readBuffer);
+    } catch (IOException e) {
+      throw HashTableNode.spillFailed(e);
+    }
+  }
+
+  /**
+   * Give back the memory of the page read.
+   */
+  private void releaseReadPage() {
+    if (readPage < 0 || readPage >= pages.size())
+      return;
+    Page page = pages.get(readPage);
+    if (page.buffer != null) {
+      budget.release(page.buffer.capacity());
+      reserved -= page.buffer.capacity();
+      page.buffer = null;
+    }
+    readBuffer = null;
+  }
+
+  /**
+   * @return the number of rows added since the slot was empty
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public long getSpilledPages() {
+    return spilledPages;
+  }
+
+  /**
+   * Release the memory and the spill file, the slot is empty afterwards.
+   */
+  @Override
+  public void close() {
+    budget.release(reserved);
+    reserved = 0;
+    pages.clear();
+    writePage = null;
+    readBuffer = null;
+    reading = false;
+    rowCount = 0;
+    spilledPages = 0;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      channel = null;
+      // A mapped file may not be deleted before it is unmapped on some
+      // systems, it is deleted on exit then.
+      if (!file.delete() && file.exists())
+        file.deleteOnExit();
+      file = null;
+      fileSize = 0;
+    }
+  }
+}
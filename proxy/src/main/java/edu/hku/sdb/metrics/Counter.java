@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic counter. The count is striped over cells, so that threads
+ * updating it at the same time do not contend on a single value.
+ */
+public class Counter implements Metric {
+
+  private final LongAdder count = new LongAdder();
+  // The exported value is the count multiplied by the scale, e.g. 1e-9 for a
+  // counter of nanoseconds exported in seconds.
+  private final double scale;
+
+  public Counter() {
+    this(1);
+  }
+
+  public Counter(double scale) {
+    this.scale = scale;
+  }
+
+  public void inc() {
+    count.increment();
+  }
+
+  public void add(long amount) {
+    count.add(amount);
+  }
+
+  /**
+   * @return the raw count, not scaled
+   */
+  public long get() {
+    return count.sum();
+  }
+
+  @Override
+  public void collect(String name, String labels, SampleCollector collector) {
+    collector.sample(name, labels, count.sum() * scale);
+  }
+}
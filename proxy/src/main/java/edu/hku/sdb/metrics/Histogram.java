@@ -0,0 +1,91 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * A histogram over fixed buckets. Observing a value is a binary search and an
+ * atomic increment, there is no lock on the way.
+ */
+public class Histogram implements Metric {
+
+  // Latency buckets in seconds, from a millisecond up to five minutes.
+  public static final double[] LATENCY_BUCKETS = {0.001, 0.0025, 0.005,
+          0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300};
+
+  private final double[] bounds;
+  // counts[i] is the number of values in (bounds[i - 1], bounds[i]], the
+  // last one counts the values above all bounds.
+  private final AtomicLongArray counts;
+  private final DoubleAdder sum = new DoubleAdder();
+
+  public Histogram(double[] bounds) {
+    for (int i = 1; i < bounds.length; i++) {
+      if (bounds[i] <= bounds[i - 1])
+        throw new IllegalArgumentException("Histogram bounds must be " +
+                "increasing: " + Arrays.toString(bounds));
+    }
+    this.bounds = bounds.clone();
+    counts = new AtomicLongArray(bounds.length + 1);
+  }
+
+  public void observe(double value) {
+    int index = Arrays.binarySearch(bounds, value);
+    if (index < 0)
+      index = -index - 1;
+    counts.incrementAndGet(index);
+    sum.add(value);
+  }
+
+  public void observeMillis(long millis) {
+    observe(millis / 1000.0);
+  }
+
+  public void observeNanos(long nanos) {
+    observe(nanos / 1e9);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++)
+      count += counts.get(i);
+    return count;
+  }
+
+  public double getSum() {
+    return sum.sum();
+  }
+
+  @Override
+  public void collect(String name, String labels, SampleCollector collector) {
+    String prefix = labels.isEmpty() ? "" : labels + ",";
+    long cumulative = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      cumulative += counts.get(i);
+      collector.sample(name + "_bucket", prefix + "le=\"" + bounds[i] + "\"",
+              cumulative);
+    }
+    cumulative += counts.get(bounds.length);
+    collector.sample(name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+    collector.sample(name + "_sum", labels, sum.sum());
+    collector.sample(name + "_count", labels, cumulative);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes every sample of a registry as a read-only attribute of a single
+ * MBean. The attributes are read from the registry on demand, so metrics
+ * registered later show up without registering the MBean again.
+ */
+public class JmxExporter implements DynamicMBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JmxExporter.class);
+
+  public static final String OBJECT_NAME = "edu.hku.sdb:type=Metrics";
+
+  private final MetricsRegistry registry;
+
+  public JmxExporter(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Register the registry to the platform MBean server.
+   */
+  public static void register(MetricsRegistry registry) {
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name))
+        server.unregisterMBean(name);
+      server.registerMBean(new JmxExporter(registry), name);
+      LOG.info("Metrics exported to JMX as " + OBJECT_NAME);
+    } catch (JMException e) {
+      LOG.error("Failed to export metrics to JMX: " + e.getMessage());
+      e.printStackTrace();
+    }
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws
+          AttributeNotFoundException {
+    Double value = registry.getSamples().get(attribute);
+    if (value == null)
+      throw new AttributeNotFoundException(attribute);
+    return value;
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Double> samples = registry.getSamples();
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      Double value = samples.get(attribute);
+      if (value != null)
+        list.add(new Attribute(attribute, value));
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws
+          AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metric " + attribute.getName() +
+            " is read-only");
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[]
+          signature) throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+    for (String sample : registry.getSamples().keySet())
+      attributes.add(new MBeanAttributeInfo(sample, Double.class.getName(),
+              sample, true, false, false));
+    return new MBeanInfo(getClass().getName(), "SDB proxy metrics",
+            attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+            null, null, null);
+  }
+}
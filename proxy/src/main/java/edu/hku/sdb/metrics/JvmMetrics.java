@@ -0,0 +1,65 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Gauges over the memory, thread and garbage collection state of the JVM.
+ */
+public class JvmMetrics {
+
+  public static void register(MetricsRegistry registry) {
+    final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    MetricFamily<Gauge> used = registry.gauge("jvm_memory_bytes_used",
+            "Used bytes of a memory area", "area");
+    used.register(() -> memory.getHeapMemoryUsage().getUsed(), "heap");
+    used.register(() -> memory.getNonHeapMemoryUsage().getUsed(), "nonheap");
+    MetricFamily<Gauge> committed = registry.gauge
+            ("jvm_memory_bytes_committed", "Committed bytes of a memory area",
+                    "area");
+    committed.register(() -> memory.getHeapMemoryUsage().getCommitted(),
+            "heap");
+    committed.register(() -> memory.getNonHeapMemoryUsage().getCommitted(),
+            "nonheap");
+    registry.gauge("jvm_memory_bytes_max", "Max bytes of the heap, -1 if " +
+            "undefined", () -> memory.getHeapMemoryUsage().getMax());
+
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    registry.gauge("jvm_threads_current", "Current number of live threads",
+            threads::getThreadCount);
+    registry.gauge("jvm_threads_daemon", "Current number of live daemon " +
+            "threads", threads::getDaemonThreadCount);
+
+    MetricFamily<Gauge> gcCount = registry.gauge("jvm_gc_collections",
+            "Number of collections done by a garbage collector", "gc");
+    MetricFamily<Gauge> gcTime = registry.gauge("jvm_gc_collection_seconds",
+            "Accumulated collection time of a garbage collector", "gc");
+    for (final GarbageCollectorMXBean gc : ManagementFactory
+            .getGarbageCollectorMXBeans()) {
+      gcCount.register(gc::getCollectionCount, gc.getName());
+      gcTime.register(() -> gc.getCollectionTime() / 1000.0, gc.getName());
+    }
+
+    registry.gauge("jvm_uptime_seconds", "Uptime of the JVM", () ->
+            ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+/**
+ * A single metric, i.e. one label set of a {@link MetricFamily}.
+ */
+public interface Metric {
+
+  /**
+   * Receives the samples of a metric.
+   */
+  interface SampleCollector {
+
+    /**
+     * @param name   full name of the sample, e.g. with a "_bucket" suffix
+     * @param labels label set in the prometheus text format without braces,
+     *               empty if the sample has no label
+     * @param value  value of the sample
+     */
+    void sample(String name, String labels, double value);
+  }
+
+  /**
+   * Hand every sample of the metric to the collector.
+   *
+   * @param name      name of the metric family
+   * @param labels    label set of the metric, empty if it has none
+   * @param collector
+   */
+  void collect(String name, String labels, SampleCollector collector);
+}
@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * All the metrics sharing a name, one for each label set.
+ */
+public class MetricFamily<T extends Metric> {
+
+  public enum Type {
+    COUNTER, GAUGE, HISTOGRAM;
+
+    public String toString() {
+      return name().toLowerCase();
+    }
+  }
+
+  private final String name;
+  private final String help;
+  private final Type type;
+  private final String[] labelNames;
+  // Creates the metric of a new label set, null if the metrics are registered
+  // explicitly.
+  private final Supplier<T> factory;
+  private final Map<List<String>, T> metrics = new ConcurrentHashMap<>();
+
+  MetricFamily(String name, String help, Type type, String[] labelNames,
+               Supplier<T> factory) {
+    this.name = name;
+    this.help = help;
+    this.type = type;
+    this.labelNames = labelNames.clone();
+    this.factory = factory;
+  }
+
+  /**
+   * Get the metric of a label set, create it at the first time. Callers on a
+   * hot path should keep the returned metric instead of looking it up again.
+   *
+   * @param labelValues values in the order of the label names
+   * @return
+   */
+  public T labels(String... labelValues) {
+    List<String> key = checkLabels(labelValues);
+    T metric = metrics.get(key);
+    if (metric == null) {
+      if (factory == null)
+        throw new IllegalStateException("No metric registered in " + name
+                + " with labels " + key);
+      metric = metrics.computeIfAbsent(key, k -> factory.get());
+    }
+    return metric;
+  }
+
+  /**
+   * @return the metric of a family without label
+   */
+  public T get() {
+    return labels();
+  }
+
+  /**
+   * Register the metric of a label set, e.g. a gauge reading its value
+   * from somewhere else. An existing metric of the label set is replaced.
+   *
+   * @param metric
+   * @param labelValues
+   */
+  public void register(T metric, String... labelValues) {
+    metrics.put(checkLabels(labelValues), metric);
+  }
+
+  private List<String> checkLabels(String[] labelValues) {
+    if (labelValues.length != labelNames.length)
+      throw new IllegalArgumentException(name + " expects labels " + Arrays
+              .toString(labelNames) + ", got " + Arrays.toString(labelValues));
+    return Arrays.asList(labelValues);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getHelp() {
+    return help;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  void collect(Metric.SampleCollector collector) {
+    for (Map.Entry<List<String>, T> entry : metrics.entrySet())
+      entry.getValue().collect(name, formatLabels(entry.getKey()), collector);
+  }
+
+  private String formatLabels(List<String> labelValues) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < labelNames.length; i++) {
+      if (i > 0)
+        sb.append(",");
+      sb.append(labelNames[i]).append("=\"");
+      String value = labelValues.get(i);
+      for (int j = 0; j < value.length(); j++) {
+        char c = value.charAt(j);
+        if (c == '\\' || c == '"')
+          sb.append('\\').append(c);
+        else if (c == '\n')
+          sb.append("\\n");
+        else
+          sb.append(c);
+      }
+      sb.append("\"");
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics of a registry at /metrics in the prometheus text format.
+ */
+public class MetricsHttpServer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsHttpServer
+          .class);
+
+  public static final String PATH = "/metrics";
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; " +
+          "charset=utf-8";
+
+  private final MetricsRegistry registry;
+  private final int port;
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public MetricsHttpServer(MetricsRegistry registry, int port) {
+    this.registry = registry;
+    this.port = port;
+  }
+
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(PATH, this::handle);
+    // A scrape is cheap, a single daemon thread is enough.
+    executor = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "sdb-metrics-http");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.start();
+    LOG.info("Serving metrics at http://localhost:" + getPort() + PATH);
+  }
+
+  public void stop() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      server = null;
+    }
+  }
+
+  /**
+   * @return the port listened on, which is chosen by the system if 0 is given
+   */
+  public int getPort() {
+    return server == null ? port : server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = registry.toPrometheusText().getBytes(StandardCharsets
+              .UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      OutputStream os = exchange.getResponseBody();
+      os.write(body);
+      os.close();
+    } finally {
+      exchange.close();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the metric families of the proxy and exports them in the prometheus
+ * text format. Registering a family twice returns the existing one, so that
+ * every component can look up its metrics without caring about the order.
+ */
+public class MetricsRegistry {
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  // Sorted by name, so that the export is stable.
+  private final Map<String, MetricFamily<?>> families = new
+          ConcurrentSkipListMap<>();
+
+  public static MetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  public MetricFamily<Counter> counter(String name, String help, String...
+          labelNames) {
+    return register(name, help, MetricFamily.Type.COUNTER, labelNames,
+            Counter::new);
+  }
+
+  /**
+   * A counter exported as its count multiplied by scale, e.g. nanoseconds
+   * exported as seconds.
+   */
+  public MetricFamily<Counter> counter(String name, String help, double scale,
+                                       String... labelNames) {
+    return register(name, help, MetricFamily.Type.COUNTER, labelNames, () ->
+            new Counter(scale));
+  }
+
+  public MetricFamily<Histogram> histogram(String name, String help, double[]
+          bounds, String... labelNames) {
+    return register(name, help, MetricFamily.Type.HISTOGRAM, labelNames, () ->
+            new Histogram(bounds));
+  }
+
+  /**
+   * Gauges are registered explicitly through {@link MetricFamily#register}.
+   */
+  public MetricFamily<Gauge> gauge(String name, String help, String...
+          labelNames) {
+    return register(name, help, MetricFamily.Type.GAUGE, labelNames, null);
+  }
+
+  /**
+   * Shortcut for a gauge without label.
+   */
+  public void gauge(String name, String help, Gauge gauge) {
+    gauge(name, help, new String[0]).register(gauge);
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized <T extends Metric> MetricFamily<T> register(String name,
+          String help, MetricFamily.Type type, String[] labelNames, Supplier<T>
+          factory) {
+    MetricFamily<?> family = families.get(name);
+    if (family == null) {
+      family = new MetricFamily<>(name, help, type, labelNames, factory);
+      families.put(name, family);
+    } else if (family.getType() != type) {
+      throw new IllegalArgumentException("Metric " + name + " is already " +
+              "registered as a " + family.getType());
+    }
+    return (MetricFamily<T>) family;
+  }
+
+  public void collect(Metric.SampleCollector collector) {
+    for (MetricFamily<?> family : families.values())
+      family.collect(collector);
+  }
+
+  /**
+   * @return the value of every sample, keyed by the sample name with its
+   * labels, e.g. sdb_decrypt_rows_total or sdb_query_latency_seconds_count{...}
+   */
+  public Map<String, Double> getSamples() {
+    final Map<String, Double> samples = new LinkedHashMap<>();
+    collect((name, labels, value) -> samples.put(sampleKey(name, labels),
+            value));
+    return samples;
+  }
+
+  /**
+   * @return all metrics in the prometheus text exposition format
+   */
+  public String toPrometheusText() {
+    final StringBuilder sb = new StringBuilder();
+    for (MetricFamily<?> family : families.values()) {
+      sb.append("# HELP ").append(family.getName()).append(" ").append(family
+              .getHelp().replace("\\", "\\\\").replace("\n", "\\n"))
+              .append("\n");
+      sb.append("# TYPE ").append(family.getName()).append(" ").append(family
+              .getType()).append("\n");
+      family.collect((name, labels, value) -> sb.append(sampleKey(name,
+              labels)).append(" ").append(formatValue(value)).append("\n"));
+    }
+    return sb.toString();
+  }
+
+  static String sampleKey(String name, String labels) {
+    return labels.isEmpty() ? name : name + "{" + labels + "}";
+  }
+
+  private static String formatValue(double value) {
+    if (Double.isNaN(value))
+      return "NaN";
+    if (Double.isInfinite(value))
+      return value > 0 ? "+Inf" : "-Inf";
+    if (value == Math.rint(value) && Math.abs(value) < 1e15)
+      return Long.toString((long) value);
+    return Double.toString(value);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics recorded by the proxy. Metrics updated for every row are kept
+ * as constants, so that recording them is a single striped increment.
+ */
+public class SdbMetrics {
+
+  private static final MetricsRegistry registry = MetricsRegistry.getInstance();
+
+  public static final MetricFamily<Histogram> QUERY_LATENCY = registry
+          .histogram("sdb_query_latency_seconds", "Latency of a query phase " +
+                  "by statement type", Histogram.LATENCY_BUCKETS, "type",
+                  "phase");
+
+  public static final MetricFamily<Counter> QUERY_ERRORS = registry.counter
+          ("sdb_query_errors_total", "Queries failed by statement type",
+                  "type");
+
+  private static final LongAdder runningQueries = new LongAdder();
+
+  public static final Counter DECRYPT_ROWS = registry.counter
+          ("sdb_decrypt_rows_total", "Rows decrypted by the proxy").get();
+
+  public static final Counter DECRYPT_SECONDS = registry.counter
+          ("sdb_decrypt_seconds_total", "Time spent on decrypting rows", 1e-9)
+          .get();
+
+  public static final Counter UPLOAD_ROWS = registry.counter
+          ("sdb_upload_rows_total", "Plaintext rows encrypted for upload").get();
+
+  public static final Counter UPLOAD_CHARS = registry.counter
+          ("sdb_upload_chars_total", "Plaintext characters, line breaks " +
+                  "included, encrypted for upload").get();
+
+  public static final MetricFamily<Counter> CACHE_REQUESTS = registry.counter
+          ("sdb_cache_requests_total", "Cache lookups by cache and result",
+                  "cache", "result");
+
+  public static final Counter MODPOW_CACHE_HITS = CACHE_REQUESTS.labels
+          ("modpow", "hit");
+
+  public static final Counter MODPOW_CACHE_MISSES = CACHE_REQUESTS.labels
+          ("modpow", "miss");
+
+  public static final MetricFamily<Counter> CATALOG_LOOKUPS = registry.counter
+          ("sdb_catalog_lookups_total", "Metastore lookups by object type and " +
+                  "whether the object was found", "object", "result");
+
+  static {
+    registry.gauge("sdb_queries_running", "Queries being executed",
+            runningQueries::sum);
+  }
+
+  public static void queryStarted() {
+    runningQueries.increment();
+  }
+
+  public static void queryFinished() {
+    runningQueries.decrement();
+  }
+
+  /**
+   * @param type   statement type, e.g. select
+   * @param phase  phase of the query, e.g. parse
+   * @param millis
+   */
+  public static void observeLatency(String type, String phase, long millis) {
+    QUERY_LATENCY.labels(type, phase).observeMillis(millis);
+  }
+
+  /**
+   * @return the statement type of a parse node class, e.g. select for
+   * SelectStmt
+   */
+  public static String statementType(Object stmt) {
+    if (stmt == null)
+      return "unknown";
+    String name = stmt.getClass().getSimpleName();
+    if (name.endsWith("Stmt"))
+      name = name.substring(0, name.length() - "Stmt".length());
+    return name.toLowerCase();
+  }
+}
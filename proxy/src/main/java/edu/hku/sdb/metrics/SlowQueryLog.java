@@ -0,0 +1,244 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import edu.hku.sdb.utility.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Logs the queries slower than a threshold, one line per query. Query
+ * threads only put a {@link SlowQueryRecord} into a ring buffer, a daemon
+ * thread formats and writes the records. A record is dropped rather than
+ * blocking the query if the buffer is full.
+ *
+ * The records are written to the logger of this class, so log4j can send
+ * them to a file of their own.
+ */
+public class SlowQueryLog {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog
+          .class);
+
+  private static final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final Counter LOGGED = MetricsRegistry.getInstance().counter
+          ("sdb_slow_queries_total", "Queries written to the slow query log")
+          .get();
+
+  private static final Counter DROPPED = MetricsRegistry.getInstance().counter
+          ("sdb_slow_queries_dropped_total", "Slow queries dropped because " +
+                  "the slow query log buffer was full").get();
+
+  private static volatile SlowQueryLog instance;
+
+  private final long threshold;
+  private final RingBuffer<SlowQueryRecord> buffer;
+  private final Consumer<String> writer;
+  private volatile boolean running;
+  private Thread writerThread;
+  private final AtomicLong dropped = new AtomicLong();
+  // Only used by the writer thread.
+  private long droppedReported;
+
+  /**
+   * @param threshold  minimal latency in milliseconds of a logged query
+   * @param bufferSize number of records waiting to be written
+   */
+  public SlowQueryLog(long threshold, int bufferSize) {
+    this(threshold, bufferSize, LOG::info);
+  }
+
+  public SlowQueryLog(long threshold, int bufferSize, Consumer<String> writer) {
+    this.threshold = threshold;
+    this.buffer = new RingBuffer<>(bufferSize);
+    this.writer = writer;
+  }
+
+  /**
+   * @return the started log, null if the slow query log is disabled
+   */
+  public static SlowQueryLog getInstance() {
+    return instance;
+  }
+
+  /**
+   * Start the writer thread and make the log the one returned by
+   * {@link #getInstance()}.
+   */
+  public synchronized void start() {
+    if (running)
+      return;
+    running = true;
+    writerThread = new Thread(this::writeRecords, "sdb-slow-query-log");
+    writerThread.setDaemon(true);
+    writerThread.start();
+    instance = this;
+    LOG.info("Logging queries slower than " + threshold + "ms");
+  }
+
+  /**
+   * Stop the writer thread after the buffered records are written.
+   */
+  public synchronized void stop() {
+    if (!running)
+      return;
+    if (instance == this)
+      instance = null;
+    running = false;
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return true if a query of the latency should be logged
+   */
+  public boolean isSlow(long latency) {
+    return latency >= threshold;
+  }
+
+  /**
+   * Queue a record without blocking.
+   *
+   * @return false if the query is not slow or the record is dropped
+   */
+  public boolean log(SlowQueryRecord record) {
+    if (!isSlow(record.getLatency()))
+      return false;
+    if (!buffer.offer(record)) {
+      DROPPED.inc();
+      dropped.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  private void writeRecords() {
+    while (true) {
+      SlowQueryRecord record = buffer.poll();
+      if (record != null) {
+        write(record);
+        continue;
+      }
+      reportDropped();
+      if (!running && buffer.isEmpty())
+        return;
+      LockSupport.parkNanos(POLL_INTERVAL);
+    }
+  }
+
+  private void write(SlowQueryRecord record) {
+    try {
+      writer.accept(record.format());
+      LOGGED.inc();
+    } catch (RuntimeException e) {
+      LOG.error("Failed to write a slow query record");
+      e.printStackTrace();
+    }
+  }
+
+  private void reportDropped() {
+    long total = dropped.get();
+    if (total > droppedReported) {
+      LOG.warn((total - droppedReported) + " slow query records dropped, " +
+              "the buffer of " + buffer.capacity() + " records was full");
+      droppedReported = total;
+    }
+  }
+
+  /**
+   * Replace the literals of a query by ? and collapse the whitespaces, so
+   * that the queries differing only by their constants look the same.
+   *
+   * @param query
+   * @return
+   */
+  public static String normalize(String query) {
+    if (query == null)
+      return "";
+    StringBuilder sb = new StringBuilder(query.length());
+    int i = 0;
+    while (i < query.length()) {
+      char c = query.charAt(i);
+      if (c == '\'' || c == '"') {
+        // A quoted string, a quote is escaped by a backslash or doubled.
+        i++;
+        while (i < query.length()) {
+          char d = query.charAt(i);
+          if (d == '\\')
+            i++;
+          else if (d == c && (i + 1 >= query.length() || query.charAt(i + 1)
+                  != c))
+            break;
+          else if (d == c)
+            i++;
+          i++;
+        }
+        sb.append('?');
+        i++;
+      } else if (Character.isDigit(c) && !isIdentifierEnd(sb)) {
+        while (i < query.length() && (Character.isLetterOrDigit(query.charAt
+                (i)) || query.charAt(i) == '.'))
+          i++;
+        sb.append('?');
+      } else if (Character.isWhitespace(c)) {
+        while (i < query.length() && Character.isWhitespace(query.charAt(i)))
+          i++;
+        if (sb.length() > 0)
+          sb.append(' ');
+      } else {
+        sb.append(Character.toLowerCase(c));
+        i++;
+      }
+    }
+    int length = sb.length();
+    while (length > 0 && (sb.charAt(length - 1) == ' ' || sb.charAt(length -
+            1) == ';'))
+      length--;
+    sb.setLength(length);
+    return sb.toString();
+  }
+
+  private static boolean isIdentifierEnd(StringBuilder sb) {
+    if (sb.length() == 0)
+      return false;
+    char c = sb.charAt(sb.length() - 1);
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  /**
+   * @return a 64-bit FNV-1a hash of a normalized query in hex
+   */
+  public static String fingerprint(String normalized) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < normalized.length(); i++) {
+      hash ^= normalized.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return String.format("%016x", hash);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import edu.hku.sdb.connect.SDBProfiler;
+
+/**
+ * A query logged by the {@link SlowQueryLog}. It only keeps the raw values,
+ * they are formatted by the writer thread of the log.
+ */
+public class SlowQueryRecord {
+
+  private final long timestamp = System.currentTimeMillis();
+  private final String session;
+  private final String type;
+  private final String query;
+  private final long latency;
+  private final boolean succeeded;
+  private SDBProfiler profiler;
+  private long rows;
+  private long decryptedCells;
+  // Length of the SQL sent to the server, 0 if the query is not rewritten.
+  private int rewrittenSqlSize;
+
+  /**
+   * @param session   session running the query
+   * @param type      statement type, e.g. select
+   * @param query     original SQL of the query
+   * @param latency   latency of the query in milliseconds
+   * @param succeeded
+   */
+  public SlowQueryRecord(String session, String type, String query, long
+          latency, boolean succeeded) {
+    this.session = session;
+    this.type = type;
+    this.query = query;
+    this.latency = latency;
+    this.succeeded = succeeded;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getSession() {
+    return session;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public long getLatency() {
+    return latency;
+  }
+
+  public boolean isSucceeded() {
+    return succeeded;
+  }
+
+  public SDBProfiler getProfiler() {
+    return profiler;
+  }
+
+  public void setProfiler(SDBProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public void setRows(long rows) {
+    this.rows = rows;
+  }
+
+  public long getDecryptedCells() {
+    return decryptedCells;
+  }
+
+  public void setDecryptedCells(long decryptedCells) {
+    this.decryptedCells = decryptedCells;
+  }
+
+  public int getRewrittenSqlSize() {
+    return rewrittenSqlSize;
+  }
+
+  public void setRewrittenSqlSize(int rewrittenSqlSize) {
+    this.rewrittenSqlSize = rewrittenSqlSize;
+  }
+
+  /**
+   * @return the record as a single line of key=value pairs, the query is
+   * logged as its fingerprint so that no literal leaves the proxy
+   */
+  public String format() {
+    String normalized = SlowQueryLog.normalize(query);
+    StringBuilder sb = new StringBuilder();
+    sb.append("session=").append(session)
+            .append(" type=").append(type)
+            .append(" status=").append(succeeded ? "ok" : "failed")
+            .append(" latency_ms=").append(latency);
+    if (profiler != null) {
+      sb.append(" parse_ms=").append(profiler.getClientParseTime())
+              .append(" analyse_ms=").append(profiler.getClientAnalyseTime())
+              .append(" rewrite_ms=").append(profiler.getClientRewriteTime())
+              .append(" execute_ms=").append(profiler.getExecuteTime())
+              .append(" client_execute_ms=").append(profiler
+              .getClientExecuteTime())
+              .append(" server_ms=").append(profiler.getServerTotalTime())
+              .append(" client_ms=").append(profiler.getClientTotalTime())
+              .append(" total_ms=").append(profiler.getTotalTime());
+    }
+    sb.append(" rows=").append(rows)
+            .append(" decrypted_cells=").append(decryptedCells)
+            .append(" rewritten_sql_chars=").append(rewrittenSqlSize)
+            .append(" fingerprint=").append(SlowQueryLog.fingerprint
+            (normalized))
+            .append(" query=\"").append(normalized.replace("\"", "\\\""))
+            .append("\"");
+    return sb.toString();
+  }
+}
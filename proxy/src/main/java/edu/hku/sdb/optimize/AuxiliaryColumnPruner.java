@@ -0,0 +1,160 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.parse.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the auxiliary columns row id, R and S that the rewriter attaches to
+ * every selection list but nothing uses. Each of them is a ciphertext the
+ * server computes and sends back, aggregated by sdb_first when grouping.
+ *
+ * The outermost query only keeps the row id, if it returns encrypted
+ * columns whose keys are not normalized. An inline view keeps the auxiliary
+ * columns its outer query refers to, after the outer query has been pruned
+ * itself.
+ */
+class AuxiliaryColumnPruner {
+
+  private static final Logger LOG = LoggerFactory.getLogger
+          (AuxiliaryColumnPruner.class);
+
+  private static final Set<String> AUXILIARY_COLUMNS = new HashSet<>(Arrays
+          .asList(ColumnDefinition.ROW_ID_COLUMN_NAME, ColumnDefinition
+                  .R_COLUMN_NAME, ColumnDefinition.S_COLUMN_NAME));
+
+  // Key of a star, which may refer to any column of the views.
+  private static final String ALL = "*";
+
+  /**
+   * Prune the auxiliary columns of a rewritten statement and of its inline
+   * views.
+   */
+  void prune(SelectStmt selStmt) {
+    SelectionList selList = selStmt.getSelectList();
+    if (!needsRowID(selList))
+      selList.setRowID(null);
+    selList.setAuxiliaryR(null);
+    selList.setAuxiliaryS(null);
+    pruneInLineViews(selStmt);
+  }
+
+  /**
+   * @return true if an encrypted selection item is decrypted with the row id,
+   * i.e. its key is not normalized to <m, 0>
+   */
+  static boolean needsRowID(SelectionList selList) {
+    for (SelectionItem item : selList.getItemList()) {
+      if (item.involveEncrytedCol() && (item.getExpr().getSdbColKey() == null
+              || item.getExpr().getSdbColKey().getX().signum() != 0))
+        return true;
+    }
+    return false;
+  }
+
+  private void pruneInLineViews(SelectStmt selStmt) {
+    if (selStmt.getTableRefs() == null)
+      return;
+
+    Map<String, Set<String>> used = new HashMap<>();
+    collectUsed(selStmt, used);
+
+    for (TableRef tblRef : selStmt.getTableRefs()) {
+      if (!(tblRef instanceof InLineViewRef) || !(((InLineViewRef) tblRef)
+              .getQueryStmt() instanceof SelectStmt))
+        continue;
+
+      SelectStmt view = (SelectStmt) ((InLineViewRef) tblRef).getQueryStmt();
+      Set<String> columns = used.get(tblRef.getAlias().toLowerCase());
+      if (!used.containsKey(ALL)) {
+        SelectionList viewList = view.getSelectList();
+        if (!isUsed(columns, ColumnDefinition.ROW_ID_COLUMN_NAME))
+          viewList.setRowID(null);
+        if (!isUsed(columns, ColumnDefinition.R_COLUMN_NAME))
+          viewList.setAuxiliaryR(null);
+        if (!isUsed(columns, ColumnDefinition.S_COLUMN_NAME))
+          viewList.setAuxiliaryS(null);
+        LOG.debug("Auxiliary columns of " + tblRef.getAlias() + " used by the " +
+                "outer query: " + columns);
+      }
+      pruneInLineViews(view);
+    }
+  }
+
+  private static boolean isUsed(Set<String> columns, String name) {
+    return columns != null && columns.contains(name);
+  }
+
+  /**
+   * Collect the auxiliary columns referred to by the expressions of a
+   * statement, by table.
+   */
+  private static void collectUsed(SelectStmt selStmt, Map<String, Set<String>>
+          used) {
+    SelectionList selList = selStmt.getSelectList();
+    for (SelectionItem item : selList.getItemList())
+      collectUsed(item.getExpr(), used);
+    for (SelectionItem item : Arrays.asList(selList.getRowID(), selList
+            .getAuxiliaryR(), selList.getAuxiliaryS())) {
+      if (item != null)
+        collectUsed(item.getExpr(), used);
+    }
+    for (TableRef tblRef : selStmt.getTableRefs())
+      collectUsed(tblRef.getOnClause(), used);
+    collectUsed(selStmt.getWhereClause(), used);
+    if (selStmt.getGroupingExprs() != null) {
+      for (Expr group : selStmt.getGroupingExprs())
+        collectUsed(group, used);
+    }
+    collectUsed(selStmt.getHavingExpr(), used);
+    if (selStmt.getOrderByElements() != null) {
+      for (OrderByElement element : selStmt.getOrderByElements())
+        collectUsed(element.getExpr(), used);
+    }
+  }
+
+  private static void collectUsed(Expr expr, Map<String, Set<String>> used) {
+    if (expr == null)
+      return;
+    if (expr instanceof FieldLiteral) {
+      FieldLiteral field = (FieldLiteral) expr;
+      if (AUXILIARY_COLUMNS.contains(field.getName()))
+        used.computeIfAbsent(field.getTblName(), k -> new HashSet<>()).add
+                (field.getName());
+    } else if (expr instanceof StarLiteral) {
+      used.put(ALL, new HashSet<>());
+    } else if (expr instanceof FunctionCallExpr) {
+      FunctionParams params = ((FunctionCallExpr) expr).getFunctionParams();
+      if (params != null && params.getExprs() != null) {
+        for (Expr param : params.getExprs())
+          collectUsed(param, used);
+      }
+    }
+    for (Expr child : expr.getChildren())
+      collectUsed(child, used);
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.ColumnMeta;
+import edu.hku.sdb.catalog.ColumnStats;
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.TableMeta;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.parse.CompoundPredicate.CompoundOperator;
+import edu.hku.sdb.plan.ColumnComparison;
+import edu.hku.sdb.rewrite.SdbUdfSummary;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Estimates the cost of running an operation on the server under
+ * encryption or on the client after decryption, so that the planners can
+ * place every join, aggregate and predicate where it is cheaper.
+ *
+ * Costs are relative to a cartesian transform on a single cell (a modular
+ * multiplication and exponentiation). The server cost is divided by the
+ * number of server nodes running the UDFs in parallel.
+ *
+ * Cardinalities come from the statistics collected on upload, see
+ * {@link ColumnStats}, with fixed defaults for the tables without any.
+ */
+public class CostModel {
+
+  // Server UDFs, per row.
+  static final double KEY_UPDATE_COST = 1;
+  static final double TRANSFORM_COST = 1;
+  static final double ARITHMETIC_COST = 0.1;
+  static final double COMPARE_COST = 0.1;
+  // Client operations, per cell.
+  static final double DECRYPT_COST = 2;
+  static final double TRANSFER_COST = 0.1;
+  // Client operators, per row.
+  static final double PROBE_COST = 0.01;
+  static final double FILTER_COST = 0.01;
+  static final double AGGREGATE_COST = 0.01;
+  // Evaluating a plaintext predicate on the server, per row.
+  public static final double PREDICATE_COST = 0.001;
+
+  // Rows of a table without statistics. Only the ratios of the costs matter,
+  // so any number does as long as all the tables are alike.
+  static final double DEFAULT_ROWS = 1000000;
+  // Groups per aggregated row without statistics.
+  static final double GROUP_RATIO = 0.1;
+  // Selectivities of the predicates without statistics.
+  static final double EQ_SELECTIVITY = 0.1;
+  static final double RANGE_SELECTIVITY = 1.0 / 3;
+  static final double DEFAULT_SELECTIVITY = 0.5;
+
+  // Memory of a decrypted row held by a client operator, and of each cell.
+  static final long ROW_BYTES = 64;
+  static final long CELL_BYTES = 56;
+
+  private final DBMeta dbMeta;
+  private final int serverParallelism;
+
+  public CostModel(DBMeta dbMeta) {
+    this(dbMeta, 1);
+  }
+
+  public CostModel(DBMeta dbMeta, int serverParallelism) {
+    this.dbMeta = dbMeta;
+    this.serverParallelism = Math.max(1, serverParallelism);
+  }
+
+  /**
+   * @param tblName the name of a base table, not an alias
+   * @return the estimated number of rows of the table
+   */
+  public double estimateRows(String tblName) {
+    TableMeta tblMeta = getTableWithStats(tblName);
+    return tblMeta == null ? DEFAULT_ROWS : tblMeta.getNumRows();
+  }
+
+  /**
+   * @param tblName the name of a base table, not an alias
+   * @return true if rows have been uploaded into the table through the proxy
+   */
+  public boolean hasStats(String tblName) {
+    return getTableWithStats(tblName) != null;
+  }
+
+  /**
+   * @param rows the rows aggregated
+   * @return the estimated number of groups of the rows
+   */
+  public double estimateGroups(double rows) {
+    return Math.max(1, rows * GROUP_RATIO);
+  }
+
+  /**
+   * @param rows    the rows aggregated
+   * @param groupBy the columns grouped by
+   * @param tblRefs the tables the columns come from
+   * @return the estimated number of groups of the rows, at most one group
+   * per distinct combination of the columns
+   */
+  public double estimateGroups(double rows, List<? extends Expr> groupBy,
+                               List<? extends TableRef> tblRefs) {
+    double groups = 1;
+    for (Expr expr : groupBy) {
+      ColumnStats stats = getColumnStats(expr, tblRefs);
+      if (stats == null)
+        return estimateGroups(rows);
+      groups *= stats.getNumDistinct() + (stats.getNumNulls() > 0 ? 1 : 0);
+    }
+    return Math.max(1, Math.min(rows, groups));
+  }
+
+  /**
+   * @param columns the columns of a row
+   * @return the estimated memory of a decrypted row held by the client
+   */
+  public long estimateRowBytes(int columns) {
+    return ROW_BYTES + columns * CELL_BYTES;
+  }
+
+  /**
+   * @return the estimated fraction of the rows satisfying a predicate
+   */
+  public double selectivity(Expr pred) {
+    return selectivity(pred, Collections.<TableRef>emptyList());
+  }
+
+  /**
+   * @param pred
+   * @param tblRefs the tables of the columns of the predicate, whose
+   *                statistics are used if there are any
+   * @return the estimated fraction of the rows satisfying a predicate
+   */
+  public double selectivity(Expr pred, List<? extends TableRef> tblRefs) {
+    if (pred instanceof CompoundPredicate) {
+      CompoundPredicate compound = (CompoundPredicate) pred;
+      double left = selectivity(compound.getLeftPred(), tblRefs);
+      double right = selectivity(compound.getRightPred(), tblRefs);
+      return compound.getOp() == CompoundOperator.AND ? left * right : left
+              + right - left * right;
+    }
+    if (!(pred instanceof BinaryPredicate))
+      return DEFAULT_SELECTIVITY;
+    BinaryPredicate binPred = (BinaryPredicate) pred;
+    double selectivity = statsSelectivity(binPred, tblRefs);
+    if (selectivity >= 0)
+      return selectivity;
+
+    BinOperator op = binPred.getOp();
+    switch (op) {
+      case EQ:
+        return EQ_SELECTIVITY;
+      case NE:
+        return 1 - EQ_SELECTIVITY;
+      case LT:
+      case LE:
+      case GT:
+      case GE:
+        return RANGE_SELECTIVITY;
+      default:
+        return DEFAULT_SELECTIVITY;
+    }
+  }
+
+  /**
+   * Estimate the selectivity of a column compared with a constant from the
+   * histogram of the column, or of two columns compared for equality from
+   * their distinct values.
+   *
+   * @return the estimated selectivity, -1 if there is no statistics
+   */
+  private double statsSelectivity(BinaryPredicate pred, List<? extends
+          TableRef> tblRefs) {
+    BinOperator op = pred.getOp();
+    Expr left = pred.getLeftExpr();
+    Expr right = pred.getRightExpr();
+    ColumnStats leftStats = getColumnStats(left, tblRefs);
+    ColumnStats rightStats = getColumnStats(right, tblRefs);
+
+    if (leftStats != null && rightStats != null) {
+      if (op != BinOperator.EQ)
+        return -1;
+      return Math.min(leftStats.fractionEqual(), rightStats.fractionEqual());
+    }
+
+    Double constant = getNumber(leftStats == null ? left : right);
+    ColumnStats stats = leftStats == null ? rightStats : leftStats;
+    if (stats == null || constant == null || stats.getNumRows() == 0)
+      return -1;
+    if (leftStats == null)
+      op = ColumnComparison.flip(op);
+
+    double values = (double) stats.getNumValues() / stats.getNumRows();
+    double equal = stats.fractionEqual();
+    double below = stats.fractionBelow(constant);
+    switch (op) {
+      case EQ:
+        if (stats.getMin() != null && (constant < stats.getMin() || constant >
+                stats.getMax()))
+          return 0;
+        return equal;
+      case NE:
+        return values - equal;
+      case LT:
+      case LE:
+        return below < 0 ? -1 : below;
+      case GT:
+      case GE:
+        return below < 0 ? -1 : values - below;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @return the statistics of a column of a base table, null if the
+   * expression is not such a column or the table has no statistics
+   */
+  private ColumnStats getColumnStats(Expr expr, List<? extends TableRef>
+          tblRefs) {
+    if (!(expr instanceof FieldLiteral))
+      return null;
+    FieldLiteral field = (FieldLiteral) expr;
+    for (TableRef tblRef : tblRefs) {
+      if (!(tblRef instanceof BaseTableRef))
+        continue;
+      String name = tblRef.getAlias() == null || tblRef.getAlias().isEmpty()
+              ? tblRef.getTblName() : tblRef.getAlias();
+      if (!name.equals(field.getTblName()))
+        continue;
+      TableMeta tblMeta = getTableWithStats(tblRef.getTblName());
+      if (tblMeta == null)
+        return null;
+      ColumnMeta colMeta = tblMeta.getCol(field.getName());
+      // A column added after the upload has no statistics.
+      if (colMeta == null || colMeta.getDistinctSketch() == null)
+        return null;
+      return ColumnStats.load(colMeta, tblMeta.getNumRows());
+    }
+    return null;
+  }
+
+  private TableMeta getTableWithStats(String tblName) {
+    if (dbMeta == null)
+      return null;
+    TableMeta tblMeta = dbMeta.getTbl(tblName);
+    return tblMeta == null || tblMeta.getNumRows() <= 0 ? null : tblMeta;
+  }
+
+  private static Double getNumber(Expr expr) {
+    if (expr instanceof IntLiteral)
+      return (double) ((IntLiteral) expr).getValue();
+    if (expr instanceof BigIntLiteral)
+      return ((BigIntLiteral) expr).getValue().doubleValue();
+    if (expr instanceof FloatLiteral)
+      return (double) ((FloatLiteral) expr).getValue();
+    return null;
+  }
+
+  /**
+   * @param cost the cost of UDFs run by a single server node
+   * @return the cost once the UDFs are spread over the server nodes
+   */
+  public double server(double cost) {
+    return cost / serverParallelism;
+  }
+
+  /**
+   * The cost of comparing encrypted values on the server, per row: the
+   * difference of the operands is masked by R and key updated before it is
+   * compared, and an encrypted operand compared with another one is key
+   * updated to the key of the other first.
+   *
+   * @return the cost of the predicate, 0 if it is not encrypted
+   */
+  public double serverPredicateCost(Expr pred) {
+    if (!pred.involveEncrytedCol())
+      return 0;
+    if (!(pred instanceof BinaryPredicate))
+      return server(2 * KEY_UPDATE_COST + ARITHMETIC_COST + COMPARE_COST);
+    BinaryPredicate binPred = (BinaryPredicate) pred;
+    int keyUpdates = binPred.getLeftExpr().involveEncrytedCol() && binPred
+            .getRightExpr().involveEncrytedCol() ? 3 : 2;
+    return server(keyUpdates * KEY_UPDATE_COST + 2 * ARITHMETIC_COST +
+            COMPARE_COST);
+  }
+
+  /**
+   * @param rewritten an expression rewritten for the server
+   * @return the cost of the SDB UDFs called by the expression, per row
+   */
+  public double serverExprCost(Expr rewritten) {
+    SdbUdfSummary.Entry entry = SdbUdfSummary.summarize(rewritten);
+    // The calls fused into sdb_eval are counted as key updates and cartesian
+    // products, but not as UDF calls.
+    int others = Math.max(0, entry.getNumUdfCalls() - entry.getKeyUpdates() -
+            entry.getCartesians());
+    return server(entry.getKeyUpdates() * KEY_UPDATE_COST + entry
+            .getCartesians() * TRANSFORM_COST + others * ARITHMETIC_COST);
+  }
+
+  /**
+   * @param cells the encrypted cells of a row, without the row id
+   * @return the cost of decrypting them on the client, with the row id
+   */
+  public double decryptCost(int cells) {
+    return cells == 0 ? 0 : (cells + 1) * DECRYPT_COST;
+  }
+
+  /**
+   * A normalized value is decrypted by a multiplication, without its item key
+   * or the row id.
+   *
+   * @param columns the encrypted columns returned per row
+   * @return true if updating their keys to normalized ones on the server is
+   * cheaper than decrypting them on the client
+   */
+  public boolean normalizeKeys(int columns) {
+    return server(columns * KEY_UPDATE_COST) < decryptCost(columns) - columns
+            * ARITHMETIC_COST;
+  }
+
+  /**
+   * @param cells the cells of a row, with the row id if any
+   * @return the cost of sending them from the server to the client
+   */
+  public double transferCost(int cells) {
+    return cells * TRANSFER_COST;
+  }
+
+  public DBMeta getDbMeta() {
+    return dbMeta;
+  }
+
+  public int getServerParallelism() {
+    return serverParallelism;
+  }
+}
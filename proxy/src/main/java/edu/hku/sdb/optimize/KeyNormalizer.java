@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.ColumnMeta;
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.catalog.TableMeta;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.SdbKeyUpdateExpr.SdbKeyUpOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalizes the keys of the encrypted columns returned by a query. The
+ * server updates the key of every such column to a key <m, 0> before
+ * returning it, so that its item key is m for every row: the proxy decrypts
+ * a value by a single multiplication, and the row id is not returned at all.
+ *
+ * Otherwise the proxy computes the item key (g^x)^rowId of every cell. In
+ * the AUTO mode the {@link CostModel} decides which is cheaper.
+ */
+public class KeyNormalizer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KeyNormalizer
+          .class);
+
+  public enum Mode {
+    OFF, ON, AUTO;
+
+    public static Mode of(String name) {
+      return valueOf(name.trim().toUpperCase());
+    }
+  }
+
+  private final Mode mode;
+  private final CostModel costModel;
+
+  public KeyNormalizer(Mode mode, CostModel costModel) {
+    this.mode = mode;
+    this.costModel = costModel;
+  }
+
+  /**
+   * Append a key update to every encrypted selection item whose key is not
+   * normalized. Only a query on a single base table without grouping is
+   * normalized, where the S column of the table is at hand for every row.
+   *
+   * @return true if the selection items are updated
+   */
+  public boolean normalize(SelectStmt selStmt, DBMeta dbMeta) {
+    if (mode == Mode.OFF)
+      return false;
+    if (selStmt.getTableRefs() == null || selStmt.getTableRefs().size() != 1
+            || !(selStmt.getTableRefs().get(0) instanceof BaseTableRef))
+      return false;
+    if (selStmt.getGroupingExprs() != null && !selStmt.getGroupingExprs()
+            .isEmpty())
+      return false;
+
+    List<SelectionItem> items = new ArrayList<>();
+    for (SelectionItem item : selStmt.getSelectList().getItemList()) {
+      if (!item.involveEncrytedCol())
+        continue;
+      SdbColumnKey colKey = item.getExpr().getSdbColKey();
+      if (colKey == null)
+        return false;
+      if (colKey.getX().signum() == 0)
+        continue;
+      // A key update needs an alias to keep the name of the column.
+      if (item.getAlias().equals("") && !(item.getExpr() instanceof
+              FieldLiteral))
+        return false;
+      items.add(item);
+    }
+    if (items.isEmpty())
+      return false;
+    if (mode == Mode.AUTO && !costModel.normalizeKeys(items.size())) {
+      LOG.debug("Not normalizing " + items.size() + " columns for " +
+              costModel.getServerParallelism() + " server nodes");
+      return false;
+    }
+
+    TableRef tblRef = selStmt.getTableRefs().get(0);
+    TableMeta tblMeta = dbMeta.getTbl(tblRef.getTblName());
+    ColumnMeta sMeta = tblMeta == null ? null : tblMeta.getCol(ColumnDefinition
+            .S_COLUMN_NAME);
+    if (sMeta == null)
+      return false;
+    SdbColumnKey sKey = new SdbColumnKey(new BigInteger(sMeta.getM()), new
+            BigInteger(sMeta.getX()));
+    String tbl = tblRef.getAlias().equals("") ? tblRef.getTblName() : tblRef
+            .getAlias();
+
+    BigInteger prime1 = new BigInteger(dbMeta.getPrime1());
+    BigInteger prime2 = new BigInteger(dbMeta.getPrime2());
+    BigInteger n = new BigInteger(dbMeta.getN());
+    for (SelectionItem item : items) {
+      Expr expr = item.getExpr();
+      BigInteger targetM = SDBEncrypt.generatePositiveRand(prime1, prime2);
+      BigInteger[] pq = SDBEncrypt.keyUpdateClient(expr.getSdbColKey().getM(),
+              targetM, sKey.getM(), expr.getSdbColKey().getX(), BigInteger.ZERO,
+              sKey.getX(), prime1, prime2);
+
+      // The order must be:(field, S, p, q, n)
+      SdbKeyUpdateExpr keyUpdateExpr = new SdbKeyUpdateExpr(SdbKeyUpOperator
+              .SDB_KEYUP);
+      keyUpdateExpr.addChild(expr);
+      keyUpdateExpr.addChild(new FieldLiteral(tbl, ColumnDefinition
+              .S_COLUMN_NAME, Type.INT, true, sKey));
+      keyUpdateExpr.addChild(new BigIntLiteral(pq[0]));
+      keyUpdateExpr.addChild(new BigIntLiteral(pq[1]));
+      keyUpdateExpr.addChild(new BigIntLiteral(n));
+      keyUpdateExpr.setType(expr.getType());
+      keyUpdateExpr.setSdbColKey(new SdbColumnKey(targetM, BigInteger.ZERO));
+
+      if (item.getAlias().equals(""))
+        item.setAlias(((FieldLiteral) expr).getName());
+      item.setExpr(keyUpdateExpr);
+    }
+    LOG.debug("Normalized the keys of " + items.size() + " columns");
+    return true;
+  }
+}
@@ -0,0 +1,522 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.connect.ServerConnection;
+import edu.hku.sdb.exec.ColumnDesc;
+import edu.hku.sdb.exec.LocalGroupbyFilter;
+import edu.hku.sdb.exec.LocalProj;
+import edu.hku.sdb.exec.PlanNode;
+import edu.hku.sdb.exec.RowDesc;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.plan.AggregateDesc;
+import edu.hku.sdb.plan.ColumnComparison;
+import edu.hku.sdb.plan.LocalGroupbyFilterDesc;
+import edu.hku.sdb.rewrite.AbstractRewriter;
+import edu.hku.sdb.rewrite.RewriteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Plans the aggregation of a select statement on the client, over the
+ * decrypted rows of a query selecting the group by columns and the columns
+ * aggregated. It is used when the server cannot aggregate under
+ * encryption: min, max and avg of encrypted columns, having clauses on
+ * encrypted values and groups spanning several tables, or when the
+ * {@link CostModel} estimates it cheaper than the key updates the server
+ * needs to aggregate encrypted values.
+ */
+public class LocalAggregationPlanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger
+          (LocalAggregationPlanner.class);
+
+  private final DBMeta dbMeta;
+  private final ServerConnection connection;
+  // A rewriter can only be used for a single statement.
+  private final Supplier<AbstractRewriter> rewriterFactory;
+  // Plans the input rows if they come from a join, may be null.
+  private final LocalJoinPlanner joinPlanner;
+  private long memoryLimit = LocalGroupbyFilterDesc.DEFAULT_MEMORY_LIMIT;
+  private File spillDir;
+  // Null to keep the keys of the returned columns.
+  private KeyNormalizer keyNormalizer;
+  private CostModel costModel;
+  private int rewrittenSqlSize;
+  private List<SelectStmt> rewrittenStmts = new ArrayList<>();
+
+  public LocalAggregationPlanner(DBMeta dbMeta, ServerConnection connection,
+                                 Supplier<AbstractRewriter> rewriterFactory,
+                                 LocalJoinPlanner joinPlanner) {
+    this.dbMeta = dbMeta;
+    this.connection = connection;
+    this.rewriterFactory = rewriterFactory;
+    this.joinPlanner = joinPlanner;
+    this.costModel = new CostModel(dbMeta);
+  }
+
+  public void setMemoryLimit(long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  public void setSpillDir(File spillDir) {
+    this.spillDir = spillDir;
+  }
+
+  public void setKeyNormalizer(KeyNormalizer keyNormalizer) {
+    this.keyNormalizer = keyNormalizer;
+  }
+
+  public void setCostModel(CostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  /**
+   * @return the total length of the remote queries of the last plan
+   */
+  public int getRewrittenSqlSize() {
+    return rewrittenSqlSize;
+  }
+
+  /**
+   * @return the rewritten remote queries of the last plan
+   */
+  public List<SelectStmt> getRewrittenStmts() {
+    return rewrittenStmts;
+  }
+
+  /**
+   * Plan the aggregation of a select statement locally. The statement is
+   * left untouched, the query of the input rows is rewritten from copies of
+   * its parts.
+   *
+   * @param selStmt an analyzed select statement
+   * @return the plan, or null if the statement does not aggregate or the
+   * server can do it
+   * @throws RewriteException
+   */
+  public PlanNode plan(SelectStmt selStmt) throws RewriteException {
+    if (selStmt.getOrderByElements() != null || selStmt.getLimitElement() !=
+            null)
+      return null;
+
+    // Columns of the input rows.
+    List<FieldLiteral> columns = new ArrayList<>();
+    List<Integer> groupIndexes = new ArrayList<>();
+    List<AggregateDesc> aggregates = new ArrayList<>();
+    List<Boolean> sensitiveAggregates = new ArrayList<>();
+    boolean aggregating = false;
+
+    if (selStmt.getGroupingExprs() != null) {
+      for (Expr expr : selStmt.getGroupingExprs()) {
+        FieldLiteral field = resolveField(expr);
+        if (field == null)
+          return null;
+        int index = indexOf(columns, field);
+        if (!groupIndexes.contains(index))
+          groupIndexes.add(index);
+        aggregating = true;
+      }
+    }
+
+    // Every selection item is a column of the output of the aggregation.
+    List<Integer> outputs = new ArrayList<>();
+    for (SelectionItem item : selStmt.getSelectList().getItemList()) {
+      int output = resolveOutput(item.getExpr(), columns, groupIndexes,
+              aggregates, sensitiveAggregates);
+      if (output < 0)
+        return null;
+      if (output >= groupIndexes.size())
+        aggregating = true;
+      outputs.add(output);
+    }
+    if (!aggregating)
+      return null;
+
+    List<ColumnComparison> havingFilters = new ArrayList<>();
+    boolean havingSensitive = false;
+    if (selStmt.getHavingExpr() != null) {
+      List<Expr> conjuncts = new ArrayList<>();
+      splitConjuncts(selStmt.getHavingExpr(), conjuncts);
+      for (Expr conjunct : conjuncts) {
+        if (!(conjunct instanceof NormalBinPredicate))
+          return null;
+        NormalBinPredicate pred = (NormalBinPredicate) conjunct;
+        ColumnComparison filter = toFilter(pred, columns, groupIndexes,
+                aggregates, sensitiveAggregates);
+        if (filter == null)
+          return null;
+        havingFilters.add(filter);
+        havingSensitive |= isSensitiveOperand(pred.getLeftExpr(), columns,
+                groupIndexes, sensitiveAggregates) || isSensitiveOperand(pred
+                .getRightExpr(), columns, groupIndexes, sensitiveAggregates);
+      }
+    }
+
+    // Only numeric columns are decrypted by the client.
+    Set<String> tbls = new HashSet<>();
+    for (FieldLiteral column : columns) {
+      if (column.involveEncrytedCol() && column.getSdbColKey() == null)
+        return null;
+    }
+    for (int index : groupIndexes)
+      tbls.add(columns.get(index).getTblName());
+
+    if (!needLocal(aggregates, sensitiveAggregates, havingSensitive, tbls
+            .size()) && !isCheaperLocally(selStmt, columns, groupIndexes,
+            sensitiveAggregates))
+      return null;
+
+    LOG.info("Planning the aggregation on the client");
+    SelectStmt inputStmt = buildInputStmt(selStmt, columns);
+    PlanNode input = planInput(inputStmt);
+
+    // The output of the aggregation: the group by columns then the
+    // aggregates.
+    List<ColumnDesc> inputDescs = input.getNodeDesc().getRowDesc()
+            .getSignature();
+    List<ColumnDesc> aggDescs = new ArrayList<>();
+    for (int index : groupIndexes)
+      aggDescs.add(inputDescs.get(index));
+    for (AggregateDesc aggregate : aggregates)
+      aggDescs.add(describe(aggregate, inputDescs));
+    RowDesc aggRowDesc = new RowDesc();
+    aggRowDesc.setSignature(aggDescs);
+
+    LocalGroupbyFilter groupby = new LocalGroupbyFilter(input, toArray
+            (groupIndexes), aggregates, aggRowDesc);
+    groupby.getNodeDesc().setHavingFilters(havingFilters);
+    groupby.getNodeDesc().setMemoryLimit(memoryLimit);
+    if (spillDir != null)
+      groupby.getNodeDesc().setSpillDir(spillDir);
+
+    List<ColumnDesc> outputDescs = new ArrayList<>();
+    List<SelectionItem> items = selStmt.getSelectList().getItemList();
+    for (int i = 0; i < items.size(); i++) {
+      ColumnDesc desc = aggDescs.get(outputs.get(i));
+      String alias = items.get(i).getAlias().equals("") ? desc.getName() :
+              items.get(i).getAlias();
+      outputDescs.add(new ColumnDesc(desc.getName(), alias, desc.getType(),
+              desc.isSensitive(), desc.getSdbColKey()));
+    }
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(outputDescs);
+    return new LocalProj(groupby, toArray(outputs), rowDesc);
+  }
+
+  /**
+   * The server sums and counts encrypted columns of a single table, but it
+   * cannot compare them.
+   */
+  private static boolean needLocal(List<AggregateDesc> aggregates,
+                                   List<Boolean> sensitiveAggregates, boolean
+                                           havingSensitive, int groupTbls) {
+    if (havingSensitive || groupTbls > 1)
+      return true;
+    for (int i = 0; i < aggregates.size(); i++) {
+      AggregateDesc.Function function = aggregates.get(i).getFunction();
+      if (sensitiveAggregates.get(i) && function != AggregateDesc.Function.SUM
+              && function != AggregateDesc.Function.COUNT)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * The server updates the keys of the encrypted values aggregated and
+   * grouped by on every row, but only sends the groups. The client fetches
+   * and decrypts every row instead.
+   *
+   * @return true if the client is estimated to aggregate cheaper
+   */
+  private boolean isCheaperLocally(SelectStmt selStmt, List<FieldLiteral>
+          columns, List<Integer> groupIndexes, List<Boolean>
+          sensitiveAggregates) {
+    double rows = 0;
+    for (TableRef tblRef : selStmt.getTableRefs()) {
+      if (!(tblRef instanceof BaseTableRef))
+        return false;
+      rows = Math.max(rows, costModel.estimateRows(tblRef.getTblName()));
+    }
+    if (selStmt.getWhereClause() != null)
+      rows *= costModel.selectivity(selStmt.getWhereClause(), selStmt
+              .getTableRefs());
+
+    int sensitiveGroups = 0;
+    for (int index : groupIndexes) {
+      if (columns.get(index).involveEncrytedCol())
+        sensitiveGroups++;
+    }
+    int sensitiveAggs = 0;
+    for (boolean sensitive : sensitiveAggregates) {
+      if (sensitive)
+        sensitiveAggs++;
+    }
+    int encrypted = 0;
+    for (FieldLiteral column : columns) {
+      if (column.involveEncrytedCol())
+        encrypted++;
+    }
+
+    List<FieldLiteral> groupBy = new ArrayList<>();
+    for (int index : groupIndexes)
+      groupBy.add(columns.get(index));
+    double groups = groupIndexes.isEmpty() ? 1 : costModel.estimateGroups
+            (rows, groupBy, selStmt.getTableRefs());
+    int outputs = groupIndexes.size() + sensitiveAggregates.size();
+    int sensitiveOutputs = sensitiveGroups + sensitiveAggs;
+    double serverCost = costModel.server(rows * (sensitiveOutputs * CostModel
+            .KEY_UPDATE_COST + sensitiveAggs * CostModel.ARITHMETIC_COST)) +
+            groups * (costModel.decryptCost(sensitiveOutputs) + costModel
+            .transferCost(outputs + (sensitiveOutputs > 0 ? 1 : 0)));
+    double localCost = rows * (costModel.decryptCost(encrypted) + costModel
+            .transferCost(columns.size() + (encrypted > 0 ? 1 : 0)) +
+            CostModel.AGGREGATE_COST);
+    LOG.debug("Estimated cost of the aggregation, local: " + localCost + ", " +
+            "server: " + serverCost);
+    return localCost < serverCost;
+  }
+
+  /**
+   * @return the field a group by or having field stands for, null if it is
+   * not a column
+   */
+  private static FieldLiteral resolveField(Expr expr) {
+    if (!(expr instanceof FieldLiteral))
+      return null;
+    FieldLiteral field = (FieldLiteral) expr;
+    if (field.getReferedExpr() instanceof FieldLiteral)
+      return (FieldLiteral) field.getReferedExpr();
+    if (field.getReferedExpr() != null || field.getTblName() == null || field
+            .getTblName().equals(""))
+      return null;
+    return field;
+  }
+
+  private static int indexOf(List<FieldLiteral> columns, FieldLiteral field) {
+    for (int i = 0; i < columns.size(); i++) {
+      FieldLiteral column = columns.get(i);
+      if (column.getTblName().equals(field.getTblName()) && column.getName()
+              .equals(field.getName()))
+        return i;
+    }
+    columns.add(field);
+    return columns.size() - 1;
+  }
+
+  /**
+   * @return the index of an expression in the output of the aggregation, -1
+   * if it is neither a group by column nor a supported aggregate
+   */
+  private static int resolveOutput(Expr expr, List<FieldLiteral> columns,
+                                   List<Integer> groupIndexes,
+                                   List<AggregateDesc> aggregates,
+                                   List<Boolean> sensitiveAggregates) {
+    if (expr instanceof FieldLiteral && ((FieldLiteral) expr).getReferedExpr()
+            != null && !(((FieldLiteral) expr).getReferedExpr() instanceof
+            FieldLiteral))
+      expr = ((FieldLiteral) expr).getReferedExpr();
+
+    if (expr instanceof FieldLiteral) {
+      FieldLiteral field = resolveField(expr);
+      if (field == null)
+        return -1;
+      for (int i = 0; i < groupIndexes.size(); i++) {
+        FieldLiteral column = columns.get(groupIndexes.get(i));
+        if (column.getTblName().equals(field.getTblName()) && column.getName()
+                .equals(field.getName()))
+          return i;
+      }
+      return -1;
+    }
+
+    if (!(expr instanceof FunctionCallExpr))
+      return -1;
+    FunctionCallExpr funCall = (FunctionCallExpr) expr;
+    AggregateDesc.Function function = AggregateDesc.Function.of(funCall
+            .getFunctionName().getName());
+    FunctionParams params = funCall.getFunctionParams();
+    if (function == null || params == null || params.isDistinct())
+      return -1;
+
+    int input;
+    boolean sensitive = false;
+    if (params.isStar()) {
+      if (function != AggregateDesc.Function.COUNT)
+        return -1;
+      input = AggregateDesc.STAR;
+    } else {
+      if (params.getExprs().size() != 1)
+        return -1;
+      FieldLiteral field = resolveField(params.getExprs().get(0));
+      if (field == null)
+        return -1;
+      input = indexOf(columns, field);
+      sensitive = field.involveEncrytedCol();
+    }
+
+    for (int i = 0; i < aggregates.size(); i++) {
+      AggregateDesc aggregate = aggregates.get(i);
+      if (aggregate.getFunction() == function && aggregate.getInput() == input)
+        return groupIndexes.size() + i;
+    }
+    aggregates.add(new AggregateDesc(function, input));
+    sensitiveAggregates.add(sensitive);
+    return groupIndexes.size() + aggregates.size() - 1;
+  }
+
+  private static ColumnComparison toFilter(NormalBinPredicate pred,
+                                           List<FieldLiteral> columns,
+                                           List<Integer> groupIndexes,
+                                           List<AggregateDesc> aggregates,
+                                           List<Boolean> sensitiveAggregates) {
+    Object leftConstant = getConstant(pred.getLeftExpr());
+    Object rightConstant = getConstant(pred.getRightExpr());
+    if (leftConstant != null && rightConstant != null)
+      return null;
+
+    if (leftConstant != null) {
+      int right = resolveOutput(pred.getRightExpr(), columns, groupIndexes,
+              aggregates, sensitiveAggregates);
+      return right < 0 ? null : ColumnComparison.withConstant(right,
+              ColumnComparison.flip(pred.getOp()), leftConstant);
+    }
+    int left = resolveOutput(pred.getLeftExpr(), columns, groupIndexes,
+            aggregates, sensitiveAggregates);
+    if (left < 0)
+      return null;
+    if (rightConstant != null)
+      return ColumnComparison.withConstant(left, pred.getOp(), rightConstant);
+    int right = resolveOutput(pred.getRightExpr(), columns, groupIndexes,
+            aggregates, sensitiveAggregates);
+    return right < 0 ? null : new ColumnComparison(left, pred.getOp(), right);
+  }
+
+  private static boolean isSensitiveOperand(Expr expr, List<FieldLiteral>
+          columns, List<Integer> groupIndexes, List<Boolean>
+          sensitiveAggregates) {
+    if (getConstant(expr) != null)
+      return false;
+    int index = resolveOutput(expr, columns, groupIndexes, new ArrayList<>(),
+            new ArrayList<>());
+    if (index >= 0 && index < groupIndexes.size())
+      return columns.get(groupIndexes.get(index)).involveEncrytedCol();
+    return expr.involveEncrytedCol() || (expr instanceof FieldLiteral &&
+            ((FieldLiteral) expr).getReferedExpr() != null && ((FieldLiteral)
+            expr).getReferedExpr().involveEncrytedCol());
+  }
+
+  private static Object getConstant(Expr expr) {
+    if (expr instanceof IntLiteral)
+      return ((IntLiteral) expr).getValue();
+    if (expr instanceof BigIntLiteral)
+      return ((BigIntLiteral) expr).getValue();
+    if (expr instanceof FloatLiteral)
+      return (double) ((FloatLiteral) expr).getValue();
+    if (expr instanceof StringLiteral)
+      return ((StringLiteral) expr).getValue();
+    return null;
+  }
+
+  private static void splitConjuncts(Expr expr, List<Expr> conjuncts) {
+    if (expr instanceof CompoundPredicate && ((CompoundPredicate) expr).getOp()
+            == CompoundPredicate.CompoundOperator.AND) {
+      splitConjuncts(((CompoundPredicate) expr).getLeftPred(), conjuncts);
+      splitConjuncts(((CompoundPredicate) expr).getRightPred(), conjuncts);
+    } else {
+      conjuncts.add(expr);
+    }
+  }
+
+  /**
+   * @return the query of the input rows, built from copies since the
+   * rewriter changes the fields and predicates in place
+   */
+  private static SelectStmt buildInputStmt(SelectStmt selStmt,
+                                           List<FieldLiteral> columns) {
+    SelectStmt inputStmt = new SelectStmt();
+    SelectionList selectList = new SelectionList();
+    for (FieldLiteral column : columns)
+      selectList.getItemList().add(new SelectionItem(ParseNodeCopier.copy
+              (column), ""));
+    inputStmt.setSelectList(selectList);
+    inputStmt.setTableRefs(ParseNodeCopier.copy(selStmt.getTableRefs()));
+    if (selStmt.getWhereClause() != null)
+      inputStmt.setWhereClause(ParseNodeCopier.copy(selStmt.getWhereClause()));
+    return inputStmt;
+  }
+
+  private PlanNode planInput(SelectStmt inputStmt) throws RewriteException {
+    rewrittenSqlSize = 0;
+    rewrittenStmts = new ArrayList<>();
+    // A single table goes through the join planner too, which may evaluate
+    // its predicates on the client.
+    if (joinPlanner != null) {
+      PlanNode join = joinPlanner.plan(inputStmt);
+      if (join != null) {
+        rewrittenSqlSize = joinPlanner.getRewrittenSqlSize();
+        rewrittenStmts = joinPlanner.getRewrittenStmts();
+        return join;
+      }
+    }
+
+    rewriterFactory.get().rewrite(inputStmt);
+    String sql = inputStmt.toSql();
+    rewrittenSqlSize = sql.length();
+    rewrittenStmts.add(inputStmt);
+    LOG.info("The rewritten query of the aggregated rows: " + sql);
+    return new RuleBaseOptimizer(keyNormalizer).optimize(inputStmt, connection,
+            dbMeta);
+  }
+
+  private static ColumnDesc describe(AggregateDesc aggregate, List<ColumnDesc>
+          inputDescs) {
+    String name = aggregate.getFunction().toString();
+    if (aggregate.getInput() == AggregateDesc.STAR)
+      return new ColumnDesc(name + "(*)", name + "(*)", Type.BIGINT, false,
+              null);
+    ColumnDesc input = inputDescs.get(aggregate.getInput());
+    name += "(" + input.getName() + ")";
+    switch (aggregate.getFunction()) {
+      case COUNT:
+        return new ColumnDesc(name, name, Type.BIGINT, false, null);
+      case AVG:
+        return new ColumnDesc(name, name, Type.DOUBLE, input.isSensitive(),
+                null);
+      default:
+        return new ColumnDesc(name, name, input.getType(), input.isSensitive(),
+                null);
+    }
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++)
+      array[i] = list.get(i);
+    return array;
+  }
+}
@@ -0,0 +1,784 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.ScalarType;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.connect.ServerConnection;
+import edu.hku.sdb.exec.ColumnDesc;
+import edu.hku.sdb.exec.HashTableDesc;
+import edu.hku.sdb.exec.HashTableNode;
+import edu.hku.sdb.exec.LocalFilter;
+import edu.hku.sdb.exec.LocalJoin;
+import edu.hku.sdb.exec.LocalProj;
+import edu.hku.sdb.exec.PlanNode;
+import edu.hku.sdb.exec.RowDesc;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.plan.ColumnComparison;
+import edu.hku.sdb.rewrite.AbstractRewriter;
+import edu.hku.sdb.rewrite.RewriteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Plans an inner join of base tables as a hash join on the client. Every
+ * table is queried by its own remote query with the predicates only
+ * referring to it, the decrypted rows are joined by {@link LocalJoin}.
+ *
+ * The server can only join encrypted columns after updating their keys and
+ * applying the cartesian transform to every sensitive output column at each
+ * join step, and it cannot evaluate a predicate comparing encrypted columns
+ * of two tables at all. The local join is chosen if the server cannot run
+ * the query or if its estimated cost is lower.
+ *
+ * An encrypted predicate of a single table, e.g. a.x < 10, is evaluated by
+ * the client after decryption if that is estimated cheaper than comparing
+ * under encryption on the server. A query of a single table is planned on
+ * the client only for such a predicate.
+ *
+ * With the statistics of the tables, the hash table of a join step gets
+ * enough spill partitions for each of them to fit in the memory limit.
+ */
+public class LocalJoinPlanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalJoinPlanner
+          .class);
+
+  // Partitions of a spilled hash table, at most.
+  private static final int MAX_SPILL_PARTITIONS = 256;
+
+  private final DBMeta dbMeta;
+  private final ServerConnection connection;
+  // A rewriter can only be used for a single statement.
+  private final Supplier<AbstractRewriter> rewriterFactory;
+  private long memoryLimit = HashTableDesc.DEFAULT_MEMORY_LIMIT;
+  private File spillDir;
+  // Null to keep the keys of the returned columns.
+  private KeyNormalizer keyNormalizer;
+  private CostModel costModel;
+  private int rewrittenSqlSize;
+  private List<SelectStmt> rewrittenStmts = new ArrayList<>();
+
+  /**
+   * A table of the join with the columns and predicates only referring to it.
+   */
+  private static class Side {
+    private final BaseTableRef tblRef;
+    private final String name;
+    // Columns needed from the table, in the order of the remote query.
+    private final List<FieldLiteral> columns = new ArrayList<>();
+    // Predicates evaluated by the server.
+    private final List<Expr> predicates = new ArrayList<>();
+    // Predicates evaluated by the client on the decrypted rows.
+    private final List<NormalBinPredicate> localPredicates = new
+            ArrayList<>();
+    private int offset;
+
+    private Side(BaseTableRef tblRef) {
+      this.tblRef = tblRef;
+      this.name = tblRef.getAlias().equals("") ? tblRef.getTblName() : tblRef
+              .getAlias();
+    }
+
+    private List<BaseTableRef> tblRefs() {
+      return Collections.singletonList(tblRef);
+    }
+
+    private int indexOf(FieldLiteral field) {
+      int index = find(field);
+      if (index >= 0)
+        return index;
+      columns.add(field);
+      return columns.size() - 1;
+    }
+
+    private int find(FieldLiteral field) {
+      for (int i = 0; i < columns.size(); i++) {
+        if (columns.get(i).getName().equals(field.getName()))
+          return i;
+      }
+      return -1;
+    }
+
+    private int encryptedColumns() {
+      int cells = 0;
+      for (FieldLiteral column : columns) {
+        if (column.involveEncrytedCol())
+          cells++;
+      }
+      return cells;
+    }
+  }
+
+  /**
+   * A predicate comparing the columns of two tables, an equal join key or a
+   * residual filter.
+   */
+  private static class Condition {
+    private final NormalBinPredicate pred;
+    private final FieldLiteral left;
+    private final FieldLiteral right;
+
+    private Condition(NormalBinPredicate pred) {
+      this.pred = pred;
+      this.left = (FieldLiteral) pred.getLeftExpr();
+      this.right = (FieldLiteral) pred.getRightExpr();
+    }
+
+    private boolean isKey() {
+      return pred.getOp() == BinOperator.EQ;
+    }
+  }
+
+  public LocalJoinPlanner(DBMeta dbMeta, ServerConnection connection,
+                          Supplier<AbstractRewriter> rewriterFactory) {
+    this.dbMeta = dbMeta;
+    this.connection = connection;
+    this.rewriterFactory = rewriterFactory;
+    this.costModel = new CostModel(dbMeta);
+  }
+
+  public void setMemoryLimit(long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  public void setSpillDir(File spillDir) {
+    this.spillDir = spillDir;
+  }
+
+  public void setKeyNormalizer(KeyNormalizer keyNormalizer) {
+    this.keyNormalizer = keyNormalizer;
+  }
+
+  public void setCostModel(CostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  /**
+   * @return the total length of the remote queries of the last plan
+   */
+  public int getRewrittenSqlSize() {
+    return rewrittenSqlSize;
+  }
+
+  /**
+   * @return the rewritten remote queries of the last plan
+   */
+  public List<SelectStmt> getRewrittenStmts() {
+    return rewrittenStmts;
+  }
+
+  /**
+   * Plan the select statement as a local join. The statement is left
+   * untouched, the remote queries are rewritten from copies of its parts.
+   *
+   * @param selStmt an analyzed select statement
+   * @return the plan, or null if the statement is not a join that can be done
+   * locally or it is cheaper to do it on the server
+   * @throws RewriteException
+   */
+  public PlanNode plan(SelectStmt selStmt) throws RewriteException {
+    List<Side> sides = getSides(selStmt);
+    if (sides == null)
+      return null;
+
+    // Split the join and where predicates into the ones of a single table and
+    // the ones comparing two tables.
+    boolean serverSupported = true;
+    List<Condition> conditions = new ArrayList<>();
+    List<Expr> conjuncts = new ArrayList<>();
+    for (int i = 1; i < sides.size(); i++) {
+      Expr onClause = sides.get(i).tblRef.getOnClause();
+      if (onClause != null)
+        splitConjuncts(onClause, conjuncts);
+      else
+        serverSupported = false;
+    }
+    int onConjuncts = conjuncts.size();
+    if (selStmt.getWhereClause() != null)
+      splitConjuncts(selStmt.getWhereClause(), conjuncts);
+
+    for (int i = 0; i < conjuncts.size(); i++) {
+      Expr conjunct = conjuncts.get(i);
+      Set<String> tbls = new LinkedHashSet<>();
+      if (!collectTbls(conjunct, tbls))
+        return null;
+
+      if (tbls.size() == 1) {
+        Side side = getSide(sides, tbls.iterator().next());
+        if (side == null)
+          return null;
+        side.predicates.add(conjunct);
+        // The server only joins on fields.
+        if (i < onConjuncts && conjunct.involveEncrytedCol())
+          serverSupported = false;
+      } else if (tbls.size() == 2 && isColumnComparison(conjunct)) {
+        Condition condition = new Condition((NormalBinPredicate) conjunct);
+        conditions.add(condition);
+        // The server neither filters on two tables nor joins on encrypted
+        // columns other than by the equality of integers.
+        if (i >= onConjuncts || (conjunct.involveEncrytedCol() && (!condition
+                .isKey() || !Type.INT.equals(condition.left.getType()) || !Type
+                .INT.equals(condition.right.getType()))))
+          serverSupported = false;
+      } else {
+        return null;
+      }
+    }
+
+    // Assign the conditions to the join step of their last table, every step
+    // needs a key to an earlier table.
+    List<List<Condition>> steps = new ArrayList<>();
+    for (int i = 0; i < sides.size(); i++)
+      steps.add(new ArrayList<>());
+    for (Condition condition : conditions) {
+      int left = sides.indexOf(getSide(sides, condition.left.getTblName()));
+      int right = sides.indexOf(getSide(sides, condition.right.getTblName()));
+      if (left < 0 || right < 0)
+        return null;
+      steps.get(Math.max(left, right)).add(condition);
+    }
+    for (int i = 1; i < sides.size(); i++) {
+      boolean hasKey = false;
+      for (Condition condition : steps.get(i))
+        hasKey |= condition.isKey();
+      if (!hasKey) {
+        LOG.debug("No join key for table " + sides.get(i).name);
+        return null;
+      }
+    }
+
+    // Collect the columns needed from every table.
+    List<FieldLiteral> outputs = new ArrayList<>();
+    for (SelectionItem item : selStmt.getSelectList().getItemList()) {
+      FieldLiteral field = (FieldLiteral) item.getExpr();
+      getSide(sides, field.getTblName()).indexOf(field);
+      outputs.add(field);
+    }
+    for (Condition condition : conditions) {
+      getSide(sides, condition.left.getTblName()).indexOf(condition.left);
+      getSide(sides, condition.right.getTblName()).indexOf(condition.right);
+    }
+    for (Side side : sides) {
+      for (FieldLiteral column : side.columns) {
+        // Only numeric columns are decrypted by the client.
+        if (column.involveEncrytedCol() && column.getSdbColKey() == null)
+          return null;
+      }
+    }
+
+    boolean localPredicates = false;
+    for (Side side : sides)
+      localPredicates |= placePredicates(side);
+    if (sides.size() == 1 && !localPredicates)
+      return null;
+
+    double localCost = estimateLocalCost(sides);
+    double serverCost = estimateServerCost(sides, steps, outputs);
+    LOG.debug("Estimated cost of the join, local: " + localCost + ", server: "
+            + serverCost);
+    if (serverSupported && serverCost <= localCost)
+      return null;
+
+    if (sides.size() == 1)
+      LOG.info("Planning the predicates of table " + sides.get(0).name + " on" +
+              " the client");
+    else
+      LOG.info("Planning the join of " + sides.size() + " tables on the " +
+              "client");
+    return buildPlan(selStmt, sides, steps);
+  }
+
+  /**
+   * @return the tables of the statement if it is a plain inner join of base
+   * tables selecting columns only, otherwise null
+   */
+  private List<Side> getSides(SelectStmt selStmt) {
+    List<TableRef> tblRefs = selStmt.getTableRefs();
+    if (tblRefs == null || tblRefs.isEmpty())
+      return null;
+    if ((selStmt.getGroupingExprs() != null && !selStmt.getGroupingExprs()
+            .isEmpty()) || selStmt.getHavingExpr() != null || selStmt
+            .getOrderByElements() != null || selStmt.getLimitElement() != null)
+      return null;
+
+    List<Side> sides = new ArrayList<>();
+    for (int i = 0; i < tblRefs.size(); i++) {
+      TableRef tblRef = tblRefs.get(i);
+      if (!(tblRef instanceof BaseTableRef))
+        return null;
+      JoinOperator joinOp = tblRef.getJoinOp();
+      if (i > 0 && joinOp != null && joinOp != JoinOperator.INNER_JOIN &&
+              joinOp != JoinOperator.NULL_JOIN)
+        return null;
+      Side side = new Side((BaseTableRef) tblRef);
+      if (getSide(sides, side.name) != null)
+        return null;
+      sides.add(side);
+    }
+
+    for (SelectionItem item : selStmt.getSelectList().getItemList()) {
+      if (!(item.getExpr() instanceof FieldLiteral))
+        return null;
+      if (getSide(sides, ((FieldLiteral) item.getExpr()).getTblName()) == null)
+        return null;
+    }
+    return sides;
+  }
+
+  private static Side getSide(List<Side> sides, String name) {
+    for (Side side : sides) {
+      if (side.name.equals(name))
+        return side;
+    }
+    return null;
+  }
+
+  private static void splitConjuncts(Expr expr, List<Expr> conjuncts) {
+    if (expr instanceof CompoundPredicate && ((CompoundPredicate) expr).getOp()
+            == CompoundPredicate.CompoundOperator.AND) {
+      splitConjuncts(((CompoundPredicate) expr).getLeftPred(), conjuncts);
+      splitConjuncts(((CompoundPredicate) expr).getRightPred(), conjuncts);
+    } else {
+      conjuncts.add(expr);
+    }
+  }
+
+  /**
+   * Collect the tables referred to by an expression.
+   *
+   * @return false if the expression contains something not understood, e.g.
+   * a star
+   */
+  private static boolean collectTbls(Expr expr, Set<String> tbls) {
+    if (expr instanceof FieldLiteral) {
+      tbls.add(((FieldLiteral) expr).getTblName());
+      return true;
+    }
+    if (expr instanceof StarLiteral)
+      return false;
+    if (expr instanceof FunctionCallExpr) {
+      FunctionParams params = ((FunctionCallExpr) expr).getFunctionParams();
+      if (params != null && params.getExprs() != null) {
+        for (Expr param : params.getExprs()) {
+          if (!collectTbls(param, tbls))
+            return false;
+        }
+      }
+    }
+    for (Expr child : expr.getChildren()) {
+      if (child != null && !collectTbls(child, tbls))
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean isColumnComparison(Expr expr) {
+    return expr instanceof NormalBinPredicate && ((NormalBinPredicate) expr)
+            .getLeftExpr() instanceof FieldLiteral && ((NormalBinPredicate)
+            expr).getRightExpr() instanceof FieldLiteral;
+  }
+
+  /**
+   * Move the encrypted predicates of a table that the client evaluates
+   * cheaper than the server to its local predicates. The client saves the
+   * UDFs of a predicate on the server, but it has to fetch and decrypt the
+   * rows the predicate rejects, and its columns if they are not needed
+   * anyway.
+   *
+   * @return true if a predicate is moved
+   */
+  private boolean placePredicates(Side side) {
+    boolean moved = false;
+    for (Iterator<Expr> it = side.predicates.iterator(); it.hasNext(); ) {
+      Expr pred = it.next();
+      if (!isLocalCandidate(side, pred))
+        continue;
+      NormalBinPredicate binPred = (NormalBinPredicate) pred;
+
+      int encrypted = side.encryptedColumns();
+      int newColumns = 0;
+      int newEncrypted = 0;
+      for (Expr operand : new Expr[]{binPred.getLeftExpr(), binPred
+              .getRightExpr()}) {
+        if (operand instanceof FieldLiteral && side.find((FieldLiteral)
+                operand) < 0) {
+          newColumns++;
+          if (operand.involveEncrytedCol())
+            newEncrypted++;
+        }
+      }
+      double rowCost = costModel.decryptCost(encrypted) + costModel
+              .transferCost(side.columns.size() + (encrypted > 0 ? 1 : 0));
+      double extraCost = costModel.decryptCost(encrypted + newEncrypted) -
+              costModel.decryptCost(encrypted) + costModel.transferCost
+              (newColumns + (encrypted == 0 && newEncrypted > 0 ? 1 : 0));
+      double localCost = (1 - costModel.selectivity(pred, side.tblRefs())) * rowCost +
+              extraCost + CostModel.FILTER_COST;
+      double serverCost = costModel.serverPredicateCost(pred);
+      LOG.debug("Estimated cost of " + pred.toSql() + " per row, local: " +
+              localCost + ", server: " + serverCost);
+      if (localCost >= serverCost)
+        continue;
+
+      it.remove();
+      side.localPredicates.add(binPred);
+      for (Expr operand : new Expr[]{binPred.getLeftExpr(), binPred
+              .getRightExpr()}) {
+        if (operand instanceof FieldLiteral)
+          side.indexOf((FieldLiteral) operand);
+      }
+      moved = true;
+    }
+    return moved;
+  }
+
+  /**
+   * @return true if the predicate compares decryptable columns of the table
+   * with each other or with a constant, and the server would compare them
+   * under encryption
+   */
+  private static boolean isLocalCandidate(Side side, Expr pred) {
+    if (!(pred instanceof NormalBinPredicate) || !pred.involveEncrytedCol())
+      return false;
+    NormalBinPredicate binPred = (NormalBinPredicate) pred;
+    int fields = 0;
+    for (Expr operand : new Expr[]{binPred.getLeftExpr(), binPred
+            .getRightExpr()}) {
+      if (operand instanceof FieldLiteral) {
+        FieldLiteral field = (FieldLiteral) operand;
+        if (!field.getTblName().equals(side.name) || !isDecryptable(field
+                .getType()) || (field.involveEncrytedCol() && field
+                .getSdbColKey() == null))
+          return false;
+        fields++;
+      } else if (!(operand instanceof IntLiteral || operand instanceof
+              BigIntLiteral || operand instanceof FloatLiteral)) {
+        return false;
+      }
+    }
+    return fields > 0;
+  }
+
+  /**
+   * @return true for the types {@link edu.hku.sdb.exec.LocalDecrypt}
+   * decrypts
+   */
+  private static boolean isDecryptable(Type type) {
+    if (!(type instanceof ScalarType))
+      return false;
+    switch (((ScalarType) type).getType()) {
+      case INT:
+      case TINYINT:
+      case SMALLINT:
+      case BIGINT:
+      case DECIMAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  double estimateRows(Side side) {
+    return costModel.estimateRows(side.tblRef.getTblName());
+  }
+
+  /**
+   * @return the estimated rows of the table returned by its remote query
+   */
+  private double estimateRemoteRows(Side side) {
+    double rows = estimateRows(side);
+    for (Expr pred : side.predicates)
+      rows *= costModel.selectivity(pred, side.tblRefs());
+    return rows;
+  }
+
+  /**
+   * @return the estimated rows of the table satisfying all its predicates
+   */
+  private double estimateFilteredRows(Side side) {
+    double rows = estimateRemoteRows(side);
+    for (Expr pred : side.localPredicates)
+      rows *= costModel.selectivity(pred, side.tblRefs());
+    return rows;
+  }
+
+  /**
+   * Spread a hash table expected to exceed the memory limit over enough
+   * partitions that each of them fits, if the table has statistics.
+   */
+  private int estimateSpillPartitions(Side side) {
+    int partitions = HashTableDesc.DEFAULT_SPILL_PARTITIONS;
+    if (!costModel.hasStats(side.tblRef.getTblName()))
+      return partitions;
+    double bytes = estimateFilteredRows(side) * costModel.estimateRowBytes
+            (side.columns.size());
+    while (partitions < MAX_SPILL_PARTITIONS && bytes / partitions >
+            memoryLimit)
+      partitions *= 2;
+    return partitions;
+  }
+
+  private double serverPredicateCost(List<? extends Expr> preds) {
+    double cost = 0;
+    for (Expr pred : preds)
+      cost += costModel.serverPredicateCost(pred);
+    return cost;
+  }
+
+  private double estimateLocalCost(List<Side> sides) {
+    double cost = 0;
+    double rows = 0;
+    for (Side side : sides) {
+      double remoteRows = estimateRemoteRows(side);
+      int encrypted = side.encryptedColumns();
+      cost += estimateRows(side) * serverPredicateCost(side.predicates);
+      cost += remoteRows * (costModel.decryptCost(encrypted) + costModel
+              .transferCost(side.columns.size() + (encrypted > 0 ? 1 : 0)));
+      if (!side.localPredicates.isEmpty())
+        cost += remoteRows * CostModel.FILTER_COST;
+      rows = Math.max(rows, estimateFilteredRows(side));
+    }
+    return cost + rows * (sides.size() - 1) * CostModel.PROBE_COST;
+  }
+
+  private double estimateServerCost(List<Side> sides, List<List<Condition>>
+          steps, List<FieldLiteral> outputs) {
+    int sensitiveOutputs = 0;
+    for (FieldLiteral output : outputs) {
+      if (output.involveEncrytedCol())
+        sensitiveOutputs++;
+    }
+
+    double cost = 0;
+    for (Side side : sides)
+      cost += estimateRows(side) * (serverPredicateCost(side.predicates) +
+              serverPredicateCost(side.localPredicates));
+    double rows = estimateFilteredRows(sides.get(0));
+    for (int i = 1; i < sides.size(); i++) {
+      double sideRows = estimateFilteredRows(sides.get(i));
+      // The key of both sides of an encrypted join key is updated.
+      for (Condition condition : steps.get(i)) {
+        if (condition.pred.involveEncrytedCol())
+          cost += costModel.server((rows + sideRows) * 2 * CostModel
+                  .KEY_UPDATE_COST);
+      }
+      // Every sensitive output column and the auxiliary column S are
+      // transformed after each join.
+      rows = Math.max(rows, sideRows);
+      if (sensitiveOutputs > 0)
+        cost += costModel.server(rows * (sensitiveOutputs + 1) * CostModel
+                .TRANSFORM_COST);
+    }
+
+    return cost + rows * (costModel.decryptCost(sensitiveOutputs) + costModel
+            .transferCost(outputs.size() + (sensitiveOutputs > 0 ? 1 : 0)));
+  }
+
+  private PlanNode buildPlan(SelectStmt selStmt, List<Side> sides,
+                             List<List<Condition>> steps) throws
+          RewriteException {
+    // Describe the output before the fields are rewritten.
+    List<ColumnDesc> outputDescs = new ArrayList<>();
+    List<int[]> outputPositions = new ArrayList<>();
+    for (SelectionItem item : selStmt.getSelectList().getItemList()) {
+      FieldLiteral field = (FieldLiteral) item.getExpr();
+      Side side = getSide(sides, field.getTblName());
+      String alias = item.getAlias().equals("") ? field.getName() : item
+              .getAlias();
+      outputDescs.add(new ColumnDesc(field.getName(), alias, field.getType(),
+              field.involveEncrytedCol(), field.getSdbColKey()));
+      outputPositions.add(new int[]{sides.indexOf(side), side.indexOf(field)});
+    }
+    List<int[]> keyPositions = new ArrayList<>();
+    List<List<ColumnComparison>> filters = new ArrayList<>();
+    for (int i = 0; i < sides.size(); i++)
+      filters.add(new ArrayList<>());
+
+    int offset = 0;
+    for (Side side : sides) {
+      side.offset = offset;
+      offset += side.columns.size();
+    }
+
+    // Remote queries of every table.
+    rewrittenSqlSize = 0;
+    rewrittenStmts = new ArrayList<>();
+    List<PlanNode> sidePlans = new ArrayList<>();
+    for (Side side : sides) {
+      // Positions are resolved before the fields are rewritten.
+      int step = sides.indexOf(side);
+      for (Condition condition : steps.get(step)) {
+        Side left = getSide(sides, condition.left.getTblName());
+        Side right = getSide(sides, condition.right.getTblName());
+        int leftIndex = left.offset + left.indexOf(condition.left);
+        int rightIndex = right.offset + right.indexOf(condition.right);
+        if (condition.isKey()) {
+          // The table of the step is always on the build side.
+          keyPositions.add(left == side ? new int[]{step, rightIndex,
+                  left.indexOf(condition.left)} : new int[]{step, leftIndex,
+                  right.indexOf(condition.right)});
+        } else {
+          filters.get(step).add(new ColumnComparison(leftIndex, condition.pred
+                  .getOp(), rightIndex));
+        }
+      }
+      sidePlans.add(planSide(side));
+    }
+
+    // Join left-deep in the order of the tables.
+    PlanNode plan = sidePlans.get(0);
+    List<ColumnDesc> joined = new ArrayList<>(plan.getNodeDesc().getRowDesc()
+            .getSignature());
+    for (int step = 1; step < sides.size(); step++) {
+      List<Integer> probeKeys = new ArrayList<>();
+      List<Integer> buildKeys = new ArrayList<>();
+      for (int[] key : keyPositions) {
+        if (key[0] == step) {
+          probeKeys.add(key[1]);
+          buildKeys.add(key[2]);
+        }
+      }
+
+      PlanNode sidePlan = sidePlans.get(step);
+      HashTableNode build = new HashTableNode(sidePlan, toArray(buildKeys));
+      build.getNodeDesc().setMemoryLimit(memoryLimit);
+      build.getNodeDesc().setSpillPartitions(estimateSpillPartitions(sides
+              .get(step)));
+      if (spillDir != null)
+        build.getNodeDesc().setSpillDir(spillDir);
+
+      joined.addAll(sidePlan.getNodeDesc().getRowDesc().getSignature());
+      RowDesc rowDesc = new RowDesc();
+      rowDesc.setSignature(new ArrayList<>(joined));
+      LocalJoin join = new LocalJoin(plan, build, toArray(probeKeys), rowDesc);
+      join.getNodeDesc().setFilters(filters.get(step));
+      plan = join;
+    }
+
+    int[] columnIndexes = new int[outputPositions.size()];
+    for (int i = 0; i < columnIndexes.length; i++) {
+      int[] position = outputPositions.get(i);
+      columnIndexes[i] = sides.get(position[0]).offset + position[1];
+    }
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(outputDescs);
+    return new LocalProj(plan, columnIndexes, rowDesc);
+  }
+
+  /**
+   * Rewrite and plan the query of the columns and predicates of a single
+   * table. The query is built from copies, since the rewriter changes the
+   * fields and predicates in place.
+   */
+  private PlanNode planSide(Side side) throws RewriteException {
+    // Positions are resolved before the fields are rewritten.
+    List<ColumnComparison> filters = toFilters(side);
+    SelectStmt sideStmt = new SelectStmt();
+
+    SelectionList selectList = new SelectionList();
+    for (FieldLiteral column : side.columns)
+      selectList.getItemList().add(new SelectionItem(ParseNodeCopier.copy
+              (column), ""));
+    sideStmt.setSelectList(selectList);
+
+    BaseTableRef tblRef = new BaseTableRef(side.tblRef.getTblName(), side
+            .tblRef.getAlias());
+    tblRef.setJoinOp(JoinOperator.NULL_JOIN);
+    List<TableRef> tblRefs = new ArrayList<>();
+    tblRefs.add(tblRef);
+    sideStmt.setTableRefs(tblRefs);
+
+    Expr where = null;
+    for (Expr original : side.predicates) {
+      Expr predicate = ParseNodeCopier.copy(original);
+      if (where == null) {
+        where = predicate;
+      } else {
+        CompoundPredicate and = new CompoundPredicate(CompoundPredicate
+                .CompoundOperator.AND);
+        and.setLeftPred(where);
+        and.setRightPred(predicate);
+        where = and;
+      }
+    }
+    sideStmt.setWhereClause(where);
+
+    rewriterFactory.get().rewrite(sideStmt);
+    String sql = sideStmt.toSql();
+    rewrittenSqlSize += sql.length();
+    rewrittenStmts.add(sideStmt);
+    LOG.info("The rewritten query of table " + side.name + ": " + sql);
+    PlanNode plan = new RuleBaseOptimizer(keyNormalizer).optimize(sideStmt,
+            connection, dbMeta);
+    if (side.localPredicates.isEmpty())
+      return plan;
+    return new LocalFilter(plan, filters, plan.getNodeDesc().getRowDesc());
+  }
+
+  /**
+   * @return the local predicates of a table as comparisons of the columns of
+   * its remote query
+   */
+  private static List<ColumnComparison> toFilters(Side side) {
+    List<ColumnComparison> filters = new ArrayList<>();
+    for (NormalBinPredicate pred : side.localPredicates) {
+      Expr left = pred.getLeftExpr();
+      Expr right = pred.getRightExpr();
+      if (!(left instanceof FieldLiteral))
+        filters.add(ColumnComparison.withConstant(side.find((FieldLiteral)
+                right), ColumnComparison.flip(pred.getOp()), getConstant
+                (left)));
+      else if (!(right instanceof FieldLiteral))
+        filters.add(ColumnComparison.withConstant(side.find((FieldLiteral)
+                left), pred.getOp(), getConstant(right)));
+      else
+        filters.add(new ColumnComparison(side.find((FieldLiteral) left), pred
+                .getOp(), side.find((FieldLiteral) right)));
+    }
+    return filters;
+  }
+
+  private static Object getConstant(Expr expr) {
+    if (expr instanceof IntLiteral)
+      return ((IntLiteral) expr).getValue();
+    if (expr instanceof BigIntLiteral)
+      return ((BigIntLiteral) expr).getValue();
+    return (double) ((FloatLiteral) expr).getValue();
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++)
+      array[i] = list.get(i);
+    return array;
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.exec.LocalLimit;
+import edu.hku.sdb.exec.LocalSort;
+import edu.hku.sdb.exec.PlanNode;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.plan.LocalSortDesc;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plans the order by and limit clauses of a select statement as a sort of
+ * the decrypted rows. The server only sees the ciphertexts of encrypted
+ * columns, so ordering by them, or by aggregates of them, must be done by
+ * the client.
+ *
+ * The clauses are detached from the statement while the rest of it is
+ * planned, so that they are not sent to the server. A limit without order by
+ * stops the local plan after its first rows.
+ */
+public class LocalSortPlanner {
+
+  private final List<OrderByElement> orderByElements;
+  private final LimitElement limitElement;
+  // Selection items sorted by, null if an element is not selected.
+  private final int[] sortIndexes;
+  private final boolean[] ascending;
+  private final long limit;
+  private boolean sensitive = false;
+
+  private long memoryLimit = LocalSortDesc.DEFAULT_MEMORY_LIMIT;
+  private File spillDir;
+
+  /**
+   * @return the planner of the order by and limit clauses of the statement,
+   * null if it has none or they cannot be executed locally
+   */
+  public static LocalSortPlanner create(SelectStmt selStmt) {
+    List<OrderByElement> elements = selStmt.getOrderByElements();
+    LimitElement limitElement = selStmt.getLimitElement();
+    if ((elements == null || elements.isEmpty()) && limitElement == null)
+      return null;
+    if (limitElement != null && !(limitElement.getLmtExpr() instanceof
+            IntLiteral))
+      return null;
+
+    LocalSortPlanner planner = new LocalSortPlanner(selStmt);
+    return planner.sortIndexes == null ? null : planner;
+  }
+
+  private LocalSortPlanner(SelectStmt selStmt) {
+    orderByElements = selStmt.getOrderByElements();
+    limitElement = selStmt.getLimitElement();
+    List<SelectionItem> items = selStmt.getSelectList().getItemList();
+    List<OrderByElement> elements = orderByElements == null ? Collections
+            .<OrderByElement>emptyList() : orderByElements;
+
+    int[] indexes = new int[elements.size()];
+    ascending = new boolean[elements.size()];
+    for (int i = 0; i < indexes.length && indexes != null; i++) {
+      OrderByElement element = elements.get(i);
+      indexes[i] = findItem(items, element.getExpr());
+      ascending[i] = element.isAsc();
+      if (indexes[i] < 0)
+        indexes = null;
+      else if (items.get(indexes[i]).involveEncrytedCol())
+        sensitive = true;
+    }
+    sortIndexes = indexes;
+
+    if (limitElement != null)
+      limit = ((IntLiteral) limitElement.getLmtExpr()).getValue();
+    else
+      limit = LocalSortDesc.NO_LIMIT;
+  }
+
+  /**
+   * @return the position of the selection item the expression refers to, -1
+   * if it is not selected
+   */
+  private static int findItem(List<SelectionItem> items, Expr expr) {
+    Expr referred = expr instanceof FieldLiteral ? ((FieldLiteral) expr)
+            .getReferedExpr() : null;
+    for (int i = 0; i < items.size(); i++) {
+      if (referred != null && items.get(i).getExpr() == referred)
+        return i;
+    }
+    for (int i = 0; i < items.size(); i++) {
+      SelectionItem item = items.get(i);
+      if (item.getExpr().equals(expr))
+        return i;
+      if (expr instanceof FieldLiteral && ((FieldLiteral) expr).getTblName()
+              .equals("") && item.getAlias().equals(((FieldLiteral) expr)
+              .getName()))
+        return i;
+    }
+    return -1;
+  }
+
+  public void setMemoryLimit(long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  public void setSpillDir(File spillDir) {
+    this.spillDir = spillDir;
+  }
+
+  /**
+   * @return true if the statement orders by encrypted values, so that the
+   * server cannot sort it
+   */
+  public boolean isRequired() {
+    return sensitive;
+  }
+
+  /**
+   * Remove the order by and limit clauses from the statement.
+   */
+  public void detach(SelectStmt selStmt) {
+    selStmt.setOrderByElements(null);
+    selStmt.setLimitElement(null);
+  }
+
+  /**
+   * Put back the order by and limit clauses, when the statement is executed
+   * by the server after all.
+   */
+  public void restore(SelectStmt selStmt) {
+    selStmt.setOrderByElements(orderByElements);
+    selStmt.setLimitElement(limitElement);
+  }
+
+  /**
+   * @param child the plan of the statement without order by and limit, its
+   *              rows are made of the selection items in order
+   * @return the sort of the rows of the child, or their first rows if there
+   * is no order by
+   */
+  public PlanNode plan(PlanNode child) {
+    if (sortIndexes.length == 0)
+      return new LocalLimit(child, limit, child.getNodeDesc().getRowDesc());
+    LocalSort sort = new LocalSort(child, sortIndexes, ascending, limit, child
+            .getNodeDesc().getRowDesc());
+    sort.getNodeDesc().setMemoryLimit(memoryLimit);
+    if (spillDir != null)
+      sort.getNodeDesc().setSpillDir(spillDir);
+    return sort;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.parse.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies the parts of an analyzed statement that a planner hands to the
+ * rewriter, which rewrites the fields and predicates in place. The statement
+ * stays intact if the planner gives up on the plan afterwards.
+ *
+ * Literals are immutable and shared, so are the expressions the rewriter
+ * rejects, e.g. an IN predicate.
+ */
+final class ParseNodeCopier {
+
+  private ParseNodeCopier() {
+  }
+
+  static FieldLiteral copy(FieldLiteral field) {
+    FieldLiteral copy = new FieldLiteral(field.getTblName(), field.getName(),
+            field.getType(), field.isSDBEncrypted(), field.getSdbColKey() ==
+            null ? null : new SdbColumnKey(field.getSdbColKey()));
+    copy.setSearchColKey(field.getSearchColKey());
+    copy.setReferedExpr(field.getReferedExpr());
+    return copy;
+  }
+
+  static Expr copy(Expr expr) {
+    if (expr instanceof FieldLiteral)
+      return copy((FieldLiteral) expr);
+    if (expr instanceof NormalBinPredicate) {
+      NormalBinPredicate pred = (NormalBinPredicate) expr;
+      return new NormalBinPredicate(pred.getOp(), copy(pred.getLeftExpr()),
+              copy(pred.getRightExpr()));
+    }
+    if (expr instanceof CompoundPredicate) {
+      CompoundPredicate pred = (CompoundPredicate) expr;
+      CompoundPredicate copy = new CompoundPredicate(pred.getOp());
+      copy.setLeftPred(copy(pred.getLeftPred()));
+      if (pred.getRightPred() != null)
+        copy.setRightPred(copy(pred.getRightPred()));
+      return copy;
+    }
+    if (expr instanceof LikePredicate) {
+      LikePredicate pred = (LikePredicate) expr;
+      return new LikePredicate(copy(pred.getColumn()), copy(pred.getPattern()));
+    }
+    if (expr instanceof NormalArithmeticExpr) {
+      NormalArithmeticExpr arithExpr = (NormalArithmeticExpr) expr;
+      return new NormalArithmeticExpr(arithExpr.getOp(), copy(arithExpr
+              .getLeftExpr()), copy(arithExpr.getRightExpr()));
+    }
+    if (expr instanceof FunctionCallExpr) {
+      FunctionCallExpr call = (FunctionCallExpr) expr;
+      FunctionParams params = call.getFunctionParams();
+      if (params != null && !params.isStar()) {
+        List<Expr> exprs = new ArrayList<>();
+        for (Expr param : params.getExprs())
+          exprs.add(copy(param));
+        params = new FunctionParams(params.isDistinct(), exprs);
+      }
+      FunctionCallExpr copy = new FunctionCallExpr(new FunctionName(call
+              .getFunctionName().getName()), params);
+      copy.setType(call.getType());
+      copy.setSdbColKey(call.getSdbColKey());
+      return copy;
+    }
+    return expr;
+  }
+
+  /**
+   * Copy the base tables of a join with their join clauses.
+   */
+  static List<TableRef> copy(List<TableRef> tblRefs) {
+    Map<TableRef, TableRef> copies = new IdentityHashMap<>();
+    List<TableRef> copy = new ArrayList<>();
+    for (TableRef tblRef : tblRefs) {
+      BaseTableRef tblCopy = new BaseTableRef(tblRef.getTblName(), tblRef
+              .getAlias());
+      tblCopy.setJoinOp(tblRef.getJoinOp());
+      if (tblRef.getOnClause() != null)
+        tblCopy.setOnClause(copy(tblRef.getOnClause()));
+      if (tblRef.getLeftTblRef() != null)
+        tblCopy.setLeftTblRef(copies.get(tblRef.getLeftTblRef()));
+      copies.put(tblRef, tblCopy);
+      copy.add(tblCopy);
+    }
+    return copy;
+  }
+}
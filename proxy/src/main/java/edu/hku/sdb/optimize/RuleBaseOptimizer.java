@@ -42,6 +42,9 @@ public class RuleBaseOptimizer extends Optimizer {
   private static final Logger LOG = LoggerFactory
           .getLogger(RuleBaseOptimizer.class);
 
+  // Null to keep the keys of the returned columns.
+  private KeyNormalizer keyNormalizer;
+
   /**
    *
    */
@@ -49,6 +52,10 @@ public class RuleBaseOptimizer extends Optimizer {
     // TODO Auto-generated constructor stub
   }
 
+  public RuleBaseOptimizer(KeyNormalizer keyNormalizer) {
+    this.keyNormalizer = keyNormalizer;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -66,6 +73,11 @@ public class RuleBaseOptimizer extends Optimizer {
   }
 
   private PlanNode generatePlan(SelectStmt selStmt, ServerConnection connection,  DBMeta dbMeta) {
+    // Let the server normalize the keys of the returned columns if cheaper,
+    // and do not ask it for auxiliary columns nobody uses.
+    if (keyNormalizer != null)
+      keyNormalizer.normalize(selStmt, dbMeta);
+    new AuxiliaryColumnPruner().prune(selStmt);
     String query = selStmt.toSql();
     RowDesc remoteRowDesc = new RowDesc();
     RowDesc localDecryptRowDesc = new RowDesc();
@@ -86,7 +98,8 @@ public class RuleBaseOptimizer extends Optimizer {
       // obtain columnName in case of FieldLiteral
       if (expr instanceof FieldLiteral) {
         colName = ((FieldLiteral) expr).getName();
-      } else if (expr instanceof SdbArithmeticExpr) {
+      } else if (expr instanceof SdbArithmeticExpr || expr instanceof
+              SdbEvalExpr || expr instanceof SdbKeyUpdateExpr) {
         colName = alias;
       } else if (expr instanceof NormalArithmeticExpr) {
         colName = expr.toSql();
@@ -113,7 +126,7 @@ public class RuleBaseOptimizer extends Optimizer {
     }
 
     // insert Row ID if involved encrypted column.
-    if (selStmt.involveEncrytedCol()){
+    if (AuxiliaryColumnPruner.needsRowID(selStmt.getSelectList())){
       if(rowID == null) {
       LOG.error("No rowID return by the server query");
       return null;
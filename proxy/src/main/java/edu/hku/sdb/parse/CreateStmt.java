@@ -19,11 +19,14 @@ package edu.hku.sdb.parse;
 
 import com.google.common.base.Joiner;
 import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.utility.ParserConstant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CreateStmt extends StatementBase {
 
@@ -32,6 +35,53 @@ public class CreateStmt extends StatementBase {
   private List<ColumnDefinition> columnDefinitions;
   private String tableName;
   private TableRowFormat tableRowFormat;
+  // STORED AS file format, null for the server default.
+  private String fileFormat;
+  // Delimited table that data is loaded into before being converted to a
+  // columnar file format, null if not needed.
+  private CreateStmt stagingStmt;
+  // TBLPROPERTIES, the ones prefixed by "sdb." are kept by sdb.
+  private Map<String, String> properties = new HashMap<>();
+
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  public void setProperties(Map<String, String> properties) {
+    this.properties = properties;
+  }
+
+  public String getProperty(String key) {
+    return properties.get(key);
+  }
+
+  public String getFileFormat() {
+    return fileFormat;
+  }
+
+  public void setFileFormat(String fileFormat) {
+    this.fileFormat = fileFormat;
+  }
+
+  public CreateStmt getStagingStmt() {
+    return stagingStmt;
+  }
+
+  public void setStagingStmt(CreateStmt stagingStmt) {
+    this.stagingStmt = stagingStmt;
+  }
+
+  /**
+   * @return true if the table is stored in a columnar file format.
+   */
+  public boolean isColumnar() {
+    return isColumnar(fileFormat);
+  }
+
+  public static boolean isColumnar(String fileFormat) {
+    return ParserConstant.FILE_FORMAT_ORC.equals(fileFormat) ||
+            ParserConstant.FILE_FORMAT_PARQUET.equals(fileFormat);
+  }
 
   public TableRowFormat getTableRowFormat() {
     return tableRowFormat;
@@ -75,7 +125,25 @@ public class CreateStmt extends StatementBase {
       rowFormat = tableRowFormat.toSql();
     }
 
-    return "CREATE TABLE " + tableName + " (" + fields + ") " + rowFormat;
+    String storedAs = "";
+    if (fileFormat != null) {
+      storedAs = " STORED AS " + fileFormat;
+    }
+
+    List<String> serverProps = new ArrayList<String>();
+    for (Map.Entry<String, String> prop : properties.entrySet()) {
+      if (prop.getKey().startsWith(ParserConstant.SDB_PROPERTY_PREFIX))
+        continue;
+      serverProps.add("'" + prop.getKey() + "'" + (prop.getValue() == null ?
+              "" : "='" + prop.getValue() + "'"));
+    }
+    String tblProps = "";
+    if (serverProps.size() > 0) {
+      tblProps = " TBLPROPERTIES (" + Joiner.on(", ").join(serverProps) + ")";
+    }
+
+    return "CREATE TABLE " + tableName + " (" + fields + ") " + rowFormat +
+            storedAs + tblProps;
   }
 
   @Override
@@ -114,6 +182,12 @@ public class CreateStmt extends StatementBase {
       }
     }
 
+    if (fileFormat == null ? ((CreateStmt) object).fileFormat != null :
+            !fileFormat.equals(((CreateStmt) object).fileFormat)) {
+      LOG.debug("The other object's fileFormat does not match!");
+      return false;
+    }
+
     if (!columnDefinitions.equals(((CreateStmt) object).getColumnDefinitions())) {
       LOG.debug("The other object's columnDefinitions does not match!");
       return false;
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.parse;
+
+import edu.hku.sdb.catalog.DBMeta;
+
+/**
+ * EXPLAIN [ANALYZE] of a query. The query is analyzed as usual, and it is
+ * only executed for EXPLAIN ANALYZE.
+ */
+public class ExplainStmt extends StatementBase {
+
+  private final QueryStmt stmt;
+  private final boolean analyze;
+
+  public ExplainStmt(QueryStmt stmt, boolean analyze) {
+    this.stmt = stmt;
+    this.analyze = analyze;
+  }
+
+  public QueryStmt getStmt() {
+    return stmt;
+  }
+
+  public boolean isAnalyze() {
+    return analyze;
+  }
+
+  @Override
+  public void analyze(DBMeta dbMeta, ParseNode... fieldSources) throws
+          SemanticException {
+    // The query has been analyzed when it was built.
+  }
+
+  @Override
+  public String toSql() {
+    return "EXPLAIN " + (analyze ? "ANALYZE " : "") + stmt.toSql();
+  }
+
+  @Override
+  public boolean involveEncrytedCol() {
+    return stmt.involveEncrytedCol();
+  }
+}
@@ -19,11 +19,19 @@ package edu.hku.sdb.parse;
 
 import edu.hku.sdb.catalog.DBMeta;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class LoadStmt implements ParseNode {
 
   String filePath;
   String tableName;
   boolean overWrite = true;
+  // Partition spec in the form of "key1='value1',key2='value2'", null if the
+  // data is loaded into a non-partitioned table.
+  String partition;
+  // Upload options given by TBLPROPERTIES, e.g. sdb.upload.codec
+  Map<String, String> properties = new HashMap<>();
 
   public String getFilePath() {
     return filePath;
@@ -41,6 +49,34 @@ public class LoadStmt implements ParseNode {
     this.tableName = tableName;
   }
 
+  public boolean isOverWrite() {
+    return overWrite;
+  }
+
+  public void setOverWrite(boolean overWrite) {
+    this.overWrite = overWrite;
+  }
+
+  public String getPartition() {
+    return partition;
+  }
+
+  public void setPartition(String partition) {
+    this.partition = partition;
+  }
+
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  public void setProperties(Map<String, String> properties) {
+    this.properties = properties;
+  }
+
+  public String getProperty(String key) {
+    return properties.get(key);
+  }
+
   public LoadStmt(String filePath, String tableName) {
     super();
     setFilePath(filePath);
@@ -54,7 +90,8 @@ public class LoadStmt implements ParseNode {
 
   @Override
   public String toSql() {
-    return "LOAD DATA" + " INPATH '" + filePath + "' " + (overWrite ? "OVERWRITE" : "") + " INTO TABLE " + tableName;
+    return "LOAD DATA" + " INPATH '" + filePath + "' " + (overWrite ? "OVERWRITE " : "") + "INTO TABLE " + tableName +
+            (partition == null ? "" : " PARTITION (" + partition + ")");
   }
 
   @Override
@@ -73,6 +110,11 @@ public class LoadStmt implements ParseNode {
       return false;
     } else if (!((LoadStmt) object).getTableName().equals(tableName)) {
       return false;
+    } else if (((LoadStmt) object).overWrite != overWrite) {
+      return false;
+    } else if (partition == null ? ((LoadStmt) object).partition != null :
+            !partition.equals(((LoadStmt) object).partition)) {
+      return false;
     }
     return filePath.equals(((LoadStmt) object).filePath);
   }
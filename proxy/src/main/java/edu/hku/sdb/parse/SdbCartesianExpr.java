@@ -69,6 +69,10 @@ public class SdbCartesianExpr extends Expr {
     this.sdbColumnKey = sdbColumnKey;
   }
 
+  public String getOp() {
+    return op;
+  }
+
   /*
      * (non-Javadoc)
      *
@@ -50,10 +50,14 @@ public class SdbComparisonExpr extends Expr {
     this.op = op;
   }
 
+  public String getUdfName() {
+    return opUdfMap.get(op);
+  }
+
   @Override
   public String toSql() {
     StringBuilder sb = new StringBuilder();
-    sb.append(opUdfMap.get(op));
+    sb.append(getUdfName());
     sb.append("(");
 
     List<String> children = new ArrayList<>();
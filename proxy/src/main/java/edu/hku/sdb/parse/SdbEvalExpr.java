@@ -0,0 +1,123 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.parse;
+
+import com.google.common.base.Joiner;
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.catalog.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chain of SDB arithmetic UDFs fused into a single call of sdb_eval. The
+ * children are the arguments of the program, and the column key, type and
+ * alias are those of the fused expression.
+ */
+public class SdbEvalExpr extends Expr {
+
+  private final String op = "sdb_eval";
+
+  private String program;
+
+  private SdbColumnKey sdbColumnKey;
+
+  private Type type;
+
+  private String alias;
+
+  public SdbEvalExpr(String program) {
+    this.program = program;
+  }
+
+  public String getProgram() {
+    return program;
+  }
+
+  @Override
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public void setType(Type type) {
+    this.type = type;
+  }
+
+  @Override
+  public String getAlias() {
+    return alias;
+  }
+
+  public void setAlias(String alias) {
+    this.alias = alias;
+  }
+
+  @Override
+  public SdbColumnKey getSdbColKey() {
+    return sdbColumnKey;
+  }
+
+  @Override
+  public void setSdbColKey(SdbColumnKey sdbColumnKey) {
+    this.sdbColumnKey = sdbColumnKey;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof SdbEvalExpr))
+      return false;
+
+    SdbEvalExpr evalObj = (SdbEvalExpr) obj;
+    return program.equals(evalObj.program) && children.equals(evalObj
+            .children);
+  }
+
+  public String getOp() {
+    return op;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see edu.hku.sdb.parse.ParseNode#toSql()
+   */
+  @Override
+  public String toSql() {
+    List<String> items = new ArrayList<String>();
+    items.add("'" + program + "'");
+    for (Expr child : children) {
+      items.add(child.toSql());
+    }
+    return op + "(" + Joiner.on(",").join(items) + ")";
+  }
+
+  /* (non-Javadoc)
+   * @see edu.hku.sdb.parse.Expr#involveSdbCol()
+   */
+  @Override
+  public boolean involveEncrytedCol() {
+    return true;
+  }
+
+  @Override
+  public EncryptionScheme getEncrytionScheme() {
+    return null;
+  }
+
+}
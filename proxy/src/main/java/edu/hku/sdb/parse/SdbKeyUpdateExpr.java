@@ -114,6 +114,10 @@ public class SdbKeyUpdateExpr extends Expr {
     return null;
   }
 
+  public SdbKeyUpOperator getOp() {
+    return op;
+  }
+
   public void setSdbColKey(SdbColumnKey colKey) {
     this.colKey = colKey;
   }
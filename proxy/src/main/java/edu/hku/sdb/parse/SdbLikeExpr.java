@@ -52,6 +52,10 @@ public class SdbLikeExpr extends Expr {
     this.searchColumnKey = searchColumnKey;
   }
 
+  public String getOp() {
+    return op;
+  }
+
   /*
      * (non-Javadoc)
      *
@@ -17,12 +17,15 @@
 package edu.hku.sdb.parse;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import edu.hku.sdb.catalog.*;
 import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
 import edu.hku.sdb.parse.CompoundPredicate.CompoundOperator;
 import edu.hku.sdb.parse.NormalArithmeticExpr.Operator;
+import edu.hku.sdb.utility.ParserConstant;
 
 public class SemanticAnalyzer extends BasicSemanticAnalyzer {
 
@@ -75,6 +78,9 @@ public class SemanticAnalyzer extends BasicSemanticAnalyzer {
       case HiveParser.TOK_DESCTABLE:
         parseTree = buildDescTBLStmt(tree);
         break;
+      case HiveParser.TOK_EXPLAIN:
+        // The explained statement is analyzed by itself.
+        return buildExplainStmt(tree);
     }
 
     if (parseTree != null)
@@ -83,6 +89,27 @@ public class SemanticAnalyzer extends BasicSemanticAnalyzer {
     return parseTree;
   }
 
+  /**
+   * Construct an explain statement. Only a query can be explained, and the
+   * ANALYZE option is the only one taken into account.
+   *
+   * @param tree
+   * @return
+   * @throws SemanticException
+   */
+  private ParseNode buildExplainStmt(ASTNode tree) throws SemanticException {
+    ParseNode stmt = analyzeInternal((ASTNode) tree.getChild(0));
+    if (!(stmt instanceof QueryStmt))
+      throw new SemanticException("Only a query can be explained!");
+
+    boolean analyze = false;
+    for (int i = 1; i < tree.getChildCount(); i++) {
+      if (tree.getChild(i).getType() == HiveParser.KW_ANALYZE)
+        analyze = true;
+    }
+    return new ExplainStmt((QueryStmt) stmt, analyze);
+  }
+
   /**
    * Construct a loading data statement.
    * @param tree
@@ -103,9 +130,77 @@ public class SemanticAnalyzer extends BasicSemanticAnalyzer {
       }
     }
     LoadStmt loadStmt = new LoadStmt(filePath, tableName);
+
+    //Get partition spec from AST, e.g. PARTITION (ds='2015-10-01')
+    if (secondChild.getType() == HiveParser.TOK_TAB && secondChild
+            .getChildCount() > 1) {
+      ASTNode partSpec = (ASTNode) secondChild.getChild(1);
+      if (partSpec.getType() == HiveParser.TOK_PARTSPEC)
+        loadStmt.setPartition(buildPartitionSpec(partSpec));
+    }
+
+    //Get the OVERWRITE keyword and upload options, e.g. TBLPROPERTIES
+    // ('sdb.upload.codec'='gzip'). Without OVERWRITE the rows are appended.
+    loadStmt.setOverWrite(false);
+    for (int i = 2; i < tree.getChildCount(); i++) {
+      ASTNode child = (ASTNode) tree.getChild(i);
+      if (child.getType() == HiveParser.KW_OVERWRITE)
+        loadStmt.setOverWrite(true);
+      else if (child.getType() == HiveParser.TOK_TABLEPROPERTIES)
+        loadStmt.setProperties(buildTableProperties(child));
+    }
     return loadStmt;
   }
 
+  /**
+   * Convert a TOK_TABLEPROPERTIES node into a key value map.
+   * @param tree
+   * @return
+   */
+  private Map<String, String> buildTableProperties(ASTNode tree) {
+    Map<String, String> properties = new HashMap<>();
+    ASTNode propList = (ASTNode) tree.getChild(0);
+    for (int i = 0; i < propList.getChildCount(); i++) {
+      ASTNode prop = (ASTNode) propList.getChild(i);
+      String key = unquote(prop.getChild(0).getText());
+      String value = null;
+      if (prop.getChild(1).getType() != HiveParser.TOK_NULL)
+        value = unquote(prop.getChild(1).getText());
+      properties.put(key, value);
+    }
+    return properties;
+  }
+
+  private String unquote(String literal) {
+    if (literal.length() > 1 && (literal.charAt(0) == '\'' || literal.charAt
+            (0) == '"'))
+      return literal.substring(1, literal.length() - 1);
+    return literal;
+  }
+
+  /**
+   * Convert a TOK_PARTSPEC node into "key1='value1',key2='value2'".
+   * @param tree
+   * @return
+   * @throws SemanticException
+   */
+  private String buildPartitionSpec(ASTNode tree) throws SemanticException {
+    StringBuilder partition = new StringBuilder();
+    for (int i = 0; i < tree.getChildCount(); i++) {
+      ASTNode partVal = (ASTNode) tree.getChild(i);
+      // Dynamic partition is not supported, since the uploader has to know
+      // where each encrypted record goes.
+      if (partVal.getChildCount() != 2)
+        throw new SemanticException("Partition value of " + partVal.getChild
+                (0).getText() + " must be specified");
+      if (i > 0)
+        partition.append(",");
+      partition.append(partVal.getChild(0).getText()).append("=").append
+              (partVal.getChild(1).getText());
+    }
+    return partition.toString();
+  }
+
   private ParseNode buildDescTBLStmt(ASTNode tree) {
     String tblName = null;
     for (int i = 0; i < tree.getChildCount(); i++) {
@@ -251,6 +346,7 @@ public class SemanticAnalyzer extends BasicSemanticAnalyzer {
     String tableName = null;
     List<ColumnDefinition> colDefinitions = null;
     TableRowFormat tableRowFormat = null;
+    String fileFormat = null;
 
     for (int i = 0; i < tree.getChildCount(); i++) {
       ASTNode child = (ASTNode) tree.getChild(i);
@@ -258,6 +354,12 @@ public class SemanticAnalyzer extends BasicSemanticAnalyzer {
         case HiveParser.TOK_TABNAME:
           tableName = child.getChild(0).getText();
           continue;
+        case HiveParser.TOK_FILEFORMAT_GENERIC:
+          fileFormat = buildFileFormat(child);
+          continue;
+        case HiveParser.TOK_TABLEPROPERTIES:
+          createStmt.setProperties(buildTableProperties(child));
+          continue;
         case HiveParser.TOK_TABCOLLIST:
           colDefinitions = buildColDefinitions(child);
           continue;
@@ -276,10 +378,27 @@ public class SemanticAnalyzer extends BasicSemanticAnalyzer {
     createStmt.setColumnDefinitions(colDefinitions);
     createStmt.setTableName(tableName);
     createStmt.setTableRowFormat(tableRowFormat);
+    createStmt.setFileFormat(fileFormat);
 
     return createStmt;
   }
 
+  /**
+   * Get the file format of STORED AS clause.
+   * @param tree
+   * @return
+   * @throws SemanticException
+   */
+  private String buildFileFormat(ASTNode tree) throws SemanticException {
+    String fileFormat = tree.getChild(0).getText().toUpperCase();
+
+    if (!fileFormat.equals(ParserConstant.FILE_FORMAT_TEXTFILE) && !CreateStmt
+            .isColumnar(fileFormat))
+      throw new SemanticException("Unsupported file format: " + fileFormat);
+
+    return fileFormat;
+  }
+
   /**
    * Construct the table row format expression. Hive specific.
    *
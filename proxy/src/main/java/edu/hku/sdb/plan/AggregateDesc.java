@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.plan;
+
+/**
+ * An aggregation function computed by the proxy over a column of the
+ * decrypted rows.
+ */
+public class AggregateDesc {
+
+  public enum Function {
+    SUM, COUNT, MIN, MAX, AVG;
+
+    public String toString() {
+      return name().toLowerCase();
+    }
+
+    /**
+     * @return the function of a name, null if it is not supported
+     */
+    public static Function of(String name) {
+      for (Function function : values()) {
+        if (function.name().equalsIgnoreCase(name))
+          return function;
+      }
+      return null;
+    }
+  }
+
+  // Column the function is applied on, -1 for count(*).
+  public static final int STAR = -1;
+
+  private final Function function;
+  private final int input;
+
+  public AggregateDesc(Function function, int input) {
+    this.function = function;
+    this.input = input;
+  }
+
+  public Function getFunction() {
+    return function;
+  }
+
+  public int getInput() {
+    return input;
+  }
+
+  @Override
+  public String toString() {
+    return function + "(" + (input == STAR ? "*" : "#" + input) + ")";
+  }
+}
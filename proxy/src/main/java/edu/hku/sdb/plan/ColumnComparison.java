@@ -0,0 +1,142 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.plan;
+
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Compares two columns of a decrypted row, e.g. a.x < b.y evaluated by the
+ * proxy after a local join, or a column with a constant, e.g. sum(a.x) > 10
+ * in a having clause.
+ */
+public class ColumnComparison {
+
+  private final int left;
+  private final BinOperator op;
+  // -1 if the column is compared with the constant.
+  private final int right;
+  private final Object constant;
+
+  public ColumnComparison(int left, BinOperator op, int right) {
+    this(left, op, right, null);
+  }
+
+  private ColumnComparison(int left, BinOperator op, int right, Object
+          constant) {
+    this.left = left;
+    this.op = op;
+    this.right = right;
+    this.constant = constant;
+  }
+
+  public static ColumnComparison withConstant(int left, BinOperator op, Object
+          constant) {
+    return new ColumnComparison(left, op, -1, constant);
+  }
+
+  /**
+   * @return the operator comparing the operands the other way round, e.g. >
+   * for <
+   */
+  public static BinOperator flip(BinOperator op) {
+    switch (op) {
+      case LT:
+        return BinOperator.GT;
+      case LE:
+        return BinOperator.GE;
+      case GT:
+        return BinOperator.LT;
+      case GE:
+        return BinOperator.LE;
+      default:
+        return op;
+    }
+  }
+
+  public int getLeft() {
+    return left;
+  }
+
+  public BinOperator getOp() {
+    return op;
+  }
+
+  public int getRight() {
+    return right;
+  }
+
+  public Object getConstant() {
+    return constant;
+  }
+
+  /**
+   * @return false if either value is null, like SQL does
+   */
+  public boolean evaluate(List<Object> row) {
+    Object leftValue = row.get(left);
+    Object rightValue = right < 0 ? constant : row.get(right);
+    if (leftValue == null || rightValue == null)
+      return false;
+
+    int result = compare(leftValue, rightValue);
+    switch (op) {
+      case EQ:
+        return result == 0;
+      case NE:
+        return result != 0;
+      case LT:
+        return result < 0;
+      case LE:
+        return result <= 0;
+      case GT:
+        return result > 0;
+      case GE:
+        return result >= 0;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Numbers are compared by value whatever their class, e.g. a decrypted
+   * BigInteger with a plain Integer, anything else as strings.
+   */
+  public static int compare(Object a, Object b) {
+    BigDecimal x = toDecimal(a);
+    BigDecimal y = toDecimal(b);
+    if (x != null && y != null)
+      return x.compareTo(y);
+    return a.toString().compareTo(b.toString());
+  }
+
+  private static BigDecimal toDecimal(Object value) {
+    if (value instanceof BigDecimal)
+      return (BigDecimal) value;
+    if (value instanceof Number || value instanceof String) {
+      try {
+        return new BigDecimal(value.toString().trim());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+}
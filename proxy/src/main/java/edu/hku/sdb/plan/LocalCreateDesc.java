@@ -25,6 +25,33 @@ public class LocalCreateDesc extends PlanNodeDesc {
   private MetaStore metaStore;
   private String dbName;
   private String tableName;
+  private String fileFormat;
+  private String uploadCodec;
+  private String uploadSplitSize;
+
+  public String getUploadCodec() {
+    return uploadCodec;
+  }
+
+  public void setUploadCodec(String uploadCodec) {
+    this.uploadCodec = uploadCodec;
+  }
+
+  public String getUploadSplitSize() {
+    return uploadSplitSize;
+  }
+
+  public void setUploadSplitSize(String uploadSplitSize) {
+    this.uploadSplitSize = uploadSplitSize;
+  }
+
+  public String getFileFormat() {
+    return fileFormat;
+  }
+
+  public void setFileFormat(String fileFormat) {
+    this.fileFormat = fileFormat;
+  }
 
   public String getTableName() {
     return tableName;
@@ -17,6 +17,60 @@
 
 package edu.hku.sdb.plan;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 public class LocalGroupbyFilterDesc extends PlanNodeDesc {
 
+  public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+
+  // Columns of the input rows grouped by.
+  private int[] groupIndexes = new int[0];
+  private List<AggregateDesc> aggregates = new ArrayList<>();
+  // Filters of the having clause, on the output rows: the group by columns
+  // followed by the aggregates.
+  private List<ColumnComparison> havingFilters = new ArrayList<>();
+  private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+  private File spillDir = new File(System.getProperty("java.io.tmpdir"));
+
+  public int[] getGroupIndexes() {
+    return groupIndexes;
+  }
+
+  public void setGroupIndexes(int[] groupIndexes) {
+    this.groupIndexes = groupIndexes;
+  }
+
+  public List<AggregateDesc> getAggregates() {
+    return aggregates;
+  }
+
+  public void setAggregates(List<AggregateDesc> aggregates) {
+    this.aggregates = aggregates;
+  }
+
+  public List<ColumnComparison> getHavingFilters() {
+    return havingFilters;
+  }
+
+  public void setHavingFilters(List<ColumnComparison> havingFilters) {
+    this.havingFilters = havingFilters;
+  }
+
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  public void setMemoryLimit(long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  public File getSpillDir() {
+    return spillDir;
+  }
+
+  public void setSpillDir(File spillDir) {
+    this.spillDir = spillDir;
+  }
 }
@@ -17,6 +17,30 @@
 
 package edu.hku.sdb.plan;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class LocalJoinDesc extends PlanNodeDesc {
 
+  // Key columns of the probe rows, in the order of the key columns of the
+  // hash table.
+  private int[] probeKeyIndexes;
+  // Evaluated on the joined rows, e.g. non-equal conditions across tables.
+  private List<ColumnComparison> filters = new ArrayList<>();
+
+  public int[] getProbeKeyIndexes() {
+    return probeKeyIndexes;
+  }
+
+  public void setProbeKeyIndexes(int[] probeKeyIndexes) {
+    this.probeKeyIndexes = probeKeyIndexes;
+  }
+
+  public List<ColumnComparison> getFilters() {
+    return filters;
+  }
+
+  public void setFilters(List<ColumnComparison> filters) {
+    this.filters = filters;
+  }
 }
@@ -19,4 +19,14 @@ package edu.hku.sdb.plan;
 
 public class LocalProjDesc extends PlanNodeDesc {
 
+  // Columns of the child rows, in the order of the output.
+  private int[] columnIndexes;
+
+  public int[] getColumnIndexes() {
+    return columnIndexes;
+  }
+
+  public void setColumnIndexes(int[] columnIndexes) {
+    this.columnIndexes = columnIndexes;
+  }
 }
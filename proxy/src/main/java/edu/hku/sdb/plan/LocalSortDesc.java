@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.plan;
+
+import java.io.File;
+
+public class LocalSortDesc extends PlanNodeDesc {
+
+  public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+  // No limit on the number of rows.
+  public static final long NO_LIMIT = -1;
+
+  // Columns of the input rows sorted by, in order.
+  private int[] sortIndexes;
+  private boolean[] ascending;
+  private long limit = NO_LIMIT;
+  // Bytes the sorted rows may hold before they are spilled as sorted runs.
+  private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+  private File spillDir = new File(System.getProperty("java.io.tmpdir"));
+
+  public int[] getSortIndexes() {
+    return sortIndexes;
+  }
+
+  public void setSortIndexes(int[] sortIndexes) {
+    this.sortIndexes = sortIndexes;
+  }
+
+  public boolean[] getAscending() {
+    return ascending;
+  }
+
+  public void setAscending(boolean[] ascending) {
+    this.ascending = ascending;
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  public void setLimit(long limit) {
+    this.limit = limit;
+  }
+
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  public void setMemoryLimit(long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  public File getSpillDir() {
+    return spillDir;
+  }
+
+  public void setSpillDir(File spillDir) {
+    this.spillDir = spillDir;
+  }
+}
@@ -0,0 +1,111 @@
+package edu.hku.sdb.rewrite;
+
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.ScalarType;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.parse.ColumnDefinition;
+import edu.hku.sdb.parse.CreateStmt;
+import edu.hku.sdb.parse.ParseNode;
+import edu.hku.sdb.utility.ParserConstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites statements for the embedded H2 server. Queries are the same as
+ * for hive, only the hive specific parts of a CREATE statement are dropped.
+ */
+public class EmbeddedRewriter extends AbstractRewriter {
+
+  private static final Logger LOG = LoggerFactory
+          .getLogger(EmbeddedRewriter.class);
+
+  public EmbeddedRewriter(DBMeta dbMeta) {
+    super(dbMeta);
+  }
+
+  @Override
+  public void rewrite(ParseNode parseTree) throws RewriteException {
+    rewriteInternal(parseTree);
+  }
+
+  /**
+   * Internal rewrite function. All rewriting should be involved by this
+   * function.
+   *
+   * @param parseTree
+   * @return
+   */
+  protected void rewriteInternal(ParseNode parseTree)
+          throws RewriteException {
+    if (parseTree instanceof CreateStmt) {
+      rewriteCreateStmt((CreateStmt) parseTree);
+    }
+  }
+
+  protected void rewriteCreateStmt(CreateStmt createStmt) throws
+          RewriteException {
+    rewriteCreateFieldLists(createStmt.getColumnDefinitions());
+    // Rows are inserted by the uploader, so there is no row format.
+    createStmt.setTableRowFormat(null);
+    if (createStmt.getFileFormat() != null) {
+      LOG.warn("The embedded server manages its own storage format, ignore " +
+              "STORED AS " + createStmt.getFileFormat());
+      createStmt.setFileFormat(null);
+    }
+
+    Iterator<Map.Entry<String, String>> props = createStmt.getProperties()
+            .entrySet().iterator();
+    while (props.hasNext()) {
+      String key = props.next().getKey();
+      if (!key.startsWith(ParserConstant.SDB_PROPERTY_PREFIX)) {
+        LOG.warn("The embedded server has no table properties, ignore " + key);
+        props.remove();
+      }
+    }
+  }
+
+  private void rewriteCreateFieldLists(List<ColumnDefinition> fieldList) throws
+          UnSupportedException {
+
+    for (ColumnDefinition colDefinition : fieldList) {
+      if (colDefinition.involveEncrytedCol()) {
+        Type originType = colDefinition.getOriginType();
+
+        if (originType instanceof ScalarType) {
+          int index = fieldList.indexOf(colDefinition);
+          switch (((ScalarType) originType).getType()) {
+            case INT:
+            case BIGINT:
+            case TINYINT:
+            case DECIMAL:
+              colDefinition.setRewrittenType(ScalarType.createVarcharType
+                      (SDBEncrypt.defaultRandLength));
+              break;
+            case CHAR:
+            case VARCHAR:
+            case STRING:
+              String name = colDefinition.getName();
+              // No need to rewrite auxiliary columns.
+              if (name.equals(ColumnDefinition.ROW_ID_COLUMN_NAME) || name.equals
+                      (ColumnDefinition.R_COLUMN_NAME) ||
+                      name.equals(ColumnDefinition.S_COLUMN_NAME))
+                break;
+              // Search encrypted strings would need array columns.
+            default:
+              UnSupportedException e = new UnSupportedException("Can not " +
+                      "support sdb encryption for data type " + originType +
+                      " by the embedded server");
+              LOG.error("There is unsupported data type!", e);
+              throw e;
+          }
+          fieldList.set(index, colDefinition);
+        }
+      }
+    }
+  }
+}
@@ -18,10 +18,17 @@ public class HiveRewriter extends AbstractRewriter {
   private static final Logger LOG = LoggerFactory
           .getLogger(HiveRewriter.class);
 
+  // Fuse nested SDB UDF calls into sdb_eval.
+  private boolean fuseUdfs = false;
+
   public HiveRewriter(DBMeta dbMeta) {
     super(dbMeta);
   }
 
+  public void setFuseUdfs(boolean fuseUdfs) {
+    this.fuseUdfs = fuseUdfs;
+  }
+
   @Override
   public void rewrite(ParseNode parseTree) throws RewriteException {
     rewriteInternal(parseTree);
@@ -38,6 +45,8 @@ public class HiveRewriter extends AbstractRewriter {
           throws RewriteException {
     if (parseTree instanceof CreateStmt) {
       rewriteCreateStmt((CreateStmt) parseTree);
+    } else if (parseTree instanceof SelectStmt && fuseUdfs) {
+      new SdbEvalCompiler().compile((SelectStmt) parseTree);
     }
   }
 
@@ -45,6 +54,27 @@ public class HiveRewriter extends AbstractRewriter {
           RewriteException {
     rewriteCreateFieldLists(createStmt.getColumnDefinitions());
     rewriteCreateRowFormat(createStmt);
+    rewriteCreateFileFormat(createStmt);
+  }
+
+  /**
+   * Columnar tables are loaded through a delimited staging table with the
+   * same columns, since the uploader only writes delimited text. Their own row
+   * format is decided by the serde of the file format.
+   *
+   * @param createStmt
+   */
+  private void rewriteCreateFileFormat(CreateStmt createStmt) {
+    if (!createStmt.isColumnar())
+      return;
+
+    CreateStmt stagingStmt = new CreateStmt();
+    stagingStmt.setTableName(createStmt.getTableName() + ParserConstant
+            .STAGING_TABLE_SUFFIX);
+    stagingStmt.setColumnDefinitions(createStmt.getColumnDefinitions());
+    stagingStmt.setTableRowFormat(createStmt.getTableRowFormat());
+    createStmt.setStagingStmt(stagingStmt);
+    createStmt.setTableRowFormat(null);
   }
 
   private void rewriteCreateRowFormat(CreateStmt createStmt) {
@@ -47,6 +47,11 @@ public class ODPSRewriter extends AbstractRewriter {
           RewriteException {
     rewriteCreateFieldLists(createStmt.getColumnDefinitions());
     createStmt.setTableRowFormat(null);
+    if (createStmt.getFileFormat() != null) {
+      LOG.warn("ODPS manages its own storage format, ignore STORED AS " +
+              createStmt.getFileFormat());
+      createStmt.setFileFormat(null);
+    }
   }
 
   private void rewriteCreateFieldLists(List<ColumnDefinition> fieldList) throws
@@ -0,0 +1,155 @@
+package edu.hku.sdb.rewrite;
+
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.SdbArithmeticExpr.SdbOperator;
+import edu.hku.sdb.parse.SdbKeyUpdateExpr.SdbKeyUpOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fuses nested SDB arithmetic UDF calls into a single sdb_eval call, whose
+ * program is the postfix form of the expression. Constants are inlined into
+ * the program, and every other leaf becomes an argument, so that the server
+ * parses each column once and never formats the intermediate results.
+ */
+public class SdbEvalCompiler {
+
+  private static final Logger LOG = LoggerFactory
+          .getLogger(SdbEvalCompiler.class);
+
+  /**
+   * Fuse all chains of SDB UDFs in the select statement and its sub-queries.
+   *
+   * @param selStmt
+   */
+  public void compile(SelectStmt selStmt) {
+    for (TableRef tblRef : selStmt.getTableRefs()) {
+      if (tblRef instanceof InLineViewRef && ((InLineViewRef) tblRef)
+              .getQueryStmt() instanceof SelectStmt)
+        compile((SelectStmt) ((InLineViewRef) tblRef).getQueryStmt());
+    }
+
+    SelectionList selList = selStmt.getSelectList();
+    for (SelectionItem item : selList.getItemList())
+      compile(item);
+    compile(selList.getRowID());
+    compile(selList.getAuxiliaryR());
+    compile(selList.getAuxiliaryS());
+
+    if (selStmt.getWhereClause() != null)
+      selStmt.setWhereClause(compile(selStmt.getWhereClause()));
+
+    List<Expr> groupingExprs = selStmt.getGroupingExprs();
+    if (groupingExprs != null) {
+      for (int i = 0; i < groupingExprs.size(); i++)
+        groupingExprs.set(i, compile(groupingExprs.get(i)));
+    }
+
+    if (selStmt.getHavingExpr() != null)
+      selStmt.setHavingExpr(compile(selStmt.getHavingExpr()));
+  }
+
+  private void compile(SelectionItem item) {
+    if (item != null && item.getExpr() != null)
+      item.setExpr(compile(item.getExpr()));
+  }
+
+  /**
+   * @param expr
+   * @return the expr with every chain of at least two SDB UDFs replaced by a
+   * {@link SdbEvalExpr}
+   */
+  public Expr compile(Expr expr) {
+    if (isFusible(expr) && hasFusibleChild(expr)) {
+      Map<String, Integer> argumentIndexes = new HashMap<>();
+      List<Expr> arguments = new ArrayList<>();
+      List<String> tokens = new ArrayList<>();
+      buildProgram(expr, argumentIndexes, arguments, tokens);
+
+      StringBuilder program = new StringBuilder();
+      for (String token : tokens) {
+        if (program.length() > 0)
+          program.append(" ");
+        program.append(token);
+      }
+
+      SdbEvalExpr evalExpr = new SdbEvalExpr(program.toString());
+      evalExpr.addChildren(arguments);
+      evalExpr.setSdbColKey(expr.getSdbColKey());
+      evalExpr.setType(expr.getType());
+      evalExpr.setAlias(expr.getAlias());
+      evalExpr.setReferredByList(expr.getReferredByList());
+
+      LOG.debug("Fused " + expr.toSql() + " into " + evalExpr.toSql());
+      return evalExpr;
+    }
+
+    for (int i = 0; i < expr.getChildren().size(); i++)
+      expr.setChild(i, compile(expr.getChild(i)));
+    return expr;
+  }
+
+  private void buildProgram(Expr expr, Map<String, Integer> argumentIndexes,
+                            List<Expr> arguments, List<String> tokens) {
+    for (int i = 0; i < expr.getChildren().size(); i++) {
+      Expr child = expr.getChild(i);
+      if (isFusible(child))
+        buildProgram(child, argumentIndexes, arguments, tokens);
+      else if (child instanceof BigIntLiteral)
+        tokens.add("#" + ((BigIntLiteral) child).getValue().toString(Character
+                .MAX_RADIX));
+      else {
+        // The first argument of sdb_keyUpPlain is a plaintext integer.
+        boolean plain = i == 0 && expr instanceof SdbKeyUpdateExpr &&
+                ((SdbKeyUpdateExpr) expr).getOp() == SdbKeyUpOperator
+                        .SDB_KEYUP_PLAIN;
+        String prefix = plain ? "%" : "$";
+        // The same column is passed, and parsed, only once.
+        String key = prefix + child.toSql();
+        if (!argumentIndexes.containsKey(key)) {
+          argumentIndexes.put(key, arguments.size());
+          arguments.add(child);
+        }
+        tokens.add(prefix + argumentIndexes.get(key));
+      }
+    }
+    tokens.add(getOpToken(expr));
+  }
+
+  private boolean hasFusibleChild(Expr expr) {
+    for (Expr child : expr.getChildren()) {
+      if (isFusible(child))
+        return true;
+    }
+    return false;
+  }
+
+  private boolean isFusible(Expr expr) {
+    return getOpToken(expr) != null;
+  }
+
+  /**
+   * @return the program operator of an SDB UDF call, null if it cannot be
+   * fused.
+   */
+  private String getOpToken(Expr expr) {
+    int numChildren = expr.getChildren().size();
+    if (expr instanceof SdbArithmeticExpr && numChildren == 3) {
+      SdbOperator op = ((SdbArithmeticExpr) expr).getOp();
+      if (op == SdbOperator.SDB_ADD || op == SdbOperator.SDB_ADDROWID)
+        return "add";
+      if (op == SdbOperator.SDB_MUL)
+        return "mul";
+    } else if (expr instanceof SdbKeyUpdateExpr && numChildren == 5) {
+      return "keyup";
+    } else if (expr instanceof SdbCartesianExpr && numChildren == 4) {
+      return "cart";
+    }
+    return null;
+  }
+}
@@ -25,7 +25,9 @@ import edu.hku.sdb.crypto.SDBEncrypt;
 import edu.hku.sdb.crypto.SEException;
 import edu.hku.sdb.crypto.SEKey;
 import edu.hku.sdb.crypto.SearchEncrypt;
+import edu.hku.sdb.optimize.CostModel;
 import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.CompoundPredicate.CompoundOperator;
 import edu.hku.sdb.parse.SdbArithmeticExpr.SdbOperator;
 import edu.hku.sdb.parse.SdbKeyUpdateExpr.SdbKeyUpOperator;
 import edu.hku.sdb.utility.ParserConstant;
@@ -49,6 +51,10 @@ public class SdbSchemeRewriter extends SchemeDecorator {
   private static final Logger LOG = LoggerFactory
           .getLogger(SdbSchemeRewriter.class);
 
+  // Fraction of the rows a conjunct is assumed to reject at least, so that
+  // a conjunct rejecting nothing still gets a finite rank.
+  private static final double MIN_REJECTION = 1e-6;
+
   BigInteger prime1;
   BigInteger prime2;
   BigInteger n;
@@ -59,6 +65,8 @@ public class SdbSchemeRewriter extends SchemeDecorator {
   // TODO: we assume the names for all tables and inlineView are unique.
   private Map<String, SdbColumnKey> colKeyMap = new HashMap<>();
   private Map<String, String> aliasTblMap = new HashMap<>();
+  // Orders the conjuncts of the where clause.
+  private CostModel costModel;
 
   /**
    * @param dbMeta
@@ -72,6 +80,11 @@ public class SdbSchemeRewriter extends SchemeDecorator {
     g = new BigInteger(dbMeta.getG());
     K = new BigInteger(dbMeta.getK());
     totient = SDBEncrypt.evaluateTotient(prime1, prime2);
+    costModel = new CostModel(dbMeta);
+  }
+
+  public void setCostModel(CostModel costModel) {
+    this.costModel = costModel;
   }
 
   @Override
@@ -140,7 +153,8 @@ public class SdbSchemeRewriter extends SchemeDecorator {
     // Rewrite the where predicates.
 
 
-    selStmt.setWhereClause(rewriteWhereClause(selStmt.getWhereClause()));
+    selStmt.setWhereClause(rewriteWhereClause(selStmt.getWhereClause(),
+            selStmt.getTableRefs()));
 
     // Rewrite the selection items.
     rewriteSelList(selStmt.getSelectList());
@@ -798,6 +812,87 @@ public class SdbSchemeRewriter extends SchemeDecorator {
     rewriteSelStmt((SelectStmt) inlineView.getQueryStmt());
   }
 
+  /**
+   * Rewrite the where clause and order its conjuncts from the cheapest to the
+   * most expensive, since the server evaluates them from left to right and
+   * stops at the first false one. Plaintext conjuncts go first, then the
+   * others by ascending cost / (1 - selectivity). The cost is estimated from
+   * the SDB UDFs of the rewritten conjunct, the selectivity from the original
+   * conjunct and the statistics of the tables.
+   *
+   * @param whereClause
+   * @param tblRefs     the tables of the query
+   * @return
+   * @throws UnSupportedException
+   */
+  protected Expr rewriteWhereClause(Expr whereClause, List<TableRef> tblRefs)
+          throws UnSupportedException {
+    List<Expr> conjuncts = new ArrayList<>();
+    collectConjuncts(whereClause, conjuncts);
+    if (conjuncts.size() < 2)
+      return rewriteWhereClause(whereClause);
+
+    LOG.debug("Rewriting where clause " + whereClause.toSql());
+    // A where clause without encrypted columns is kept as it is.
+    boolean rewrite = whereClause.involveEncrytedCol();
+    List<RankedConjunct> ranked = new ArrayList<>();
+    for (Expr conjunct : conjuncts) {
+      boolean encrypted = conjunct.involveEncrytedCol();
+      double selectivity = costModel.selectivity(conjunct, tblRefs);
+      Expr rewritten = rewrite ? rewriteWhereClause(conjunct) : conjunct;
+      double cost = CostModel.PREDICATE_COST + costModel.serverExprCost
+              (rewritten);
+      ranked.add(new RankedConjunct(rewritten, encrypted, cost / Math.max(1 -
+              selectivity, MIN_REJECTION)));
+    }
+    // A stable sort keeps the order of the user for the ties.
+    Collections.sort(ranked);
+
+    Expr ordered = ranked.get(0).conjunct;
+    for (int i = 1; i < ranked.size(); i++) {
+      CompoundPredicate and = new CompoundPredicate(CompoundOperator.AND);
+      and.setLeftPred(ordered);
+      and.setRightPred(ranked.get(i).conjunct);
+      ordered = and;
+    }
+    return ordered;
+  }
+
+  /**
+   * A rewritten conjunct of the where clause and its rank.
+   */
+  private static class RankedConjunct implements Comparable<RankedConjunct> {
+    private final Expr conjunct;
+    private final boolean encrypted;
+    private final double rank;
+
+    private RankedConjunct(Expr conjunct, boolean encrypted, double rank) {
+      this.conjunct = conjunct;
+      this.encrypted = encrypted;
+      this.rank = rank;
+    }
+
+    @Override
+    public int compareTo(RankedConjunct other) {
+      if (encrypted != other.encrypted)
+        return encrypted ? 1 : -1;
+      return Double.compare(rank, other.rank);
+    }
+  }
+
+  /**
+   * Collect the operands of the ANDs at the top of an expression.
+   */
+  private static void collectConjuncts(Expr expr, List<Expr> conjuncts) {
+    if (expr instanceof CompoundPredicate && ((CompoundPredicate) expr).getOp()
+            == CompoundOperator.AND) {
+      collectConjuncts(((CompoundPredicate) expr).getLeftPred(), conjuncts);
+      collectConjuncts(((CompoundPredicate) expr).getRightPred(), conjuncts);
+    } else if (expr != null) {
+      conjuncts.add(expr);
+    }
+  }
+
   /**
    * TODO: We assume a single predicate involves columns only from the same table.
    *
@@ -0,0 +1,247 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.rewrite;
+
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.udf.util.SdbProgram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the SDB UDF calls, key updates and cartesian products in every
+ * expression of a rewritten query, so that EXPLAIN can show what the server
+ * will compute for each of them. The calls fused into sdb_eval are counted
+ * as key updates and cartesian products as well.
+ */
+public class SdbUdfSummary {
+
+  // Longest expression shown when an expression has no alias.
+  private static final int MAX_EXPR_LENGTH = 60;
+
+  /**
+   * The UDF calls of one expression.
+   */
+  public static class Entry {
+    private final String clause;
+    private final String expr;
+    private final Map<String, Integer> udfCalls = new TreeMap<>();
+    private int keyUpdates;
+    private int cartesians;
+
+    Entry(String clause, String expr) {
+      this.clause = clause;
+      this.expr = expr;
+    }
+
+    private void addCall(String udf) {
+      Integer count = udfCalls.get(udf);
+      udfCalls.put(udf, count == null ? 1 : count + 1);
+    }
+
+    public String getClause() {
+      return clause;
+    }
+
+    public String getExpr() {
+      return expr;
+    }
+
+    public Map<String, Integer> getUdfCalls() {
+      return udfCalls;
+    }
+
+    public int getNumUdfCalls() {
+      int num = 0;
+      for (int count : udfCalls.values())
+        num += count;
+      return num;
+    }
+
+    public int getKeyUpdates() {
+      return keyUpdates;
+    }
+
+    public int getCartesians() {
+      return cartesians;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(clause).append(" ").append(expr).append(":");
+      for (Map.Entry<String, Integer> call : udfCalls.entrySet())
+        sb.append(" ").append(call.getKey()).append(" x").append(call
+                .getValue());
+      sb.append(", keyUpdates=").append(keyUpdates).append(", cartesians=")
+              .append(cartesians);
+      return sb.toString();
+    }
+  }
+
+  private final List<Entry> entries = new ArrayList<>();
+
+  public SdbUdfSummary(QueryStmt stmt) {
+    addQuery(stmt, "");
+  }
+
+  /**
+   * @param stmts the rewritten queries of a query planned on the client, e.g.
+   *              one per table of a join. Their expressions are labeled by
+   *              their table if there are several.
+   */
+  public SdbUdfSummary(List<? extends QueryStmt> stmts) {
+    for (QueryStmt stmt : stmts)
+      addQuery(stmt, stmts.size() > 1 ? getPrefix(stmt) : "");
+  }
+
+  /**
+   * @return the expressions calling at least one SDB UDF
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  public int getNumUdfCalls() {
+    int num = 0;
+    for (Entry entry : entries)
+      num += entry.getNumUdfCalls();
+    return num;
+  }
+
+  public int getKeyUpdates() {
+    int num = 0;
+    for (Entry entry : entries)
+      num += entry.getKeyUpdates();
+    return num;
+  }
+
+  public int getCartesians() {
+    int num = 0;
+    for (Entry entry : entries)
+      num += entry.getCartesians();
+    return num;
+  }
+
+  /**
+   * @param expr a rewritten expression
+   * @return the UDF calls of the expression
+   */
+  public static Entry summarize(Expr expr) {
+    Entry entry = new Entry("", expr.toSql());
+    count(expr, entry);
+    return entry;
+  }
+
+  private static String getPrefix(QueryStmt stmt) {
+    if (!(stmt instanceof SelectStmt))
+      return "";
+    List<TableRef> tblRefs = ((SelectStmt) stmt).getTableRefs();
+    if (tblRefs == null || tblRefs.size() != 1)
+      return "";
+    TableRef tblRef = tblRefs.get(0);
+    String alias = tblRef.getAlias();
+    return (alias == null || alias.isEmpty() ? tblRef.getTblName() : alias) +
+            ".";
+  }
+
+  private void addQuery(QueryStmt stmt, String prefix) {
+    if (!(stmt instanceof SelectStmt))
+      return;
+    SelectStmt selStmt = (SelectStmt) stmt;
+
+    if (selStmt.getTableRefs() != null) {
+      for (TableRef tblRef : selStmt.getTableRefs()) {
+        if (tblRef instanceof InLineViewRef)
+          addQuery(((InLineViewRef) tblRef).getQueryStmt(), prefix + tblRef
+                  .getAlias() + ".");
+        addExpr(prefix + "join", tblRef.getOnClause(), null);
+      }
+    }
+
+    SelectionList selList = selStmt.getSelectList();
+    for (SelectionItem item : selList.getItemList())
+      addExpr(prefix + "select", item.getExpr(), item.getAlias());
+    addItem(prefix + "select", selList.getRowID());
+    addItem(prefix + "select", selList.getAuxiliaryR());
+    addItem(prefix + "select", selList.getAuxiliaryS());
+
+    addExpr(prefix + "where", selStmt.getWhereClause(), null);
+    if (selStmt.getGroupingExprs() != null) {
+      for (Expr expr : selStmt.getGroupingExprs())
+        addExpr(prefix + "group by", expr, null);
+    }
+    addExpr(prefix + "having", selStmt.getHavingExpr(), null);
+    if (selStmt.getOrderByElements() != null) {
+      for (OrderByElement element : selStmt.getOrderByElements())
+        addExpr(prefix + "order by", element.getExpr(), null);
+    }
+  }
+
+  private void addItem(String clause, SelectionItem item) {
+    if (item != null)
+      addExpr(clause, item.getExpr(), item.getAlias());
+  }
+
+  private void addExpr(String clause, Expr expr, String alias) {
+    if (expr == null)
+      return;
+
+    String label = alias;
+    if (label == null || label.isEmpty()) {
+      label = expr.toSql();
+      if (label.length() > MAX_EXPR_LENGTH)
+        label = label.substring(0, MAX_EXPR_LENGTH) + "...";
+    }
+    Entry entry = new Entry(clause, label);
+    count(expr, entry);
+    if (entry.getNumUdfCalls() > 0)
+      entries.add(entry);
+  }
+
+  private static void count(Expr expr, Entry entry) {
+    if (expr instanceof SdbKeyUpdateExpr) {
+      entry.addCall(((SdbKeyUpdateExpr) expr).getOp().toString());
+      entry.keyUpdates++;
+    } else if (expr instanceof SdbCartesianExpr) {
+      entry.addCall(((SdbCartesianExpr) expr).getOp());
+      entry.cartesians++;
+    } else if (expr instanceof SdbArithmeticExpr) {
+      entry.addCall(((SdbArithmeticExpr) expr).getOp().toString());
+    } else if (expr instanceof SdbComparisonExpr) {
+      entry.addCall(((SdbComparisonExpr) expr).getUdfName());
+    } else if (expr instanceof SdbLikeExpr) {
+      entry.addCall(((SdbLikeExpr) expr).getOp());
+    } else if (expr instanceof SdbEvalExpr) {
+      entry.addCall(((SdbEvalExpr) expr).getOp());
+      for (String token : ((SdbEvalExpr) expr).getProgram().split(" ")) {
+        if (token.equals(SdbProgram.OP_KEYUP))
+          entry.keyUpdates++;
+        else if (token.equals(SdbProgram.OP_CART))
+          entry.cartesians++;
+      }
+    }
+
+    if (expr.getChildren() != null) {
+      for (Expr child : expr.getChildren())
+        count(child, entry);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package edu.hku.sdb.upload;
+
+import edu.hku.sdb.catalog.MetaStore;
+import edu.hku.sdb.conf.EmbeddedServerConf;
+import edu.hku.sdb.conf.ServerConf;
+import edu.hku.sdb.utility.ProfileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Encrypts the source file and inserts its rows straight into the table of
+ * the embedded server, so there is no file for the server to load.
+ */
+public class EmbeddedUploader extends Uploader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EmbeddedUploader
+          .class);
+
+  // Number of rows inserted in a JDBC batch.
+  private static final int BATCH_SIZE = 1000;
+
+  public EmbeddedUploader(MetaStore metaStore, String tblName, ServerConf
+          serverConf) {
+    super(metaStore, tblName, serverConf);
+  }
+
+  @Override
+  public void upload() {
+    if (partition != null)
+      LOG.warn("The embedded server does not support partitions, ignore " +
+              partition);
+    if (codec != UploadCodec.NONE)
+      LOG.warn("The embedded server stores rows uncompressed, ignore codec " +
+              codec);
+
+    ProfileUtil profileUtil = new ProfileUtil();
+    UploadHandler uploadHandler = new UploadHandler(metaStore, tblName,
+            serverConf);
+    Connection connection = ((EmbeddedServerConf) serverConf).getConnection();
+    if (connection == null) {
+      LOG.error("Cannot connect to the embedded server!");
+      return;
+    }
+
+    try {
+      connection.setAutoCommit(false);
+      PreparedStatement insert = connection.prepareStatement(getInsertSql
+              (connection));
+      StatementFieldWriter fieldWriter = new StatementFieldWriter(insert);
+
+      BufferedReader bufferedReader = new BufferedReader(new FileReader
+              (sourceFilePath), 32768);
+      long numRows = 0;
+      String line;
+      while ((line = bufferedReader.readLine()) != null) {
+        uploadHandler.processLine(line, fieldWriter);
+        insert.addBatch();
+        if (++numRows % BATCH_SIZE == 0)
+          insert.executeBatch();
+      }
+      bufferedReader.close();
+
+      insert.executeBatch();
+      connection.commit();
+      insert.close();
+      uploadHandler.saveStats(false);
+      LOG.info("upload success! " + numRows + " records, time: " + profileUtil
+              .getDuration() + "ms");
+    } catch (SQLException | IOException e) {
+      e.printStackTrace();
+    } finally {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * @return an INSERT statement with a parameter for every column of the
+   * server table, including the auxiliary ones.
+   */
+  private String getInsertSql(Connection connection) throws SQLException {
+    Statement statement = connection.createStatement();
+    int numColumns = statement.executeQuery("SELECT * FROM " + tblName + " " +
+            "WHERE 1 = 0").getMetaData().getColumnCount();
+    statement.close();
+
+    StringBuilder sql = new StringBuilder("INSERT INTO " + tblName + " " +
+            "VALUES (");
+    for (int i = 0; i < numColumns; i++)
+      sql.append(i == 0 ? "?" : ", ?");
+    return sql.append(")").toString();
+  }
+
+  @Override
+  public String getServerFilePath() {
+    return null;
+  }
+
+  /**
+   * Binds the encrypted values to the parameters of the INSERT statement.
+   * The server converts them to the column types.
+   */
+  private static class StatementFieldWriter implements FieldWriter {
+
+    private PreparedStatement statement;
+
+    StatementFieldWriter(PreparedStatement statement) {
+      this.statement = statement;
+    }
+
+    @Override
+    public void writeField(int columnIndex, String value) {
+      try {
+        statement.setString(columnIndex + 1, value);
+      } catch (SQLException e) {
+        throw new RuntimeException("Cannot set column " + columnIndex + ": " +
+                e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package edu.hku.sdb.upload;
+
+/**
+ * Receives the encrypted column values of a line one by one, so that an
+ * uploader can fill its own record format without going through a delimited
+ * string.
+ */
+public interface FieldWriter {
+
+  /**
+   * @param columnIndex index of the column in the server table, 0 for the
+   *                    first column
+   * @param value       the (encrypted) value of the column
+   */
+  void writeField(int columnIndex, String value);
+}
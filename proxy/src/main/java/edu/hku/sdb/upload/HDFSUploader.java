@@ -7,7 +7,9 @@ import edu.hku.sdb.utility.ProfileUtil;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +20,10 @@ import java.util.Random;
 
 /**
  * Created by andy on 10/7/15.
+ *
+ * The encrypted data is written into a directory of part files, which is
+ * loaded as a whole by the server. With a non-splittable codec, a new part
+ * file is started every splitSize uncompressed bytes.
  */
 public class HDFSUploader extends Uploader {
 
@@ -27,6 +33,9 @@ public class HDFSUploader extends Uploader {
   private String HDFS_FILE_PATH;
   private boolean localMode;
   private FileSystem hdfs;
+  private Configuration configuration;
+  // Holds the statistics of the uploaded rows until the server loaded them.
+  private UploadHandler uploadHandler;
 
   public HDFSUploader(MetaStore metaStore, String tblName, ServerConf serverConf) {
     super(metaStore, tblName, serverConf);
@@ -47,34 +56,64 @@ public class HDFSUploader extends Uploader {
       System.exit(1);
     }
     String serverFilePath = hdfsURL + userDIR + "/" + tblName + new Random()
-            .nextInt(60000) + ".txt";
+            .nextInt(60000);
     HDFS_URL = hdfsURL ;
     HDFS_FILE_PATH = serverFilePath;
 
     LOG.info("Loading data from " + sourceFilePath + " to server " + HDFS_URL);
 
     ProfileUtil profileUtil = new ProfileUtil();
-    LOG.info("Upload time: " + profileUtil.getDuration());
-
-    BufferedWriter bufferedWriter = getHDFSBufferedWriter();
-    BufferedReader bufferedReader;
 
     UploadHandler uploadHandler = new UploadHandler(metaStore,tblName,serverConf);
 
     try {
-      bufferedReader = new BufferedReader(new FileReader(sourceFilePath), 32768);
+      hdfs = getHDFS();
+      Path dir = new Path(HDFS_FILE_PATH);
+      //Delete the directory if it already exists
+      if (hdfs.exists(dir)) {
+        hdfs.delete(dir, true);
+      }
+      hdfs.mkdirs(dir);
+
+      CompressionCodec compressionCodec = getCompressionCodec();
+      boolean rollFiles = compressionCodec != null && !codec.isSplittable();
+
+      BufferedReader bufferedReader = new BufferedReader(new FileReader
+              (sourceFilePath), 32768);
+      OutputStream outputStream = null;
+      int numFiles = 0;
+      long numRows = 0;
+      long rawBytes = 0;
+      long fileBytes = 0;
       String line;
       //Read and process plaintext line by line
       while ((line = bufferedReader.readLine()) != null) {
-        String newLine = uploadHandler.processLine(line);
-        bufferedWriter.write(newLine + "\n");
+        if (outputStream == null || (rollFiles && fileBytes >= splitSize)) {
+          if (outputStream != null)
+            outputStream.close();
+          outputStream = createPartFile(dir, numFiles++, compressionCodec);
+          fileBytes = 0;
+        }
+        byte[] newLine = (uploadHandler.processLine(line) + "\n").getBytes
+                ("UTF-8");
+        outputStream.write(newLine);
+        fileBytes += newLine.length;
+        rawBytes += newLine.length;
+        numRows++;
       }
 
       //close resources
       bufferedReader.close();
-      bufferedWriter.close();
+      if (outputStream != null)
+        outputStream.close();
+
+      this.uploadHandler = uploadHandler;
+
+      long storedBytes = hdfs.getContentSummary(dir).getLength();
+      logSummary(numRows, numFiles, rawBytes, storedBytes, profileUtil
+              .getDuration());
       hdfs.close();
-    } catch (IOException e) {
+    } catch (URISyntaxException | IOException e) {
       e.printStackTrace();
     }
 
@@ -85,12 +124,77 @@ public class HDFSUploader extends Uploader {
     return HDFS_FILE_PATH;
   }
 
+  @Override
+  public void saveStats() {
+    if (uploadHandler == null)
+      return;
+    // Overwriting a partition keeps the other partitions of the table.
+    uploadHandler.saveStats(overwrite && partition == null);
+    uploadHandler = null;
+  }
+
+  private void logSummary(long numRows, int numFiles, long rawBytes, long
+          storedBytes, long duration) {
+    double ratio = storedBytes == 0 ? 0 : (double) rawBytes / storedBytes;
+    double throughput = duration == 0 ? 0 : (rawBytes / 1024.0 / 1024.0) /
+            (duration / 1000.0);
+    LOG.info(String.format("Upload summary: %d rows in %d files, codec: %s, " +
+                    "encrypted size: %d bytes, stored size: %d bytes, " +
+                    "compression ratio: %.2f, time: %dms, throughput: %.2f MB/s",
+            numRows, numFiles, codec, rawBytes, storedBytes, ratio, duration,
+            throughput));
+  }
+
+  /**
+   * @return the codec to compress the part files, null if the data should be
+   * written uncompressed.
+   */
+  private CompressionCodec getCompressionCodec() {
+    if (codec.getCodecClassName() == null)
+      return null;
+
+    try {
+      Class<?> codecClass = configuration.getClassByName(codec
+              .getCodecClassName());
+      CompressionCodec compressionCodec = (CompressionCodec) ReflectionUtils
+              .newInstance(codecClass, configuration);
+      // Fail early if the codec relies on a native library that is missing.
+      compressionCodec.createCompressor();
+      return compressionCodec;
+    } catch (ClassNotFoundException | RuntimeException e) {
+      LOG.error("Codec " + codec + " is not available, uploading without " +
+              "compression: " + e.getMessage());
+      codec = UploadCodec.NONE;
+      return null;
+    }
+  }
+
   /**
-   * @return a buffered writer for target file in HDFS
+   * @return an output stream for the index-th part file in dir
    */
-  private BufferedWriter getHDFSBufferedWriter() {
-    BufferedWriter bufferedWriter = null;
-    Configuration configuration = new Configuration();
+  private OutputStream createPartFile(Path dir, int index, CompressionCodec
+          compressionCodec) throws IOException {
+    String extension = compressionCodec == null ? ".txt" : compressionCodec
+            .getDefaultExtension();
+    Path file = new Path(dir, String.format("part-%05d", index) + extension);
+
+    //Create file
+    OutputStream os = hdfs.create(file,
+            new Progressable() {
+              public void progress() {
+              }
+            });
+    if (compressionCodec != null)
+      os = compressionCodec.createOutputStream(os);
+
+    return new BufferedOutputStream(os, 32768);
+  }
+
+  /**
+   * @return the file system of the target HDFS
+   */
+  private FileSystem getHDFS() throws URISyntaxException, IOException {
+    configuration = new Configuration();
 
     HiveServerConf hiveServerConf = (HiveServerConf) serverConf;
 
@@ -99,24 +203,6 @@ public class HDFSUploader extends Uploader {
     if (localMode) {
       configuration.set("mapred.job.tracker", "local");
     }
-    try {
-      hdfs = FileSystem.get(new URI(HDFS_URL), configuration);
-      Path file = new Path(HDFS_FILE_PATH);
-      //Delete the file if it already exists
-      if (hdfs.exists(file)) {
-        hdfs.delete(file, true);
-      }
-      //Create file
-      OutputStream os = hdfs.create(file,
-              new Progressable() {
-                public void progress() {
-                }
-              });
-      bufferedWriter = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"),
-              32768);
-    } catch (URISyntaxException | IOException e) {
-      e.printStackTrace();
-    }
-    return bufferedWriter;
+    return FileSystem.get(new URI(HDFS_URL), configuration);
   }
 }
@@ -14,28 +14,44 @@ import com.aliyun.odps.tunnel.TunnelException;
 import edu.hku.sdb.catalog.MetaStore;
 import edu.hku.sdb.conf.ODPSServerConf;
 import edu.hku.sdb.conf.ServerConf;
-import edu.hku.sdb.utility.ParserConstant;
+import edu.hku.sdb.utility.ProfileUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by andy on 10/7/15.
+ *
+ * Every worker encrypts lines into its own tunnel block, and all blocks are
+ * committed together once the whole file is written.
  */
 public class ODPSUploader extends Uploader {
 
   private static final Logger LOG = LoggerFactory.getLogger(ODPSUploader.class);
 
+  // Number of lines handed to a worker at a time.
+  private static final int BATCH_SIZE = 1000;
+
   private String accessId;
   private String accessKey;
   private String tunnelUrl;
   private String odpsUrl;
   private String project;
-  private String partition;
+  private int numBlocks;
 
 
   public ODPSUploader(MetaStore metaStore, String tblName, ServerConf serverConf) {
@@ -48,6 +64,7 @@ public class ODPSUploader extends Uploader {
     odpsUrl = odpsServerConf.getOdpsURL();
     project = odpsServerConf.getProject();
     tunnelUrl = odpsServerConf.getTunnelURL();
+    numBlocks = Math.max(1, odpsServerConf.getUploadThreads());
   }
 
   @Override
@@ -56,7 +73,9 @@ public class ODPSUploader extends Uploader {
     Odps odps = new Odps(account);
     odps.setEndpoint(odpsUrl);
     odps.setDefaultProject(project);
+    ExecutorService workers = Executors.newFixedThreadPool(numBlocks);
     try {
+      ProfileUtil profileUtil = new ProfileUtil();
       TableTunnel tunnel = new TableTunnel(odps);
       tunnel.setEndpoint(tunnelUrl);
       PartitionSpec partitionSpec;
@@ -74,66 +93,174 @@ public class ODPSUploader extends Uploader {
       System.out.println("Session Status is : "
               + uploadSession.getStatus().toString());
 
-      TableSchema schema = uploadSession.getSchema();
-      RecordWriter recordWriter = uploadSession.openRecordWriter(0);
       UploadHandler uploadHandler = new UploadHandler(metaStore, tblName,
               serverConf);
 
+      BlockingQueue<List<String>> batches = new ArrayBlockingQueue<>(2 *
+              numBlocks);
+      // The tunnel only compresses its transfer with deflate.
+      boolean compress = codec != UploadCodec.NONE;
+      if (compress && codec != UploadCodec.GZIP)
+        LOG.warn("ODPS tunnel does not support " + codec + ", use deflate " +
+                "instead");
+      List<Future<Long>> blockWriters = new ArrayList<>();
+      Long[] blockIds = new Long[numBlocks];
+      for (int i = 0; i < numBlocks; i++) {
+        blockIds[i] = (long) i;
+        blockWriters.add(workers.submit(new BlockWriter(uploadSession,
+                blockIds[i], compress, uploadHandler, batches)));
+      }
 
       BufferedReader bufferedReader = new BufferedReader(new FileReader
               (sourceFilePath), 32768);
       String line;
-      int numCol = schema.getColumns().size();
-      Record record = uploadSession.newRecord();
-      //Read and process plaintext line by line
+      List<String> batch = new ArrayList<>(BATCH_SIZE);
+      //Read plaintext line by line, and dispatch them to workers in batch
       while ((line = bufferedReader.readLine()) != null) {
-        String newLine = uploadHandler.processLine(line);
-        String[] columns = newLine.split(ParserConstant.DEFAULT_FIELD_DELIMETER);
-
-        for (int i = 0; i < numCol; i++) {
-          Column column = schema.getColumn(i);
-          switch (column.getType()) {
-            case BIGINT:
-              record.setBigint(i, Long.valueOf(columns[i]));
-              break;
-            case BOOLEAN:
-              record.setBoolean(i, Boolean.valueOf(columns[i]));
-              break;
-            case DATETIME:
-              record.setDatetime(i, new Date(columns[i]));
-              break;
-            case DOUBLE:
-              record.setDouble(i, Double.valueOf(columns[i]));
-              break;
-            case STRING:
-              record.setString(i, columns[i]);
-              break;
-            default:
-              throw new RuntimeException("Unknown column type: "
-                      + column.getType());
-          }
+        batch.add(line);
+        if (batch.size() == BATCH_SIZE) {
+          putBatch(batches, batch, blockWriters);
+          batch = new ArrayList<>(BATCH_SIZE);
         }
-        recordWriter.write(record);
       }
-
-      //close resources
+      if (batch.size() > 0)
+        putBatch(batches, batch, blockWriters);
       bufferedReader.close();
-      recordWriter.close();
 
-      uploadSession.commit(new Long[]{0L});
-      LOG.info("upload success!");
+      // An empty batch tells a worker there is no more line.
+      for (int i = 0; i < numBlocks; i++)
+        putBatch(batches, new ArrayList<String>(), blockWriters);
+
+      long numRecords = 0;
+      for (Future<Long> blockWriter : blockWriters)
+        numRecords += blockWriter.get();
+
+      uploadSession.commit(blockIds);
+      uploadHandler.saveStats(false);
+      LOG.info("upload success! " + numRecords + " records in " + numBlocks +
+              " blocks, time: " + profileUtil.getDuration() + "ms");
     } catch (TunnelException e) {
       e.printStackTrace();
     } catch (IOException e) {
       e.printStackTrace();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    } catch (ExecutionException e) {
+      LOG.error("Failed to write tunnel block: " + e.getCause());
+      e.printStackTrace();
+    } finally {
+      workers.shutdownNow();
     }
 
   }
 
+  /**
+   * Hand a batch to the workers. Give up if any of the workers has finished
+   * before the end of input, which means it has failed, otherwise the reader
+   * would block forever on a full queue.
+   */
+  private void putBatch(BlockingQueue<List<String>> batches, List<String>
+          batch, List<Future<Long>> blockWriters) throws InterruptedException,
+          ExecutionException {
+    while (!batches.offer(batch, 1, TimeUnit.SECONDS)) {
+      for (Future<Long> blockWriter : blockWriters) {
+        if (blockWriter.isDone())
+          blockWriter.get();
+      }
+    }
+  }
 
   @Override
   public String getServerFilePath() {
     return null;
   }
 
+  /**
+   * Encrypts batches of lines and writes them into one tunnel block.
+   */
+  private static class BlockWriter implements Callable<Long> {
+
+    private UploadSession uploadSession;
+    private long blockId;
+    private boolean compress;
+    private UploadHandler uploadHandler;
+    private BlockingQueue<List<String>> batches;
+
+    BlockWriter(UploadSession uploadSession, long blockId, boolean compress,
+                UploadHandler uploadHandler, BlockingQueue<List<String>>
+                        batches) {
+      this.uploadSession = uploadSession;
+      this.blockId = blockId;
+      this.compress = compress;
+      this.uploadHandler = uploadHandler;
+      this.batches = batches;
+    }
+
+    @Override
+    public Long call() throws Exception {
+      RecordWriter recordWriter = uploadSession.openRecordWriter(blockId,
+              compress);
+      RecordFieldWriter fieldWriter = new RecordFieldWriter(uploadSession
+              .newRecord(), uploadSession.getSchema());
+      long numRecords = 0;
+
+      try {
+        List<String> batch;
+        while (!(batch = batches.take()).isEmpty()) {
+          for (String line : batch) {
+            uploadHandler.processLine(line, fieldWriter);
+            recordWriter.write(fieldWriter.record);
+            numRecords++;
+          }
+        }
+      } finally {
+        recordWriter.close();
+      }
+
+      LOG.debug("Block " + blockId + " finished with " + numRecords + " " +
+              "records");
+      return numRecords;
+    }
+  }
+
+  /**
+   * Sets the encrypted values into a record according to the column types
+   * of the table.
+   */
+  private static class RecordFieldWriter implements FieldWriter {
+
+    private Record record;
+    private TableSchema schema;
+
+    RecordFieldWriter(Record record, TableSchema schema) {
+      this.record = record;
+      this.schema = schema;
+    }
+
+    @Override
+    public void writeField(int columnIndex, String value) {
+      Column column = schema.getColumn(columnIndex);
+      switch (column.getType()) {
+        case BIGINT:
+          record.setBigint(columnIndex, Long.valueOf(value));
+          break;
+        case BOOLEAN:
+          record.setBoolean(columnIndex, Boolean.valueOf(value));
+          break;
+        case DATETIME:
+          record.setDatetime(columnIndex, new Date(value));
+          break;
+        case DOUBLE:
+          record.setDouble(columnIndex, Double.valueOf(value));
+          break;
+        case STRING:
+          record.setString(columnIndex, value);
+          break;
+        default:
+          throw new RuntimeException("Unknown column type: "
+                  + column.getType());
+      }
+    }
+  }
+
 }
@@ -0,0 +1,42 @@
+package edu.hku.sdb.upload;
+
+/**
+ * Compression codecs for uploaded data, set by the "sdb.upload.codec"
+ * property of a table or a LOAD statement.
+ */
+public enum UploadCodec {
+
+  NONE(null, true),
+  GZIP("org.apache.hadoop.io.compress.GzipCodec", false),
+  SNAPPY("org.apache.hadoop.io.compress.SnappyCodec", false),
+  LZ4("org.apache.hadoop.io.compress.Lz4Codec", false),
+  BZIP2("org.apache.hadoop.io.compress.BZip2Codec", true),
+  // Only shipped by newer hadoop releases.
+  ZSTD("org.apache.hadoop.io.compress.ZStandardCodec", false);
+
+  private final String codecClassName;
+  private final boolean splittable;
+
+  UploadCodec(String codecClassName, boolean splittable) {
+    this.codecClassName = codecClassName;
+    this.splittable = splittable;
+  }
+
+  public String getCodecClassName() {
+    return codecClassName;
+  }
+
+  /**
+   * @return true if the server can split a single compressed file, otherwise
+   * the uploader should keep each file around a split in size.
+   */
+  public boolean isSplittable() {
+    return splittable;
+  }
+
+  public static UploadCodec fromName(String name) {
+    if (name == null)
+      return NONE;
+    return valueOf(name.trim().toUpperCase());
+  }
+}
@@ -26,6 +26,7 @@ import edu.hku.sdb.connect.JDBCResultSet;
 import edu.hku.sdb.crypto.SDBEncrypt;
 import edu.hku.sdb.crypto.SearchEncrypt;
 import edu.hku.sdb.parse.ColumnDefinition;
+import edu.hku.sdb.metrics.SdbMetrics;
 import edu.hku.sdb.utility.ParserConstant;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.hadoop.conf.Configuration;
@@ -47,6 +48,10 @@ import java.util.List;
  * 1. Read plaintext line by line
  * 2. For every line, generate row-id, encrypt sensitive integer columns with row-id.
  * 3. Upload file to HDFS.
+ *
+ * The statistics of the plaintext columns are collected along the way, and
+ * saved into the meta store by {@link #saveStats(boolean)} once the table
+ * holds the rows.
  */
 public class UploadHandler {
 
@@ -67,14 +72,21 @@ public class UploadHandler {
 
   private SearchEncrypt searchEncrypt;
 
+  private MetaStore metaStore;
+  private String tableName;
+  private TableStats tableStats;
+
   //List<ColumnMeta> allCols;
 
   public UploadHandler(MetaStore metaStore, String tableName, ServerConf
           serverConf) {
     searchEncrypt = SearchEncrypt.getInstance();
+    this.metaStore = metaStore;
+    this.tableName = tableName;
 
     switch (serverConf.getType()) {
       case HIVE:
+      case EMBEDDED:
         dbName = ((JDBCServerConf) serverConf).getDatabaseName();
         break;
       case ODPS:
@@ -105,12 +117,34 @@ public class UploadHandler {
       else
         trueValueColMetas.add(colMeta);
     }
+    tableStats = new TableStats(trueValueColMetas);
   }
 
   public String processLine(String line) {
+    final StringBuffer newLine = new StringBuffer();
+
+    processLine(line, new FieldWriter() {
+      @Override
+      public void writeField(int columnIndex, String value) {
+        appendColumnString(newLine, columnIndex, value);
+      }
+    });
+    return newLine.toString();
+  }
+
+  /**
+   * Encrypt a plaintext line and hand every column value to the writer, in
+   * the column order of the server table.
+   *
+   * @param line
+   * @param writer
+   */
+  public void processLine(String line, FieldWriter writer) {
+    SdbMetrics.UPLOAD_ROWS.inc();
+    SdbMetrics.UPLOAD_CHARS.add(line.length() + 1);
 
-    StringBuffer newLine = new StringBuffer();
     String[] columnValues = line.split(rowFormat);
+    tableStats.addRow(columnValues);
 
     //80 bit long rowId is sufficient
     BigInteger rowId = SDBEncrypt.generatePositiveRandShort(prime1, prime2);
@@ -132,9 +166,9 @@ public class UploadHandler {
               SdbColumnKey colKey = new SdbColumnKey(colMeta.getM(), colMeta.getX());
               String encryptedValue = getSDBEncryptedValue(new BigInteger(plaintext),
                       rowId, colKey);
-              newLine = appendColumnString(newLine, columnIndex, encryptedValue);
+              writer.writeField(columnIndex, encryptedValue);
             } else {
-              newLine = appendColumnString(newLine, columnIndex, plaintext);
+              writer.writeField(columnIndex, plaintext);
             }
             break;
           case DECIMAL:
@@ -146,9 +180,9 @@ public class UploadHandler {
               long valueL = (long) (valueF * Math.pow(10, scale));
               String encryptedValue = getSDBEncryptedValue(new BigInteger(String
                       .valueOf(valueL)), rowId, colKey);
-              newLine = appendColumnString(newLine, columnIndex, encryptedValue);
+              writer.writeField(columnIndex, encryptedValue);
             } else
-              newLine = appendColumnString(newLine, columnIndex, plaintext);
+              writer.writeField(columnIndex, plaintext);
             break;
           case CHAR:
           case VARCHAR:
@@ -156,33 +190,36 @@ public class UploadHandler {
             if (colMeta.isSensitive()) {
               SearchColumnKey searchColKey = new SearchColumnKey(colMeta.getM(),
                       colMeta.getX());
-              searchEncrypt.prkey = searchColKey.getPubKey();
               // We only count letters and numbers as keyword.
               String[] parts = plaintext.split("[^a-zA-Z0-9]+");
               StringBuilder encryptedValues = new StringBuilder();
               int count = 0;
-              for (int i = 0; i < parts.length; i++) {
-                if (parts[i].length() > 2) { // keyword with at least 3 chars
-                  if (count > 0) {
-                    encryptedValues.append(ParserConstant
-                            .DEFAULT_COLLETION_DELIMETER);
+              // The prf key lives in the shared SearchEncrypt instance.
+              synchronized (searchEncrypt) {
+                searchEncrypt.prkey = searchColKey.getPubKey();
+                for (int i = 0; i < parts.length; i++) {
+                  if (parts[i].length() > 2) { // keyword with at least 3 chars
+                    if (count > 0) {
+                      encryptedValues.append(ParserConstant
+                              .DEFAULT_COLLETION_DELIMETER);
+                    }
+                    encryptedValues.append(Base64.encodeBase64String(searchEncrypt
+                            .encrypt(
+                                    searchColKey.getPriKey(), count, parts[i])).trim());
+                    count++;
+                  } else {
+                    LOG.warn("There is sensitive string with length less than 3.");
                   }
-                  encryptedValues.append(Base64.encodeBase64String(searchEncrypt
-                          .encrypt(
-                                  searchColKey.getPriKey(), count, parts[i])).trim());
-                  count++;
-                } else {
-                  LOG.warn("There is sensitive string with length less than 3.");
                 }
               }
-              newLine = appendColumnString(newLine, columnIndex, encryptedValues);
+              writer.writeField(columnIndex, encryptedValues.toString());
             } else {
-              newLine = appendColumnString(newLine, columnIndex, plaintext);
+              writer.writeField(columnIndex, plaintext);
             }
             break;
           default:
             // They should not be sensitive, since we have do the checking before.
-            newLine = appendColumnString(newLine, columnIndex, plaintext);
+            writer.writeField(columnIndex, plaintext);
             break;
         }
       } else {
@@ -190,26 +227,44 @@ public class UploadHandler {
       }
     }
 
+    // Auxiliary columns are placed after all true value columns.
+    int numTrueValueCols = trueValueColMetas.size();
     for (int columnIndex = 0; columnIndex < auxiliaryColMetas.size(); columnIndex++) {
       ColumnMeta colMeta = auxiliaryColMetas.get(columnIndex);
       if (colMeta.getColName().equals(ColumnDefinition.ROW_ID_COLUMN_NAME)) {
         SdbColumnKey colKey = new SdbColumnKey(colMeta.getM(), colMeta.getX());
         BigInteger encryptedR = SDBEncrypt.SIESEncrypt(rowId, colKey.getM(),
                 colKey.getX(), n);
-        newLine = appendColumnString(newLine, columnValues.length, SDBEncrypt
+        writer.writeField(numTrueValueCols + columnIndex, SDBEncrypt
                 .getSecureString(encryptedR));
       } else if (colMeta.getColName().equals(ColumnDefinition.R_COLUMN_NAME)) {
         BigInteger randomInt = SDBEncrypt.generatePositiveRandShort(prime1, prime2);
         SdbColumnKey colKey = new SdbColumnKey(colMeta.getM(), colMeta.getX());
         String encryptedR = getSDBEncryptedValue(randomInt, rowId, colKey);
-        newLine = appendColumnString(newLine, columnIndex, encryptedR);
+        writer.writeField(numTrueValueCols + columnIndex, encryptedR);
       } else if (colMeta.getColName().equals(ColumnDefinition.S_COLUMN_NAME)) {
         SdbColumnKey colKey = new SdbColumnKey(colMeta.getM(), colMeta.getX());
         String encryptedS = getSDBEncryptedValue(new BigInteger("1"), rowId, colKey);
-        newLine = appendColumnString(newLine, columnIndex, encryptedS);
+        writer.writeField(numTrueValueCols + columnIndex, encryptedS);
       }
     }
-    return newLine.toString();
+  }
+
+  /**
+   * Merge the statistics of the lines processed into the ones of the table.
+   *
+   * @param overwrite whether the lines replaced the rows of the table, whose
+   *                  statistics are dropped then
+   */
+  public void saveStats(boolean overwrite) {
+    tableStats.finish();
+    metaStore.updateStats(dbName, tableName, tableStats, overwrite);
+    LOG.info("Updated the statistics of " + tableName + " with " +
+            tableStats.getNumRows() + " rows");
+  }
+
+  public TableStats getTableStats() {
+    return tableStats;
   }
 
   /**
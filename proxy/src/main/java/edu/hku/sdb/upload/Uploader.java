@@ -14,6 +14,16 @@ public abstract class Uploader {
   protected ServerConf serverConf;
   protected SearchEncrypt searchEncrypt;
   protected String sourceFilePath;
+  // Target partition spec, e.g. "ds='2015-10-01'", null if not partitioned.
+  protected String partition;
+  protected UploadCodec codec = UploadCodec.NONE;
+  // Uncompressed bytes per uploaded file, so that non-splittable compressed
+  // files still give the server enough splits.
+  protected long splitSize = DEFAULT_SPLIT_SIZE;
+  // Whether the server replaces the rows of the table by the uploaded ones.
+  protected boolean overwrite;
+
+  public static final long DEFAULT_SPLIT_SIZE = 128L * 1024 * 1024;
 
   public Uploader(MetaStore metaStore, String tblName, ServerConf serverConf) {
     this.metaStore = metaStore;
@@ -28,5 +38,29 @@ public abstract class Uploader {
     this.sourceFilePath = sourceFilePath;
   }
 
+  public void setPartition(String partition) {
+    this.partition = partition;
+  }
+
+  public void setCodec(UploadCodec codec) {
+    this.codec = codec;
+  }
+
+  public void setSplitSize(long splitSize) {
+    this.splitSize = splitSize;
+  }
+
+  public void setOverwrite(boolean overwrite) {
+    this.overwrite = overwrite;
+  }
+
   public abstract String getServerFilePath();
+
+  /**
+   * Save the statistics of the uploaded rows once the server has loaded the
+   * file at {@link #getServerFilePath()}. Uploaders writing straight into the
+   * table save them at the end of {@link #upload()}.
+   */
+  public void saveStats() {
+  }
 }
@@ -16,6 +16,8 @@ public class UploaderFactory {
       case ODPS:
         ODPSUploader odpsUploader = new ODPSUploader(metaStore, tblName, serverConf);
         return odpsUploader;
+      case EMBEDDED:
+        return new EmbeddedUploader(metaStore, tblName, serverConf);
     }
 
     return null;
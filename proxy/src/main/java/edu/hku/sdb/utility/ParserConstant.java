@@ -25,4 +25,16 @@ public class ParserConstant {
 
   public static String DEFAULT_FIELD_DELIMETER = ";";
   public static String DEFAULT_COLLETION_DELIMETER = ",";
+
+  public static String FILE_FORMAT_TEXTFILE = "TEXTFILE";
+  public static String FILE_FORMAT_ORC = "ORC";
+  public static String FILE_FORMAT_PARQUET = "PARQUET";
+
+  // Columnar tables are loaded through a delimited staging table.
+  public static String STAGING_TABLE_SUFFIX = "_sdb_staging";
+
+  // Properties with this prefix are handled by sdb and not sent to server.
+  public static String SDB_PROPERTY_PREFIX = "sdb.";
+  public static String UPLOAD_CODEC_PROPERTY = "sdb.upload.codec";
+  public static String UPLOAD_SPLIT_SIZE_PROPERTY = "sdb.upload.split.size";
 }
@@ -0,0 +1,97 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue for many producers and a single consumer.
+ * Producers never block: {@link #offer} fails instead if the buffer is full.
+ */
+public class RingBuffer<E> {
+
+  private final AtomicReferenceArray<E> slots;
+  private final int mask;
+  // Next sequence claimed by a producer.
+  private final AtomicLong tail = new AtomicLong();
+  // Next sequence read by the consumer, only written by the consumer.
+  private volatile long head;
+
+  /**
+   * @param capacity rounded up to a power of two
+   */
+  public RingBuffer(int capacity) {
+    if (capacity <= 0 || capacity > (1 << 30))
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity)
+      size <<= 1;
+    slots = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  /**
+   * @param element not null
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element) {
+    if (element == null)
+      throw new NullPointerException();
+    while (true) {
+      long sequence = tail.get();
+      if (sequence - head >= slots.length())
+        return false;
+      if (tail.compareAndSet(sequence, sequence + 1)) {
+        // The slot has been cleared by the consumer before it moved the head
+        // past it.
+        slots.lazySet((int) sequence & mask, element);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Must only be called by the consumer thread.
+   *
+   * @return the oldest element, null if the buffer is empty or the oldest
+   * element is not published yet
+   */
+  public E poll() {
+    long sequence = head;
+    int index = (int) sequence & mask;
+    E element = slots.get(index);
+    if (element == null)
+      return null;
+    slots.lazySet(index, null);
+    head = sequence + 1;
+    return element;
+  }
+
+  public int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public int capacity() {
+    return slots.length();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.catalog;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ColumnStatsTest {
+
+  private static ColumnStats collect(int from, int to) {
+    ColumnStats stats = new ColumnStats(Type.INT);
+    for (int i = from; i < to; i++)
+      stats.add(String.valueOf(i));
+    stats.finish();
+    return stats;
+  }
+
+  @Test
+  public void testHyperLogLog() {
+    HyperLogLog small = new HyperLogLog();
+    for (int i = 0; i < 100; i++)
+      small.add("v" + (i % 10));
+    assertEquals(10, small.estimate());
+
+    HyperLogLog large = new HyperLogLog();
+    for (int i = 0; i < 100000; i++)
+      large.add(String.valueOf(i));
+    assertEquals(100000, large.estimate(), 100000 * 0.05);
+
+    HyperLogLog other = new HyperLogLog();
+    for (int i = 50000; i < 150000; i++)
+      other.add(String.valueOf(i));
+    large.merge(other);
+    assertEquals(150000, HyperLogLog.fromBytes(large.toBytes()).estimate(),
+            150000 * 0.05);
+  }
+
+  @Test
+  public void testHistogram() {
+    EquiDepthHistogram histogram = EquiDepthHistogram.parse("0.0,10.0,10.0," +
+            "100.0");
+    assertEquals(0, histogram.cumulative(-1), 0);
+    assertEquals(1.0 / 6, histogram.cumulative(5), 1e-9);
+    // The value repeated in a whole bucket.
+    assertEquals(2.0 / 3, histogram.cumulative(10), 1e-9);
+    assertEquals(1, histogram.cumulative(100), 0);
+    assertEquals(histogram, EquiDepthHistogram.parse(histogram.toString()));
+
+    // Merged with a histogram of as many values above 100.
+    EquiDepthHistogram merged = EquiDepthHistogram.merge(histogram, 100,
+            EquiDepthHistogram.parse("100.0,200.0,300.0,400.0"), 100);
+    assertEquals(0, merged.getBounds()[0], 0);
+    assertEquals(400, merged.getBounds()[3], 0);
+    assertEquals(0.5, merged.cumulative(100), 0.1);
+  }
+
+  @Test
+  public void testCollect() {
+    ColumnStats stats = new ColumnStats(Type.INT);
+    for (String value : Arrays.asList("3", "1", "", "\\N", "2", "3"))
+      stats.add(value);
+    stats.finish();
+
+    assertEquals(6, stats.getNumRows());
+    assertEquals(2, stats.getNumNulls());
+    assertEquals(3, stats.getNumDistinct());
+    assertEquals(1.0, stats.getMin(), 0);
+    assertEquals(3.0, stats.getMax(), 0);
+    assertEquals(4.0 / 6 / 3, stats.fractionEqual(), 1e-9);
+    assertEquals(4.0 / 6, stats.fractionBelow(3), 1e-9);
+  }
+
+  @Test
+  public void testUniform() {
+    ColumnStats stats = collect(0, 100000);
+    assertEquals(0.25, stats.fractionBelow(25000), 0.02);
+    assertEquals(100000, stats.getNumDistinct(), 100000 * 0.05);
+  }
+
+  @Test
+  public void testSaveAndMerge() {
+    ColumnMeta colMeta = new ColumnMeta("db", "t", "a", Type.INT.toString(),
+            true, "1", "2");
+    collect(0, 1000).save(colMeta);
+
+    ColumnStats merged = ColumnStats.load(colMeta, 1000).merge(collect(1000,
+            3000));
+    assertEquals(3000, merged.getNumRows());
+    assertEquals(0.0, merged.getMin(), 0);
+    assertEquals(2999.0, merged.getMax(), 0);
+    assertEquals(3000, merged.getNumDistinct(), 3000 * 0.05);
+    assertEquals(1.0 / 3, merged.fractionBelow(1000), 0.05);
+  }
+
+  @Test
+  public void testTableStats() {
+    ColumnMeta id = new ColumnMeta("db", "t", "id", Type.INT.toString(),
+            false, null, null);
+    ColumnMeta name = new ColumnMeta("db", "t", "name", Type.STRING.toString(),
+            false, null, null);
+    TableStats stats = new TableStats(Arrays.asList(id, name));
+    stats.addRow(new String[]{"1", "abc"});
+    stats.addRow(new String[]{"2"});
+    stats.finish();
+
+    assertEquals(2, stats.getNumRows());
+    assertEquals(1, stats.getColumn("name").getNumNulls());
+    assertNull(stats.getColumn("name").getMin());
+    assertNull(stats.getColumn("name").getHistogram());
+    assertEquals(2.0, stats.getColumn("id").getMax(), 0);
+    assertNull(stats.getColumn("row_id"));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.connect;
+
+import edu.hku.sdb.exec.RemoteUpdate;
+import edu.hku.sdb.parse.LoadStmt;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ColumnarLoadTest {
+
+  private static final Pattern LOAD = Pattern.compile("LOAD DATA INPATH " +
+          "'(.*)'\\s*(OVERWRITE)?\\s*INTO TABLE (\\S+)");
+  private static final Pattern INSERT = Pattern.compile("INSERT " +
+          "(OVERWRITE|INTO) TABLE (\\S+)(?: PARTITION \\((.*)\\))? SELECT \\* " +
+          "FROM (\\S+)");
+  private static final Pattern TRUNCATE = Pattern.compile("TRUNCATE TABLE " +
+          "(\\S+)");
+
+  /**
+   * A server keeping the rows of each table and partition, which only
+   * understands the updates of a columnar load.
+   */
+  private static class HiveConnection extends ServerConnection {
+
+    private final Map<String, List<String>> files = new HashMap<>();
+    private final Map<String, List<String>> tables = new HashMap<>();
+
+    List<String> rows(String table) {
+      List<String> rows = tables.get(table);
+      return rows == null ? Collections.<String>emptyList() : rows;
+    }
+
+    private void write(String table, List<String> rows, boolean overwrite) {
+      List<String> written = overwrite ? new ArrayList<String>() : new
+              ArrayList<>(rows(table));
+      written.addAll(rows);
+      tables.put(table, written);
+    }
+
+    @Override
+    public void execute(String command) {
+    }
+
+    @Override
+    public ServerResultSet executeQuery(String query) {
+      return null;
+    }
+
+    @Override
+    public int executeUpdate(String query) {
+      Matcher matcher;
+      if ((matcher = LOAD.matcher(query)).matches()) {
+        write(matcher.group(3), files.remove(matcher.group(1)), matcher
+                .group(2) != null);
+      } else if ((matcher = INSERT.matcher(query)).matches()) {
+        String table = matcher.group(2) + (matcher.group(3) == null ? "" :
+                "/" + matcher.group(3));
+        write(table, rows(matcher.group(4)), matcher.group(1).equals
+                ("OVERWRITE"));
+      } else if ((matcher = TRUNCATE.matcher(query)).matches()) {
+        tables.remove(matcher.group(1));
+      } else {
+        return -1;
+      }
+      return 0;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static void load(HiveConnection connection, boolean overwrite,
+                           String partition, String... rows) {
+    String filePath = "/tmp/sdb/upload" + connection.files.size() + "_" +
+            partition;
+    connection.files.put(filePath, Arrays.asList(rows));
+    LoadStmt loadStmt = new LoadStmt(filePath, "t");
+    loadStmt.setOverWrite(overwrite);
+    loadStmt.setPartition(partition);
+
+    RemoteUpdate update = SdbStatement.getColumnarLoadPlanNode(loadStmt,
+            connection);
+    assertNull(update.next());
+    assertTrue(update.isSucceeded());
+  }
+
+  @Test
+  public void testPartitionLoads() {
+    HiveConnection connection = new HiveConnection();
+
+    load(connection, false, "ds='1'", "a1", "a2");
+    load(connection, false, "ds='2'", "b1");
+    assertEquals(Arrays.asList("a1", "a2"), connection.rows("t/ds='1'"));
+    // The second partition does not get the rows of the first load.
+    assertEquals(Arrays.asList("b1"), connection.rows("t/ds='2'"));
+    assertEquals(Collections.emptyList(), connection.rows("t_sdb_staging"));
+
+    load(connection, true, "ds='1'", "c1");
+    load(connection, false, "ds='2'", "d1");
+    assertEquals(Arrays.asList("c1"), connection.rows("t/ds='1'"));
+    assertEquals(Arrays.asList("b1", "d1"), connection.rows("t/ds='2'"));
+    assertEquals(Collections.emptyList(), connection.rows("t_sdb_staging"));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.connect;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.jdo.JDOHelper;
+import javax.jdo.PersistenceManager;
+import javax.jdo.PersistenceManagerFactory;
+
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.MetaStore;
+import edu.hku.sdb.conf.EmbeddedServerConf;
+import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.util.TestUtility;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Loads a file into the embedded server and reads it back through the
+ * whole query path.
+ */
+public class EmbeddedLoadTest {
+
+  private static final String SERVER_DB = "sdb_embedded_load";
+
+  private String driver = "org.apache.derby.jdbc.EmbeddedDriver";
+  private PersistenceManagerFactory pmf;
+  private PersistenceManager pm;
+
+  private SdbStatement statement;
+  private File sourceFile;
+
+  @Before
+  public void prepare() throws Exception {
+    Class.forName(driver).newInstance();
+    pmf = JDOHelper.getPersistenceManagerFactory(TestUtility.createProperty());
+    pm = pmf.getPersistenceManager();
+
+    MetaStore metaStore = new MetaStore(SERVER_DB, pm);
+    metaStore.addDB(createDBMeta());
+
+    EmbeddedServerConf serverConf = new EmbeddedServerConf();
+    serverConf.setDatabaseName(SERVER_DB);
+    statement = new SdbStatement(metaStore, ServerConFactory.getServerCon
+            (serverConf), SERVER_DB, serverConf);
+
+    sourceFile = File.createTempFile("employee", ".txt");
+    FileWriter writer = new FileWriter(sourceFile);
+    writer.write("1|James|1000|25\n");
+    writer.write("2|Eric|1500|30\n");
+    writer.write("3|Alice|2000|35\n");
+    writer.close();
+  }
+
+  @After
+  public void clearup() {
+    sourceFile.delete();
+    try {
+      pm.close();
+      DriverManager.getConnection("jdbc:derby:memory:test_db;drop=true");
+    } catch (SQLException se) {
+      if (!se.getSQLState().equals("08006")) {
+        // SQLState 08006 indicates a success
+        se.printStackTrace();
+      }
+    }
+  }
+
+  @Test
+  public void testLoadSelect() throws IOException {
+    statement.executeQuery("CREATE TABLE employee (id INT, name VARCHAR(20), " +
+            "salary INT ENC, age INT)");
+    statement.executeQuery("LOAD DATA LOCAL INPATH '" + sourceFile
+            .getAbsolutePath() + "' INTO TABLE employee");
+
+    ResultSet resultSet = statement.executeQuery("SELECT id, salary FROM " +
+            "employee WHERE salary > 1200");
+
+    Map<String, String> salaries = new TreeMap<>();
+    while (resultSet.next())
+      salaries.put(resultSet.getString(0), resultSet.getString(1));
+
+    Map<String, String> expected = new TreeMap<>();
+    expected.put("2", "1500");
+    expected.put("3", "2000");
+    assertEquals(expected, salaries);
+  }
+
+  private static DBMeta createDBMeta() {
+    DBMeta dbMeta = new DBMeta(SERVER_DB);
+    BigInteger prime1 = SDBEncrypt.generateRandPrime();
+    BigInteger prime2 = SDBEncrypt.generateRandPrime();
+    dbMeta.setN(prime1.multiply(prime2).toString());
+    dbMeta.setPrime1(prime1.toString());
+    dbMeta.setPrime2(prime2.toString());
+    dbMeta.setG(SDBEncrypt.generatePositiveRand(prime1, prime2).toString());
+    dbMeta.setK(SDBEncrypt.generatePositiveRand(prime1, prime2).toString());
+    return dbMeta;
+  }
+}
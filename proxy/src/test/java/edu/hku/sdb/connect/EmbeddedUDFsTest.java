@@ -0,0 +1,94 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.connect;
+
+import edu.hku.sdb.udf.util.SdbProgram;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EmbeddedUDFsTest {
+
+  // n = 35 in radix 36
+  private static final String N = "z";
+
+  @Test
+  public void testArithmetic() {
+    // (9 + 31) mod 35 = 5
+    assertEquals("5", EmbeddedUDFs.add("9", "v", N));
+    // (9 * 31) mod 35 = 34
+    assertEquals("y", EmbeddedUDFs.multi("9", "v", N));
+    // (4 * 2 * 3^3) mod 35 = 6
+    assertEquals("6", EmbeddedUDFs.keyUpdate("2", "3", "3", "4", N));
+    assertEquals("6", EmbeddedUDFs.keyUpdatePlain(2L, "3", "3", "4", N));
+    assertNull(EmbeddedUDFs.add(null, "v", N));
+  }
+
+  @Test
+  public void testCompare() {
+    // halfN = 17
+    assertTrue(EmbeddedUDFs.greatThan("3", "h"));
+    assertFalse(EmbeddedUDFs.greatThan("i", "h"));
+    assertTrue(EmbeddedUDFs.lessThan("i", "h"));
+    assertTrue(EmbeddedUDFs.equal("0"));
+    assertTrue(EmbeddedUDFs.greatEqual("0", "h"));
+    assertFalse(EmbeddedUDFs.notEqual("0"));
+    assertFalse(EmbeddedUDFs.greatThan(null, "h"));
+  }
+
+  @Test
+  public void testEval() {
+    // sdb_keyUp(sdb_mul(a, b, n), s, p, q, n)
+    assertEquals(EmbeddedUDFs.keyUpdate(EmbeddedUDFs.multi("9", "v", N), "3",
+            "3", "4", N), EmbeddedUDFs.eval("$0 $1 $2 mul $3 $4 $5 $2 keyup",
+            "9", "v", N, "3", "3", "4"));
+  }
+
+  @Test
+  public void testProgramCache() {
+    String program = "$0 $1 $2 mul";
+    assertSame(EmbeddedUDFs.getProgram(program), EmbeddedUDFs.getProgram
+            (program));
+
+    // The cache is bounded, so a program is compiled again once enough
+    // other programs have been used.
+    SdbProgram first = EmbeddedUDFs.getProgram(program);
+    for (int i = 0; i < EmbeddedUDFs.PROGRAM_CACHE_SIZE; i++)
+      EmbeddedUDFs.getProgram("$0 #" + Integer.toString(i, Character
+              .MAX_RADIX) + " $1 add");
+    assertNotSame(first, EmbeddedUDFs.getProgram(program));
+  }
+
+  @Test
+  public void testAggregates() throws Exception {
+    EmbeddedUDFs.SdbSum sum = new EmbeddedUDFs.SdbSum();
+    sum.add(new Object[]{"9", N});
+    sum.add(new Object[]{null, N});
+    sum.add(new Object[]{"v", N});
+    sum.add(new Object[]{"v", N});
+    // (9 + 31 + 31) mod 35 = 1
+    assertEquals("1", sum.getResult());
+    assertNull(new EmbeddedUDFs.SdbSum().getResult());
+
+    EmbeddedUDFs.SdbFirst first = new EmbeddedUDFs.SdbFirst();
+    first.add(null);
+    first.add("a");
+    first.add("b");
+    assertEquals("a", first.getResult());
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.plan.AggregateDesc;
+import edu.hku.sdb.plan.AggregateDesc.Function;
+import edu.hku.sdb.plan.ColumnComparison;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static edu.hku.sdb.exec.RowsNode.drain;
+import static edu.hku.sdb.exec.RowsNode.row;
+import static org.junit.Assert.*;
+
+public class LocalGroupbyFilterTest {
+
+  private static final List<AggregateDesc> AGGREGATES = Arrays.asList(new
+          AggregateDesc(Function.SUM, 1), new AggregateDesc(Function.COUNT,
+          AggregateDesc.STAR), new AggregateDesc(Function.COUNT, 1), new
+          AggregateDesc(Function.MIN, 1), new AggregateDesc(Function.MAX, 1),
+          new AggregateDesc(Function.AVG, 1));
+
+  private static LocalGroupbyFilter groupby(List<List<Object>> rows, int[]
+          groupIndexes, List<AggregateDesc> aggregates) {
+    RowsNode child = new RowsNode(Arrays.asList("g", "v"), rows);
+    return new LocalGroupbyFilter(child, groupIndexes, aggregates, new
+            RowDesc());
+  }
+
+  private static Map<Object, List<Object>> groups(PlanNode<?> node) {
+    Map<Object, List<Object>> groups = new HashMap<>();
+    for (List<Object> row : drain(node))
+      assertNull(groups.put(row.get(0), row));
+    return groups;
+  }
+
+  @Test
+  public void testAggregates() {
+    // Decrypted values are BigInteger, plain ones may be any integer.
+    LocalGroupbyFilter node = groupby(Arrays.asList(row("a", BigInteger
+            .valueOf(3)), row("b", 10), row("a", 5L), row("a", null), row("b",
+            BigInteger.valueOf(-4))), new int[]{0}, AGGREGATES);
+
+    Map<Object, List<Object>> groups = groups(node);
+    assertEquals(2, groups.size());
+    assertEquals(row("a", BigInteger.valueOf(8), 3L, 2L, BigInteger.valueOf
+            (3), BigInteger.valueOf(5), 4.0), groups.get("a"));
+    assertEquals(row("b", BigInteger.valueOf(6), 2L, 2L, BigInteger.valueOf
+            (-4), BigInteger.valueOf(10), 3.0), groups.get("b"));
+    assertEquals(5, node.getProfile().getRowsIn());
+  }
+
+  @Test
+  public void testGroupKeys() {
+    // Equal integers of different classes and nulls are grouped together.
+    LocalGroupbyFilter node = groupby(Arrays.asList(row(BigInteger.ONE, 1),
+            row(1, 2), row(null, 3), row(null, 4), row(2.5, 5)), new int[]{0},
+            Collections.singletonList(new AggregateDesc(Function.SUM, 1)));
+
+    Map<Object, List<Object>> groups = groups(node);
+    assertEquals(3, groups.size());
+    assertEquals(BigInteger.valueOf(3), groups.get(BigInteger.ONE).get(1));
+    assertEquals(BigInteger.valueOf(7), groups.get(null).get(1));
+    assertEquals(BigInteger.valueOf(5), groups.get(2.5).get(1));
+  }
+
+  @Test
+  public void testStringGroupKeys() {
+    // Strings are grouped exactly, even if they are equal numbers.
+    LocalGroupbyFilter node = groupby(Arrays.asList(row("01", 1), row("1", 2),
+            row(" 1", 3), row("1", 4)), new int[]{0}, Collections
+            .singletonList(new AggregateDesc(Function.SUM, 1)));
+
+    Map<Object, List<Object>> groups = groups(node);
+    assertEquals(3, groups.size());
+    assertEquals(BigInteger.valueOf(1), groups.get("01").get(1));
+    assertEquals(BigInteger.valueOf(6), groups.get("1").get(1));
+    assertEquals(BigInteger.valueOf(3), groups.get(" 1").get(1));
+  }
+
+  @Test
+  public void testSumOverflow() {
+    LocalGroupbyFilter node = groupby(Arrays.asList(row(1, Long.MAX_VALUE),
+            row(1, Long.MAX_VALUE), row(1, 0.5)), new int[]{0},
+            Collections.singletonList(new AggregateDesc(Function.SUM, 1)));
+    assertEquals(2.0 * Long.MAX_VALUE + 0.5, (Double) groups(node).get(1).get
+            (1), 1e6);
+
+    node = groupby(Arrays.asList(row(1, Long.MAX_VALUE), row(1, 1)), new
+            int[]{0}, Collections.singletonList(new AggregateDesc(Function.SUM,
+            1)));
+    assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE),
+            groups(node).get(1).get(1));
+  }
+
+  @Test
+  public void testHaving() {
+    LocalGroupbyFilter node = groupby(Arrays.asList(row("a", 1), row("a", 2),
+            row("b", 10), row("c", 3)), new int[]{0}, Arrays.asList(new
+            AggregateDesc(Function.SUM, 1), new AggregateDesc(Function.COUNT,
+            AggregateDesc.STAR)));
+    // having sum(v) >= 3 and count(*) < 2
+    node.getNodeDesc().setHavingFilters(Arrays.asList(ColumnComparison
+            .withConstant(1, BinOperator.GE, 3), ColumnComparison.withConstant
+            (2, BinOperator.LT, 2)));
+
+    Map<Object, List<Object>> groups = groups(node);
+    assertEquals(2, groups.size());
+    assertTrue(groups.containsKey("b"));
+    assertTrue(groups.containsKey("c"));
+  }
+
+  @Test
+  public void testWithoutGroupBy() {
+    LocalGroupbyFilter node = groupby(new ArrayList<>(), new int[0], Arrays
+            .asList(new AggregateDesc(Function.COUNT, AggregateDesc.STAR), new
+                    AggregateDesc(Function.SUM, 1)));
+    assertEquals(row(0L, null), node.next());
+    assertNull(node.next());
+  }
+
+  @Test
+  public void testSpill() {
+    List<List<Object>> rows = new ArrayList<>();
+    for (int i = 0; i < 5000; i++)
+      rows.add(row(BigInteger.valueOf(i % 700), i % 3 == 0 ? null : i));
+
+    Map<Object, List<Object>> expected = groups(groupby(rows, new int[]{0},
+            AGGREGATES));
+    LocalGroupbyFilter node = groupby(rows, new int[]{0}, AGGREGATES);
+    node.getNodeDesc().setMemoryLimit(8192);
+    Map<Object, List<Object>> groups = groups(node);
+
+    assertTrue(node.getProfile().getSpilledRows() > 0);
+    assertEquals(700, groups.size());
+    assertEquals(expected, groups);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.plan.ColumnComparison;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static edu.hku.sdb.exec.RowsNode.drain;
+import static edu.hku.sdb.exec.RowsNode.row;
+import static org.junit.Assert.*;
+
+public class LocalJoinTest {
+
+  private static RowDesc joinedRowDesc(PlanNode<?> left, PlanNode<?> right) {
+    List<ColumnDesc> signature = new ArrayList<>(left.getNodeDesc()
+            .getRowDesc().getSignature());
+    signature.addAll(right.getNodeDesc().getRowDesc().getSignature());
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(signature);
+    return rowDesc;
+  }
+
+  @Test
+  public void testHashTableSlot() {
+    HashTableSlot slot = new HashTableSlot(new int[]{0});
+    slot.addRow(row(BigInteger.valueOf(1), "a"));
+    slot.addRow(row(2L, "b"));
+    slot.addRow(row(1, "c"));
+    slot.addRow(row(null, "d"));
+
+    // Integers of any class are equal keys, null keys never match.
+    assertEquals(3, slot.size());
+    int match = slot.findFirst(row(1L), new int[]{0});
+    Set<Object> values = new HashSet<>();
+    while (match >= 0) {
+      values.add(slot.getRow(match).get(1));
+      match = slot.findNext(match);
+    }
+    assertEquals(new HashSet<Object>(Arrays.asList("a", "c")), values);
+    assertTrue(slot.findFirst(row("3"), new int[]{0}) < 0);
+    assertTrue(slot.getMemoryUsage() > 0);
+
+    slot.clear();
+    assertEquals(0, slot.size());
+    assertTrue(slot.findFirst(row(1), new int[]{0}) < 0);
+  }
+
+  @Test
+  public void testStringKeys() {
+    // Strings are exact keys.
+    HashTableSlot slot = new HashTableSlot(new int[]{0});
+    slot.addRow(row("007", "a"));
+    slot.addRow(row(" b", "b"));
+    assertTrue(slot.findFirst(row("7"), new int[]{0}) < 0);
+    assertTrue(slot.findFirst(row("b"), new int[]{0}) < 0);
+    assertTrue(slot.findFirst(row("007"), new int[]{0}) >= 0);
+
+    // Unless they are compared with numbers.
+    slot = new HashTableSlot(new int[]{0}, new boolean[]{true});
+    slot.addRow(row(7L, "a"));
+    assertTrue(slot.findFirst(row(" 007"), new int[]{0}) >= 0);
+    assertTrue(slot.findFirst(row("7.0"), new int[]{0}) >= 0);
+    assertTrue(slot.findFirst(row("x"), new int[]{0}) < 0);
+  }
+
+  @Test
+  public void testJoinStringWithNumber() {
+    RowsNode probe = new RowsNode(Arrays.asList("code", "a"), Arrays.asList(
+            row("01", 10), row("2", 20), row("x", 30)));
+    probe.getNodeDesc().getRowDesc().getSignature().get(0).setType(Type
+            .STRING);
+    RowsNode buildRows = new RowsNode(Arrays.asList("id", "b"), Arrays.asList(
+            row(BigInteger.valueOf(1), 100), row(BigInteger.valueOf(3), 300)));
+    HashTableNode build = new HashTableNode(buildRows, new int[]{0});
+    LocalJoin join = new LocalJoin(probe, build, new int[]{0},
+            joinedRowDesc(probe, buildRows));
+
+    assertEquals(Collections.singletonList(row("01", 10, BigInteger.valueOf(1),
+            100)), drain(join));
+
+    // Two string columns are compared exactly.
+    probe = new RowsNode(Arrays.asList("code", "a"), Arrays.asList(row("01",
+            10), row("1", 20)));
+    buildRows = new RowsNode(Arrays.asList("code", "b"), Arrays.asList(row
+            ("1", 100)));
+    probe.getNodeDesc().getRowDesc().getSignature().get(0).setType(Type
+            .STRING);
+    buildRows.getNodeDesc().getRowDesc().getSignature().get(0).setType(Type
+            .STRING);
+    build = new HashTableNode(buildRows, new int[]{0});
+    join = new LocalJoin(probe, build, new int[]{0}, joinedRowDesc(probe,
+            buildRows));
+
+    assertEquals(Collections.singletonList(row("1", 20, "1", 100)), drain
+            (join));
+  }
+
+  @Test
+  public void testJoin() {
+    // The decrypted rows of the probe side end with the row id.
+    RowsNode probe = new RowsNode(Arrays.asList("id", "a"), Arrays.asList(
+            row(BigInteger.valueOf(1), 10, "rowid1"), row(BigInteger.valueOf
+                    (2), 20, "rowid2"), row(null, 30, "rowid3"), row(BigInteger
+                    .valueOf(4), 40, "rowid4")));
+    RowsNode buildRows = new RowsNode(Arrays.asList("id", "b"), Arrays.asList(
+            row(1, 100), row(1, 101), row(2, 200), row(3, 300)));
+    HashTableNode build = new HashTableNode(buildRows, new int[]{0});
+    LocalJoin join = new LocalJoin(probe, build, new int[]{0},
+            joinedRowDesc(probe, buildRows));
+
+    List<List<Object>> rows = drain(join);
+    assertEquals(3, rows.size());
+    assertTrue(rows.contains(row(BigInteger.valueOf(1), 10, 1, 100)));
+    assertTrue(rows.contains(row(BigInteger.valueOf(1), 10, 1, 101)));
+    assertTrue(rows.contains(row(BigInteger.valueOf(2), 20, 2, 200)));
+    assertEquals(4, join.getProfile().getRowsIn());
+    assertFalse(build.isSpilled());
+    assertTrue(probe.isClosed());
+    assertTrue(buildRows.isClosed());
+  }
+
+  @Test
+  public void testFilter() {
+    RowsNode probe = new RowsNode(Arrays.asList("id", "a"), Arrays.asList(
+            row(1, 10), row(2, 20)));
+    RowsNode buildRows = new RowsNode(Arrays.asList("id", "b"), Arrays.asList(
+            row(1, 5), row(1, 15), row(2, 25)));
+    HashTableNode build = new HashTableNode(buildRows, new int[]{0});
+    LocalJoin join = new LocalJoin(probe, build, new int[]{0},
+            joinedRowDesc(probe, buildRows));
+    // a < b
+    join.getNodeDesc().setFilters(Collections.singletonList(new
+            ColumnComparison(1, BinOperator.LT, 3)));
+
+    List<List<Object>> rows = drain(join);
+    assertEquals(2, rows.size());
+    assertTrue(rows.contains(row(1, 10, 1, 15)));
+    assertTrue(rows.contains(row(2, 20, 2, 25)));
+  }
+
+  @Test
+  public void testSpill() {
+    List<List<Object>> probeRows = new ArrayList<>();
+    List<List<Object>> buildRows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      probeRows.add(row(BigInteger.valueOf(i), "p" + i));
+      if (i % 2 == 0)
+        buildRows.add(row((long) i, "b" + i));
+    }
+    RowsNode probe = new RowsNode(Arrays.asList("id", "p"), probeRows);
+    RowsNode buildChild = new RowsNode(Arrays.asList("id", "b"), buildRows);
+    HashTableNode build = new HashTableNode(buildChild, new int[]{0});
+    build.getNodeDesc().setMemoryLimit(4096);
+    build.getNodeDesc().setSpillPartitions(4);
+    LocalJoin join = new LocalJoin(probe, build, new int[]{0},
+            joinedRowDesc(probe, buildChild));
+
+    List<List<Object>> rows = drain(join);
+    assertEquals(500, rows.size());
+    Set<Object> ids = new HashSet<>();
+    for (List<Object> row : rows) {
+      assertEquals("p" + row.get(0), row.get(1));
+      assertEquals("b" + row.get(0), row.get(3));
+      ids.add(row.get(0));
+    }
+    assertEquals(500, ids.size());
+    // Both sides are partitioned.
+    assertTrue(build.getProfile().getSpilledRows() > 0);
+    assertTrue(join.getProfile().getSpilledRows() > 0);
+  }
+
+  @Test
+  public void testProj() {
+    RowsNode child = new RowsNode(Arrays.asList("a", "b", "c"), Arrays.asList(
+            row(1, 2, 3), row(4, 5, 6)));
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(Arrays.asList(child.getNodeDesc().getRowDesc()
+            .getSignature().get(2), child.getNodeDesc().getRowDesc()
+            .getSignature().get(0)));
+    LocalProj proj = new LocalProj(child, new int[]{2, 0}, rowDesc);
+
+    assertEquals(Arrays.asList(row(3, 1), row(6, 4)), drain(proj));
+  }
+}
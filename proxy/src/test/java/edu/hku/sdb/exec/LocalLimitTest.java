@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.connect.ServerConnection;
+import edu.hku.sdb.connect.ServerResultSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.hku.sdb.exec.RowsNode.row;
+import static org.junit.Assert.*;
+
+public class LocalLimitTest {
+
+  /**
+   * A server returning the numbers from 0 to size - 1, counting the rows
+   * fetched.
+   */
+  private static class CountingConnection extends ServerConnection {
+
+    private final int size;
+    private int fetched = 0;
+    private boolean cancelled = false;
+
+    CountingConnection(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public void execute(String command) {
+    }
+
+    @Override
+    public ServerResultSet executeQuery(String query) {
+      return new ServerResultSet() {
+        private boolean exhausted = false;
+
+        @Override
+        public boolean next() {
+          if (fetched >= size) {
+            exhausted = true;
+            return false;
+          }
+          fetched++;
+          return true;
+        }
+
+        @Override
+        public Object getObject(int i) {
+          return fetched - 1;
+        }
+
+        @Override
+        public void close() {
+          cancelled = !exhausted;
+        }
+      };
+    }
+
+    @Override
+    public int executeUpdate(String query) {
+      return -1;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static RowDesc rowDesc(String... columns) {
+    List<ColumnDesc> signature = new ArrayList<>();
+    for (String column : columns)
+      signature.add(new ColumnDesc(column, column, Type.INT, false, null));
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(signature);
+    return rowDesc;
+  }
+
+  @Test
+  public void testCancel() {
+    CountingConnection connection = new CountingConnection(1000);
+    RemoteQuery query = new RemoteQuery("select a from t", connection,
+            rowDesc("a"));
+    LocalLimit limit = new LocalLimit(query, 3, query.getNodeDesc()
+            .getRowDesc());
+
+    assertEquals(row(0), limit.next());
+    assertEquals(row(1), limit.next());
+    assertEquals(row(2), limit.next());
+    assertNull(limit.next());
+    assertNull(limit.next());
+
+    // The rest of the rows are neither fetched nor decrypted.
+    assertEquals(3, connection.fetched);
+    assertTrue(connection.cancelled);
+  }
+
+  @Test
+  public void testFewerRows() {
+    RowsNode child = new RowsNode(Arrays.asList("a"), Arrays.asList(row(1),
+            row(2)));
+    LocalLimit limit = new LocalLimit(child, 5, child.getNodeDesc()
+            .getRowDesc());
+
+    assertEquals(row(1), limit.next());
+    assertEquals(row(2), limit.next());
+    assertNull(limit.next());
+    assertTrue(child.isClosed());
+  }
+
+  @Test
+  public void testStreaming() {
+    CountingConnection connection = new CountingConnection(10);
+    RemoteQuery query = new RemoteQuery("select a from t", connection,
+            rowDesc("a"));
+
+    // Rows are fetched as they are pulled, the query is released at the end.
+    query.next();
+    assertEquals(1, connection.fetched);
+    int count = 1;
+    while (query.next() != null)
+      count++;
+    assertEquals(10, count);
+    assertFalse(connection.cancelled);
+  }
+}
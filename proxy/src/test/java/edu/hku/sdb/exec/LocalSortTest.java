@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.plan.LocalSortDesc;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static edu.hku.sdb.exec.RowsNode.drain;
+import static edu.hku.sdb.exec.RowsNode.row;
+import static org.junit.Assert.*;
+
+public class LocalSortTest {
+
+  private static LocalSort sort(List<List<Object>> rows, int[] sortIndexes,
+                                boolean[] ascending, long limit) {
+    RowsNode child = new RowsNode(Arrays.asList("k", "v"), rows);
+    return new LocalSort(child, sortIndexes, ascending, limit, new RowDesc());
+  }
+
+  private static List<Object> column(List<List<Object>> rows, int index) {
+    List<Object> values = new ArrayList<>();
+    for (List<Object> row : rows)
+      values.add(row.get(index));
+    return values;
+  }
+
+  @Test
+  public void testSort() {
+    // Decrypted values are BigInteger, plain ones may be any number.
+    LocalSort node = sort(Arrays.asList(row(BigInteger.valueOf(3), "a"), row
+            (-2, "b"), row(null, "c"), row(BigInteger.ONE.shiftLeft(70), "d"),
+            row(2.5, "e"), row(5L, "f")), new int[]{0}, new boolean[]{true},
+            LocalSortDesc.NO_LIMIT);
+
+    assertEquals(Arrays.asList("c", "b", "e", "a", "f", "d"), column(drain
+            (node), 1));
+    assertEquals(6, node.getProfile().getRowsIn());
+  }
+
+  @Test
+  public void testDescending() {
+    LocalSort node = sort(Arrays.asList(row(1, "a"), row(null, "b"), row(3,
+            "c"), row(2, "d")), new int[]{0}, new boolean[]{false},
+            LocalSortDesc.NO_LIMIT);
+
+    assertEquals(Arrays.asList("c", "d", "a", "b"), column(drain(node), 1));
+  }
+
+  @Test
+  public void testSeveralKeys() {
+    LocalSort node = sort(Arrays.asList(row(1, "b"), row(2, "a"), row(1, "a"),
+            row(1, "b")), new int[]{0, 1}, new boolean[]{false, true},
+            LocalSortDesc.NO_LIMIT);
+
+    List<List<Object>> rows = Arrays.asList(row(1, "b"), row(2, "a"), row(1,
+            "a"), row(1, "b"));
+    List<List<Object>> sorted = drain(node);
+    assertEquals(Arrays.asList(rows.get(1), rows.get(2), rows.get(0), rows
+            .get(3)), sorted);
+  }
+
+  @Test
+  public void testTopN() {
+    List<List<Object>> rows = new ArrayList<>();
+    Random random = new Random(7);
+    for (int i = 0; i < 1000; i++)
+      rows.add(row(BigInteger.valueOf(random.nextInt(100000)), i));
+
+    List<List<Object>> expected = drain(sort(rows, new int[]{0}, new
+            boolean[]{false}, LocalSortDesc.NO_LIMIT)).subList(0, 10);
+    LocalSort node = sort(rows, new int[]{0}, new boolean[]{false}, 10);
+    assertEquals(expected, drain(node));
+    assertEquals(1000, node.getProfile().getRowsIn());
+
+    // Nothing is read for no rows.
+    LocalSort empty = sort(rows, new int[]{0}, new boolean[]{true}, 0);
+    assertEquals(Collections.emptyList(), drain(empty));
+    assertEquals(0, empty.getProfile().getRowsIn());
+  }
+
+  @Test
+  public void testTopNSpill() {
+    List<List<Object>> rows = new ArrayList<>();
+    Random random = new Random(13);
+    for (int i = 0; i < 5000; i++)
+      rows.add(row(BigInteger.valueOf(random.nextInt(300)), i));
+
+    List<List<Object>> expected = drain(sort(rows, new int[]{0}, new
+            boolean[]{true}, LocalSortDesc.NO_LIMIT)).subList(0, 2000);
+    // The first rows do not fit in memory, all of them are sorted by
+    // spilling then.
+    LocalSort node = sort(rows, new int[]{0}, new boolean[]{true}, 2000);
+    node.getNodeDesc().setMemoryLimit(8192);
+    List<List<Object>> sorted = drain(node);
+
+    assertTrue(node.getProfile().getSpilledRows() > 0);
+    assertEquals(expected, sorted);
+  }
+
+  @Test
+  public void testSpill() {
+    List<List<Object>> rows = new ArrayList<>();
+    Random random = new Random(11);
+    for (int i = 0; i < 5000; i++)
+      rows.add(row(BigInteger.valueOf(random.nextInt(300)), i));
+
+    List<List<Object>> expected = drain(sort(rows, new int[]{0}, new
+            boolean[]{true}, LocalSortDesc.NO_LIMIT));
+    LocalSort node = sort(rows, new int[]{0}, new boolean[]{true},
+            LocalSortDesc.NO_LIMIT);
+    node.getNodeDesc().setMemoryLimit(8192);
+    List<List<Object>> sorted = drain(node);
+
+    assertTrue(node.getProfile().getSpilledRows() > 0);
+    assertEquals(expected, sorted);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.plan.PlanNodeDesc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A plan node returning given rows, in place of the decrypted rows of a
+ * remote query.
+ */
+public class RowsNode extends PlanNode<PlanNodeDesc> {
+
+  private final List<List<Object>> rows;
+  private Iterator<List<Object>> iterator;
+  private boolean closed = false;
+
+  public RowsNode(List<String> columns, List<List<Object>> rows) {
+    nodeDesc = new PlanNodeDesc() {
+    };
+    List<ColumnDesc> signature = new ArrayList<>();
+    for (String column : columns)
+      signature.add(new ColumnDesc(column, column, Type.INT, false, null));
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(signature);
+    nodeDesc.setRowDesc(rowDesc);
+    this.rows = rows;
+  }
+
+  public static List<Object> row(Object... values) {
+    return new ArrayList<>(Arrays.asList(values));
+  }
+
+  /**
+   * Reads all the remaining rows of the given node and closes it.
+   */
+  public static List<List<Object>> drain(PlanNode<?> node) {
+    List<List<Object>> rows = new ArrayList<>();
+    List<Object> row;
+    while ((row = node.next()) != null)
+      rows.add(row);
+    node.close();
+    return rows;
+  }
+
+  /**
+   * Reads all the remaining rows of the given slot.
+   */
+  public static List<List<Object>> drain(BasicTupleSlot slot) {
+    List<List<Object>> rows = new ArrayList<>();
+    List<Object> row;
+    while ((row = slot.nextTuple()) != null)
+      rows.add(row);
+    return rows;
+  }
+
+  @Override
+  public void init() {
+    iterator = rows.iterator();
+  }
+
+  @Override
+  public List<Object> nextTuple() {
+    if (iterator == null)
+      init();
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+}
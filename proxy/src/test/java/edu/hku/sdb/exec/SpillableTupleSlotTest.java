@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.exec;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static edu.hku.sdb.exec.RowsNode.drain;
+import static edu.hku.sdb.exec.RowsNode.row;
+import static org.junit.Assert.*;
+
+public class SpillableTupleSlotTest {
+
+  private static List<List<Object>> rows(int count) {
+    List<List<Object>> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+      rows.add(row(i, "ciphertext" + Integer.toString(i, 36), BigInteger
+              .valueOf(i).shiftLeft(100), i % 5 == 0 ? null : (long) i));
+    return rows;
+  }
+
+  @Test
+  public void testTypes() {
+    List<Object> row = row(null, 1, 2L, BigInteger.ONE.shiftLeft(200)
+            .negate(), 1.5, "\u00e9t\u00e9", true, new BigDecimal("-12.345"),
+            2.5f, new Date(0));
+    SpillableTupleSlot slot = new SpillableTupleSlot(new MemoryBudget(Long
+            .MAX_VALUE), null);
+    slot.addRow(row);
+    slot.addRow(Collections.emptyList());
+
+    assertEquals(Arrays.asList(row, Collections.emptyList()), drain(slot));
+  }
+
+  @Test
+  public void testInMemory() {
+    MemoryBudget budget = new MemoryBudget(Long.MAX_VALUE);
+    SpillableTupleSlot slot = new SpillableTupleSlot(budget, null);
+    List<List<Object>> rows = rows(10000);
+    slot.setRows(rows);
+
+    assertEquals(10000, slot.getRowCount());
+    assertEquals(rows, drain(slot));
+    assertEquals(0, slot.getSpilledPages());
+    assertTrue(budget.getPeak() > 0);
+    assertEquals(0, budget.getUsed());
+  }
+
+  @Test
+  public void testSpill() {
+    // A single page fits in memory, the others are spilled.
+    MemoryBudget budget = new MemoryBudget(SpillableTupleSlot.PAGE_SIZE);
+    SpillableTupleSlot slot = new SpillableTupleSlot(budget, null);
+    List<List<Object>> rows = rows(10000);
+    slot.setRows(rows);
+    // A row larger than a page.
+    char[] large = new char[SpillableTupleSlot.PAGE_SIZE * 2];
+    Arrays.fill(large, 'x');
+    slot.addRow(row(new String(large)));
+
+    List<List<Object>> read = new ArrayList<>();
+    List<List<Object>> batch;
+    while (!(batch = slot.nextBatch(1000)).isEmpty()) {
+      assertTrue(batch.size() <= 1000);
+      read.addAll(batch);
+    }
+    assertEquals(10001, read.size());
+    assertEquals(rows, read.subList(0, 10000));
+    assertEquals(new String(large), read.get(10000).get(0));
+    assertEquals(SpillableTupleSlot.PAGE_SIZE, budget.getPeak());
+    assertEquals(0, budget.getUsed());
+  }
+
+  @Test
+  public void testSharedBudget() {
+    MemoryBudget budget = new MemoryBudget(SpillableTupleSlot.PAGE_SIZE * 4);
+    SpillableTupleSlot first = new SpillableTupleSlot(budget, null);
+    SpillableTupleSlot second = new SpillableTupleSlot(budget, null);
+    first.setRows(rows(10000));
+    second.setRows(rows(10000));
+
+    assertTrue(first.getSpilledPages() + second.getSpilledPages() > 0);
+    assertEquals(rows(10000), drain(second));
+    first.close();
+    assertEquals(0, budget.getUsed());
+    assertNull(first.nextTuple());
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+  @Test
+  public void testCounter() {
+    MetricsRegistry registry = new MetricsRegistry();
+    MetricFamily<Counter> family = registry.counter("rows_total", "Rows",
+            "table");
+    family.labels("t1").inc();
+    family.labels("t1").add(2);
+    family.labels("t2").inc();
+
+    // Registering again returns the same family.
+    assertSame(family, registry.counter("rows_total", "Rows", "table"));
+    assertEquals(3, family.labels("t1").get());
+
+    Map<String, Double> samples = registry.getSamples();
+    assertEquals(3.0, samples.get("rows_total{table=\"t1\"}"), 0);
+    assertEquals(1.0, samples.get("rows_total{table=\"t2\"}"), 0);
+  }
+
+  @Test
+  public void testScaledCounter() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("time_seconds_total", "Time", 1e-9).get().add
+            (1500000000L);
+    assertEquals(1.5, registry.getSamples().get("time_seconds_total"), 1e-9);
+  }
+
+  @Test
+  public void testHistogram() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Histogram histogram = registry.histogram("latency_seconds", "Latency",
+            new double[]{0.1, 1}, "phase").labels("parse");
+    histogram.observe(0.05);
+    histogram.observe(0.1);
+    histogram.observeMillis(500);
+    histogram.observe(3);
+
+    assertEquals(4, histogram.getCount());
+    assertEquals(3.65, histogram.getSum(), 1e-9);
+
+    Map<String, Double> samples = registry.getSamples();
+    assertEquals(2.0, samples.get("latency_seconds_bucket{phase=\"parse\"," +
+            "le=\"0.1\"}"), 0);
+    assertEquals(3.0, samples.get("latency_seconds_bucket{phase=\"parse\"," +
+            "le=\"1.0\"}"), 0);
+    assertEquals(4.0, samples.get("latency_seconds_bucket{phase=\"parse\"," +
+            "le=\"+Inf\"}"), 0);
+    assertEquals(4.0, samples.get("latency_seconds_count{phase=\"parse\"}"),
+            0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedBuckets() {
+    new Histogram(new double[]{1, 0.1});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLabels() {
+    new MetricsRegistry().counter("rows_total", "Rows", "table").labels();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeConflict() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("rows", "Rows");
+    registry.histogram("rows", "Rows", Histogram.LATENCY_BUCKETS);
+  }
+
+  @Test
+  public void testPrometheusText() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.gauge("sessions", "Active sessions", () -> 2);
+    registry.counter("errors_total", "Errors", "type").labels("se\"lect")
+            .inc();
+
+    String expected = "# HELP errors_total Errors\n" +
+            "# TYPE errors_total counter\n" +
+            "errors_total{type=\"se\\\"lect\"} 1\n" +
+            "# HELP sessions Active sessions\n" +
+            "# TYPE sessions gauge\n" +
+            "sessions 2\n";
+    assertEquals(expected, registry.toPrometheusText());
+  }
+
+  @Test
+  public void testJmx() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("rows_total", "Rows").get().add(5);
+    JmxExporter exporter = new JmxExporter(registry);
+
+    assertEquals(1, exporter.getMBeanInfo().getAttributes().length);
+    assertEquals(5.0, exporter.getAttribute("rows_total"));
+  }
+
+  @Test
+  public void testHttpServer() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("rows_total", "Rows").get().add(5);
+    MetricsHttpServer server = new MetricsHttpServer(registry, 0);
+    server.start();
+    try {
+      URL url = new URL("http://localhost:" + server.getPort() +
+              MetricsHttpServer.PATH);
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      assertEquals(200, connection.getResponseCode());
+      assertTrue(connection.getContentType().startsWith("text/plain"));
+
+      InputStream in = connection.getInputStream();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int length;
+      while ((length = in.read(buffer)) > 0)
+        out.write(buffer, 0, length);
+      in.close();
+      assertEquals(registry.toPrometheusText(), out.toString("UTF-8"));
+    } finally {
+      server.stop();
+    }
+  }
+}
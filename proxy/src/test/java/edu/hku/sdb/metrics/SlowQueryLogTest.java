@@ -0,0 +1,148 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.metrics;
+
+import edu.hku.sdb.connect.SDBProfiler;
+import edu.hku.sdb.utility.RingBuffer;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class SlowQueryLogTest {
+
+  @Test
+  public void testRingBuffer() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(3);
+    assertEquals(4, buffer.capacity());
+    assertNull(buffer.poll());
+
+    for (int i = 0; i < 4; i++)
+      assertTrue(buffer.offer(i));
+    assertFalse(buffer.offer(4));
+    assertEquals(4, buffer.size());
+
+    assertEquals(Integer.valueOf(0), buffer.poll());
+    assertTrue(buffer.offer(4));
+    for (int i = 1; i <= 4; i++)
+      assertEquals(Integer.valueOf(i), buffer.poll());
+    assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void testRingBufferProducers() throws Exception {
+    final int producers = 4;
+    final int perProducer = 10000;
+    final RingBuffer<Integer> buffer = new RingBuffer<>(64);
+    final CountDownLatch done = new CountDownLatch(producers);
+    for (int p = 0; p < producers; p++) {
+      new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offer(i))
+            Thread.yield();
+        }
+        done.countDown();
+      }).start();
+    }
+
+    long sum = 0;
+    int received = 0;
+    while (received < producers * perProducer) {
+      Integer element = buffer.poll();
+      if (element == null) {
+        Thread.yield();
+        continue;
+      }
+      sum += element;
+      received++;
+    }
+    done.await();
+    assertTrue(buffer.isEmpty());
+    assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum);
+  }
+
+  @Test
+  public void testNormalize() {
+    assertEquals("select a, b from t1 where a > ? and b = ? and c in (?, ?)",
+            SlowQueryLog.normalize("SELECT a,  b\n FROM t1 WHERE a > 10.5 " +
+                    "AND b = 'it''s' and c IN (1, 2);"));
+    assertEquals("select sum(col2) from t where d like ?", SlowQueryLog
+            .normalize("select sum(col2) from t where d like \"%x\\\"y%\""));
+  }
+
+  @Test
+  public void testFingerprint() {
+    String fingerprint = SlowQueryLog.fingerprint(SlowQueryLog.normalize
+            ("select * from t where a = 1"));
+    assertEquals(16, fingerprint.length());
+    assertEquals(fingerprint, SlowQueryLog.fingerprint(SlowQueryLog
+            .normalize("SELECT *   FROM t WHERE a = 2")));
+    assertNotEquals(fingerprint, SlowQueryLog.fingerprint(SlowQueryLog
+            .normalize("select * from t where b = 1")));
+  }
+
+  @Test
+  public void testLog() {
+    List<String> lines = new CopyOnWriteArrayList<>();
+    SlowQueryLog log = new SlowQueryLog(100, 16, lines::add);
+    log.start();
+    try {
+      assertSame(log, SlowQueryLog.getInstance());
+      assertFalse(log.log(new SlowQueryRecord("1@local", "select",
+              "select 1", 99, true)));
+
+      SDBProfiler profiler = new SDBProfiler();
+      profiler.setServerTotalTime(80);
+      SlowQueryRecord record = new SlowQueryRecord("1@local", "select",
+              "select a from t where a = 'secret'", 120, true);
+      record.setProfiler(profiler);
+      record.setRows(3);
+      record.setDecryptedCells(6);
+      record.setRewrittenSqlSize(250);
+      assertTrue(log.log(record));
+    } finally {
+      log.stop();
+    }
+    assertNull(SlowQueryLog.getInstance());
+
+    assertEquals(1, lines.size());
+    String line = lines.get(0);
+    assertTrue(line, line.startsWith("session=1@local type=select status=ok " +
+            "latency_ms=120 "));
+    assertTrue(line, line.contains(" server_ms=80 "));
+    assertTrue(line, line.contains(" rows=3 decrypted_cells=6 " +
+            "rewritten_sql_chars=250 "));
+    assertTrue(line, line.endsWith("query=\"select a from t where a = ?\""));
+    assertFalse(line, line.contains("secret"));
+  }
+
+  @Test
+  public void testDrop() {
+    // Not started, so nothing is written.
+    SlowQueryLog log = new SlowQueryLog(0, 2, line -> {
+    });
+    for (int i = 0; i < 2; i++)
+      assertTrue(log.log(new SlowQueryRecord("1@local", "select", "select 1",
+              0, true)));
+    assertFalse(log.log(new SlowQueryRecord("1@local", "select", "select 1",
+            0, true)));
+  }
+}
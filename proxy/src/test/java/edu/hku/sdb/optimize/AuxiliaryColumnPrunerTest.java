@@ -0,0 +1,115 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.parse.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AuxiliaryColumnPrunerTest {
+
+  private static SelectionItem item(String tbl, String name, boolean
+          encrypted) {
+    return new SelectionItem(new FieldLiteral(tbl, name, Type.INT, encrypted,
+            null), name);
+  }
+
+  /**
+   * @return select [items], row_id, r, s from [tblRef]
+   */
+  private static SelectStmt select(TableRef tblRef, SelectionItem... items) {
+    SelectStmt selStmt = new SelectStmt();
+    SelectionList selList = new SelectionList();
+    selList.setItemList(new ArrayList<>(Arrays.asList(items)));
+    String tbl = tblRef.getAlias().equals("") ? tblRef.getTblName() : tblRef
+            .getAlias();
+    selList.setRowID(item(tbl, ColumnDefinition.ROW_ID_COLUMN_NAME, true));
+    selList.setAuxiliaryR(item(tbl, ColumnDefinition.R_COLUMN_NAME, true));
+    selList.setAuxiliaryS(item(tbl, ColumnDefinition.S_COLUMN_NAME, true));
+    selStmt.setSelectList(selList);
+    List<TableRef> tblRefs = new ArrayList<>();
+    tblRefs.add(tblRef);
+    selStmt.setTableRefs(tblRefs);
+    return selStmt;
+  }
+
+  @Test
+  public void testPlainQuery() {
+    SelectStmt selStmt = select(new BaseTableRef("t", ""), item("t", "a",
+            false));
+    new AuxiliaryColumnPruner().prune(selStmt);
+
+    SelectionList selList = selStmt.getSelectList();
+    assertNull(selList.getRowID());
+    assertNull(selList.getAuxiliaryR());
+    assertNull(selList.getAuxiliaryS());
+  }
+
+  @Test
+  public void testEncryptedQuery() {
+    SelectStmt selStmt = select(new BaseTableRef("t", ""), item("t", "a",
+            true));
+    new AuxiliaryColumnPruner().prune(selStmt);
+
+    // The row id is needed to decrypt a.
+    SelectionList selList = selStmt.getSelectList();
+    assertNotNull(selList.getRowID());
+    assertNull(selList.getAuxiliaryR());
+    assertNull(selList.getAuxiliaryS());
+  }
+
+  @Test
+  public void testInLineView() {
+    SelectStmt view = select(new BaseTableRef("t", ""), item("t", "a", true));
+    // sdb_first is dropped with the column it wraps.
+    SdbArithmeticExpr first = new SdbArithmeticExpr(SdbArithmeticExpr
+            .SdbOperator.SDB_FIRST);
+    first.addChild(view.getSelectList().getAuxiliaryR().getExpr());
+    view.getSelectList().getAuxiliaryR().setExpr(first);
+
+    SelectStmt selStmt = select(new InLineViewRef("v", view), item("v", "a",
+            true));
+    // The outer query uses the s column of the view.
+    SdbArithmeticExpr product = new SdbArithmeticExpr(SdbArithmeticExpr
+            .SdbOperator.SDB_MUL);
+    product.addChild(new FieldLiteral("v", "a", Type.INT, true, null));
+    product.addChild(new FieldLiteral("v", ColumnDefinition.S_COLUMN_NAME,
+            Type.INT, true, null));
+    selStmt.getSelectList().getItemList().get(0).setExpr(product);
+    selStmt.setGroupingExprs(Collections.emptyList());
+
+    new AuxiliaryColumnPruner().prune(selStmt);
+
+    SelectionList outer = selStmt.getSelectList();
+    assertNotNull(outer.getRowID());
+    assertNull(outer.getAuxiliaryR());
+    assertNull(outer.getAuxiliaryS());
+    // The row id of the view is used by the one of the outer query.
+    SelectionList inner = view.getSelectList();
+    assertNotNull(inner.getRowID());
+    assertNull(inner.getAuxiliaryR());
+    assertNotNull(inner.getAuxiliaryS());
+  }
+}
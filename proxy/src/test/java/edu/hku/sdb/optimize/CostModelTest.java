@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.ColumnMeta;
+import edu.hku.sdb.catalog.ColumnStats;
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.TableMeta;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.parse.BaseTableRef;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.parse.FieldLiteral;
+import edu.hku.sdb.parse.IntLiteral;
+import edu.hku.sdb.parse.NormalBinPredicate;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CostModelTest {
+
+  private static FieldLiteral field(String name, boolean encrypted) {
+    return new FieldLiteral("t", name, Type.INT, encrypted, null);
+  }
+
+  @Test
+  public void testNormalizeKeys() {
+    // A key update on the server saves the item key and the row id the
+    // client computes otherwise.
+    assertTrue(new CostModel(null).normalizeKeys(1));
+    assertTrue(new CostModel(null, 8).normalizeKeys(10));
+    assertFalse(new CostModel(null).normalizeKeys(0));
+  }
+
+  @Test
+  public void testSelectivity() {
+    CostModel costModel = new CostModel(null);
+    double eq = costModel.selectivity(new NormalBinPredicate(BinOperator.EQ,
+            field("a", true), new IntLiteral(1)));
+    double lt = costModel.selectivity(new NormalBinPredicate(BinOperator.LT,
+            field("a", true), new IntLiteral(1)));
+    double ne = costModel.selectivity(new NormalBinPredicate(BinOperator.NE,
+            field("a", true), new IntLiteral(1)));
+    assertTrue(eq < lt);
+    assertTrue(lt < ne);
+    assertEquals(1, eq + ne, 1e-9);
+  }
+
+  @Test
+  public void testPredicateCost() {
+    CostModel costModel = new CostModel(null);
+    NormalBinPredicate plain = new NormalBinPredicate(BinOperator.LT, field
+            ("c", false), new IntLiteral(1));
+    NormalBinPredicate constant = new NormalBinPredicate(BinOperator.LT, field
+            ("a", true), new IntLiteral(1));
+    NormalBinPredicate columns = new NormalBinPredicate(BinOperator.LT, field
+            ("a", true), field("b", true));
+
+    assertEquals(0, costModel.serverPredicateCost(plain), 0);
+    // Comparing two encrypted columns needs one more key update.
+    assertTrue(costModel.serverPredicateCost(constant) < costModel
+            .serverPredicateCost(columns));
+    // The server cost is shared by its nodes.
+    assertEquals(costModel.serverPredicateCost(columns) / 4, new CostModel
+            (null, 4).serverPredicateCost(columns), 1e-9);
+  }
+
+  @Test
+  public void testClientCost() {
+    CostModel costModel = new CostModel(null);
+    assertEquals(0, costModel.decryptCost(0), 0);
+    // The row id is decrypted along with the first encrypted column.
+    assertEquals(2 * CostModel.DECRYPT_COST, costModel.decryptCost(1), 1e-9);
+    assertEquals(3 * CostModel.TRANSFER_COST, costModel.transferCost(3),
+            1e-9);
+  }
+
+  @Test
+  public void testStatistics() {
+    DBMeta dbMeta = new DBMeta("db");
+    TableMeta tblMeta = new TableMeta("db", "t");
+    ColumnMeta colMeta = new ColumnMeta("db", "t", "a", Type.INT.toString(),
+            true, "1", "2");
+    ColumnStats stats = new ColumnStats(Type.INT);
+    for (int i = 0; i < 1000; i++)
+      stats.add(String.valueOf(i % 100));
+    stats.finish();
+    stats.save(colMeta);
+    tblMeta.getCols().add(colMeta);
+    tblMeta.setNumRows(1000);
+    dbMeta.add(tblMeta);
+
+    CostModel costModel = new CostModel(dbMeta);
+    List<BaseTableRef> tblRefs = Collections.singletonList(new BaseTableRef
+            ("t", "x"));
+    FieldLiteral a = new FieldLiteral("x", "a", Type.INT, true, null);
+
+    assertEquals(1000, costModel.estimateRows("t"), 0);
+    assertEquals(CostModel.DEFAULT_ROWS, costModel.estimateRows("other"), 0);
+    assertEquals(0.01, costModel.selectivity(new NormalBinPredicate
+            (BinOperator.EQ, a, new IntLiteral(5)), tblRefs), 0.001);
+    assertEquals(0, costModel.selectivity(new NormalBinPredicate(BinOperator
+            .EQ, a, new IntLiteral(500)), tblRefs), 0);
+    assertEquals(0.25, costModel.selectivity(new NormalBinPredicate
+            (BinOperator.LT, a, new IntLiteral(25)), tblRefs), 0.05);
+    // The constant on the left.
+    assertEquals(0.25, costModel.selectivity(new NormalBinPredicate
+            (BinOperator.GT, new IntLiteral(25), a), tblRefs), 0.05);
+    // Without the table, the defaults are used.
+    assertEquals(CostModel.EQ_SELECTIVITY, costModel.selectivity(new
+            NormalBinPredicate(BinOperator.EQ, a, new IntLiteral(5))), 0);
+
+    assertEquals(100, costModel.estimateGroups(1000, Collections
+            .singletonList(a), tblRefs), 5);
+    assertEquals(10, costModel.estimateGroups(10, Collections.singletonList
+            (a), tblRefs), 0);
+  }
+}
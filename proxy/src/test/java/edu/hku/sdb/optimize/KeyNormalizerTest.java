@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.catalog.TableMeta;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.udf.util.UDFHandler;
+import edu.hku.sdb.util.TestQuery;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyNormalizerTest {
+
+  private static SdbColumnKey colKey(TableMeta tblMeta, String colName) {
+    return new SdbColumnKey(new BigInteger(tblMeta.getCol(colName).getM()),
+            new BigInteger(tblMeta.getCol(colName).getX()));
+  }
+
+  /**
+   * @return select a from t1
+   */
+  private static SelectStmt select(TableMeta tblMeta) {
+    SelectStmt selStmt = new SelectStmt();
+    SelectionList selList = new SelectionList();
+    List<SelectionItem> items = new ArrayList<>();
+    items.add(new SelectionItem(new FieldLiteral("t1", "a", Type.INT, true,
+            colKey(tblMeta, "a")), ""));
+    selList.setItemList(items);
+    selStmt.setSelectList(selList);
+    List<TableRef> tblRefs = new ArrayList<>();
+    tblRefs.add(new BaseTableRef("t1", ""));
+    selStmt.setTableRefs(tblRefs);
+    return selStmt;
+  }
+
+  @Test
+  public void testModes() {
+    DBMeta dbMeta = TestQuery.createDBMeta();
+    TableMeta tblMeta = dbMeta.getTbl("t1");
+
+    CostModel costModel = new CostModel(dbMeta);
+    assertFalse(new KeyNormalizer(KeyNormalizer.Mode.OFF, costModel).normalize
+            (select(tblMeta), dbMeta));
+    assertEquals(costModel.normalizeKeys(1), new KeyNormalizer(KeyNormalizer
+            .Mode.AUTO, costModel).normalize(select(tblMeta), dbMeta));
+    assertTrue(new KeyNormalizer(KeyNormalizer.Mode.ON, costModel).normalize
+            (select(tblMeta), dbMeta));
+    assertEquals(KeyNormalizer.Mode.AUTO, KeyNormalizer.Mode.of(" auto"));
+  }
+
+  @Test
+  public void testNormalize() {
+    DBMeta dbMeta = TestQuery.createDBMeta();
+    TableMeta tblMeta = dbMeta.getTbl("t1");
+    SelectStmt selStmt = select(tblMeta);
+
+    assertTrue(new KeyNormalizer(KeyNormalizer.Mode.ON, new CostModel(dbMeta,
+            8)).normalize(selStmt, dbMeta));
+    SelectionItem item = selStmt.getSelectList().getItemList().get(0);
+    assertEquals("a", item.getAlias());
+    assertTrue(item.getExpr() instanceof SdbKeyUpdateExpr);
+    SdbColumnKey newKey = item.getExpr().getSdbColKey();
+    assertEquals(BigInteger.ZERO, newKey.getX());
+    assertFalse(AuxiliaryColumnPruner.needsRowID(selStmt.getSelectList()));
+
+    // Evaluate the key update as the server does, the value is then decrypted
+    // with m alone.
+    BigInteger prime1 = new BigInteger(dbMeta.getPrime1());
+    BigInteger prime2 = new BigInteger(dbMeta.getPrime2());
+    BigInteger n = new BigInteger(dbMeta.getN());
+    BigInteger g = new BigInteger(dbMeta.getG());
+    BigInteger totient = SDBEncrypt.evaluateTotient(prime1, prime2);
+    BigInteger rowId = SDBEncrypt.generatePositiveRand(prime1, prime2);
+    SdbColumnKey aKey = colKey(tblMeta, "a");
+    SdbColumnKey sKey = colKey(tblMeta, ColumnDefinition.S_COLUMN_NAME);
+    BigInteger a = SDBEncrypt.encrypt(BigInteger.valueOf(42), SDBEncrypt
+            .generateItemKeyOp2(aKey.getM(), aKey.getX(), rowId, g, n,
+                    totient, prime1, prime2), n);
+    BigInteger s = SDBEncrypt.encrypt(BigInteger.ONE, SDBEncrypt
+            .generateItemKeyOp2(sKey.getM(), sKey.getX(), rowId, g, n,
+                    totient, prime1, prime2), n);
+
+    List<Expr> children = item.getExpr().getChildren();
+    BigInteger p = ((BigIntLiteral) children.get(2)).getValue();
+    BigInteger q = ((BigIntLiteral) children.get(3)).getValue();
+    BigInteger updated = UDFHandler.keyUpdate(a, s, p, q, n);
+    assertEquals(BigInteger.valueOf(42), SDBEncrypt.decrypt(updated, newKey
+            .getM(), n));
+  }
+}
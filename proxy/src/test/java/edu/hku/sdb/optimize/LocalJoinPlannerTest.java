@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.ColumnMeta;
+import edu.hku.sdb.catalog.DBMeta;
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.exec.ColumnDesc;
+import edu.hku.sdb.exec.LocalExplain;
+import edu.hku.sdb.exec.PlanNode;
+import edu.hku.sdb.exec.RowDesc;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.rewrite.HiveRewriter;
+import edu.hku.sdb.rewrite.SdbSchemeRewriter;
+import edu.hku.sdb.rewrite.SdbUdfSummary;
+import edu.hku.sdb.util.TestQuery;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LocalJoinPlannerTest {
+
+  private static DBMeta createDBMeta() {
+    DBMeta dbMeta = TestQuery.createDBMeta();
+    dbMeta.setK(SDBEncrypt.generatePositiveRand(new BigInteger(dbMeta
+            .getPrime1()), new BigInteger(dbMeta.getPrime2())).toString());
+    return dbMeta;
+  }
+
+  private static FieldLiteral field(DBMeta dbMeta, String tblName, String
+          name) {
+    ColumnMeta colMeta = dbMeta.getTbl(tblName).getCol(name);
+    return new FieldLiteral(tblName, name, Type.INT, colMeta.isSensitive(),
+            colMeta.isSensitive() ? new SdbColumnKey(colMeta.getM(), colMeta
+                    .getX()) : null);
+  }
+
+  private static Expr compare(BinOperator op, Expr left, Expr right) {
+    NormalBinPredicate pred = new NormalBinPredicate(op);
+    pred.addChild(left);
+    pred.addChild(right);
+    return pred;
+  }
+
+  /**
+   * @return select t1.a, t2.b from t1 join t2 on t1.id = t2.id where t1.a >
+   * 1 and t1.a < t2.b
+   */
+  private static SelectStmt prepareJoin(DBMeta dbMeta) {
+    SelectStmt selStmt = new SelectStmt();
+    SelectionList selList = new SelectionList();
+    selList.getItemList().add(new SelectionItem(field(dbMeta, "t1", "a"), ""));
+    selList.getItemList().add(new SelectionItem(field(dbMeta, "t2", "b"), ""));
+    selStmt.setSelectList(selList);
+
+    BaseTableRef t1 = new BaseTableRef("t1", "");
+    BaseTableRef t2 = new BaseTableRef("t2", "");
+    t2.setJoinOp(JoinOperator.INNER_JOIN);
+    t2.setLeftTblRef(t1);
+    t2.setOnClause(compare(BinOperator.EQ, field(dbMeta, "t1", "id"), field
+            (dbMeta, "t2", "id")));
+    List<TableRef> tblRefs = new ArrayList<>();
+    tblRefs.add(t1);
+    tblRefs.add(t2);
+    selStmt.setTableRefs(tblRefs);
+
+    CompoundPredicate where = new CompoundPredicate(CompoundPredicate
+            .CompoundOperator.AND);
+    where.setLeftPred(compare(BinOperator.GT, field(dbMeta, "t1", "a"), new
+            IntLiteral(1)));
+    where.setRightPred(compare(BinOperator.LT, field(dbMeta, "t1", "a"),
+            field(dbMeta, "t2", "b")));
+    selStmt.setWhereClause(where);
+    return selStmt;
+  }
+
+  @Test
+  public void testExplain() throws Exception {
+    DBMeta dbMeta = createDBMeta();
+    SelectStmt selStmt = prepareJoin(dbMeta);
+    LocalJoinPlanner planner = new LocalJoinPlanner(dbMeta, null, () -> new
+            SdbSchemeRewriter(dbMeta, new HiveRewriter(dbMeta)));
+
+    // The server does not filter on two tables, so the join is local.
+    PlanNode plan = planner.plan(selStmt);
+    assertNotNull(plan);
+    assertEquals(2, planner.getRewrittenStmts().size());
+
+    // The statement itself is left unrewritten, the predicate on t1 is only
+    // rewritten in the query of t1.
+    assertEquals(0, new SdbUdfSummary(selStmt).getNumUdfCalls());
+    SdbUdfSummary summary = new SdbUdfSummary(planner.getRewrittenStmts());
+    assertTrue(summary.getNumUdfCalls() > 0);
+    assertTrue(summary.getKeyUpdates() > 0);
+
+    RowDesc rowDesc = new RowDesc();
+    rowDesc.setSignature(Collections.singletonList(new ColumnDesc("Explain",
+            "", null, false, null)));
+    LocalExplain explain = new LocalExplain(plan, false, summary, rowDesc);
+    List<String> lines = new ArrayList<>();
+    List<Object> row;
+    while ((row = explain.next()) != null)
+      lines.add((String) row.get(0));
+
+    int udfCalls = lines.indexOf("SDB UDF calls:");
+    assertTrue(udfCalls > 0);
+    assertTrue(lines.get(udfCalls + 1).startsWith("  t1.where sdb_gt("));
+    assertEquals("  total: " + summary.getNumUdfCalls() + " calls, " + summary
+            .getKeyUpdates() + " key updates, 0 cartesian products", lines.get
+            (lines.size() - 1));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.optimize;
+
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.parse.CompoundPredicate.CompoundOperator;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParseNodeCopierTest {
+
+  @Test
+  public void testCopyPredicate() {
+    FieldLiteral a = new FieldLiteral("t1", "a", Type.INT, true, new
+            SdbColumnKey(BigInteger.ONE, BigInteger.TEN));
+    NormalBinPredicate lessThan = new NormalBinPredicate(BinOperator.LT, a,
+            new IntLiteral(5));
+    CompoundPredicate and = new CompoundPredicate(CompoundOperator.AND);
+    and.setLeftPred(lessThan);
+    and.setRightPred(new NormalBinPredicate(BinOperator.EQ, new FieldLiteral
+            ("t1", "c", Type.INT), new IntLiteral(1)));
+    String sql = and.toSql();
+
+    CompoundPredicate copy = (CompoundPredicate) ParseNodeCopier.copy(and);
+    assertEquals(sql, copy.toSql());
+    assertNotSame(lessThan, copy.getLeftPred());
+    assertNotSame(a, ((NormalBinPredicate) copy.getLeftPred()).getLeftExpr());
+
+    // Rewriting the copy in place leaves the original intact.
+    ((NormalBinPredicate) copy.getLeftPred()).setLeftExpr(new IntLiteral(0));
+    ((NormalBinPredicate) copy.getLeftPred()).getRightExpr().setSdbColKey
+            (null);
+    copy.setRightPred(new IntLiteral(1));
+    assertEquals(sql, and.toSql());
+    assertSame(a, lessThan.getLeftExpr());
+  }
+
+  @Test
+  public void testCopyTableRefs() {
+    BaseTableRef t1 = new BaseTableRef("t1", "");
+    BaseTableRef t2 = new BaseTableRef("t2", "b");
+    t2.setJoinOp(JoinOperator.INNER_JOIN);
+    t2.setLeftTblRef(t1);
+    t2.setOnClause(new NormalBinPredicate(BinOperator.EQ, new FieldLiteral
+            ("t1", "id", Type.INT), new FieldLiteral("b", "id", Type.INT)));
+    List<TableRef> tblRefs = new ArrayList<>();
+    tblRefs.add(t1);
+    tblRefs.add(t2);
+
+    List<TableRef> copy = ParseNodeCopier.copy(tblRefs);
+    assertEquals(2, copy.size());
+    assertNotSame(t2, copy.get(1));
+    assertEquals("b", copy.get(1).getAlias());
+    assertSame(copy.get(0), copy.get(1).getLeftTblRef());
+    assertEquals(t2.getOnClause().toSql(), copy.get(1).getOnClause().toSql());
+    assertNotSame(t2.getOnClause(), copy.get(1).getOnClause());
+
+    copy.get(1).setOnClause(null);
+    assertNotNull(t2.getOnClause());
+  }
+}
@@ -194,6 +194,25 @@ public class SemanticAnalyzerTest {
     }
   }
 
+  @Test
+  public void testCreateStmtStoredAs() {
+    String command = "CREATE TABLE employee (id INT, name VARCHAR(20), salary" +
+            " INT ENC, age INT) STORED AS orc";
+
+    try {
+      ASTNode astTree = parser.parse(command);
+
+      CreateStmt ansTree = TestQuery.prepareCreateStmtAnalyzed();
+      ansTree.setFileFormat("ORC");
+      ParseNode resultTree = testObj.analyze(astTree);
+
+      assertEquals(ansTree, resultTree);
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
   @Test
   public void testAnalyzeComplexQuery() {
     String command = "SELECT temp1.id, count(*) as count, sum(a) as sum FROM " +
@@ -214,4 +233,60 @@ public class SemanticAnalyzerTest {
     }
 
   }
+
+  @Test
+  public void testLoadStmtPartition() {
+    String command = "LOAD DATA INPATH '/tmp/T1.txt' OVERWRITE INTO TABLE T1 " +
+            "PARTITION (ds='2015-10-01', hr=12)";
+
+    try {
+      ASTNode astTree = parser.parse(command);
+
+      LoadStmt ansTree = new LoadStmt("/tmp/T1.txt", "T1");
+      ansTree.setPartition("ds='2015-10-01',hr=12");
+      ParseNode resultTree = testObj.analyze(astTree);
+
+      assertEquals(ansTree, resultTree);
+      assertEquals("LOAD DATA INPATH '/tmp/T1.txt' OVERWRITE INTO TABLE T1 " +
+              "PARTITION (ds='2015-10-01',hr=12)", resultTree.toSql());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testLoadStmtProperties() {
+    String command = "LOAD DATA INPATH '/tmp/T1.txt' OVERWRITE INTO TABLE T1 " +
+            "TBLPROPERTIES ('sdb.upload.codec'='gzip', " +
+            "'sdb.upload.split.size'='67108864')";
+
+    try {
+      ASTNode astTree = parser.parse(command);
+
+      LoadStmt resultTree = (LoadStmt) testObj.analyze(astTree);
+
+      assertEquals(new LoadStmt("/tmp/T1.txt", "T1"), resultTree);
+      assertEquals("gzip", resultTree.getProperty("sdb.upload.codec"));
+      assertEquals("67108864", resultTree.getProperty("sdb.upload.split.size"));
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testLoadStmtAppend() {
+    String command = "LOAD DATA INPATH '/tmp/T1.txt' INTO TABLE T1";
+
+    try {
+      ASTNode astTree = parser.parse(command);
+
+      LoadStmt resultTree = (LoadStmt) testObj.analyze(astTree);
+
+      assertFalse(resultTree.isOverWrite());
+      assertEquals("LOAD DATA INPATH '/tmp/T1.txt' INTO TABLE T1", resultTree
+              .toSql());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
 }
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.rewrite;
+
+import edu.hku.sdb.catalog.SdbColumnKey;
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.SdbArithmeticExpr.SdbOperator;
+import edu.hku.sdb.parse.SdbKeyUpdateExpr.SdbKeyUpOperator;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class SdbEvalCompilerTest {
+
+  private BigIntLiteral n = new BigIntLiteral(new BigInteger("35"));
+  private BigIntLiteral p = new BigIntLiteral(new BigInteger("3"));
+  private BigIntLiteral q = new BigIntLiteral(new BigInteger("4"));
+
+  private Expr buildArithExpr(SdbOperator op, Expr left, Expr right) {
+    SdbArithmeticExpr expr = new SdbArithmeticExpr(op);
+    expr.addChild(left);
+    expr.addChild(right);
+    expr.addChild(n);
+    return expr;
+  }
+
+  @Test
+  public void testCompileNestedExpr() {
+    FieldLiteral a = new FieldLiteral("t", "a", Type.INT);
+    FieldLiteral b = new FieldLiteral("t", "b", Type.INT);
+    FieldLiteral s = new FieldLiteral("t", "s", Type.INT);
+
+    // sdb_keyUp(sdb_mul(a, sdb_add(a, b, n), n), s, p, q, n)
+    SdbKeyUpdateExpr keyUpdateExpr = new SdbKeyUpdateExpr(SdbKeyUpOperator
+            .SDB_KEYUP);
+    keyUpdateExpr.addChild(buildArithExpr(SdbOperator.SDB_MUL, a,
+            buildArithExpr(SdbOperator.SDB_ADD, a, b)));
+    keyUpdateExpr.addChild(s);
+    keyUpdateExpr.addChild(p);
+    keyUpdateExpr.addChild(q);
+    keyUpdateExpr.addChild(n);
+    SdbColumnKey colKey = new SdbColumnKey(BigInteger.ONE, BigInteger.ZERO);
+    keyUpdateExpr.setSdbColKey(colKey);
+
+    Expr compiled = new SdbEvalCompiler().compile(keyUpdateExpr);
+
+    assertTrue(compiled instanceof SdbEvalExpr);
+    assertEquals("$0 $0 $1 #z add #z mul $2 #3 #4 #z keyup", (
+            (SdbEvalExpr) compiled).getProgram());
+    assertEquals(3, compiled.getChildren().size());
+    assertEquals(colKey, compiled.getSdbColKey());
+    assertEquals("sdb_eval('$0 $0 $1 #z add #z mul $2 #3 #4 #z keyup',t.a,t" +
+            ".b,t.s)", compiled.toSql());
+  }
+
+  @Test
+  public void testSingleCallNotCompiled() {
+    FieldLiteral a = new FieldLiteral("t", "a", Type.INT);
+    FieldLiteral b = new FieldLiteral("t", "b", Type.INT);
+
+    Expr addExpr = buildArithExpr(SdbOperator.SDB_ADD, a, b);
+    assertSame(addExpr, new SdbEvalCompiler().compile(addExpr));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.rewrite;
+
+import edu.hku.sdb.catalog.Type;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.parse.SdbArithmeticExpr.SdbOperator;
+import edu.hku.sdb.parse.SdbKeyUpdateExpr.SdbKeyUpOperator;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class SdbUdfSummaryTest {
+
+  private BigIntLiteral n = new BigIntLiteral(new BigInteger("35"));
+  private FieldLiteral a = new FieldLiteral("t", "a", Type.INT);
+  private FieldLiteral b = new FieldLiteral("t", "b", Type.INT);
+  private FieldLiteral s = new FieldLiteral("t", "s", Type.INT);
+
+  private Expr buildArithExpr(SdbOperator op, Expr left, Expr right) {
+    SdbArithmeticExpr expr = new SdbArithmeticExpr(op);
+    expr.addChild(left);
+    expr.addChild(right);
+    expr.addChild(n);
+    return expr;
+  }
+
+  private Expr buildKeyUpExpr(Expr child) {
+    SdbKeyUpdateExpr expr = new SdbKeyUpdateExpr(SdbKeyUpOperator.SDB_KEYUP);
+    expr.addChild(child);
+    expr.addChild(s);
+    expr.addChild(n);
+    return expr;
+  }
+
+  @Test
+  public void testSummary() {
+    SelectStmt selStmt = new SelectStmt();
+    SelectionList selList = new SelectionList();
+    // sdb_keyUp(sdb_mul(a, sdb_add(a, b, n), n), s, n) as x
+    selList.getItemList().add(new SelectionItem(buildKeyUpExpr(buildArithExpr
+            (SdbOperator.SDB_MUL, a, buildArithExpr(SdbOperator.SDB_ADD, a, b))),
+            "x"));
+    // A plaintext column calls no UDF.
+    selList.getItemList().add(new SelectionItem(b, "b"));
+    selStmt.setSelectList(selList);
+
+    // sdb_gt(sdb_keyUp(a, s, n), 0)
+    SdbComparisonExpr where = new SdbComparisonExpr(BinOperator.GT);
+    where.addChild(buildKeyUpExpr(a));
+    where.addChild(new IntLiteral(0));
+    selStmt.setWhereClause(where);
+
+    SdbUdfSummary summary = new SdbUdfSummary(selStmt);
+
+    assertEquals(2, summary.getEntries().size());
+    SdbUdfSummary.Entry select = summary.getEntries().get(0);
+    assertEquals("select", select.getClause());
+    assertEquals("x", select.getExpr());
+    assertEquals(3, select.getNumUdfCalls());
+    assertEquals(1, select.getKeyUpdates());
+    assertEquals("select x: sdb_add x1 sdb_keyUp x1 sdb_mul x1, " +
+            "keyUpdates=1, cartesians=0", select.toString());
+
+    SdbUdfSummary.Entry filter = summary.getEntries().get(1);
+    assertEquals("where", filter.getClause());
+    assertEquals(2, filter.getNumUdfCalls());
+
+    assertEquals(5, summary.getNumUdfCalls());
+    assertEquals(2, summary.getKeyUpdates());
+    assertEquals(0, summary.getCartesians());
+  }
+
+  @Test
+  public void testFusedCalls() {
+    SdbEvalExpr evalExpr = new SdbEvalExpr("$0 $1 #z mul $2 #3 #4 #z keyup " +
+            "$3 #z cart");
+    SelectStmt selStmt = new SelectStmt();
+    SelectionList selList = new SelectionList();
+    selList.getItemList().add(new SelectionItem(evalExpr, "y"));
+    selStmt.setSelectList(selList);
+
+    SdbUdfSummary summary = new SdbUdfSummary(selStmt);
+
+    assertEquals(1, summary.getNumUdfCalls());
+    assertEquals(1, summary.getKeyUpdates());
+    assertEquals(1, summary.getCartesians());
+  }
+}
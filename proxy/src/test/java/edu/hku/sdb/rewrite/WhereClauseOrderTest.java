@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.rewrite;
+
+import edu.hku.sdb.catalog.*;
+import edu.hku.sdb.crypto.SDBEncrypt;
+import edu.hku.sdb.parse.*;
+import edu.hku.sdb.parse.BinaryPredicate.BinOperator;
+import edu.hku.sdb.parse.CompoundPredicate.CompoundOperator;
+import edu.hku.sdb.util.TestQuery;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the order of the conjuncts of a rewritten where clause.
+ */
+public class WhereClauseOrderTest {
+
+  private static DBMeta createDBMeta() {
+    DBMeta dbMeta = TestQuery.createDBMeta();
+    dbMeta.setK(SDBEncrypt.generatePositiveRand(new BigInteger(dbMeta
+            .getPrime1()), new BigInteger(dbMeta.getPrime2())).toString());
+    return dbMeta;
+  }
+
+  private static FieldLiteral field(DBMeta dbMeta, String name) {
+    ColumnMeta colMeta = dbMeta.getTbl("t1").getCol(name);
+    return new FieldLiteral("t1", name, Type.INT, colMeta.isSensitive(),
+            colMeta.isSensitive() ? new SdbColumnKey(colMeta.getM(), colMeta
+                    .getX()) : null);
+  }
+
+  private static Expr and(Expr left, Expr right) {
+    CompoundPredicate and = new CompoundPredicate(CompoundOperator.AND);
+    and.setLeftPred(left);
+    and.setRightPred(right);
+    return and;
+  }
+
+  /**
+   * @return where a < 5 and a = id and c = 1
+   */
+  private static Expr prepareWhereClause(DBMeta dbMeta) {
+    FieldLiteral a = field(dbMeta, "a");
+    return and(and(new NormalBinPredicate(BinOperator.LT, a, new IntLiteral
+            (5)), new NormalBinPredicate(BinOperator.EQ, a, field(dbMeta,
+            "id"))), new NormalBinPredicate(BinOperator.EQ, field(dbMeta,
+            "c"), new IntLiteral(1)));
+  }
+
+  /**
+   * @return where a < 5
+   */
+  private static Expr lessThan(DBMeta dbMeta) {
+    return new NormalBinPredicate(BinOperator.LT, field(dbMeta, "a"), new
+            IntLiteral(5));
+  }
+
+  private static List<TableRef> prepareTableRefs() {
+    List<TableRef> tblRefs = new ArrayList<>();
+    tblRefs.add(new BaseTableRef("t1", ""));
+    return tblRefs;
+  }
+
+  @Test
+  public void testPlaintextFirst() throws Exception {
+    DBMeta dbMeta = createDBMeta();
+    SdbSchemeRewriter rewriter = new SdbSchemeRewriter(dbMeta, null);
+    String sql = rewriter.rewriteWhereClause(prepareWhereClause(dbMeta),
+            prepareTableRefs()).toSql();
+
+    // Both encrypted conjuncts take 3 key updates, the equality is assumed
+    // more selective.
+    assertTrue(sql, sql.startsWith("t1.c = 1 AND sdb_eq("));
+    assertTrue(sql, sql.contains(") AND sdb_lt("));
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    DBMeta dbMeta = createDBMeta();
+    TableMeta tblMeta = dbMeta.getTbl("t1");
+    ColumnStats stats = new ColumnStats(Type.INT);
+    for (int i = 0; i < 1000; i++)
+      stats.add(String.valueOf(i));
+    stats.finish();
+    stats.save(tblMeta.getCol("a"));
+    tblMeta.setNumRows(1000);
+
+    SdbSchemeRewriter rewriter = new SdbSchemeRewriter(dbMeta, null);
+    String sql = rewriter.rewriteWhereClause(prepareWhereClause(dbMeta),
+            prepareTableRefs()).toSql();
+
+    // a < 5 keeps 0.5% of the rows.
+    assertTrue(sql, sql.startsWith("t1.c = 1 AND sdb_lt("));
+    assertTrue(sql, sql.contains(") AND sdb_eq("));
+  }
+
+  @Test
+  public void testSinglePredicate() throws Exception {
+    DBMeta dbMeta = createDBMeta();
+    SdbSchemeRewriter rewriter = new SdbSchemeRewriter(dbMeta, null);
+    Expr pred = new NormalBinPredicate(BinOperator.EQ, field(dbMeta, "c"), new
+            IntLiteral(1));
+    assertSame(pred, rewriter.rewriteWhereClause(pred, prepareTableRefs()));
+    assertNull(rewriter.rewriteWhereClause(null, prepareTableRefs()));
+  }
+
+  @Test
+  public void testUnsupportedConjunct() throws Exception {
+    DBMeta dbMeta = createDBMeta();
+    SdbSchemeRewriter rewriter = new SdbSchemeRewriter(dbMeta, null);
+
+    try {
+      rewriter.rewriteWhereClause(and(lessThan(dbMeta), new IsNullPredicate()),
+              prepareTableRefs());
+      fail("An IS NULL predicate cannot be rewritten");
+    } catch (UnSupportedException e) {
+      // expected
+    }
+
+    FieldLiteral otherId = new FieldLiteral("t2", "id", Type.INT, false, null);
+    try {
+      rewriter.rewriteWhereClause(and(lessThan(dbMeta), new NormalBinPredicate
+              (BinOperator.EQ, field(dbMeta, "id"), otherId)),
+              prepareTableRefs());
+      fail("A predicate cannot span two tables");
+    } catch (UnSupportedException e) {
+      // expected
+    }
+  }
+}
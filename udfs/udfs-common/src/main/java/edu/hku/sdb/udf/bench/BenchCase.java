@@ -0,0 +1,42 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.bench;
+
+/**
+ * A UDF workload measured by {@link BenchRunner}.
+ */
+public interface BenchCase {
+
+  String getName();
+
+  /**
+   * Build the UDF and its input rows, which is not measured.
+   *
+   * @param data
+   * @param rows
+   */
+  void prepare(SyntheticCiphers data, int rows) throws Exception;
+
+  /**
+   * Push all prepared rows through the UDF once.
+   *
+   * @return a value depending on the result, to keep the JIT from dropping
+   * the work
+   */
+  Object run() throws Exception;
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line driver of the UDF benchmarks. Every case is prepared once,
+ * warmed up and then run for a number of iterations, after which its
+ * throughput in rows/s and the bytes allocated per row are reported.
+ *
+ * Usage: [-rows N] [-warmup N] [-iterations N] [-seed N] [case ...]
+ */
+public class BenchRunner {
+
+  private int rows = 100000;
+  private int warmup = 3;
+  private int iterations = 5;
+  private long seed = 42;
+  private List<String> selected = new ArrayList<String>();
+
+  private final PrintStream out;
+
+  public BenchRunner(PrintStream out) {
+    this.out = out;
+  }
+
+  public void parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-rows"))
+        rows = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-warmup"))
+        warmup = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-iterations"))
+        iterations = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-seed"))
+        seed = Long.parseLong(args[++i]);
+      else if (args[i].startsWith("-"))
+        throw new IllegalArgumentException("Unknown option " + args[i]);
+      else
+        selected.add(args[i]);
+    }
+  }
+
+  public void run(List<BenchCase> cases) throws Exception {
+    SyntheticCiphers data = new SyntheticCiphers(seed);
+    out.println(String.format("%-24s %14s %14s", "case", "rows/s",
+            "bytes/row"));
+    for (BenchCase benchCase : cases) {
+      if (!selected.isEmpty() && !selected.contains(benchCase.getName()))
+        continue;
+
+      benchCase.prepare(data, rows);
+      for (int i = 0; i < warmup; i++)
+        benchCase.run();
+
+      long allocatedBefore = getAllocatedBytes();
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++)
+        benchCase.run();
+      long duration = System.nanoTime() - start;
+      long allocated = getAllocatedBytes() - allocatedBefore;
+
+      long totalRows = (long) rows * iterations;
+      double rowsPerSecond = totalRows / (duration / 1e9);
+      String bytesPerRow = allocatedBefore < 0 ? "n/a" : String.format("%.1f",
+              (double) allocated / totalRows);
+      out.println(String.format("%-24s %14.0f %14s", benchCase.getName(),
+              rowsPerSecond, bytesPerRow));
+    }
+  }
+
+  /**
+   * @return the bytes allocated by the current thread so far, -1 if the
+   * JVM cannot tell.
+   */
+  private static long getAllocatedBytes() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management
+              .ThreadMXBean) threadMXBean;
+      if (bean.isThreadAllocatedMemorySupported() && bean
+              .isThreadAllocatedMemoryEnabled())
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.bench;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Synthetic SDB key material and encrypted columns for benchmarks. Values
+ * are encrypted as the proxy does in SDBEncrypt: the item key of a row is
+ * m * g^(rowId * x) mod n, and the ciphertext is v * itemKey^-1 mod n.
+ */
+public class SyntheticCiphers {
+
+  public static final int DEFAULT_PRIME_LENGTH = 512;
+
+  private final Random random;
+  private final BigInteger p;
+  private final BigInteger q;
+  private final BigInteger n;
+  private final BigInteger g;
+  private final BigInteger totient;
+
+  public SyntheticCiphers(long seed) {
+    this(seed, DEFAULT_PRIME_LENGTH);
+  }
+
+  public SyntheticCiphers(long seed, int primeLength) {
+    random = new Random(seed);
+    p = BigInteger.probablePrime(primeLength, random);
+    q = BigInteger.probablePrime(primeLength, random);
+    n = p.multiply(q);
+    totient = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+    g = randomKey();
+  }
+
+  public BigInteger getN() {
+    return n;
+  }
+
+  public BigInteger getHalfN() {
+    return n.shiftRight(1);
+  }
+
+  /**
+   * @return a random number less than n and co-prime with n
+   */
+  public BigInteger randomKey() {
+    BigInteger key;
+    do {
+      key = new BigInteger(n.bitLength() - 1, random);
+    } while (key.signum() == 0 || !key.gcd(n).equals(BigInteger.ONE));
+    return key;
+  }
+
+  /**
+   * @return the encrypted values of a column with key <m, x> for rows, whose
+   * plaintexts are less than maxValue.
+   */
+  public BigInteger[] encryptColumn(BigInteger m, BigInteger x, BigInteger[]
+          rowIds, long maxValue) {
+    BigInteger gx = g.modPow(x.mod(totient), n);
+    BigInteger[] column = new BigInteger[rowIds.length];
+    for (int i = 0; i < rowIds.length; i++) {
+      BigInteger itemKey = m.multiply(gx.modPow(rowIds[i].mod(totient), n))
+              .mod(n);
+      BigInteger value = BigInteger.valueOf((long) (random.nextDouble() *
+              maxValue));
+      column[i] = value.multiply(itemKey.modInverse(n)).mod(n);
+    }
+    return column;
+  }
+
+  /**
+   * @return an encrypted column with a random column key
+   */
+  public BigInteger[] encryptColumn(BigInteger[] rowIds, long maxValue) {
+    return encryptColumn(randomKey(), randomKey(), rowIds, maxValue);
+  }
+
+  /**
+   * @return random row ids, which are stored encrypted like the R column
+   */
+  public BigInteger[] rowIds(int rows) {
+    BigInteger[] rowIds = new BigInteger[rows];
+    for (int i = 0; i < rows; i++)
+      rowIds[i] = new BigInteger(80, random);
+    return rowIds;
+  }
+
+  public static String[] toRadix36(BigInteger[] values) {
+    String[] strings = new String[values.length];
+    for (int i = 0; i < values.length; i++)
+      strings[i] = values[i].toString(Character.MAX_RADIX);
+    return strings;
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.util;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chain of SDB arithmetic UDFs compiled into a postfix program, so that a
+ * nested expression is evaluated on BigIntegers without formatting and
+ * parsing the intermediate results.
+ *
+ * A program is a list of tokens separated by spaces:
+ * <ul>
+ * <li>$i pushes the i-th argument, which is a radix-36 ciphertext</li>
+ * <li>%i pushes the i-th argument, which is a plaintext integer</li>
+ * <li>#v pushes the radix-36 constant v</li>
+ * <li>add, mul, keyup and cart pop their operands in the order of the
+ * arguments of {@link UDFHandler#add}, {@link UDFHandler#multi},
+ * {@link UDFHandler#keyUpdate} and {@link UDFHandler#cartesianProduct}, and
+ * push the result</li>
+ * </ul>
+ * For example "$0 $1 #z add #z mul" is sdb_mul(sdb_add(a, b, n), n).
+ *
+ * A program is not thread safe, since it reuses its stack.
+ */
+public class SdbProgram {
+
+  public static final String OP_ADD = "add";
+  public static final String OP_MUL = "mul";
+  public static final String OP_KEYUP = "keyup";
+  public static final String OP_CART = "cart";
+
+  private static final int PUSH_ARG = 0;
+  private static final int PUSH_CONST = 1;
+  private static final int ADD = 2;
+  private static final int MUL = 3;
+  private static final int KEYUP = 4;
+  private static final int CART = 5;
+
+  private final String text;
+  private final int[] opcodes;
+  // Argument index for PUSH_ARG, constant index for PUSH_CONST.
+  private final int[] operands;
+  private final BigInteger[] constants;
+  private final boolean[] plainArguments;
+  private final BigInteger[] stack;
+
+  private SdbProgram(String text, int[] opcodes, int[] operands, BigInteger[]
+          constants, boolean[] plainArguments, int maxDepth) {
+    this.text = text;
+    this.opcodes = opcodes;
+    this.operands = operands;
+    this.constants = constants;
+    this.plainArguments = plainArguments;
+    this.stack = new BigInteger[maxDepth];
+  }
+
+  /**
+   * @param program
+   * @return the compiled program
+   * @throws IllegalArgumentException if the program is malformed
+   */
+  public static SdbProgram compile(String program) {
+    String[] tokens = program.trim().split(" +");
+    int[] opcodes = new int[tokens.length];
+    int[] operands = new int[tokens.length];
+    List<BigInteger> constants = new ArrayList<BigInteger>();
+    List<Boolean> plainArguments = new ArrayList<Boolean>();
+
+    int depth = 0;
+    int maxDepth = 0;
+    for (int i = 0; i < tokens.length; i++) {
+      String token = tokens[i];
+      int numOperands;
+      if (token.startsWith("$") || token.startsWith("%")) {
+        opcodes[i] = PUSH_ARG;
+        operands[i] = parseIndex(token);
+        while (plainArguments.size() <= operands[i])
+          plainArguments.add(null);
+        Boolean plain = token.startsWith("%");
+        if (plainArguments.get(operands[i]) != null && !plainArguments.get
+                (operands[i]).equals(plain))
+          throw new IllegalArgumentException("Argument " + operands[i] + " " +
+                  "is used as both plaintext and ciphertext in " + program);
+        plainArguments.set(operands[i], plain);
+        numOperands = 0;
+      } else if (token.startsWith("#")) {
+        opcodes[i] = PUSH_CONST;
+        operands[i] = constants.size();
+        constants.add(new BigInteger(token.substring(1), Character.MAX_RADIX));
+        numOperands = 0;
+      } else if (token.equals(OP_ADD)) {
+        opcodes[i] = ADD;
+        numOperands = 3;
+      } else if (token.equals(OP_MUL)) {
+        opcodes[i] = MUL;
+        numOperands = 3;
+      } else if (token.equals(OP_KEYUP)) {
+        opcodes[i] = KEYUP;
+        numOperands = 5;
+      } else if (token.equals(OP_CART)) {
+        opcodes[i] = CART;
+        numOperands = 4;
+      } else {
+        throw new IllegalArgumentException("Unknown token " + token + " in "
+                + program);
+      }
+
+      if (depth < numOperands)
+        throw new IllegalArgumentException("Not enough operands for " + token
+                + " in " + program);
+      depth = depth - numOperands + 1;
+      maxDepth = Math.max(maxDepth, depth);
+    }
+
+    if (depth != 1)
+      throw new IllegalArgumentException("Program " + program + " should " +
+              "leave exactly one result");
+
+    boolean[] plain = new boolean[plainArguments.size()];
+    for (int i = 0; i < plain.length; i++) {
+      if (plainArguments.get(i) == null)
+        throw new IllegalArgumentException("Argument " + i + " is not used " +
+                "in " + program);
+      plain[i] = plainArguments.get(i);
+    }
+
+    return new SdbProgram(program, opcodes, operands, constants.toArray(new
+            BigInteger[constants.size()]), plain, maxDepth);
+  }
+
+  private static int parseIndex(String token) {
+    try {
+      return Integer.parseInt(token.substring(1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid argument " + token);
+    }
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * @return the number of arguments the program takes
+   */
+  public int getNumArguments() {
+    return plainArguments.length;
+  }
+
+  /**
+   * @return true if the i-th argument is a plaintext integer rather than a
+   * radix-36 ciphertext.
+   */
+  public boolean isPlainArgument(int i) {
+    return plainArguments[i];
+  }
+
+  /**
+   * @param arguments the parsed arguments
+   * @return the result of the program
+   */
+  public BigInteger evaluate(BigInteger[] arguments) {
+    int top = 0;
+    for (int i = 0; i < opcodes.length; i++) {
+      switch (opcodes[i]) {
+        case PUSH_ARG:
+          stack[top++] = arguments[operands[i]];
+          break;
+        case PUSH_CONST:
+          stack[top++] = constants[operands[i]];
+          break;
+        case ADD:
+          top -= 3;
+          stack[top] = UDFHandler.add(stack[top], stack[top + 1], stack[top
+                  + 2]);
+          top++;
+          break;
+        case MUL:
+          top -= 3;
+          stack[top] = UDFHandler.multi(stack[top], stack[top + 1], stack[top
+                  + 2]);
+          top++;
+          break;
+        case KEYUP:
+          top -= 5;
+          stack[top] = UDFHandler.keyUpdate(stack[top], stack[top + 1],
+                  stack[top + 2], stack[top + 3], stack[top + 4]);
+          top++;
+          break;
+        case CART:
+          top -= 4;
+          stack[top] = UDFHandler.cartesianProduct(stack[top], stack[top + 1],
+                  stack[top + 2], stack[top + 3]);
+          top++;
+          break;
+      }
+    }
+
+    BigInteger result = stack[0];
+    stack[0] = null;
+    return result;
+  }
+}
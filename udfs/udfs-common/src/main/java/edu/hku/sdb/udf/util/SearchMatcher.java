@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.util;
+
+import org.apache.commons.codec.binary.Base64;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Matches a keyword against the searchable encrypted words of a column
+ * value. The public key is decoded and the pseudo random cipher initialized
+ * only once, so a matcher should be kept for as long as the key is the same.
+ * A matcher is not thread safe.
+ */
+public class SearchMatcher {
+
+  private static final String SCHEME = "AES/ECB/PKCS5Padding";
+
+  private final String publicKey;
+  private final Cipher prCipher;
+
+  // The bytes of the last keyword, which is a constant of the query.
+  private String keyword;
+  private byte[] keywordBytes;
+
+  public SearchMatcher(String publicKey) {
+    this.publicKey = publicKey;
+    try {
+      prCipher = Cipher.getInstance(SCHEME);
+      prCipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64
+              .decodeBase64(publicKey), "AES"));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException(e);
+    } catch (NoSuchPaddingException e) {
+      throw new IllegalArgumentException(e);
+    } catch (InvalidKeyException e) {
+      throw new IllegalArgumentException("Invalid public key for search", e);
+    }
+  }
+
+  /**
+   * @return a matcher for publicKey, which is the given matcher if it
+   * already uses the same key.
+   */
+  public static SearchMatcher forKey(SearchMatcher matcher, String publicKey) {
+    if (matcher != null && matcher.publicKey.equals(publicKey))
+      return matcher;
+    return new SearchMatcher(publicKey);
+  }
+
+  /**
+   * @param encodedWords Base64 encoded encrypted words
+   * @param keyword
+   * @return true if any of the words matches the keyword
+   */
+  public boolean matchAny(Iterable<String> encodedWords, String keyword) {
+    setKeyword(keyword);
+    for (String word : encodedWords) {
+      if (word != null && search(Base64.decodeBase64(word)))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param encodedWord a Base64 encoded encrypted word
+   * @param keyword
+   * @return true if the word matches the keyword
+   */
+  public boolean match(String encodedWord, String keyword) {
+    setKeyword(keyword);
+    return search(Base64.decodeBase64(encodedWord));
+  }
+
+  private void setKeyword(String keyword) {
+    if (!keyword.equals(this.keyword)) {
+      this.keyword = keyword;
+      keywordBytes = keyword.getBytes();
+    }
+  }
+
+  private boolean search(byte[] encrypted) {
+    if (keywordBytes.length != encrypted.length) {
+      return false;
+    }
+    // get diff = word xor encrypted
+    // if it is a match, first part of diff generates second part of diff using pseudo random function
+    byte[] diff1 = new byte[keywordBytes.length - 1];
+    for (int i = 0; i < diff1.length; i++) {
+      diff1[i] = (byte) (encrypted[i] ^ keywordBytes[i]);
+    }
+    byte diff2 = (byte) (encrypted[diff1.length] ^ keywordBytes[diff1.length]);
+
+    try {
+      // fksi is F_k(S_i) in the searchable encryption
+      byte[] fksi = prCipher.doFinal(diff1);
+      return fksi[0] == diff2;
+    } catch (IllegalBlockSizeException e) {
+      e.printStackTrace();
+    } catch (BadPaddingException e) {
+      e.printStackTrace();
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * The aggregation state of SDB Addition (EE Mode) over many rows, shared by
+ * the SUM aggregators of all servers.
+ *
+ * The modulus n is only set once, and the running sum is reduced by n every
+ * REDUCE_INTERVAL additions instead of after each one. Between two reductions
+ * the sum grows by at most log2(REDUCE_INTERVAL) bits over n.
+ *
+ * The state is serialized as [width][n][sum], where both n and sum are
+ * written as big-endian two's complement numbers of width bytes.
+ */
+public class SumAccumulator {
+
+  public static final int REDUCE_INTERVAL = 64;
+
+  private BigInteger sum = BigInteger.ZERO;
+  private BigInteger n;
+  private int width;
+  private int pending;
+
+  public void reset() {
+    sum = BigInteger.ZERO;
+    n = null;
+    width = 0;
+    pending = 0;
+  }
+
+  public boolean hasModulus() {
+    return n != null;
+  }
+
+  /**
+   * Sets the modulus n, which must be set before the first addition.
+   */
+  public void setModulus(BigInteger n) {
+    this.n = n;
+    width = n.toByteArray().length;
+  }
+
+  /**
+   * Adds an encrypted value, whose value < n.
+   */
+  public void add(BigInteger value) {
+    sum = sum.add(value);
+    if (++pending >= REDUCE_INTERVAL)
+      reduce();
+  }
+
+  /**
+   * Adds the state of another accumulator of the same column.
+   */
+  public void merge(SumAccumulator other) {
+    if (other.n == null)
+      return;
+    if (n == null)
+      setModulus(other.n);
+    add(other.get());
+  }
+
+  /**
+   * Merges a state serialized by {@link #toBytes()}.
+   */
+  public void merge(byte[] bytes) throws IOException {
+    SumAccumulator other = new SumAccumulator();
+    other.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+    merge(other);
+  }
+
+  /**
+   * @return the sum mod n
+   */
+  public BigInteger get() {
+    reduce();
+    return sum;
+  }
+
+  private void reduce() {
+    if (pending > 0 && n != null)
+      sum = sum.mod(n);
+    pending = 0;
+  }
+
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(width);
+    if (width == 0)
+      return;
+    writeFixed(out, n);
+    writeFixed(out, get());
+  }
+
+  public void readFields(DataInput in) throws IOException {
+    reset();
+    int width = in.readInt();
+    if (width == 0)
+      return;
+    setModulus(readFixed(in, width));
+    sum = readFixed(in, width);
+  }
+
+  public byte[] toBytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + 2 * width);
+    write(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  private void writeFixed(DataOutput out, BigInteger value) throws
+          IOException {
+    byte[] bytes = value.toByteArray();
+    for (int i = bytes.length; i < width; i++)
+      out.writeByte(0);
+    out.write(bytes);
+  }
+
+  private static BigInteger readFixed(DataInput in, int width) throws
+          IOException {
+    byte[] bytes = new byte[width];
+    in.readFully(bytes);
+    return new BigInteger(bytes);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.util;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+public class SumAccumulatorTest extends TestCase {
+
+  private static final BigInteger N = new BigInteger(
+          "526631133691760337517");
+
+  public void testLazyReduction() {
+    SumAccumulator sum = new SumAccumulator();
+    sum.setModulus(N);
+    BigInteger expected = BigInteger.ZERO;
+    BigInteger value = N.subtract(BigInteger.ONE);
+    for (int i = 0; i < 3 * SumAccumulator.REDUCE_INTERVAL + 5; i++) {
+      sum.add(value);
+      expected = expected.add(value).mod(N);
+    }
+    assertEquals(expected, sum.get());
+  }
+
+  public void testMergeSerialized() throws IOException {
+    SumAccumulator partial1 = new SumAccumulator();
+    partial1.setModulus(N);
+    partial1.add(new BigInteger("224933717167058460147"));
+    partial1.add(new BigInteger("7"));
+
+    SumAccumulator partial2 = new SumAccumulator();
+    partial2.setModulus(N);
+    partial2.add(new BigInteger("526631133691760337510"));
+
+    // A final aggregation never sees the key before the first merge.
+    SumAccumulator sum = new SumAccumulator();
+    sum.merge(partial1.toBytes());
+    sum.merge(partial2.toBytes());
+    sum.merge(new SumAccumulator().toBytes());
+
+    assertEquals(new BigInteger("224933717167058460147"), sum.get());
+  }
+}
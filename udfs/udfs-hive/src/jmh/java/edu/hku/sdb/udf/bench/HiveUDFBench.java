@@ -0,0 +1,684 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.bench;
+
+import edu.hku.sdb.udf.hive.SdbAddGenericUDF;
+import edu.hku.sdb.udf.hive.SdbAddUDF;
+import edu.hku.sdb.udf.hive.SdbCartProdGenericUDF;
+import edu.hku.sdb.udf.hive.SdbCartProdUDF;
+import edu.hku.sdb.udf.hive.SdbEqGenericUDF;
+import edu.hku.sdb.udf.hive.SdbEqUDF;
+import edu.hku.sdb.udf.hive.SdbEvalGenericUDF;
+import edu.hku.sdb.udf.hive.SdbFirstUDF;
+import edu.hku.sdb.udf.hive.SdbGeGenericUDF;
+import edu.hku.sdb.udf.hive.SdbGeUDF;
+import edu.hku.sdb.udf.hive.SdbGtGenericUDF;
+import edu.hku.sdb.udf.hive.SdbGtUDF;
+import edu.hku.sdb.udf.hive.SdbIntAddGenericUDF;
+import edu.hku.sdb.udf.hive.SdbIntAddUDF;
+import edu.hku.sdb.udf.hive.SdbKeyUpdateGenericUDF;
+import edu.hku.sdb.udf.hive.SdbKeyUpdatePlainGenericUDF;
+import edu.hku.sdb.udf.hive.SdbKeyUpdatePlainUDF;
+import edu.hku.sdb.udf.hive.SdbKeyUpdateUDF;
+import edu.hku.sdb.udf.hive.SdbLeGenericUDF;
+import edu.hku.sdb.udf.hive.SdbLeUDF;
+import edu.hku.sdb.udf.hive.SdbLtGenericUDF;
+import edu.hku.sdb.udf.hive.SdbLtUDF;
+import edu.hku.sdb.udf.hive.SdbMultiGenericUDF;
+import edu.hku.sdb.udf.hive.SdbMultiUDF;
+import edu.hku.sdb.udf.hive.SdbNeGenericUDF;
+import edu.hku.sdb.udf.hive.SdbNeUDF;
+import edu.hku.sdb.udf.hive.SdbSearchGenericUDF;
+import edu.hku.sdb.udf.hive.SdbSearchUDF;
+import edu.hku.sdb.udf.hive.SdbSumUDF;
+import edu.hku.sdb.udf.hive.SdbSumUDF2;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro-benchmarks of the Hive UDFs, driven through the same lifecycle as
+ * Hive does (initialize/evaluate for GenericUDFs, evaluate for reflective
+ * UDFs, and iterate/terminatePartial/merge/terminate for UDAFs), without a
+ * cluster.
+ *
+ * The "_const" cases pass the key and modulus arguments of a GenericUDF as
+ * constant object inspectors, as Hive does for literals, while the plain
+ * cases pass them as columns. The "_udf" and "_udaf" cases run the
+ * reflective UDFs and the UDAF evaluators of the same functions.
+ *
+ * Usage: java edu.hku.sdb.udf.bench.HiveUDFBench [-rows N] [-warmup N]
+ * [-iterations N] [-seed N] [case ...]
+ */
+public class HiveUDFBench {
+
+  public static final String[] CASES = {"sdb_add", "sdb_intadd", "sdb_multi",
+          "sdb_keyUp", "sdb_keyUpPlain", "sdb_cartesian", "sdb_gt", "sdb_ge",
+          "sdb_lt", "sdb_le", "sdb_eq", "sdb_ne", "sdb_search", "sdb_eval",
+          "sdb_sum", "sdb_add_const", "sdb_intadd_const", "sdb_multi_const",
+          "sdb_keyUp_const", "sdb_keyUpPlain_const", "sdb_cartesian_const",
+          "sdb_gt_const", "sdb_ge_const", "sdb_lt_const", "sdb_le_const",
+          "sdb_search_const", "sdb_eval_const", "sdb_add_udf",
+          "sdb_intadd_udf", "sdb_multi_udf", "sdb_keyUp_udf",
+          "sdb_keyUpPlain_udf", "sdb_cartesian_udf", "sdb_gt_udf",
+          "sdb_ge_udf", "sdb_lt_udf", "sdb_le_udf", "sdb_eq_udf", "sdb_ne_udf",
+          "sdb_search_udf", "sdb_sum_udaf", "sdb_first_udaf"};
+
+  public static final String CONST_SUFFIX = "_const";
+
+  // Plaintext values are kept small enough not to overflow a SUM.
+  private static final long MAX_VALUE = 1000000L;
+
+  // Number of map tasks the rows of sdb_sum are split into.
+  private static final int NUM_PARTIALS = 4;
+
+  // Number of encrypted words of a row searched by sdb_search.
+  private static final int NUM_WORDS = 4;
+
+  private static final int WORD_LENGTH = 8;
+
+  public static BenchCase getCase(String name) {
+    boolean constant = name.endsWith(CONST_SUFFIX);
+    String udfName = constant ? name.substring(0, name.length() -
+            CONST_SUFFIX.length()) : name;
+
+    if (udfName.equals("sdb_add")) {
+      return new GenericUDFCase(name, new SdbAddGenericUDF(), constant, 2) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.b, row.n};
+        }
+      };
+    } else if (udfName.equals("sdb_intadd")) {
+      return new GenericUDFCase(name, new SdbIntAddGenericUDF(), constant, 2) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.b, row.n};
+        }
+      };
+    } else if (udfName.equals("sdb_multi")) {
+      return new GenericUDFCase(name, new SdbMultiGenericUDF(), constant, 2) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.b, row.n};
+        }
+      };
+    } else if (udfName.equals("sdb_keyUp")) {
+      return new GenericUDFCase(name, new SdbKeyUpdateGenericUDF(), constant,
+              2, 3, 4) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.s, row.p, row.q, row.n};
+        }
+      };
+    } else if (udfName.equals("sdb_keyUpPlain")) {
+      return new GenericUDFCase(name, new SdbKeyUpdatePlainGenericUDF(),
+              constant, 2, 3, 4) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.plain, row.s, row.p, row.q, row.n};
+        }
+      };
+    } else if (udfName.equals("sdb_cartesian")) {
+      return new GenericUDFCase(name, new SdbCartProdGenericUDF(), constant,
+              2, 3) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.s, row.p, row.n};
+        }
+      };
+    } else if (udfName.equals("sdb_gt")) {
+      return new GenericUDFCase(name, new SdbGtGenericUDF(), constant, 1) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.halfN};
+        }
+      };
+    } else if (udfName.equals("sdb_ge")) {
+      return new GenericUDFCase(name, new SdbGeGenericUDF(), constant, 1) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.halfN};
+        }
+      };
+    } else if (udfName.equals("sdb_lt")) {
+      return new GenericUDFCase(name, new SdbLtGenericUDF(), constant, 1) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.halfN};
+        }
+      };
+    } else if (udfName.equals("sdb_le")) {
+      return new GenericUDFCase(name, new SdbLeGenericUDF(), constant, 1) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a, row.halfN};
+        }
+      };
+    } else if (name.equals("sdb_eq")) {
+      return new GenericUDFCase(name, new SdbEqGenericUDF(), false) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a};
+        }
+      };
+    } else if (name.equals("sdb_ne")) {
+      return new GenericUDFCase(name, new SdbNeGenericUDF(), false) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.a};
+        }
+      };
+    } else if (udfName.equals("sdb_search")) {
+      return new GenericUDFCase(name, new SdbSearchGenericUDF(), constant,
+              1, 2) {
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{row.words, row.keyword, row.publicKey};
+        }
+      };
+    } else if (udfName.equals("sdb_eval")) {
+      // Same work as sdb_keyUp(sdb_multi(a, b, n), s, p, q, n).
+      return new GenericUDFCase(name, new SdbEvalGenericUDF(), constant,
+              0, 3, 5, 6) {
+        private final Text program = new Text("$0 $1 $2 mul $3 $4 $5 $2 " +
+                "keyup");
+
+        @Override
+        protected Object[] makeRow(Row row) {
+          return new Object[]{program, row.a, row.b, row.n, row.s, row.p,
+                  row.q};
+        }
+      };
+    } else if (name.equals("sdb_sum")) {
+      return new SumCase(name);
+    }
+    return getReflectiveCase(name);
+  }
+
+  /**
+   * @return the case of a reflective UDF or a UDAF evaluator
+   */
+  private static BenchCase getReflectiveCase(String name) {
+    if (name.equals("sdb_add_udf")) {
+      return new RowCase(name) {
+        private final SdbAddUDF udf = new SdbAddUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.b, row.n);
+        }
+      };
+    } else if (name.equals("sdb_intadd_udf")) {
+      return new RowCase(name) {
+        private final SdbIntAddUDF udf = new SdbIntAddUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.b, row.n);
+        }
+      };
+    } else if (name.equals("sdb_multi_udf")) {
+      return new RowCase(name) {
+        private final SdbMultiUDF udf = new SdbMultiUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.b, row.n);
+        }
+      };
+    } else if (name.equals("sdb_keyUp_udf")) {
+      return new RowCase(name) {
+        private final SdbKeyUpdateUDF udf = new SdbKeyUpdateUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.s, row.p, row.q, row.n);
+        }
+      };
+    } else if (name.equals("sdb_keyUpPlain_udf")) {
+      return new RowCase(name) {
+        private final SdbKeyUpdatePlainUDF udf = new SdbKeyUpdatePlainUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.plain, row.s, row.p, row.q, row.n);
+        }
+      };
+    } else if (name.equals("sdb_cartesian_udf")) {
+      return new RowCase(name) {
+        private final SdbCartProdUDF udf = new SdbCartProdUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.s, row.p, row.n);
+        }
+      };
+    } else if (name.equals("sdb_gt_udf")) {
+      return new RowCase(name) {
+        private final SdbGtUDF udf = new SdbGtUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.halfN);
+        }
+      };
+    } else if (name.equals("sdb_ge_udf")) {
+      return new RowCase(name) {
+        private final SdbGeUDF udf = new SdbGeUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.halfN);
+        }
+      };
+    } else if (name.equals("sdb_lt_udf")) {
+      return new RowCase(name) {
+        private final SdbLtUDF udf = new SdbLtUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.halfN);
+        }
+      };
+    } else if (name.equals("sdb_le_udf")) {
+      return new RowCase(name) {
+        private final SdbLeUDF udf = new SdbLeUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a, row.halfN);
+        }
+      };
+    } else if (name.equals("sdb_eq_udf")) {
+      return new RowCase(name) {
+        private final SdbEqUDF udf = new SdbEqUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a);
+        }
+      };
+    } else if (name.equals("sdb_ne_udf")) {
+      return new RowCase(name) {
+        private final SdbNeUDF udf = new SdbNeUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.a);
+        }
+      };
+    } else if (name.equals("sdb_search_udf")) {
+      return new RowCase(name) {
+        private final SdbSearchUDF udf = new SdbSearchUDF();
+
+        @Override
+        protected Object evaluate(Row row) {
+          return udf.evaluate(row.wordStrings, row.keyword, row.publicKey);
+        }
+      };
+    } else if (name.equals("sdb_sum_udaf")) {
+      return new RowCase(name) {
+        @Override
+        public Object run() throws Exception {
+          SdbSumUDF.SdbSumEvaluator total = new SdbSumUDF.SdbSumEvaluator();
+          int splitSize = getSplitSize(rows.length);
+          for (int start = 0; start < rows.length; start += splitSize) {
+            SdbSumUDF.SdbSumEvaluator partial = new SdbSumUDF
+                    .SdbSumEvaluator();
+            int end = Math.min(rows.length, start + splitSize);
+            for (int i = start; i < end; i++)
+              partial.iterate(rows[i].a, rows[i].n);
+            total.merge(partial.terminatePartial());
+          }
+          return total.terminate();
+        }
+      };
+    } else if (name.equals("sdb_first_udaf")) {
+      return new RowCase(name) {
+        @Override
+        public Object run() throws Exception {
+          SdbFirstUDF.SdbFirstEvaluator total = new SdbFirstUDF
+                  .SdbFirstEvaluator();
+          int splitSize = getSplitSize(rows.length);
+          for (int start = 0; start < rows.length; start += splitSize) {
+            SdbFirstUDF.SdbFirstEvaluator partial = new SdbFirstUDF
+                    .SdbFirstEvaluator();
+            int end = Math.min(rows.length, start + splitSize);
+            for (int i = start; i < end; i++)
+              partial.iterate(rows[i].a);
+            total.merge(partial.terminatePartial());
+          }
+          return total.terminate();
+        }
+      };
+    }
+    throw new IllegalArgumentException("Unknown benchmark " + name);
+  }
+
+  public static List<BenchCase> getCases() {
+    List<BenchCase> cases = new ArrayList<BenchCase>();
+    for (String name : CASES)
+      cases.add(getCase(name));
+    return cases;
+  }
+
+  public static void main(String[] args) throws Exception {
+    BenchRunner runner = new BenchRunner(System.out);
+    runner.parseArgs(args);
+    runner.run(getCases());
+  }
+
+  private static int getSplitSize(int rows) {
+    return Math.max(1, (rows + NUM_PARTIALS - 1) / NUM_PARTIALS);
+  }
+
+  /**
+   * The values a row may pass to a UDF.
+   */
+  private static class Row {
+    Text a;
+    Text b;
+    Text s;
+    Text p;
+    Text q;
+    Text n;
+    Text halfN;
+    LongWritable plain;
+    List<Text> words;
+    ArrayList<String> wordStrings;
+    Text keyword;
+    Text publicKey;
+  }
+
+  private static Row[] makeRows(SyntheticCiphers data, int rows) throws
+          Exception {
+    BigInteger[] rowIds = data.rowIds(rows);
+    String[] a = SyntheticCiphers.toRadix36(data.encryptColumn(rowIds,
+            MAX_VALUE));
+    String[] b = SyntheticCiphers.toRadix36(data.encryptColumn(rowIds,
+            MAX_VALUE));
+    String[] s = SyntheticCiphers.toRadix36(data.encryptColumn(rowIds, 2));
+    Text p = new Text(data.randomKey().toString(Character.MAX_RADIX));
+    Text q = new Text(data.randomKey().toString(Character.MAX_RADIX));
+    Text n = new Text(data.getN().toString(Character.MAX_RADIX));
+    Text halfN = new Text(data.getHalfN().toString(Character.MAX_RADIX));
+
+    Random random = new Random(data.randomKey().longValue());
+    byte[] searchKey = new byte[16];
+    random.nextBytes(searchKey);
+    Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(searchKey, "AES"));
+    Text publicKey = new Text(Base64.encodeBase64String(searchKey));
+    String keyword = randomWord(random);
+
+    Row[] result = new Row[rows];
+    for (int i = 0; i < rows; i++) {
+      Row row = new Row();
+      row.a = new Text(a[i]);
+      row.b = new Text(b[i]);
+      row.s = new Text(s[i]);
+      row.p = p;
+      row.q = q;
+      row.n = n;
+      row.halfN = halfN;
+      row.plain = new LongWritable(rowIds[i].longValue() % MAX_VALUE);
+
+      // About one row in NUM_WORDS contains the keyword.
+      row.wordStrings = new ArrayList<String>();
+      row.words = new ArrayList<Text>();
+      for (int j = 0; j < NUM_WORDS; j++) {
+        String word = random.nextInt(NUM_WORDS * NUM_WORDS) == 0 ? keyword :
+                randomWord(random);
+        String encrypted = encryptWord(cipher, random, word);
+        row.wordStrings.add(encrypted);
+        row.words.add(new Text(encrypted));
+      }
+      row.keyword = new Text(keyword);
+      row.publicKey = publicKey;
+      result[i] = row;
+    }
+    return result;
+  }
+
+  private static String randomWord(Random random) {
+    char[] word = new char[WORD_LENGTH];
+    for (int i = 0; i < word.length; i++)
+      word[i] = (char) ('a' + random.nextInt(26));
+    return new String(word);
+  }
+
+  /**
+   * Encrypts word as (word xor (s, F_k(s))) with a random s, as the search
+   * encryption does.
+   */
+  private static String encryptWord(Cipher cipher, Random random, String
+          word) throws Exception {
+    byte[] plain = word.getBytes();
+    byte[] s = new byte[plain.length - 1];
+    random.nextBytes(s);
+    byte fks = cipher.doFinal(s)[0];
+
+    byte[] encrypted = new byte[plain.length];
+    for (int i = 0; i < s.length; i++)
+      encrypted[i] = (byte) (plain[i] ^ s[i]);
+    encrypted[s.length] = (byte) (plain[s.length] ^ fks);
+    return Base64.encodeBase64String(encrypted);
+  }
+
+  /**
+   * @return the object inspector of value, which is a constant one if
+   * constant is true.
+   */
+  private static ObjectInspector getObjectInspector(Object value, boolean
+          constant) {
+    if (value instanceof List) {
+      return ObjectInspectorFactory.getStandardListObjectInspector
+              (PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+    }
+
+    PrimitiveCategory category = value instanceof LongWritable ?
+            PrimitiveCategory.LONG : PrimitiveCategory.STRING;
+    if (constant) {
+      return PrimitiveObjectInspectorFactory
+              .getPrimitiveWritableConstantObjectInspector(category, value);
+    }
+    return category == PrimitiveCategory.LONG ? PrimitiveObjectInspectorFactory
+            .writableLongObjectInspector : PrimitiveObjectInspectorFactory
+            .writableStringObjectInspector;
+  }
+
+  /**
+   * Evaluates a GenericUDF row by row. The constant arguments, whose values
+   * are the same for all rows, are passed as constant object inspectors if
+   * constant is true.
+   */
+  private static abstract class GenericUDFCase implements BenchCase {
+
+    private final String name;
+    private final GenericUDF udf;
+    private final boolean constant;
+    private final int[] constantArgs;
+    private DeferredObject[][] rows;
+
+    GenericUDFCase(String name, GenericUDF udf, boolean constant, int...
+            constantArgs) {
+      this.name = name;
+      this.udf = udf;
+      this.constant = constant;
+      this.constantArgs = constantArgs;
+    }
+
+    protected abstract Object[] makeRow(Row row);
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void prepare(SyntheticCiphers data, int numRows) throws Exception {
+      Row[] input = makeRows(data, numRows);
+      Object[] first = null;
+      rows = new DeferredObject[numRows][];
+      for (int i = 0; i < numRows; i++) {
+        Object[] values = makeRow(input[i]);
+        if (first == null)
+          first = values;
+        rows[i] = new DeferredObject[values.length];
+        for (int j = 0; j < values.length; j++)
+          rows[i][j] = new DeferredJavaObject(values[j]);
+      }
+
+      ObjectInspector[] argumentOIs = new ObjectInspector[first.length];
+      for (int i = 0; i < argumentOIs.length; i++) {
+        boolean isConstant = constant && Arrays.binarySearch(constantArgs,
+                i) >= 0;
+        argumentOIs[i] = getObjectInspector(first[i], isConstant);
+      }
+      udf.initialize(argumentOIs);
+    }
+
+    @Override
+    public Object run() throws Exception {
+      int hash = 0;
+      for (DeferredObject[] row : rows) {
+        Object result = udf.evaluate(row);
+        hash += result == null ? 0 : result.hashCode();
+      }
+      return hash;
+    }
+  }
+
+  /**
+   * Calls a reflective UDF row by row, as GenericUDFBridge does once it has
+   * converted the arguments.
+   */
+  private static abstract class RowCase implements BenchCase {
+
+    private final String name;
+    protected Row[] rows;
+
+    RowCase(String name) {
+      this.name = name;
+    }
+
+    protected Object evaluate(Row row) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void prepare(SyntheticCiphers data, int numRows) throws Exception {
+      rows = makeRows(data, numRows);
+    }
+
+    @Override
+    public Object run() throws Exception {
+      int hash = 0;
+      for (Row row : rows) {
+        Object result = evaluate(row);
+        hash += result == null ? 0 : result.hashCode();
+      }
+      return hash;
+    }
+  }
+
+  /**
+   * Runs sdb_sum as a map side PARTIAL1 aggregation over NUM_PARTIALS
+   * splits, whose partial results are merged by a FINAL aggregation.
+   */
+  private static class SumCase implements BenchCase {
+
+    private final String name;
+    private GenericUDAFEvaluator partial;
+    private GenericUDAFEvaluator fin;
+    private Object[][] rows;
+
+    SumCase(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void prepare(SyntheticCiphers data, int numRows) throws Exception {
+      Row[] input = makeRows(data, numRows);
+      rows = new Object[numRows][];
+      for (int i = 0; i < numRows; i++)
+        rows[i] = new Object[]{input[i].a, input[i].n};
+
+      TypeInfo[] parameters = {TypeInfoFactory.stringTypeInfo,
+              TypeInfoFactory.stringTypeInfo};
+      SdbSumUDF2 resolver = new SdbSumUDF2();
+      ObjectInspector stringOI = PrimitiveObjectInspectorFactory
+              .writableStringObjectInspector;
+      partial = resolver.getEvaluator(parameters);
+      ObjectInspector partialOI = partial.init(GenericUDAFEvaluator.Mode
+              .PARTIAL1, new ObjectInspector[]{stringOI, stringOI});
+      fin = resolver.getEvaluator(parameters);
+      fin.init(GenericUDAFEvaluator.Mode.FINAL, new ObjectInspector[]{
+              partialOI});
+    }
+
+    @Override
+    public Object run() throws Exception {
+      GenericUDAFEvaluator.AggregationBuffer total = fin
+              .getNewAggregationBuffer();
+      GenericUDAFEvaluator.AggregationBuffer buffer = partial
+              .getNewAggregationBuffer();
+      int splitSize = getSplitSize(rows.length);
+      for (int start = 0; start < rows.length; start += splitSize) {
+        partial.reset(buffer);
+        int end = Math.min(rows.length, start + splitSize);
+        for (int i = start; i < end; i++)
+          partial.iterate(buffer, rows[i]);
+        // The partial result is reused, so copy it as a shuffle would do.
+        fin.merge(total, new BytesWritable(((BytesWritable) partial
+                .terminatePartial(buffer)).copyBytes()));
+      }
+      return fin.terminate(total);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH mode of {@link HiveUDFBench}. Every invocation pushes ROWS rows
+ * through the UDF, so the reported throughput is in rows/s. Run with the
+ * "-prof gc" option of JMH to get the bytes allocated per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HiveUDFJmhBenchmark {
+
+  private static final int ROWS = 10000;
+
+  // Same as HiveUDFBench.CASES, which an annotation cannot refer to.
+  @Param({"sdb_add", "sdb_intadd", "sdb_multi", "sdb_keyUp", "sdb_keyUpPlain",
+          "sdb_cartesian", "sdb_gt", "sdb_ge", "sdb_lt", "sdb_le", "sdb_eq",
+          "sdb_ne", "sdb_search", "sdb_eval", "sdb_sum", "sdb_add_const",
+          "sdb_intadd_const", "sdb_multi_const", "sdb_keyUp_const",
+          "sdb_keyUpPlain_const", "sdb_cartesian_const", "sdb_gt_const",
+          "sdb_ge_const", "sdb_lt_const", "sdb_le_const", "sdb_search_const",
+          "sdb_eval_const", "sdb_add_udf", "sdb_intadd_udf", "sdb_multi_udf",
+          "sdb_keyUp_udf", "sdb_keyUpPlain_udf", "sdb_cartesian_udf",
+          "sdb_gt_udf", "sdb_ge_udf", "sdb_lt_udf", "sdb_le_udf", "sdb_eq_udf",
+          "sdb_ne_udf", "sdb_search_udf", "sdb_sum_udaf", "sdb_first_udaf"})
+  public String udf;
+
+  private BenchCase benchCase;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    benchCase = HiveUDFBench.getCase(udf);
+    benchCase.prepare(new SyntheticCiphers(42), ROWS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object run() throws Exception {
+    return benchCase.run();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.TypeCast;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+
+import java.math.BigInteger;
+
+/**
+ * GenericUDF returning a radix-36 ciphertext. Returns null if any argument
+ * is null.
+ */
+public abstract class SdbArithGenericUDF extends SdbGenericUDF {
+
+  private final Text result = new Text();
+  private BigInteger[] values;
+
+  protected abstract BigInteger compute(BigInteger[] values);
+
+  @Override
+  protected ObjectInspector getOutputObjectInspector() {
+    return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+  }
+
+  @Override
+  public Object evaluate(DeferredObject[] arguments) throws HiveException {
+    if (values == null)
+      values = new BigInteger[arguments.length];
+
+    for (int i = 0; i < arguments.length; i++) {
+      values[i] = getArgument(arguments, i);
+      if (values[i] == null)
+        return null;
+    }
+
+    result.set(TypeCast.bigIntToString(compute(values)));
+    return result;
+  }
+}
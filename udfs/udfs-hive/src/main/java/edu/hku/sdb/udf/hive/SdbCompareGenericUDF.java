@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.BooleanWritable;
+
+import java.math.BigInteger;
+
+/**
+ * GenericUDF comparing a key updated difference against zero or halfN.
+ * Returns false if any argument is null.
+ */
+public abstract class SdbCompareGenericUDF extends SdbGenericUDF {
+
+  private final BooleanWritable result = new BooleanWritable();
+  private BigInteger[] values;
+
+  protected abstract boolean compare(BigInteger[] values);
+
+  @Override
+  protected ObjectInspector getOutputObjectInspector() {
+    return PrimitiveObjectInspectorFactory.writableBooleanObjectInspector;
+  }
+
+  @Override
+  public Object evaluate(DeferredObject[] arguments) throws HiveException {
+    if (values == null)
+      values = new BigInteger[arguments.length];
+
+    boolean ret = true;
+    for (int i = 0; i < arguments.length; i++) {
+      values[i] = getArgument(arguments, i);
+      if (values[i] == null) {
+        ret = false;
+        break;
+      }
+    }
+
+    result.set(ret && compare(values));
+    return result;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.SdbProgram;
+import edu.hku.sdb.udf.util.TypeCast;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.Text;
+
+import java.math.BigInteger;
+
+/**
+ * GenericUDF of sdb_eval(program, args...), which evaluates a chain of SDB
+ * arithmetic UDFs compiled into a {@link SdbProgram}. Each argument is parsed
+ * once and only the final result is formatted. Returns null if any argument
+ * is null.
+ */
+public class SdbEvalGenericUDF extends GenericUDF {
+
+  private final Text result = new Text();
+
+  private PrimitiveObjectInspector[] argumentOIs;
+  private SdbProgram program;
+  private boolean constantProgram;
+  private BigInteger[] values;
+
+  @Override
+  public ObjectInspector initialize(ObjectInspector[] arguments) throws
+          UDFArgumentException {
+    if (arguments.length < 1) {
+      throw new UDFArgumentLengthException("sdb_eval requires a program");
+    }
+
+    argumentOIs = new PrimitiveObjectInspector[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      if (arguments[i].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+        throw new UDFArgumentTypeException(i, "sdb_eval only takes " +
+                "primitive arguments, but got " + arguments[i].getTypeName());
+      }
+      argumentOIs[i] = (PrimitiveObjectInspector) arguments[i];
+    }
+
+    if (arguments[0] instanceof ConstantObjectInspector) {
+      Object text = ((ConstantObjectInspector) arguments[0])
+              .getWritableConstantValue();
+      if (text != null) {
+        setProgram(PrimitiveObjectInspectorUtils.getString(text,
+                argumentOIs[0]));
+        constantProgram = true;
+      }
+    }
+
+    return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+  }
+
+  private void setProgram(String text) throws UDFArgumentException {
+    try {
+      program = SdbProgram.compile(text);
+    } catch (IllegalArgumentException e) {
+      throw new UDFArgumentException(e.getMessage());
+    }
+    if (program.getNumArguments() != argumentOIs.length - 1) {
+      throw new UDFArgumentLengthException("sdb_eval program " + text +
+              " takes " + program.getNumArguments() + " arguments, but got " +
+              (argumentOIs.length - 1));
+    }
+    values = new BigInteger[program.getNumArguments()];
+  }
+
+  @Override
+  public Object evaluate(DeferredObject[] arguments) throws HiveException {
+    if (!constantProgram) {
+      // Keep the last program if it is not a constant.
+      Object text = arguments[0].get();
+      if (text == null)
+        return null;
+      String programText = PrimitiveObjectInspectorUtils.getString(text,
+              argumentOIs[0]);
+      if (program == null || !program.getText().equals(programText))
+        setProgram(programText);
+    }
+
+    for (int i = 0; i < values.length; i++) {
+      Object value = arguments[i + 1].get();
+      if (value == null)
+        return null;
+
+      if (program.isPlainArgument(i))
+        values[i] = BigInteger.valueOf(PrimitiveObjectInspectorUtils.getLong
+                (value, argumentOIs[i + 1]));
+      else
+        values[i] = TypeCast.stringToBigInt(PrimitiveObjectInspectorUtils
+                .getString(value, argumentOIs[i + 1]));
+    }
+
+    result.set(TypeCast.bigIntToString(program.evaluate(values)));
+    return result;
+  }
+
+  @Override
+  public String getDisplayString(String[] children) {
+    StringBuilder sb = new StringBuilder("sdb_eval(");
+    for (int i = 0; i < children.length; i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(children[i]);
+    }
+    sb.append(")");
+    return sb.toString();
+  }
+}
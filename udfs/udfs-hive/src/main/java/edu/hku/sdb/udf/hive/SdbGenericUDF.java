@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.TypeCast;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+
+import java.math.BigInteger;
+
+/**
+ * Base class of the SDB GenericUDFs. Constant arguments, such as n, p, q and
+ * halfN, are parsed once in initialize, so that only the column arguments
+ * are parsed for every row.
+ */
+public abstract class SdbGenericUDF extends GenericUDF {
+
+  protected PrimitiveObjectInspector[] argumentOIs;
+  // Parsed constant arguments, null for non-constant ones.
+  protected BigInteger[] constants;
+
+  protected abstract String getFuncName();
+
+  protected abstract int getNumArguments();
+
+  protected abstract ObjectInspector getOutputObjectInspector();
+
+  @Override
+  public ObjectInspector initialize(ObjectInspector[] arguments) throws
+          UDFArgumentException {
+    if (arguments.length != getNumArguments()) {
+      throw new UDFArgumentLengthException(getFuncName() + " requires " +
+              getNumArguments() + " arguments, but got " + arguments.length);
+    }
+
+    argumentOIs = new PrimitiveObjectInspector[arguments.length];
+    constants = new BigInteger[arguments.length];
+
+    for (int i = 0; i < arguments.length; i++) {
+      if (arguments[i].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+        throw new UDFArgumentTypeException(i, getFuncName() + " only takes " +
+                "primitive arguments, but got " + arguments[i].getTypeName());
+      }
+      argumentOIs[i] = (PrimitiveObjectInspector) arguments[i];
+
+      if (arguments[i] instanceof ConstantObjectInspector) {
+        Object value = ((ConstantObjectInspector) arguments[i])
+                .getWritableConstantValue();
+        if (value != null)
+          constants[i] = parseArgument(value, i);
+      }
+    }
+
+    return getOutputObjectInspector();
+  }
+
+  /**
+   * Parse the i-th argument, which is a radix-36 string by default.
+   *
+   * @param value
+   * @param i
+   * @return
+   */
+  protected BigInteger parseArgument(Object value, int i) {
+    return TypeCast.stringToBigInt(PrimitiveObjectInspectorUtils.getString
+            (value, argumentOIs[i]));
+  }
+
+  /**
+   * @return the value of the i-th argument, null if it is null.
+   */
+  protected BigInteger getArgument(DeferredObject[] arguments, int i) throws
+          HiveException {
+    if (constants[i] != null)
+      return constants[i];
+
+    Object value = arguments[i].get();
+    if (value == null)
+      return null;
+
+    return parseArgument(value, i);
+  }
+
+  @Override
+  public String getDisplayString(String[] children) {
+    StringBuilder sb = new StringBuilder(getFuncName());
+    sb.append("(");
+    for (int i = 0; i < children.length; i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(children[i]);
+    }
+    sb.append(")");
+    return sb.toString();
+  }
+}
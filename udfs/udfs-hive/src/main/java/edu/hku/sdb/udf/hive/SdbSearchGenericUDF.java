@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.SearchMatcher;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BooleanWritable;
+
+/**
+ * GenericUDF of sdb_search(words, keyword, publicKey), which reads the
+ * encrypted words straight from the array column instead of having them
+ * converted into a list for every row. The search cipher is kept as long as
+ * the public key stays the same, and the search stops at the first match.
+ */
+public class SdbSearchGenericUDF extends GenericUDF {
+
+  private final BooleanWritable result = new BooleanWritable();
+
+  private ListObjectInspector wordsOI;
+  private PrimitiveObjectInspector wordOI;
+  private PrimitiveObjectInspector keywordOI;
+  private PrimitiveObjectInspector publicKeyOI;
+
+  private SearchMatcher matcher;
+
+  @Override
+  public ObjectInspector initialize(ObjectInspector[] arguments) throws
+          UDFArgumentException {
+    if (arguments.length != 3) {
+      throw new UDFArgumentLengthException("sdb_search requires 3 " +
+              "arguments, but got " + arguments.length);
+    }
+
+    if (arguments[0].getCategory() != ObjectInspector.Category.LIST ||
+            ((ListObjectInspector) arguments[0]).getListElementObjectInspector()
+                    .getCategory() != ObjectInspector.Category.PRIMITIVE) {
+      throw new UDFArgumentTypeException(0, "sdb_search only takes an array " +
+              "of strings as argument 1, but got " + arguments[0].getTypeName());
+    }
+    wordsOI = (ListObjectInspector) arguments[0];
+    wordOI = (PrimitiveObjectInspector) wordsOI.getListElementObjectInspector();
+
+    for (int i = 1; i < arguments.length; i++) {
+      if (arguments[i].getCategory() != ObjectInspector.Category.PRIMITIVE) {
+        throw new UDFArgumentTypeException(i, "sdb_search only takes " +
+                "primitive argument " + (i + 1) + ", but got " + arguments[i]
+                .getTypeName());
+      }
+    }
+    keywordOI = (PrimitiveObjectInspector) arguments[1];
+    publicKeyOI = (PrimitiveObjectInspector) arguments[2];
+
+    return PrimitiveObjectInspectorFactory.writableBooleanObjectInspector;
+  }
+
+  @Override
+  public Object evaluate(DeferredObject[] arguments) throws HiveException {
+    Object words = arguments[0].get();
+    Object keyword = arguments[1].get();
+    Object publicKey = arguments[2].get();
+    if (words == null || keyword == null || publicKey == null) {
+      result.set(false);
+      return result;
+    }
+
+    matcher = SearchMatcher.forKey(matcher, PrimitiveObjectInspectorUtils
+            .getString(publicKey, publicKeyOI));
+    String keywordString = PrimitiveObjectInspectorUtils.getString(keyword,
+            keywordOI);
+
+    boolean match = false;
+    int length = wordsOI.getListLength(words);
+    for (int i = 0; i < length && !match; i++) {
+      Object word = wordsOI.getListElement(words, i);
+      if (word != null)
+        match = matcher.match(PrimitiveObjectInspectorUtils.getString(word,
+                wordOI), keywordString);
+    }
+
+    result.set(match);
+    return result;
+  }
+
+  @Override
+  public String getDisplayString(String[] children) {
+    return "sdb_search(" + children[0] + ", " + children[1] + ", " +
+            children[2] + ")";
+  }
+}
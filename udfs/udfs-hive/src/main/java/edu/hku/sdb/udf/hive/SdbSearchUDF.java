@@ -17,9 +17,9 @@
 
 package edu.hku.sdb.udf.hive;
 
+import edu.hku.sdb.udf.util.SearchMatcher;
 import edu.hku.sdb.udf.util.TextArrayWritable;
 import edu.hku.sdb.udf.util.TypeCast;
-import edu.hku.sdb.udf.util.UDFHandler;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.Text;
@@ -29,9 +29,12 @@ import java.util.ArrayList;
 
 public class SdbSearchUDF extends UDF {
 
+  private SearchMatcher matcher;
+
   public BooleanWritable evaluate(ArrayList<String> a, Text b, Text n) {
 
-    return new BooleanWritable(UDFHandler.match(a, b.toString(), n.toString()));
+    matcher = SearchMatcher.forKey(matcher, n.toString());
+    return new BooleanWritable(matcher.matchAny(a, b.toString()));
   }
 
 }
\ No newline at end of file
@@ -17,18 +17,17 @@
 
 package edu.hku.sdb.udf.hive;
 
+import edu.hku.sdb.udf.util.SumAccumulator;
 import edu.hku.sdb.udf.util.TypeCast;
-import org.apache.hadoop.hive.common.type.HiveVarchar;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
 import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
-import org.apache.hadoop.hive.serde2.io.HiveVarcharWritable;
 import org.apache.hadoop.hive.serde2.objectinspector.*;
 
 import org.apache.hadoop.hive.serde2.objectinspector.primitive
-        .HiveVarcharObjectInspector;
+        .BinaryObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive
         .PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive
@@ -36,15 +35,16 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.Text;
-import org.apache.hive.common.util.HiveStringUtils;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
-import java.util.ArrayList;
+import java.io.IOException;
 
 /**
- * This implementation through runtime error.
+ * SUM aggregation of SDB encrypted values. The partial aggregation is passed
+ * between map and reduce as the binary form of a {@link SumAccumulator}.
  */
 public class SdbSumUDF2 extends AbstractGenericUDAFResolver {
 
@@ -97,60 +97,44 @@ public class SdbSumUDF2 extends AbstractGenericUDAFResolver {
     private transient StringObjectInspector inputOI;
     private transient StringObjectInspector nOI;
     // For PARTIAL2 and FINAL
-    private transient StructObjectInspector sOI;
-    private transient StructField sumField;
-    private transient StructField nField;
-    private StringObjectInspector sumFieldOI;
-    private StringObjectInspector nFieldOI;
+    private transient BinaryObjectInspector partialOI;
     // For PARTIAL1 and PARTIAL2
-    protected transient Object[] partialResult;
+    protected transient BytesWritable partialResult;
+    // For FINAL and COMPLETE
+    protected transient Text result;
 
     @Override
     public ObjectInspector init(Mode mode, ObjectInspector[] parameters)
             throws HiveException {
-      assert (parameters.length == 2);
       super.init(mode, parameters);
 
       // init input
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
+        assert (parameters.length == 2);
         inputOI = (StringObjectInspector) parameters[0];
         nOI = (StringObjectInspector) parameters[1];
       } else {
-        sOI = (StructObjectInspector) parameters[0];
-        sumField = sOI.getStructFieldRef("sum");
-        nField = sOI.getStructFieldRef("n");
-        sumFieldOI = (StringObjectInspector) sumField.getFieldObjectInspector();
-        nFieldOI = (StringObjectInspector) nField.getFieldObjectInspector();
+        partialOI = (BinaryObjectInspector) parameters[0];
       }
 
       // init output
       if (mode == Mode.PARTIAL1 || mode == Mode.PARTIAL2) {
-        // The output of a partial aggregation is a struct containing
-        // a "string" sum and a "string" public key n.
-
-        ArrayList<ObjectInspector> foi = new ArrayList<ObjectInspector>();
-        foi.add(PrimitiveObjectInspectorFactory.writableStringObjectInspector);
-        foi.add(PrimitiveObjectInspectorFactory.writableStringObjectInspector);
-        ArrayList<String> fname = new ArrayList<String>();
-        fname.add("sum");
-        fname.add("n");
-        partialResult = new Object[2];
-        partialResult[0] = new Text("0");
-        partialResult[1] = new Text();
-        return ObjectInspectorFactory.getStandardStructObjectInspector(fname,
-                foi);
+        // The output of a partial aggregation is the serialized sum and
+        // public key n.
+        partialResult = new BytesWritable();
+        return PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
 
       } else {
+        result = new Text();
         return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
       }
     }
 
     /**
-     * class for storing the current max value
+     * class for storing the current sum
      */
     static class SumAgg extends AbstractAggregationBuffer {
-      String sum;
-      String n;
+      SumAccumulator sum = new SumAccumulator();
     }
 
     @Override
@@ -163,35 +147,40 @@ public class SdbSumUDF2 extends AbstractGenericUDAFResolver {
     @Override
     public void reset(AggregationBuffer agg) throws HiveException {
       SumAgg myagg = (SumAgg) agg;
-      myagg.sum = new String("0");
-      myagg.n = new String("");
+      myagg.sum.reset();
     }
 
-    boolean warned = false;
-
     @Override
     public void iterate(AggregationBuffer agg, Object[] parameters)
             throws HiveException {
       assert (parameters.length == 2);
       SumAgg sumAgg = (SumAgg) agg;
 
-      String sum = PrimitiveObjectInspectorUtils.getString
-              (parameters[0], inputOI);
-      String n = PrimitiveObjectInspectorUtils.getString(parameters[1],
-              nOI);
+      if (parameters[0] == null)
+        return;
 
-      sumAgg.n = n;
-      sumAgg.sum = TypeCast.bigIntToString(TypeCast.stringToBigInt(sumAgg.sum).add(TypeCast.stringToBigInt(sum)).mod
-              (TypeCast.stringToBigInt(n)));
+      // The public key n is the same for all rows, so only parse it once.
+      if (!sumAgg.sum.hasModulus()) {
+        String n = PrimitiveObjectInspectorUtils.getString(parameters[1],
+                nOI);
+        sumAgg.sum.setModulus(TypeCast.stringToBigInt(n));
+      }
 
+      String value = PrimitiveObjectInspectorUtils.getString
+              (parameters[0], inputOI);
+      sumAgg.sum.add(TypeCast.stringToBigInt(value));
     }
 
     @Override
     public Object terminatePartial(AggregationBuffer agg)
             throws HiveException {
       SumAgg sumAgg = (SumAgg) agg;
-      partialResult[0] = new Text(sumAgg.sum);
-      partialResult[1] = new Text(sumAgg.n);
+      try {
+        byte[] bytes = sumAgg.sum.toBytes();
+        partialResult.set(bytes, 0, bytes.length);
+      } catch (IOException e) {
+        throw new HiveException(e);
+      }
 
       return partialResult;
     }
@@ -201,18 +190,19 @@ public class SdbSumUDF2 extends AbstractGenericUDAFResolver {
             throws HiveException {
       if (partial != null) {
         SumAgg myagg = (SumAgg) agg;
-        Object partialSum = sOI.getStructFieldData(partial, sumField);
-        Text sum = sumFieldOI.getPrimitiveWritableObject(partialSum);
-        myagg.sum = TypeCast.bigIntToString(TypeCast.stringToBigInt(myagg.sum).add(TypeCast.stringToBigInt(sum.toString())).mod
-                (TypeCast.stringToBigInt(myagg.n)));
-
+        try {
+          myagg.sum.merge(partialOI.getPrimitiveJavaObject(partial));
+        } catch (IOException e) {
+          throw new HiveException(e);
+        }
       }
     }
 
     @Override
     public Object terminate(AggregationBuffer agg) throws HiveException {
       SumAgg myagg = (SumAgg) agg;
-      return myagg.sum;
+      result.set(TypeCast.bigIntToString(myagg.sum.get()));
+      return result;
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.TypeCast;
+import junit.framework.TestCase;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.BooleanWritable;
+
+import java.math.BigInteger;
+
+public class SdbCompareGenericUDFTest extends TestCase {
+
+  // n = 35, so differences below halfN are positive.
+  private static final String HALF_N = "17";
+
+  private final ObjectInspector stringOI = PrimitiveObjectInspectorFactory
+          .writableStringObjectInspector;
+
+  private DeferredObject toDeferred(String value) {
+    return new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger
+            (value)));
+  }
+
+  private boolean evaluate(SdbCompareGenericUDF udf, String value) throws
+          Exception {
+    return ((BooleanWritable) udf.evaluate(new DeferredObject[]{toDeferred
+            (value), toDeferred(HALF_N)})).get();
+  }
+
+  /**
+   * Evaluates udf on the key updated differences of a > b, a < b and
+   * a = b, with halfN as a column and as a constant.
+   */
+  private void assertCompare(SdbCompareGenericUDF udf, SdbCompareGenericUDF
+          constantUdf, boolean greater, boolean less, boolean equal) throws
+          Exception {
+    udf.initialize(new ObjectInspector[]{stringOI, stringOI});
+    ObjectInspector constantOI = PrimitiveObjectInspectorFactory
+            .getPrimitiveWritableConstantObjectInspector(PrimitiveCategory
+                    .STRING, TypeCast.bigIntToText(new BigInteger(HALF_N)));
+    constantUdf.initialize(new ObjectInspector[]{stringOI, constantOI});
+
+    for (SdbCompareGenericUDF u : new SdbCompareGenericUDF[]{udf,
+            constantUdf}) {
+      assertEquals(greater, evaluate(u, "5"));
+      assertEquals(less, evaluate(u, "20"));
+      assertEquals(equal, evaluate(u, "0"));
+    }
+  }
+
+  public void testGt() throws Exception {
+    assertCompare(new SdbGtGenericUDF(), new SdbGtGenericUDF(), true, false,
+            false);
+  }
+
+  public void testGe() throws Exception {
+    assertCompare(new SdbGeGenericUDF(), new SdbGeGenericUDF(), true, false,
+            true);
+  }
+
+  public void testLt() throws Exception {
+    assertCompare(new SdbLtGenericUDF(), new SdbLtGenericUDF(), false, true,
+            false);
+  }
+
+  public void testLe() throws Exception {
+    assertCompare(new SdbLeGenericUDF(), new SdbLeGenericUDF(), false, true,
+            true);
+  }
+
+  public void testEqNe() throws Exception {
+    SdbEqGenericUDF eq = new SdbEqGenericUDF();
+    SdbNeGenericUDF ne = new SdbNeGenericUDF();
+    eq.initialize(new ObjectInspector[]{stringOI});
+    ne.initialize(new ObjectInspector[]{stringOI});
+
+    assertTrue(((BooleanWritable) eq.evaluate(new DeferredObject[]{toDeferred
+            ("0")})).get());
+    assertFalse(((BooleanWritable) ne.evaluate(new DeferredObject[]{toDeferred
+            ("0")})).get());
+    assertFalse(((BooleanWritable) eq.evaluate(new DeferredObject[]{toDeferred
+            ("5")})).get());
+    assertTrue(((BooleanWritable) ne.evaluate(new DeferredObject[]{toDeferred
+            ("5")})).get());
+  }
+
+  public void testEvaluateNull() throws Exception {
+    SdbGtGenericUDF udf = new SdbGtGenericUDF();
+    udf.initialize(new ObjectInspector[]{stringOI, stringOI});
+    assertFalse(((BooleanWritable) udf.evaluate(new DeferredObject[]{new
+            DeferredJavaObject(null), toDeferred(HALF_N)})).get());
+  }
+}
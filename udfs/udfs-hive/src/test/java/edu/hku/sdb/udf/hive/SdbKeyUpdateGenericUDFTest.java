@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.TypeCast;
+import junit.framework.TestCase;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+import java.math.BigInteger;
+
+public class SdbKeyUpdateGenericUDFTest extends TestCase {
+
+  private final ObjectInspector stringOI = PrimitiveObjectInspectorFactory
+          .writableStringObjectInspector;
+
+  private ObjectInspector constantOI(String value) {
+    return PrimitiveObjectInspectorFactory
+            .getPrimitiveWritableConstantObjectInspector(PrimitiveCategory
+                    .STRING, TypeCast.bigIntToText(new BigInteger(value)));
+  }
+
+  private Object evaluate(SdbKeyUpdateGenericUDF udf, String... args) throws
+          Exception {
+    DeferredObject[] arguments = new DeferredObject[args.length];
+    for (int i = 0; i < args.length; i++)
+      arguments[i] = new DeferredJavaObject(TypeCast.bigIntToText(new
+              BigInteger(args[i])));
+    return udf.evaluate(arguments);
+  }
+
+  /**
+   * Evaluates sdb_keyUp(a, s, p, q, n) with all arguments as columns, and
+   * with p, q and n as constants.
+   */
+  private void assertKeyUpdate(String expected, String a, String s, String p,
+                               String q, String n) throws Exception {
+    SdbKeyUpdateGenericUDF udf = new SdbKeyUpdateGenericUDF();
+    udf.initialize(new ObjectInspector[]{stringOI, stringOI, stringOI,
+            stringOI, stringOI});
+    assertEquals(TypeCast.bigIntToText(new BigInteger(expected)), evaluate
+            (udf, a, s, p, q, n));
+
+    SdbKeyUpdateGenericUDF constantUdf = new SdbKeyUpdateGenericUDF();
+    constantUdf.initialize(new ObjectInspector[]{stringOI, stringOI,
+            constantOI(p), constantOI(q), constantOI(n)});
+    assertEquals(TypeCast.bigIntToText(new BigInteger(expected)), evaluate
+            (constantUdf, a, s, p, q, n));
+  }
+
+  public void testEvaluate1() throws Exception {
+    assertKeyUpdate("21", "9", "23", "4", "14", "35");
+  }
+
+  public void testEvaluate2() throws Exception {
+    assertKeyUpdate("496849390869414279802", "22493371767", "2451", "4",
+            "134211", "526631133691760337517");
+  }
+
+  public void testEvaluateNull() throws Exception {
+    SdbKeyUpdateGenericUDF udf = new SdbKeyUpdateGenericUDF();
+    udf.initialize(new ObjectInspector[]{stringOI, stringOI, constantOI("4"),
+            constantOI("14"), constantOI("35")});
+    assertNull(udf.evaluate(new DeferredObject[]{new DeferredJavaObject(null),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger("23"))),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger("4"))),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger("14"))),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger("35")))}));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.hive;
+
+import edu.hku.sdb.udf.util.TypeCast;
+import junit.framework.TestCase;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+import java.math.BigInteger;
+
+public class SdbMultiGenericUDFTest extends TestCase {
+
+  private SdbMultiGenericUDF udf;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    udf = new SdbMultiGenericUDF();
+    ObjectInspector stringOI = PrimitiveObjectInspectorFactory
+            .writableStringObjectInspector;
+    udf.initialize(new ObjectInspector[]{stringOI, stringOI, stringOI});
+  }
+
+  protected void tearDown() throws Exception {
+    super.tearDown();
+  }
+
+  private Object evaluate(String a, String b, String n) throws Exception {
+    return evaluate(udf, a, b, n);
+  }
+
+  private Object evaluate(SdbMultiGenericUDF udf, String a, String b, String
+          n) throws Exception {
+    return udf.evaluate(new DeferredObject[]{
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger(a))),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger(b))),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger(n)))});
+  }
+
+  public void testEvaluate1() throws Exception {
+    assertEquals(TypeCast.bigIntToText(new BigInteger("34")),
+            evaluate("9", "31", "35"));
+  }
+
+  public void testEvaluate2() throws Exception {
+    assertEquals(TypeCast.bigIntToText(new BigInteger("224933717167058460147")),
+            evaluate("7280564474", "103228925936", "526631133691760337517"));
+  }
+
+  /**
+   * A constant modulus is parsed once in initialize, and gives the same
+   * results as a modulus column.
+   */
+  public void testConstantModulus() throws Exception {
+    String n = "526631133691760337517";
+    SdbMultiGenericUDF constantUdf = new SdbMultiGenericUDF();
+    ObjectInspector stringOI = PrimitiveObjectInspectorFactory
+            .writableStringObjectInspector;
+    ObjectInspector constantOI = PrimitiveObjectInspectorFactory
+            .getPrimitiveWritableConstantObjectInspector(PrimitiveCategory
+                    .STRING, TypeCast.bigIntToText(new BigInteger(n)));
+    constantUdf.initialize(new ObjectInspector[]{stringOI, stringOI,
+            constantOI});
+
+    assertEquals(evaluate("7280564474", "103228925936", n), evaluate
+            (constantUdf, "7280564474", "103228925936", n));
+    assertEquals(evaluate("9", "31", n), evaluate(constantUdf, "9", "31", n));
+  }
+
+  public void testEvaluateNull() throws Exception {
+    assertNull(udf.evaluate(new DeferredObject[]{new DeferredJavaObject(null),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger("9"))),
+            new DeferredJavaObject(TypeCast.bigIntToText(new BigInteger("35")))}));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.util;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+public class SdbProgramTest extends TestCase {
+
+  private static final BigInteger N = new BigInteger("526631133691760337517");
+
+  public void testNestedExpr() {
+    BigInteger a = new BigInteger("7280564474");
+    BigInteger b = new BigInteger("103228925936");
+    BigInteger s = new BigInteger("22493371767");
+    BigInteger p = new BigInteger("187342980733");
+    BigInteger q = new BigInteger("224933717167058460147");
+
+    // sdb_keyUp(sdb_mul(a, sdb_add(a, b, n), n), s, p, q, n)
+    SdbProgram program = SdbProgram.compile("$0 $0 $1 #" + TypeCast
+            .bigIntToString(N) + " add #" + TypeCast.bigIntToString(N) + " " +
+            "mul $2 #" + TypeCast.bigIntToString(p) + " #" + TypeCast
+            .bigIntToString(q) + " #" + TypeCast.bigIntToString(N) + " keyup");
+
+    BigInteger expected = UDFHandler.keyUpdate(UDFHandler.multi(a, UDFHandler
+            .add(a, b, N), N), s, p, q, N);
+
+    assertEquals(3, program.getNumArguments());
+    assertFalse(program.isPlainArgument(0));
+    assertEquals(expected, program.evaluate(new BigInteger[]{a, b, s}));
+  }
+
+  public void testPlainArgument() {
+    SdbProgram program = SdbProgram.compile("%0 $1 #3 #4 #z keyup");
+    assertTrue(program.isPlainArgument(0));
+    assertEquals(UDFHandler.keyUpdate(BigInteger.valueOf(9), BigInteger
+            .valueOf(2), BigInteger.valueOf(3), BigInteger.valueOf(4),
+            BigInteger.valueOf(35)), program.evaluate(new BigInteger[]{
+            BigInteger.valueOf(9), BigInteger.valueOf(2)}));
+  }
+
+  public void testMalformedProgram() {
+    try {
+      SdbProgram.compile("$0 $1 add");
+      fail("A program without enough operands should be rejected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+}
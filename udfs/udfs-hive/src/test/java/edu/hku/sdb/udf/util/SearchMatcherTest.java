@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.hku.sdb.udf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import junit.framework.TestCase;
+import org.apache.commons.codec.binary.Base64;
+
+public class SearchMatcherTest extends TestCase {
+
+  private static final byte[] KEY = "0123456789abcdef".getBytes();
+
+  /**
+   * Encrypts word as (word xor (s, F_k(s))), as the search encryption does.
+   */
+  private String encrypt(String word) throws Exception {
+    Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"));
+
+    byte[] plain = word.getBytes();
+    byte[] s = "sdb".getBytes();
+    byte fks = cipher.doFinal(s)[0];
+    byte[] encrypted = new byte[plain.length];
+    for (int i = 0; i < s.length; i++)
+      encrypted[i] = (byte) (plain[i] ^ s[i]);
+    encrypted[s.length] = (byte) (plain[s.length] ^ fks);
+    return Base64.encodeBase64String(encrypted);
+  }
+
+  public void testMatchAny() throws Exception {
+    String publicKey = Base64.encodeBase64String(KEY);
+    ArrayList<String> words = new ArrayList<String>(Arrays.asList(encrypt
+            ("data"), encrypt("base")));
+
+    SearchMatcher matcher = new SearchMatcher(publicKey);
+    assertTrue(matcher.matchAny(words, "base"));
+    assertTrue(matcher.matchAny(words, "data"));
+    assertFalse(matcher.matchAny(words, "bass"));
+    assertFalse(matcher.matchAny(words, "database"));
+    assertSame(matcher, SearchMatcher.forKey(matcher, publicKey));
+    assertTrue(UDFHandler.match(words, "base", publicKey));
+  }
+}
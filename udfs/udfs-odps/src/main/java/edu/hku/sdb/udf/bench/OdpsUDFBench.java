@@ -0,0 +1,170 @@
+package edu.hku.sdb.udf.bench;
+
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.io.Writable;
+import com.aliyun.odps.udf.Aggregator;
+import edu.hku.sdb.udf.odps.SdbAddUDF;
+import edu.hku.sdb.udf.odps.SdbMultiUDF;
+import edu.hku.sdb.udf.odps.SdbSumUDF;
+import edu.hku.sdb.udf.odps.SdbSumUDF2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Micro-benchmarks of the ODPS UDFs. Aggregators are driven through
+ * newBuffer/iterate/merge/terminate, and the partial buffers are serialized
+ * between the two phases as ODPS does.
+ *
+ * Usage: java edu.hku.sdb.udf.bench.OdpsUDFBench [-rows N] [-warmup N]
+ * [-iterations N] [-seed N] [case ...]
+ */
+public class OdpsUDFBench {
+
+  public static final String[] CASES = {"sdb_add", "sdb_multi", "sdb_sum",
+          "sdb_sum2"};
+
+  private static final long MAX_VALUE = 1000000L;
+
+  // Number of map tasks the rows of an aggregation are split into.
+  private static final int NUM_PARTIALS = 4;
+
+  public static BenchCase getCase(String name) {
+    if (name.equals("sdb_add")) {
+      return new ScalarCase(name) {
+        private final SdbAddUDF udf = new SdbAddUDF();
+
+        @Override
+        protected String evaluate(String a, String b, String n) {
+          return udf.evaluate(a, b, n);
+        }
+      };
+    } else if (name.equals("sdb_multi")) {
+      return new ScalarCase(name) {
+        private final SdbMultiUDF udf = new SdbMultiUDF();
+
+        @Override
+        protected String evaluate(String a, String b, String n) {
+          return udf.evaluate(a, b, n);
+        }
+      };
+    } else if (name.equals("sdb_sum")) {
+      return new AggregatorCase(name, new SdbSumUDF());
+    } else if (name.equals("sdb_sum2")) {
+      return new AggregatorCase(name, new SdbSumUDF2());
+    }
+    throw new IllegalArgumentException("Unknown benchmark " + name);
+  }
+
+  public static List<BenchCase> getCases() {
+    List<BenchCase> cases = new ArrayList<BenchCase>();
+    for (String name : CASES)
+      cases.add(getCase(name));
+    return cases;
+  }
+
+  public static void main(String[] args) throws Exception {
+    BenchRunner runner = new BenchRunner(System.out);
+    runner.parseArgs(args);
+    runner.run(getCases());
+  }
+
+  /**
+   * Evaluates a binary operator on two encrypted columns.
+   */
+  private static abstract class ScalarCase implements BenchCase {
+
+    private final String name;
+    private String[] a;
+    private String[] b;
+    private String n;
+
+    ScalarCase(String name) {
+      this.name = name;
+    }
+
+    protected abstract String evaluate(String a, String b, String n);
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void prepare(SyntheticCiphers data, int rows) throws Exception {
+      BigInteger[] rowIds = data.rowIds(rows);
+      a = SyntheticCiphers.toRadix36(data.encryptColumn(rowIds, MAX_VALUE));
+      b = SyntheticCiphers.toRadix36(data.encryptColumn(rowIds, MAX_VALUE));
+      n = data.getN().toString(Character.MAX_RADIX);
+    }
+
+    @Override
+    public Object run() throws Exception {
+      int hash = 0;
+      for (int i = 0; i < a.length; i++)
+        hash += evaluate(a[i], b[i], n).hashCode();
+      return hash;
+    }
+  }
+
+  private static class AggregatorCase implements BenchCase {
+
+    private final String name;
+    private final Aggregator aggregator;
+    private Writable[][] rows;
+
+    AggregatorCase(String name, Aggregator aggregator) {
+      this.name = name;
+      this.aggregator = aggregator;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public void prepare(SyntheticCiphers data, int numRows) throws Exception {
+      String[] values = SyntheticCiphers.toRadix36(data.encryptColumn(data
+              .rowIds(numRows), MAX_VALUE));
+      Text n = new Text(data.getN().toString(Character.MAX_RADIX));
+      rows = new Writable[numRows][];
+      for (int i = 0; i < numRows; i++)
+        rows[i] = new Writable[]{new Text(values[i]), n};
+    }
+
+    @Override
+    public Object run() throws Exception {
+      Writable total = aggregator.newBuffer();
+      int splitSize = (rows.length + NUM_PARTIALS - 1) / NUM_PARTIALS;
+      for (int start = 0; start < rows.length; start += splitSize) {
+        Writable buffer = aggregator.newBuffer();
+        int end = Math.min(rows.length, start + splitSize);
+        for (int i = start; i < end; i++)
+          aggregator.iterate(buffer, rows[i]);
+        aggregator.merge(total, shuffle(buffer));
+      }
+      return aggregator.terminate(total);
+    }
+
+    /**
+     * @return a copy of buffer read back from its serialized form
+     */
+    private Writable shuffle(Writable buffer) throws Exception {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      buffer.write(out);
+      out.close();
+
+      Writable copy = aggregator.newBuffer();
+      copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes
+              .toByteArray())));
+      return copy;
+    }
+  }
+}
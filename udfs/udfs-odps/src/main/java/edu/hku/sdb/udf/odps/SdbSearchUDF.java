@@ -17,16 +17,19 @@
 
 package edu.hku.sdb.udf.odps;
 
-import edu.hku.sdb.udf.util.UDFHandler;
+import edu.hku.sdb.udf.util.SearchMatcher;
 import com.aliyun.odps.udf.UDF;
 
 import java.util.ArrayList;
 
 public class SdbSearchUDF extends UDF {
 
+  private SearchMatcher matcher;
+
   public Boolean evaluate(ArrayList<String> a, String b, String n) {
 
-    return new Boolean(UDFHandler.match(a, b, n));
+    matcher = SearchMatcher.forKey(matcher, n);
+    return new Boolean(matcher.matchAny(a, b));
   }
 
 }
\ No newline at end of file
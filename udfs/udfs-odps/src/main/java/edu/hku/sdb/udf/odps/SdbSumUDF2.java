@@ -0,0 +1,69 @@
+package edu.hku.sdb.udf.odps;
+
+import com.aliyun.odps.io.Writable;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.udf.Aggregator;
+import com.aliyun.odps.udf.UDFException;
+import com.aliyun.odps.udf.annotation.Resolve;
+import edu.hku.sdb.udf.util.SumAccumulator;
+import edu.hku.sdb.udf.util.TypeCast;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * SUM aggregation of SDB encrypted values, which shares its
+ * {@link SumAccumulator} with the Hive version. The public key n is parsed
+ * once per group and the buffer is serialized in a fixed-width binary form.
+ */
+@Resolve({"string,string->string"})
+public class SdbSumUDF2 extends Aggregator {
+
+  private static class SumBuffer implements Writable {
+
+    private SumAccumulator sum = new SumAccumulator();
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      sum.write(out);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      sum.readFields(in);
+    }
+  }
+
+  @Override
+  public Writable newBuffer() {
+    return new SumBuffer();
+  }
+
+  @Override
+  public void iterate(Writable buffer, Writable[] args) throws UDFException {
+    Text value = (Text) args[0];
+    Text n = (Text) args[1];
+    SumBuffer buf = (SumBuffer) buffer;
+    if(value != null && n != null) {
+      if (!buf.sum.hasModulus())
+        buf.sum.setModulus(TypeCast.textToBigInt(n));
+      buf.sum.add(TypeCast.textToBigInt(value));
+    }
+
+  }
+
+  @Override
+  public Writable terminate(Writable buffer) throws UDFException {
+    return TypeCast.bigIntToText(((SumBuffer) buffer).sum.get());
+  }
+
+  @Override
+  public void merge(Writable buffer, Writable partial) throws UDFException {
+    SumBuffer buf = (SumBuffer) buffer;
+    SumBuffer p = (SumBuffer) partial;
+
+    buf.sum.merge(p.sum);
+  }
+
+}